@@ -0,0 +1,25 @@
+#!/bin/sh
+# Launcher of the application, using the class data sharing archive made by mvn -Pcds package if there is one.
+#   ./app.sh           run the application
+#   ./app.sh --train   make the archive with a training run of the application
+# Other arguments are options of the JVM.
+# app/target/app.jar holds the application and the classes it uses from the OpenMap jars, built by mvn package.
+cd "$(dirname "$0")" || exit 1
+JAVA="${JAVA_HOME:+$JAVA_HOME/bin/}java"
+JAR="app/target/app.jar"
+ARCHIVE="app/target/app.jsa"
+
+if [ ! -f "$JAR" ]; then
+    echo "$JAR not found, build it with: mvn package" >&2
+    exit 1
+fi
+
+if [ "$1" = "--train" ]; then
+    shift
+    exec "$JAVA" -XX:ArchiveClassesAtExit="$ARCHIVE" -Dapp.trainingRun=true "$@" -jar "$JAR"
+fi
+
+if [ -f "$ARCHIVE" ]; then
+    exec "$JAVA" -XX:SharedArchiveFile="$ARCHIVE" -Xshare:auto "$@" -jar "$JAR"
+fi
+exec "$JAVA" "$@" -jar "$JAR"
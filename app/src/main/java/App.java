@@ -0,0 +1,181 @@
+import com.bbn.openmap.Layer;
+import com.bbn.openmap.LayerHandler;
+import com.bbn.openmap.MapBean;
+import com.bbn.openmap.PropertyHandler;
+import com.bbn.openmap.app.Main;
+import com.bbn.openmap.event.PaintListener;
+import com.bbn.openmap.util.Debug;
+import startup.StartupPropertyHandler;
+import startup.StartupSnapshot;
+
+import javax.swing.*;
+import java.awt.*;
+import java.io.File;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.Properties;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * App class.
+ * Run main() to launch customised OpenMap application or change propertiesPath variable to run with another configuration.
+ * <p>
+ * The components are created by a {@link StartupPropertyHandler}, which times each of them and, if the
+ * main.lazyStartup property is true, defers the components and layers which are not visible at startup. The startup
+ * times are written out once the map is first painted.
+ * </p>
+ * <p>
+ * The properties, and the graphics of the custom layers, are kept in a {@link StartupSnapshot}, which path is given by
+ * the startup.snapshot system property, an empty path turning it off. They are taken from the snapshot on the next
+ * launch as long as their files are unchanged.
+ * </p>
+ * <p>
+ * If the app.trainingRun system property is true, the application turns all its layers on once the map is painted,
+ * and exits app.trainingDuration milliseconds after it was launched. Run with -XX:ArchiveClassesAtExit, such a run dumps the classes used by the
+ * application into a class data sharing archive, which later launches map with -XX:SharedArchiveFile instead of
+ * loading and verifying the classes again. The cds profile of the build and the app.sh launcher do so.
+ * </p>
+ */
+public class App {
+    /**
+     * Variable containing path to properties file, used to configure the application.
+     * <p>
+     * openmap.properties - initial version of the file, provided by the authors of the OpenMap framework.
+     * </p>
+     * <p>
+     * openmap_edited.properties - custom version of the file, used in this task, containing custom layers.
+     * </p>
+     */
+    private static final String propertiesPath = "./openmap_edited.properties";
+
+    /**
+     * Prefix of the properties of the application.
+     */
+    private static final String propertyPrefix = "main";
+
+    /**
+     * System property turning the training run on.
+     */
+    public static final String TrainingRunProperty = "app.trainingRun";
+
+    /**
+     * System property for the time the application runs for in a training run, in milliseconds.
+     */
+    public static final String TrainingDurationProperty = "app.trainingDuration";
+
+    /**
+     * Default time the application runs for in a training run.
+     */
+    public static final int DEFAULT_TRAINING_DURATION = 10000;
+
+    public static void main(String[] args) {
+        long start = System.nanoTime();
+        Debug.init();
+        boolean trainingRun = Boolean.getBoolean(TrainingRunProperty);
+        if (trainingRun) {
+            exitAfterTraining();
+        }
+        StartupSnapshot snapshot = loadSnapshot();
+        StartupPropertyHandler propertyHandler;
+        try {
+            propertyHandler = createPropertyHandler(snapshot);
+        } catch (IOException e) {
+            Debug.error("App: can't read " + propertiesPath + ": " + e.getMessage());
+            Main.create(propertiesPath);
+            return;
+        }
+        propertyHandler.addStartupTime("(properties)", System.nanoTime() - start);
+        Main main = new Main(propertyHandler);
+        propertyHandler.addStartupTime("(until the map is shown)", System.nanoTime() - start);
+        MapBean mapBean = main.getMapPanel().getMapBean();
+        mapBean.addPaintListener(new PaintListener() {
+            private boolean painted;
+
+            @Override
+            public void listenerPaint(Object source, Graphics graphics) {
+                if (painted) {
+                    return;
+                }
+                painted = true;
+                propertyHandler.addStartupTime("(until the map is first painted)", System.nanoTime() - start);
+                SwingUtilities.invokeLater(() -> {
+                    mapBean.removePaintListener(this);
+                    propertyHandler.report();
+                    propertyHandler.createDeferredComponents(main.getMapHandler());
+                    if (snapshot != null) {
+                        CompletableFuture.runAsync(snapshot::save);
+                    }
+                    if (trainingRun) {
+                        // after the deferred components, which are created by later events
+                        SwingUtilities.invokeLater(() -> train(main));
+                    }
+                });
+            }
+        });
+    }
+
+    /**
+     * Turn all the layers on in a training run, so their classes are loaded too.
+     * @param main the application.
+     */
+    private static void train(Main main) {
+        LayerHandler layerHandler = main.getMapHandler().get(LayerHandler.class);
+        if (layerHandler != null) {
+            for (Layer layer : layerHandler.getLayers()) {
+                if (!layer.isVisible()) {
+                    layerHandler.turnLayerOn(true, layer);
+                }
+            }
+        }
+    }
+
+    /**
+     * Exit once the training duration has passed, which writes the archive of the classes if the JVM is asked to.
+     * The exit doesn't wait for the map, so a training run ends even if the map can't be shown.
+     */
+    private static void exitAfterTraining() {
+        int duration = Integer.getInteger(TrainingDurationProperty, DEFAULT_TRAINING_DURATION);
+        Debug.output("App: training run, exiting in " + duration + " ms");
+        Timer exit = new Timer(duration, e -> System.exit(0));
+        exit.setRepeats(false);
+        exit.start();
+    }
+
+    /**
+     * Load the snapshot of the previous launch and make it the one of the application.
+     * @return the snapshot, or null if it is turned off.
+     */
+    private static StartupSnapshot loadSnapshot() {
+        String path = System.getProperty(StartupSnapshot.FileProperty, StartupSnapshot.DEFAULT_FILE);
+        if (path.trim().isEmpty()) {
+            return null;
+        }
+        StartupSnapshot snapshot = new StartupSnapshot(new File(path.trim()));
+        snapshot.load();
+        StartupSnapshot.setCurrent(snapshot);
+        return snapshot;
+    }
+
+    /**
+     * Create the property handler, with the properties of the snapshot if the properties file is unchanged, or
+     * with the properties file otherwise, keeping its properties in the snapshot.
+     * @param snapshot the snapshot, may be null.
+     * @return the property handler.
+     * @throws IOException if the properties file can't be read.
+     */
+    private static StartupPropertyHandler createPropertyHandler(StartupSnapshot snapshot) throws IOException {
+        PropertyHandler.Builder builder = new PropertyHandler.Builder().setPropertyPrefix(propertyPrefix);
+        Properties props = snapshot != null ? snapshot.getProperties(StartupSnapshot.CONFIG_SECTION) : null;
+        if (props != null) {
+            Debug.message("startup", "App: properties taken from " + snapshot.getFile());
+            return new StartupPropertyHandler(builder.setProperties(props));
+        }
+        StartupSnapshot.Source source = snapshot != null ? StartupSnapshot.fingerprint(new File(propertiesPath)) : null;
+        StartupPropertyHandler propertyHandler = new StartupPropertyHandler(builder.setPropertiesFile(propertiesPath));
+        if (source != null) {
+            snapshot.putProperties(StartupSnapshot.CONFIG_SECTION, Collections.singletonList(source),
+                    propertyHandler.getProperties());
+        }
+        return propertyHandler;
+    }
+}
@@ -0,0 +1,169 @@
+/**
+ * Classes of the components and layers which can be named in the properties of the application.
+ * <p>They are created by name, so nothing refers to them in the code, and the packaging of the application, which
+ * leaves out the classes not reachable from the classes of the app module, would leave them out. Listing them here
+ * keeps them, with the classes they use. A class named in the properties must be added to the list.</p>
+ */
+final class ComponentClasses {
+
+    /**
+     * Classes of the OpenMap framework named in the properties.
+     */
+    static final Class<?>[] OPENMAP_CLASSES = {
+            com.bbn.openmap.HintsMapBeanRepaintPolicy.class,
+            com.bbn.openmap.InformationDelegator.class,
+            com.bbn.openmap.LayerHandler.class,
+            com.bbn.openmap.MouseDelegator.class,
+            com.bbn.openmap.dataAccess.dted.DTEDFrameCache.class,
+            com.bbn.openmap.dataAccess.mapTile.ShpFileEmptyTileHandler.class,
+            com.bbn.openmap.event.DistanceMouseMode.class,
+            com.bbn.openmap.event.NavMouseMode2.class,
+            com.bbn.openmap.event.NullMouseMode.class,
+            com.bbn.openmap.event.OMMouseMode.class,
+            com.bbn.openmap.event.PanMouseMode.class,
+            com.bbn.openmap.event.ProjMapBeanKeyListener.class,
+            com.bbn.openmap.event.SelectMouseMode.class,
+            com.bbn.openmap.gui.ControlMenu.class,
+            com.bbn.openmap.gui.DefaultHelpMenu.class,
+            com.bbn.openmap.gui.FileMenu.class,
+            com.bbn.openmap.gui.GoToMenu.class,
+            com.bbn.openmap.gui.LayerAddPanel.class,
+            com.bbn.openmap.gui.LayerControlButtonPanel.class,
+            com.bbn.openmap.gui.LayersMenu.class,
+            com.bbn.openmap.gui.LayersPanel.class,
+            com.bbn.openmap.gui.MouseModeButtonPanel.class,
+            com.bbn.openmap.gui.NavigateMenu.class,
+            com.bbn.openmap.gui.NavigatePanel.class,
+            com.bbn.openmap.gui.OMControlPanel.class,
+            com.bbn.openmap.gui.OMGraphicDeleteTool.class,
+            com.bbn.openmap.gui.OverviewMapHandler.class,
+            com.bbn.openmap.gui.ProjectionStackTool.class,
+            com.bbn.openmap.gui.ScaleTextPanel.class,
+            com.bbn.openmap.gui.ToolPanel.class,
+            com.bbn.openmap.gui.UserGuideMenuItems.class,
+            com.bbn.openmap.gui.ZoomPanel.class,
+            com.bbn.openmap.gui.menu.ControlPanelToggleMenuItem.class,
+            com.bbn.openmap.gui.menu.I18nFileCreateMenuItem.class,
+            com.bbn.openmap.gui.menu.MenuList.class,
+            com.bbn.openmap.gui.menu.OMBasicMenu.class,
+            com.bbn.openmap.gui.menu.WebSiteHelpMenuItem.class,
+            com.bbn.openmap.image.AcmeGifFormatter.class,
+            com.bbn.openmap.image.PNG32ImageFormatter.class,
+            com.bbn.openmap.image.PNG8ImageFormatter.class,
+            com.bbn.openmap.image.PNGImageIOFormatter.class,
+            com.bbn.openmap.image.SunJPEGFormatter.class,
+            com.bbn.openmap.layer.DateLayer.class,
+            com.bbn.openmap.layer.DeclutterMatrix.class,
+            com.bbn.openmap.layer.DemoLayer.class,
+            com.bbn.openmap.layer.DrawingToolLayer.class,
+            com.bbn.openmap.layer.GraticuleLayer.class,
+            com.bbn.openmap.layer.OverviewMapAreaLayer.class,
+            com.bbn.openmap.layer.ScaleFilterLayer.class,
+            com.bbn.openmap.layer.daynight.DayNightLayer.class,
+            com.bbn.openmap.layer.dted.DTEDCoverageLayer.class,
+            com.bbn.openmap.layer.dted.DTEDFrameCacheLayer.class,
+            com.bbn.openmap.layer.dted.DTEDLayer.class,
+            com.bbn.openmap.layer.editor.DrawingEditorTool.class,
+            com.bbn.openmap.layer.editor.EditorLayer.class,
+            com.bbn.openmap.layer.imageTile.MapTileLayer.class,
+            com.bbn.openmap.layer.imageTile.MapTileUtilLayer.class,
+            com.bbn.openmap.layer.location.LocationLayer.class,
+            com.bbn.openmap.layer.location.csv.CSVLocationHandler.class,
+            com.bbn.openmap.layer.rpf.RpfLayer.class,
+            com.bbn.openmap.layer.shape.MultiShapeLayer.class,
+            com.bbn.openmap.layer.shape.ShapeLayer.class,
+            com.bbn.openmap.layer.terrain.TerrainLayer.class,
+            com.bbn.openmap.layer.test.TestLayer.class,
+            com.bbn.openmap.layer.vpf.LibraryBean.class,
+            com.bbn.openmap.layer.vpf.VPFLayer.class,
+            com.bbn.openmap.omGraphics.DrawingAttributes.class,
+            com.bbn.openmap.omGraphics.grid.ColoredShadingColors.class,
+            com.bbn.openmap.omGraphics.grid.ElevationBandGeneratorLoader.class,
+            com.bbn.openmap.omGraphics.grid.GreyscaleSlopeColors.class,
+            com.bbn.openmap.omGraphics.grid.SlopeGeneratorLoader.class,
+            com.bbn.openmap.plugin.UTMGridPlugIn.class,
+            com.bbn.openmap.plugin.earthImage.EarthImagePlugIn.class,
+            com.bbn.openmap.plugin.esri.EsriPlugIn.class,
+            com.bbn.openmap.plugin.graphicLoader.GraphicLoaderConnector.class,
+            com.bbn.openmap.plugin.shis.SHISPlugIn.class,
+            com.bbn.openmap.plugin.wms.WMSPlugIn.class,
+            com.bbn.openmap.proj.CADRGLoader.class,
+            com.bbn.openmap.proj.GnomonicLoader.class,
+            com.bbn.openmap.proj.LLXYLoader.class,
+            com.bbn.openmap.proj.Mercator.class,
+            com.bbn.openmap.proj.MercatorLoader.class,
+            com.bbn.openmap.proj.OrthographicLoader.class,
+            com.bbn.openmap.proj.ProjectionFactory.class,
+            com.bbn.openmap.proj.ProjectionStack.class,
+            com.bbn.openmap.tools.dnd.DefaultDnDCatcher.class,
+            com.bbn.openmap.tools.dnd.DropListenerSupport.class,
+            com.bbn.openmap.tools.drawing.OMCircleLoader.class,
+            com.bbn.openmap.tools.drawing.OMDecoratedSplineLoader.class,
+            com.bbn.openmap.tools.drawing.OMDistanceLoader.class,
+            com.bbn.openmap.tools.drawing.OMDrawingTool.class,
+            com.bbn.openmap.tools.drawing.OMDrawingToolLauncher.class,
+            com.bbn.openmap.tools.drawing.OMLineLoader.class,
+            com.bbn.openmap.tools.drawing.OMPointLoader.class,
+            com.bbn.openmap.tools.drawing.OMPolyLoader.class,
+            com.bbn.openmap.tools.drawing.OMRectLoader.class,
+            com.bbn.openmap.tools.drawing.OMScalingRasterLoader.class,
+            com.bbn.openmap.tools.drawing.OMSplineLoader.class,
+            com.bbn.openmap.tools.drawing.OMTextLoader.class,
+            com.bbn.openmap.tools.symbology.milStd2525.PNGSymbolImageMaker.class,
+            com.bbn.openmap.tools.symbology.milStd2525.SymbolReferenceLibrary.class
+    };
+
+    /**
+     * Classes the OpenMap components create by name themselves: the editors of the properties of the layers, and
+     * the codes of the MIL-STD-2525 symbols.
+     */
+    static final Class<?>[] OPENMAP_NAMED_CLASSES = {
+            com.bbn.openmap.util.propertyEditor.ColorPropertyEditor.class,
+            com.bbn.openmap.util.propertyEditor.ComboBoxPropertyEditor.class,
+            com.bbn.openmap.util.propertyEditor.DirectoryPropertyEditor.class,
+            com.bbn.openmap.util.propertyEditor.FDUPropertyEditor.class,
+            com.bbn.openmap.util.propertyEditor.FUPropertyEditor.class,
+            com.bbn.openmap.util.propertyEditor.FilePropertyEditor.class,
+            com.bbn.openmap.util.propertyEditor.Inspector.class,
+            com.bbn.openmap.util.propertyEditor.MultiDirFilePropertyEditor.class,
+            com.bbn.openmap.util.propertyEditor.MultiDirectoryPropertyEditor.class,
+            com.bbn.openmap.util.propertyEditor.NonEditablePropertyEditor.class,
+            com.bbn.openmap.util.propertyEditor.OnOffPropertyEditor.class,
+            com.bbn.openmap.util.propertyEditor.OptionPropertyEditor.class,
+            com.bbn.openmap.util.propertyEditor.OrientationPropertyEditor.class,
+            com.bbn.openmap.util.propertyEditor.PropertyConsumerPropertyEditor.class,
+            com.bbn.openmap.util.propertyEditor.TextPropertyEditor.class,
+            com.bbn.openmap.util.propertyEditor.TrueFalsePropertyEditor.class,
+            com.bbn.openmap.util.propertyEditor.YesNoPropertyEditor.class,
+            com.bbn.openmap.tools.symbology.milStd2525.CodeAffiliation.class,
+            com.bbn.openmap.tools.symbology.milStd2525.CodeBattleDimension.class,
+            com.bbn.openmap.tools.symbology.milStd2525.CodeCategory.class,
+            com.bbn.openmap.tools.symbology.milStd2525.CodeMETOCCategory.class,
+            com.bbn.openmap.tools.symbology.milStd2525.CodeMOOTWCategory.class,
+            com.bbn.openmap.tools.symbology.milStd2525.CodeOrderOfBattle.class,
+            com.bbn.openmap.tools.symbology.milStd2525.CodeScheme.class,
+            com.bbn.openmap.tools.symbology.milStd2525.CodeStatus.class
+    };
+
+    /**
+     * Classes of the application which can be named in the properties.
+     */
+    static final Class<?>[] CUSTOM_CLASSES = {
+            drawing.CustomPointLoader.class,
+            drawing.CustomPolyLoader.class,
+            drawing.CustomSectorLoader.class,
+            gui.NameSearchTool.class,
+            layer.CustomEditorLayer.class,
+            layer.CustomPointLayer.class,
+            layer.LazyLayer.class,
+            layer.MetricsLayer.class,
+            layer.RenderAheadPolicy.class,
+            layer.TiledRenderPolicy.class
+    };
+
+    /**
+     * No instances.
+     */
+    private ComponentClasses() {
+    }
+}
@@ -0,0 +1,433 @@
+package batch;
+
+import com.bbn.openmap.Environment;
+import com.bbn.openmap.Layer;
+import com.bbn.openmap.LayerHandler;
+import com.bbn.openmap.MapBean;
+import com.bbn.openmap.PropertyHandler;
+import com.bbn.openmap.layer.OMGraphicHandlerLayer;
+import com.bbn.openmap.omGraphics.OMGraphicList;
+import com.bbn.openmap.proj.ProjMath;
+import com.bbn.openmap.proj.Projection;
+import com.bbn.openmap.proj.ProjectionFactory;
+import com.bbn.openmap.proj.coords.LatLonPoint;
+import com.bbn.openmap.util.ComponentFactory;
+import com.bbn.openmap.util.Debug;
+import com.bbn.openmap.util.PropUtils;
+import io.CustomGraphicsFormat;
+import layer.CustomEditorLayer;
+
+import javax.imageio.ImageIO;
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.Vector;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Headless renderer of map images of layers of the application, for reports and thumbnails, without the Swing user
+ * interface.
+ * <pre>
+ * java -cp app.jar batch.BatchRenderer jobs.txt outputDirectory [layer ...]
+ * </pre>
+ * <p>The layers are created from the properties of the application, openmap_edited.properties, or the file given by
+ * the batch.properties system property. They are the layers which markers are given, or by default the custom layers
+ * listed in openmap.layers and shapePolitical. The graphics files of the custom layers are imported before rendering.
+ * </p>
+ * <p>Each line of the jobs file describes an image, written to the output directory as name.png:</p>
+ * <pre>
+ * name;projection;south;west;north;east;width;height
+ * </pre>
+ * <p>The projection is a name known by the ProjectionFactory, such as Mercator, LLXY or Orthographic, or the name of
+ * its class. The image is centered on the bounding box, at the scale fitting it into the image. Lines starting with #
+ * are comments.</p>
+ * <p>The images are rendered in parallel, on batch.threads threads, by default one per processor. The layers can't
+ * be projected differently at the same time, so each thread renders with its own instances of the layers.</p>
+ */
+public class BatchRenderer {
+
+    /**
+     * System property for the properties file of the application.
+     */
+    public static final String PropertiesProperty = "batch.properties";
+
+    /**
+     * System property for the number of images rendered at the same time.
+     */
+    public static final String ThreadsProperty = "batch.threads";
+
+    /**
+     * Default properties file of the application.
+     */
+    public static final String DEFAULT_PROPERTIES = "./openmap_edited.properties";
+
+    /**
+     * Marker of the layer of the political boundaries, rendered by default.
+     */
+    public static final String POLITICAL_LAYER = "shapePolitical";
+
+    /**
+     * Maximal time the import of the graphics of a layer is waited for, in seconds.
+     */
+    public static final int IMPORT_TIMEOUT = 60;
+
+    /**
+     * Scale of the projection the scale fitting a bounding box is computed from.
+     */
+    protected static final float INITIAL_SCALE = 10000000f;
+
+    /**
+     * Properties of the application.
+     */
+    protected final Properties properties;
+
+    /**
+     * Markers of the rendered layers, from the bottom one to the top one.
+     */
+    protected final List<String> markers;
+
+    /**
+     * Directory the images are written to.
+     */
+    protected final File outputDirectory;
+
+    /**
+     * Factory of the projections of the images.
+     */
+    protected final ProjectionFactory projectionFactory = ProjectionFactory.loadDefaultProjections();
+
+    /**
+     * Background of the images.
+     */
+    protected Paint background = MapBean.DEFAULT_BACKGROUND_COLOR;
+
+    /**
+     * Layers of each rendering thread.
+     */
+    protected final ThreadLocal<List<Layer>> layers = ThreadLocal.withInitial(this::createLayers);
+
+    /**
+     * Create a renderer.
+     * @param properties properties of the application.
+     * @param markers markers of the rendered layers, from the bottom one to the top one.
+     * @param outputDirectory directory the images are written to.
+     */
+    public BatchRenderer(Properties properties, List<String> markers, File outputDirectory) {
+        this.properties = properties;
+        this.markers = markers;
+        this.outputDirectory = outputDirectory;
+        background = PropUtils.parseColorFromProperties(properties, Environment.BackgroundColor, background);
+    }
+
+    /**
+     * Render the images of a jobs file.
+     * @param args the jobs file, the output directory, and optionally the markers of the rendered layers.
+     */
+    public static void main(String[] args) {
+        System.setProperty("java.awt.headless", "true");
+        if (args.length < 2) {
+            System.err.println("Usage: java batch.BatchRenderer jobs.txt outputDirectory [layer ...]");
+            System.exit(2);
+        }
+        Debug.init();
+        String propertiesPath = System.getProperty(PropertiesProperty, DEFAULT_PROPERTIES);
+        Properties props;
+        List<Job> jobs;
+        try {
+            props = new PropertyHandler.Builder().setPropertiesFile(propertiesPath).build().getProperties();
+            jobs = readJobs(new File(args[0]));
+        } catch (IOException | IllegalArgumentException e) {
+            Debug.error("BatchRenderer: " + e.getMessage());
+            System.exit(1);
+            return;
+        }
+        List<String> markers = new ArrayList<>();
+        for (int i = 2; i < args.length; i++) {
+            markers.add(args[i]);
+        }
+        if (markers.isEmpty()) {
+            markers = getDefaultMarkers(props);
+        }
+        int threads = Integer.getInteger(ThreadsProperty, Runtime.getRuntime().availableProcessors());
+        BatchRenderer renderer = new BatchRenderer(props, markers, new File(args[1]));
+        int failed = renderer.renderAll(jobs, threads);
+        System.exit(failed == 0 ? 0 : 1);
+    }
+
+    /**
+     * Get the markers of the layers rendered by default: the custom layers listed in openmap.layers, over the layer of
+     * the political boundaries.
+     * @param props properties of the application.
+     * @return markers of the layers, from the bottom one to the top one.
+     */
+    public static List<String> getDefaultMarkers(Properties props) {
+        List<String> markers = new ArrayList<>();
+        markers.add(POLITICAL_LAYER);
+        Vector<String> layers = PropUtils.parseSpacedMarkers(props.getProperty(
+                PropUtils.getScopedPropertyPrefix(Environment.OpenMapPrefix) + LayerHandler.layersProperty));
+        // openmap.layers lists the layers from the top one to the bottom one
+        for (int i = layers.size() - 1; i >= 0; i--) {
+            String className = props.getProperty(layers.get(i) + ComponentFactory.DotClassNameProperty);
+            try {
+                if (className != null && CustomEditorLayer.class.isAssignableFrom(Class.forName(className))) {
+                    markers.add(layers.get(i));
+                }
+            } catch (ClassNotFoundException | LinkageError e) {
+                Debug.message("batch", "BatchRenderer: skipping " + layers.get(i) + ", " + className + " not found");
+            }
+        }
+        return markers;
+    }
+
+    /**
+     * Read the jobs of a file.
+     * @param file the jobs file.
+     * @return the jobs.
+     * @throws IOException if the file can't be read.
+     * @throws IllegalArgumentException if a line doesn't describe a job.
+     */
+    public static List<Job> readJobs(File file) throws IOException {
+        List<Job> jobs = new ArrayList<>();
+        for (String line : Files.readAllLines(file.toPath(), StandardCharsets.UTF_8)) {
+            String[] fields = CustomGraphicsFormat.parse(line);
+            if (fields == null) {
+                continue;
+            }
+            if (fields.length != 8) {
+                throw new IllegalArgumentException("expected 8 fields in job '" + line + "', found " + fields.length);
+            }
+            jobs.add(new Job(fields[0], fields[1], Double.parseDouble(fields[2]), Double.parseDouble(fields[3]),
+                    Double.parseDouble(fields[4]), Double.parseDouble(fields[5]), Integer.parseInt(fields[6]),
+                    Integer.parseInt(fields[7])));
+        }
+        return jobs;
+    }
+
+    /**
+     * Render the images of jobs in parallel, reporting the ones that fail.
+     * @param jobs the jobs.
+     * @param threads number of images rendered at the same time.
+     * @return number of jobs that failed.
+     */
+    public int renderAll(List<Job> jobs, int threads) {
+        long start = System.nanoTime();
+        ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, threads), r -> {
+            Thread thread = new Thread(r, "BatchRenderer worker");
+            thread.setDaemon(true);
+            return thread;
+        });
+        List<Future<File>> results = new ArrayList<>();
+        for (Job job : jobs) {
+            results.add(executor.submit(() -> write(job, render(job))));
+        }
+        int failed = 0;
+        for (int i = 0; i < jobs.size(); i++) {
+            try {
+                File file = results.get(i).get();
+                Debug.message("batch", "BatchRenderer: wrote " + file);
+            } catch (Exception e) {
+                failed++;
+                Throwable cause = e.getCause() != null ? e.getCause() : e;
+                Debug.error("BatchRenderer: can't render " + jobs.get(i).name + ": " + cause);
+            }
+        }
+        executor.shutdown();
+        Debug.output(String.format("BatchRenderer: rendered %d of %d images in %.1f s on %d threads",
+                jobs.size() - failed, jobs.size(), (System.nanoTime() - start) / 1e9, threads));
+        return failed;
+    }
+
+    /**
+     * Render the image of a job with the layers of the current thread.
+     * @param job the job.
+     * @return the image.
+     */
+    public BufferedImage render(Job job) {
+        Projection projection = createProjection(job);
+        BufferedImage image = new BufferedImage(job.width, job.height, BufferedImage.TYPE_INT_ARGB);
+        Graphics2D g = image.createGraphics();
+        try {
+            g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+            g.setPaint(background);
+            g.fillRect(0, 0, job.width, job.height);
+            for (Layer layer : layers.get()) {
+                render(layer, projection, g);
+            }
+        } finally {
+            g.dispose();
+        }
+        return image;
+    }
+
+    /**
+     * Render a layer for a projection.
+     * @param layer the layer.
+     * @param projection the projection.
+     * @param g graphics the layer is rendered into.
+     */
+    protected void render(Layer layer, Projection projection, Graphics2D g) {
+        if (!(layer instanceof OMGraphicHandlerLayer)) {
+            layer.setProjection(projection);
+            layer.paint(g);
+            return;
+        }
+        OMGraphicHandlerLayer handlerLayer = (OMGraphicHandlerLayer) layer;
+        // the layer may still be prepared for the import of its graphics
+        synchronized (handlerLayer) {
+            handlerLayer.setProjection(projection);
+            OMGraphicList list = handlerLayer.prepare();
+            if (list != null) {
+                list.render(g);
+            }
+        }
+    }
+
+    /**
+     * Create the projection of a job, centered on its bounding box at the scale fitting the box into the image.
+     * @param job the job.
+     * @return the projection.
+     * @throws IllegalArgumentException if the projection is unknown.
+     */
+    protected Projection createProjection(Job job) {
+        Class<? extends Projection> projectionClass = projectionFactory.getProjClassForName(job.projection);
+        if (projectionClass == null) {
+            throw new IllegalArgumentException("unknown projection " + job.projection);
+        }
+        LatLonPoint center = new LatLonPoint.Double((job.south + job.north) / 2, (job.west + job.east) / 2);
+        Projection projection = projectionFactory.makeProjection(projectionClass, center, INITIAL_SCALE,
+                job.width, job.height);
+        float scale = ProjMath.getScale(new LatLonPoint.Double(job.north, job.west),
+                new LatLonPoint.Double(job.south, job.east), projection);
+        return projectionFactory.makeProjection(projectionClass, center, scale, job.width, job.height);
+    }
+
+    /**
+     * Write the image of a job to the output directory.
+     * @param job the job.
+     * @param image the image.
+     * @return the written file.
+     * @throws IOException if the file can't be written.
+     */
+    protected File write(Job job, BufferedImage image) throws IOException {
+        Files.createDirectories(outputDirectory.toPath());
+        File file = new File(outputDirectory, job.name + ".png");
+        if (!ImageIO.write(image, "png", file)) {
+            throw new IOException("no writer of png images");
+        }
+        return file;
+    }
+
+    /**
+     * Create the layers of the current thread, waiting for the custom layers to import their graphics.
+     * @return the layers, from the bottom one to the top one.
+     */
+    protected List<Layer> createLayers() {
+        List<Layer> created = new ArrayList<>();
+        for (String marker : markers) {
+            Object layer = ComponentFactory.create(properties.getProperty(marker + ComponentFactory.DotClassNameProperty),
+                    marker, properties);
+            if (!(layer instanceof Layer)) {
+                Debug.error("BatchRenderer: can't create the layer " + marker);
+                continue;
+            }
+            if (layer instanceof CustomEditorLayer && ((CustomEditorLayer) layer).getGraphicsImport() != null) {
+                try {
+                    ((CustomEditorLayer) layer).getGraphicsImport().get(IMPORT_TIMEOUT, TimeUnit.SECONDS);
+                } catch (Exception e) {
+                    Debug.error("BatchRenderer: can't import the graphics of " + marker + ": " + e);
+                }
+            }
+            created.add((Layer) layer);
+        }
+        return created;
+    }
+
+    /**
+     * Image to be rendered.
+     */
+    public static class Job {
+
+        /**
+         * Name of the image, and of its file.
+         */
+        protected final String name;
+
+        /**
+         * Name of the projection.
+         */
+        protected final String projection;
+
+        /**
+         * Southern latitude of the bounding box, in decimal degrees.
+         */
+        protected final double south;
+
+        /**
+         * Western longitude of the bounding box, in decimal degrees.
+         */
+        protected final double west;
+
+        /**
+         * Northern latitude of the bounding box, in decimal degrees.
+         */
+        protected final double north;
+
+        /**
+         * Eastern longitude of the bounding box, in decimal degrees.
+         */
+        protected final double east;
+
+        /**
+         * Width of the image, in pixels.
+         */
+        protected final int width;
+
+        /**
+         * Height of the image, in pixels.
+         */
+        protected final int height;
+
+        /**
+         * Create a job.
+         * @param name name of the image.
+         * @param projection name of the projection.
+         * @param south southern latitude of the bounding box.
+         * @param west western longitude of the bounding box.
+         * @param north northern latitude of the bounding box.
+         * @param east eastern longitude of the bounding box.
+         * @param width width of the image.
+         * @param height height of the image.
+         */
+        public Job(String name, String projection, double south, double west, double north, double east, int width,
+                   int height) {
+            if (width <= 0 || height <= 0) {
+                throw new IllegalArgumentException("invalid size " + width + "x" + height + " of " + name);
+            }
+            this.name = name;
+            this.projection = projection;
+            this.south = south;
+            this.west = west;
+            this.north = north;
+            this.east = east;
+            this.width = width;
+            this.height = height;
+        }
+
+        /**
+         * Get the name of the image.
+         * @return the name.
+         */
+        public String getName() {
+            return name;
+        }
+    }
+}
@@ -0,0 +1,238 @@
+package gui;
+
+import com.bbn.openmap.I18n;
+import com.bbn.openmap.MapBean;
+import com.bbn.openmap.gui.OMToolComponent;
+import com.bbn.openmap.omGraphics.OMGraphic;
+import com.bbn.openmap.omGraphics.OMPoint;
+import com.bbn.openmap.omGraphics.OMPoly;
+import com.bbn.openmap.proj.ProjMath;
+import com.bbn.openmap.proj.coords.LatLonPoint;
+import com.bbn.openmap.util.Debug;
+import com.bbn.openmap.util.PropUtils;
+import graphics.CustomSector;
+import graphics.Nameable;
+import layer.CustomEditorLayer;
+
+import javax.swing.*;
+import java.awt.*;
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
+import java.awt.geom.Point2D;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+
+/**
+ * Tool bar field searching the named graphics of the custom layers and zooming the map to the match.
+ * <p>The query is run against the name index of every {@link CustomEditorLayer} of the application when Enter is
+ * pressed. The map is centered on the first match and zoomed in to the zoomScale property if it is further out,
+ * the other matches being offered in a popup menu.</p>
+ * <p>The tool is added to the openmap.components property, and placed in the tool bar by the ToolPanel.</p>
+ */
+public class NameSearchTool extends OMToolComponent implements ActionListener {
+
+    /**
+     * Property for the scale the map is zoomed in to when it shows a match.
+     */
+    public static final String ZoomScaleProperty = "zoomScale";
+
+    /**
+     * Property for the maximal number of names matched in each layer.
+     */
+    public static final String LimitProperty = "limit";
+
+    /**
+     * Default scale the map is zoomed in to.
+     */
+    public static final float DEFAULT_ZOOM_SCALE = 1000000f;
+
+    /**
+     * Default maximal number of names matched in each layer.
+     */
+    public static final int DEFAULT_LIMIT = 20;
+
+    /**
+     * Map the matches are shown on.
+     */
+    protected MapBean mapBean;
+
+    /**
+     * Layers searched.
+     */
+    protected final List<CustomEditorLayer> layers = new ArrayList<>();
+
+    /**
+     * Field the query is typed into.
+     */
+    protected final JTextField queryField = new JTextField(15);
+
+    /**
+     * Scale the map is zoomed in to when it shows a match.
+     */
+    protected float zoomScale = DEFAULT_ZOOM_SCALE;
+
+    /**
+     * Maximal number of names matched in each layer.
+     */
+    protected int limit = DEFAULT_LIMIT;
+
+    public NameSearchTool() {
+        super();
+        setKey("nameSearch");
+        queryField.setToolTipText(i18n.get(NameSearchTool.class, "queryField", I18n.TOOLTIP,
+                "Name of the object to find, press Enter to search."));
+        queryField.addActionListener(this);
+        add(new JLabel(i18n.get(NameSearchTool.class, "queryLabel", "Find:")));
+        add(queryField);
+    }
+
+    /**
+     * Run the query when Enter is pressed in the field.
+     * @param e the action event.
+     */
+    @Override
+    public void actionPerformed(ActionEvent e) {
+        search(queryField.getText());
+    }
+
+    /**
+     * Search the layers and show the first match.
+     * @param query the query.
+     * @return the matched graphics.
+     */
+    public List<OMGraphic> search(String query) {
+        List<OMGraphic> matches = new ArrayList<>();
+        List<CustomEditorLayer> matchLayers = new ArrayList<>();
+        long start = System.nanoTime();
+        for (CustomEditorLayer layer : layers) {
+            for (OMGraphic omg : layer.search(query, limit)) {
+                matches.add(omg);
+                matchLayers.add(layer);
+            }
+        }
+        Debug.message("search", "NameSearchTool: " + matches.size() + " matches for '" + query + "' in "
+                + (System.nanoTime() - start) / 1000 + " us");
+        if (matches.isEmpty()) {
+            Toolkit.getDefaultToolkit().beep();
+            return matches;
+        }
+        zoomTo(matches.get(0));
+        if (matches.size() > 1) {
+            JPopupMenu popup = new JPopupMenu();
+            for (int i = 0; i < matches.size(); i++) {
+                OMGraphic omg = matches.get(i);
+                JMenuItem item = new JMenuItem(((Nameable) omg).getName() + " (" + matchLayers.get(i).getName() + ")");
+                item.addActionListener(event -> zoomTo(omg));
+                popup.add(item);
+            }
+            popup.show(queryField, 0, queryField.getHeight());
+        }
+        return matches;
+    }
+
+    /**
+     * Center the map on the graphic, zooming in if the map is further out than the zoom scale.
+     * @param omg the graphic.
+     */
+    public void zoomTo(OMGraphic omg) {
+        if (mapBean == null) {
+            return;
+        }
+        Point2D location = getLocation(omg);
+        if (location == null) {
+            Debug.message("search", "NameSearchTool: can't locate " + omg.getClass().getName());
+            return;
+        }
+        mapBean.setCenter(location.getY(), location.getX());
+        if (mapBean.getScale() > zoomScale) {
+            mapBean.setScale(zoomScale);
+        }
+    }
+
+    /**
+     * Get the location of a graphic.
+     * @param omg the graphic.
+     * @return location of the graphic in decimal degrees, or null if it can't be located.
+     */
+    protected Point2D getLocation(OMGraphic omg) {
+        if (omg instanceof OMPoint) {
+            OMPoint point = (OMPoint) omg;
+            return new LatLonPoint.Double(point.getLat(), point.getLon());
+        } else if (omg instanceof CustomSector) {
+            CustomSector sector = (CustomSector) omg;
+            return new LatLonPoint.Double(Math.min(sector.getLat1(), sector.getLat2()),
+                    Math.min(sector.getLon1(), sector.getLon2()));
+        } else if (omg instanceof OMPoly && ((OMPoly) omg).getLatLonArray() != null) {
+            // center of the bounding box of the vertices
+            double[] llPoints = ((OMPoly) omg).getLatLonArray();
+            double minLat = Double.MAX_VALUE, maxLat = -Double.MAX_VALUE;
+            double minLon = Double.MAX_VALUE, maxLon = -Double.MAX_VALUE;
+            for (int i = 0; i + 1 < llPoints.length; i += 2) {
+                minLat = Math.min(minLat, llPoints[i]);
+                maxLat = Math.max(maxLat, llPoints[i]);
+                minLon = Math.min(minLon, llPoints[i + 1]);
+                maxLon = Math.max(maxLon, llPoints[i + 1]);
+            }
+            return new LatLonPoint.Double(ProjMath.radToDeg((minLat + maxLat) / 2),
+                    ProjMath.radToDeg((minLon + maxLon) / 2));
+        } else if (omg.getShape() != null && mapBean != null) {
+            Rectangle bounds = omg.getShape().getBounds();
+            return mapBean.getProjection().inverse(bounds.getCenterX(), bounds.getCenterY());
+        }
+        return null;
+    }
+
+    /**
+     * Pick the map and the custom layers from the MapHandler.
+     * @param someObj object added to the MapHandler.
+     */
+    @Override
+    public void findAndInit(Object someObj) {
+        if (someObj instanceof MapBean) {
+            mapBean = (MapBean) someObj;
+        }
+        if (someObj instanceof CustomEditorLayer && !layers.contains(someObj)) {
+            layers.add((CustomEditorLayer) someObj);
+        }
+    }
+
+    /**
+     * Forget the map and the layers removed from the MapHandler.
+     * @param someObj object removed from the MapHandler.
+     */
+    @Override
+    public void findAndUndo(Object someObj) {
+        if (someObj == mapBean) {
+            mapBean = null;
+        }
+        layers.remove(someObj);
+    }
+
+    /**
+     * Set the properties of the tool.
+     * @param prefix prefix of the properties of the tool.
+     * @param props properties of the application.
+     */
+    @Override
+    public void setProperties(String prefix, Properties props) {
+        super.setProperties(prefix, props);
+        prefix = PropUtils.getScopedPropertyPrefix(prefix);
+        zoomScale = PropUtils.floatFromProperties(props, prefix + ZoomScaleProperty, zoomScale);
+        limit = PropUtils.intFromProperties(props, prefix + LimitProperty, limit);
+    }
+
+    /**
+     * Get the properties of the tool.
+     * @param props properties the properties of the tool are added to.
+     * @return the properties.
+     */
+    @Override
+    public Properties getProperties(Properties props) {
+        props = super.getProperties(props);
+        String prefix = PropUtils.getScopedPropertyPrefix(this);
+        props.put(prefix + ZoomScaleProperty, Float.toString(zoomScale));
+        props.put(prefix + LimitProperty, Integer.toString(limit));
+        return props;
+    }
+}
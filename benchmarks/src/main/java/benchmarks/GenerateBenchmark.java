@@ -0,0 +1,143 @@
+package benchmarks;
+
+import com.bbn.openmap.omGraphics.OMGraphicConstants;
+import com.bbn.openmap.proj.Mercator;
+import com.bbn.openmap.proj.Projection;
+import com.bbn.openmap.proj.coords.LatLonPoint;
+import graphics.CustomPoint;
+import graphics.CustomPoly;
+import graphics.CustomSector;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark of the generation of the custom graphics for a projection, which is done for every graphic of a layer
+ * each time the map is panned or zoomed. The graphics are marked as changed before each generation, so their shapes
+ * are generated again rather than found to be already generated for the projection.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class GenerateBenchmark {
+
+    /**
+     * Number of graphics of each kind generated by an invocation.
+     */
+    @Param({"1000"})
+    public int count;
+
+    /**
+     * Line type of the sectors and polys.
+     */
+    @Param({"1", "2", "3"})
+    public int lineType;
+
+    /**
+     * Rotation angle of the projection, in radians.
+     */
+    @Param({"0", "0.3"})
+    public double rotation;
+
+    /**
+     * Projection the graphics are generated for.
+     */
+    protected Projection projection;
+
+    /**
+     * The points.
+     */
+    protected CustomPoint[] points;
+
+    /**
+     * The sectors.
+     */
+    protected CustomSector[] sectors;
+
+    /**
+     * The polys.
+     */
+    protected CustomPoly[] polys;
+
+    /**
+     * Create the graphics, spread over the projection.
+     */
+    @Setup
+    public void setUp() {
+        Mercator mercator = new Mercator(new LatLonPoint.Double(50, 20), 20000000f, 1280, 1024);
+        mercator.setRotationAngle(rotation);
+        projection = mercator;
+        Random random = new Random(42);
+        points = new CustomPoint[count];
+        sectors = new CustomSector[count];
+        polys = new CustomPoly[count];
+        for (int i = 0; i < count; i++) {
+            double lat = 30 + random.nextDouble() * 40;
+            double lon = random.nextDouble() * 40;
+            points[i] = new CustomPoint(lat, lon, 10);
+            points[i].setRotationAngle(random.nextDouble() * Math.PI);
+            if (i % 2 == 0) {
+                points[i].putAttribute(OMGraphicConstants.NO_ROTATE, Boolean.TRUE);
+            }
+            sectors[i] = new CustomSector(lat, lon, lat + random.nextDouble() * 5, lon + random.nextDouble() * 5,
+                    lineType);
+            double[] llPoints = new double[16];
+            for (int k = 0; k < llPoints.length; k += 2) {
+                llPoints[k] = lat + random.nextDouble() * 5;
+                llPoints[k + 1] = lon + random.nextDouble() * 5;
+            }
+            polys[i] = new CustomPoly(llPoints, OMGraphicConstants.DECIMAL_DEGREES, lineType);
+        }
+    }
+
+    /**
+     * Generate the points.
+     * @param blackhole consumer of the results.
+     */
+    @Benchmark
+    public void generatePoints(Blackhole blackhole) {
+        for (CustomPoint point : points) {
+            point.setNeedToRegenerate(true);
+            blackhole.consume(point.generate(projection));
+        }
+    }
+
+    /**
+     * Generate the sectors.
+     * @param blackhole consumer of the results.
+     */
+    @Benchmark
+    public void generateSectors(Blackhole blackhole) {
+        for (CustomSector sector : sectors) {
+            sector.setNeedToRegenerate(true);
+            blackhole.consume(sector.generate(projection));
+        }
+    }
+
+    /**
+     * Generate the polys.
+     * @param blackhole consumer of the results.
+     */
+    @Benchmark
+    public void generatePolys(Blackhole blackhole) {
+        for (CustomPoly poly : polys) {
+            poly.setNeedToRegenerate(true);
+            blackhole.consume(poly.generate(projection));
+        }
+    }
+}
@@ -0,0 +1,89 @@
+package benchmarks;
+
+import graphics.SectorGeometry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark of the computation of the points of the sectors in a plane against on the ellipsoid, for sectors of
+ * several sizes, which are computed once per sector each time its geometry changes.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SectorGeometryBenchmark {
+
+    /**
+     * Number of sectors computed by an invocation.
+     */
+    @Param({"1000"})
+    public int count;
+
+    /**
+     * Size of the sectors, in decimal degrees of latitude.
+     */
+    @Param({"0.01", "1", "10"})
+    public double size;
+
+    /**
+     * Corners of the sectors, as lat1, lon1, lat2, lon2 in decimal degrees.
+     */
+    protected double[] corners;
+
+    /**
+     * Create the sectors, at latitudes up to 70 degrees.
+     */
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        corners = new double[4 * count];
+        for (int i = 0; i < corners.length; i += 4) {
+            double lat = -70 + random.nextDouble() * 130;
+            double lon = -180 + random.nextDouble() * 350;
+            corners[i] = lat;
+            corners[i + 1] = lon;
+            corners[i + 2] = lat + size * (0.5 + random.nextDouble() / 2);
+            corners[i + 3] = lon + size * (0.5 + random.nextDouble() / 2);
+        }
+    }
+
+    /**
+     * Compute the sectors in a plane.
+     * @param blackhole consumer of the results.
+     */
+    @Benchmark
+    public void planar(Blackhole blackhole) {
+        for (int i = 0; i < corners.length; i += 4) {
+            blackhole.consume(SectorGeometry.computePlanar(corners[i], corners[i + 1], corners[i + 2],
+                    corners[i + 3]));
+        }
+    }
+
+    /**
+     * Compute the sectors on the ellipsoid.
+     * @param blackhole consumer of the results.
+     */
+    @Benchmark
+    public void ellipsoidal(Blackhole blackhole) {
+        for (int i = 0; i < corners.length; i += 4) {
+            blackhole.consume(SectorGeometry.computeEllipsoidal(corners[i], corners[i + 1], corners[i + 2],
+                    corners[i + 3]));
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package graphics;
+
+import com.bbn.openmap.omGraphics.OMGraphic;
+import com.bbn.openmap.proj.Projection;
+import com.bbn.openmap.util.Debug;
+
+import javax.swing.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Regeneration of graphics on a background thread, the completion being run on the event dispatch thread.
+ * <p>Requests are run in order by a single thread, so the last regeneration of a graphic is the one of its last
+ * state. A failing regeneration is reported rather than thrown.</p>
+ */
+public class BackgroundRegenerator {
+
+    /**
+     * Thread running the regenerations.
+     */
+    private static ExecutorService executor;
+
+    private BackgroundRegenerator() {
+    }
+
+    /**
+     * Get the executor of the regenerations, creating its thread on the first request.
+     * @return the executor.
+     */
+    protected static synchronized ExecutorService getExecutor() {
+        if (executor == null) {
+            executor = Executors.newSingleThreadExecutor(r -> {
+                Thread thread = new Thread(r, "BackgroundRegenerator");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        return executor;
+    }
+
+    /**
+     * Regenerate a graphic in the background.
+     * @param graphic the graphic.
+     * @param proj projection the graphic is generated for, the graphic only being marked for regeneration if null.
+     * @param completion run on the event dispatch thread once the graphic is regenerated, such as a repaint.
+     */
+    public static void regenerate(OMGraphic graphic, Projection proj, Runnable completion) {
+        if (proj == null) {
+            graphic.setNeedToRegenerate(true);
+            SwingUtilities.invokeLater(completion);
+            return;
+        }
+        getExecutor().execute(() -> {
+            try {
+                graphic.regenerate(proj);
+            } catch (RuntimeException e) {
+                Debug.error("BackgroundRegenerator: can't regenerate " + graphic.getClass().getName() + ": "
+                        + e.getMessage());
+            }
+            SwingUtilities.invokeLater(completion);
+        });
+    }
+}
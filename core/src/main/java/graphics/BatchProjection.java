@@ -0,0 +1,346 @@
+package graphics;
+
+import com.bbn.openmap.proj.Gnomonic;
+import com.bbn.openmap.proj.LLXY;
+import com.bbn.openmap.proj.Mercator;
+import com.bbn.openmap.proj.Orthographic;
+import com.bbn.openmap.proj.Projection;
+import com.bbn.openmap.util.Debug;
+
+import java.awt.geom.Point2D;
+import java.util.BitSet;
+
+/**
+ * Projection of packed arrays of lat/lon coordinates into packed arrays of pixel coordinates.
+ * <p>Mercator, LLXY, Orthographic and Gnomonic projections without rotation are projected by specialized loops over
+ * the arrays, free of virtual calls and allocations, which the JIT can unroll and, for the linear projections,
+ * vectorize. Each loop tests whether the points are plotable as its projection does, rather than asking the
+ * projection. The parameters of the loops are measured on the projection itself and checked against it on a set of
+ * sample points, any other projection, or one failing the check, being projected point by point through the
+ * generic Projection interface.</p>
+ * <p>Pixel coordinates are rounded to the nearest integer, as Point.setLocation does.</p>
+ */
+public abstract class BatchProjection {
+
+    /**
+     * Maximal difference in pixels between a specialized loop and the projection on the sample points.
+     */
+    protected static final double TOLERANCE = 1.0;
+
+    /**
+     * Offset in degrees of the points used to measure the parameters of the projection.
+     */
+    protected static final double PROBE = 10.0;
+
+    /**
+     * Latitude in radians the Mercator projection clamps the latitudes to, its ordinate being infinite at the poles.
+     */
+    protected static final double MERCATOR_MAX_LAT = Math.PI / 2 - 0.01;
+
+    /**
+     * Latitude in radians the Orthographic and Gnomonic projections clamp the latitudes to.
+     */
+    protected static final double AZIMUTHAL_MAX_LAT = Math.PI / 2 - 0.0001;
+
+    /**
+     * Projection the coordinates are projected with.
+     */
+    protected final Projection proj;
+
+    /**
+     * Create the batch projection.
+     * @param proj projection the coordinates are projected with.
+     */
+    protected BatchProjection(Projection proj) {
+        this.proj = proj;
+    }
+
+    /**
+     * Get the batch projection for the projection, using a specialized loop if one matches it.
+     * @param proj the projection.
+     * @return the batch projection.
+     */
+    public static BatchProjection forProjection(Projection proj) {
+        BatchProjection batch = null;
+        if (proj.getRotationAngle() == 0.0) {
+            Class<?> projClass = proj.getClass();
+            if (projClass == Mercator.class) {
+                batch = new MercatorBatch(proj);
+            } else if (projClass == LLXY.class) {
+                batch = new LLXYBatch(proj);
+            } else if (projClass == Orthographic.class) {
+                batch = new OrthographicBatch(proj, false);
+            } else if (projClass == Gnomonic.class) {
+                batch = new OrthographicBatch(proj, true);
+            }
+        }
+        if (batch != null && !batch.matchesProjection()) {
+            Debug.message("proj", "BatchProjection: specialized loop doesn't match " + proj.getClass().getName());
+            batch = null;
+        }
+        return batch != null ? batch : new GenericBatch(proj);
+    }
+
+    /**
+     * Project the coordinates.
+     * @param lats latitudes in decimal degrees.
+     * @param lons longitudes in decimal degrees.
+     * @param from index of the first point to be projected.
+     * @param to index after the last point to be projected.
+     * @param xs projected x coordinates, written at the indices of the points.
+     * @param ys projected y coordinates, written at the indices of the points.
+     * @param plotted set for the points that are plotable, cleared for the others.
+     */
+    public abstract void forward(double[] lats, double[] lons, int from, int to, int[] xs, int[] ys, BitSet plotted);
+
+    /**
+     * Compare the loop with the projection on a grid of sample points.
+     * @return true if both agree on the sample points.
+     */
+    protected boolean matchesProjection() {
+        int size = 0;
+        double[] lats = new double[19 * 37];
+        double[] lons = new double[lats.length];
+        for (int lat = -90; lat <= 90; lat += 10) {
+            for (int lon = -180; lon <= 180; lon += 10) {
+                lats[size] = lat == 90 || lat == -90 ? lat * 0.99 : lat + 0.5;
+                lons[size++] = lon == 180 ? lon - 0.25 : lon + 0.25;
+            }
+        }
+        int[] xs = new int[size];
+        int[] ys = new int[size];
+        BitSet plotted = new BitSet(size);
+        forward(lats, lons, 0, size, xs, ys, plotted);
+        Point2D p = new Point2D.Double();
+        for (int i = 0; i < size; i++) {
+            boolean plotable = proj.isPlotable(lats[i], lons[i]);
+            if (plotable != plotted.get(i)) {
+                return false;
+            }
+            if (plotable) {
+                proj.forward(lats[i], lons[i], p);
+                if (Math.abs(p.getX() - xs[i]) > TOLERANCE || Math.abs(p.getY() - ys[i]) > TOLERANCE) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Round a pixel coordinate to the nearest integer, as Point.setLocation does.
+     * @param v the coordinate.
+     * @return the rounded coordinate.
+     */
+    protected static int round(double v) {
+        return (int) Math.floor(v + 0.5);
+    }
+
+    /**
+     * Wrap a longitude difference into [-PI, PI].
+     * @param dlon longitude difference in radians.
+     * @return the wrapped difference.
+     */
+    protected static double wrap(double dlon) {
+        if (dlon > Math.PI) {
+            dlon -= 2 * Math.PI;
+        } else if (dlon < -Math.PI) {
+            dlon += 2 * Math.PI;
+        }
+        return dlon;
+    }
+
+    /**
+     * Projection of the points one by one through the Projection interface, for any projection.
+     */
+    protected static class GenericBatch extends BatchProjection {
+
+        GenericBatch(Projection proj) {
+            super(proj);
+        }
+
+        @Override
+        public void forward(double[] lats, double[] lons, int from, int to, int[] xs, int[] ys, BitSet plotted) {
+            Point2D p = new Point2D.Double();
+            for (int i = from; i < to; i++) {
+                if (!proj.isPlotable(lats[i], lons[i])) {
+                    plotted.clear(i);
+                    continue;
+                }
+                proj.forward(lats[i], lons[i], p);
+                xs[i] = round(p.getX());
+                ys[i] = round(p.getY());
+                plotted.set(i);
+            }
+        }
+
+        @Override
+        protected boolean matchesProjection() {
+            return true;
+        }
+    }
+
+    /**
+     * Base of the specialized loops, measuring the pixel location of the center of the projection.
+     */
+    protected abstract static class MeasuredBatch extends BatchProjection {
+
+        /**
+         * Center of the projection, in radians.
+         */
+        protected final double ctrLat;
+        protected final double ctrLon;
+
+        /**
+         * Pixel location of the center of the projection.
+         */
+        protected final double ctrX;
+        protected final double ctrY;
+
+        MeasuredBatch(Projection proj) {
+            super(proj);
+            Point2D center = proj.getCenter();
+            ctrLat = Math.toRadians(center.getY());
+            ctrLon = Math.toRadians(center.getX());
+            Point2D p = proj.forward(center.getY(), center.getX());
+            ctrX = p.getX();
+            ctrY = p.getY();
+        }
+
+        /**
+         * Measure the horizontal number of pixels per radian of longitude along the center latitude.
+         * @return pixels per radian.
+         */
+        protected double measureLonScale() {
+            Point2D center = proj.getCenter();
+            Point2D p = proj.forward(center.getY(), center.getX() + PROBE);
+            return (p.getX() - ctrX) / Math.toRadians(PROBE);
+        }
+    }
+
+    /**
+     * Loop for the Mercator projection.
+     */
+    protected static class MercatorBatch extends MeasuredBatch {
+
+        /**
+         * Pixels per radian at the equator.
+         */
+        protected final double scale;
+
+        /**
+         * Mercator ordinate of the center latitude.
+         */
+        protected final double ctrMercatorY;
+
+        MercatorBatch(Projection proj) {
+            super(proj);
+            scale = measureLonScale();
+            ctrMercatorY = Math.log(Math.tan(Math.PI / 4 + ctrLat / 2));
+        }
+
+        @Override
+        public void forward(double[] lats, double[] lons, int from, int to, int[] xs, int[] ys, BitSet plotted) {
+            // every point is plotable, the latitudes being clamped
+            for (int i = from; i < to; i++) {
+                double lat = Math.max(-MERCATOR_MAX_LAT, Math.min(MERCATOR_MAX_LAT, Math.toRadians(lats[i])));
+                double dlon = wrap(Math.toRadians(lons[i]) - ctrLon);
+                xs[i] = round(ctrX + scale * dlon);
+                ys[i] = round(ctrY - scale * (Math.log(Math.tan(Math.PI / 4 + lat / 2)) - ctrMercatorY));
+            }
+            plotted.set(from, to);
+        }
+    }
+
+    /**
+     * Loop for the LLXY projection, which is linear in latitude and longitude.
+     */
+    protected static class LLXYBatch extends MeasuredBatch {
+
+        /**
+         * Pixels per degree.
+         */
+        protected final double scale;
+
+        LLXYBatch(Projection proj) {
+            super(proj);
+            scale = Math.toRadians(measureLonScale());
+        }
+
+        @Override
+        public void forward(double[] lats, double[] lons, int from, int to, int[] xs, int[] ys, BitSet plotted) {
+            double ctrLatDegrees = Math.toDegrees(ctrLat);
+            double ctrLonDegrees = Math.toDegrees(ctrLon);
+            for (int i = from; i < to; i++) {
+                double lat = lats[i];
+                double lon = lons[i];
+                double dlon = lon - ctrLonDegrees;
+                dlon = dlon > 180 ? dlon - 360 : dlon < -180 ? dlon + 360 : dlon;
+                xs[i] = round(ctrX + scale * dlon);
+                ys[i] = round(ctrY - scale * (lat - ctrLatDegrees));
+                plotted.set(i, lat < 90 && lat > -90 && lon <= 180 && lon >= -180);
+            }
+        }
+    }
+
+    /**
+     * Loop for the azimuthal Orthographic and Gnomonic projections, which only differ by the division of the
+     * coordinates by the cosine of the angular distance from the center in the Gnomonic projection.
+     */
+    protected static class OrthographicBatch extends MeasuredBatch {
+
+        /**
+         * Radius of the sphere in pixels.
+         */
+        protected final double radius;
+
+        /**
+         * True for the Gnomonic projection.
+         */
+        protected final boolean gnomonic;
+
+        /**
+         * Sine and cosine of the center latitude.
+         */
+        protected final double sinCtrLat;
+        protected final double cosCtrLat;
+
+        /**
+         * Cosine of the largest angular distance from the center of a plotable point: a hemisphere for the
+         * Orthographic projection, HEMISPHERE_EDGE for the Gnomonic one.
+         */
+        protected final double minCosC;
+
+        OrthographicBatch(Projection proj, boolean gnomonic) {
+            super(proj);
+            this.gnomonic = gnomonic;
+            minCosC = gnomonic ? Math.cos(Gnomonic.HEMISPHERE_EDGE) : 0;
+            sinCtrLat = Math.sin(ctrLat);
+            cosCtrLat = Math.cos(ctrLat);
+            // a point due north or south of the center lies at R*sin(d), or R*tan(d) for Gnomonic, from it
+            Point2D center = proj.getCenter();
+            double probe = center.getY() > 0 ? -PROBE : PROBE;
+            Point2D p = proj.forward(center.getY() + probe, center.getX());
+            double distance = Math.abs(p.getY() - ctrY);
+            double d = Math.toRadians(PROBE);
+            radius = distance / (gnomonic ? Math.tan(d) : Math.sin(d));
+        }
+
+        @Override
+        public void forward(double[] lats, double[] lons, int from, int to, int[] xs, int[] ys, BitSet plotted) {
+            for (int i = from; i < to; i++) {
+                double lat = Math.max(-AZIMUTHAL_MAX_LAT, Math.min(AZIMUTHAL_MAX_LAT, Math.toRadians(lats[i])));
+                double dlon = Math.toRadians(lons[i]) - ctrLon;
+                double sinLat = Math.sin(lat);
+                double cosLat = Math.cos(lat);
+                double cosDlon = Math.cos(dlon);
+                // cosine of the angular distance from the center, the points too far from it are not plotable
+                double cosC = sinCtrLat * sinLat + cosCtrLat * cosLat * cosDlon;
+                double factor = gnomonic ? radius / cosC : radius;
+                xs[i] = round(ctrX + factor * cosLat * Math.sin(dlon));
+                ys[i] = round(ctrY - factor * (cosCtrLat * sinLat - sinCtrLat * cosLat * cosDlon));
+                plotted.set(i, cosC >= minCosC);
+            }
+        }
+    }
+}
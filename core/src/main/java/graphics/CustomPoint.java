@@ -0,0 +1,436 @@
+package graphics;
+
+import com.bbn.openmap.omGraphics.OMGeometry;
+import com.bbn.openmap.omGraphics.OMGraphicConstants;
+import com.bbn.openmap.omGraphics.OMPoint;
+import com.bbn.openmap.proj.Projection;
+import com.bbn.openmap.util.Debug;
+import metrics.GenerateEvent;
+import metrics.Metrics;
+import metrics.OperationStats;
+
+import java.awt.*;
+import java.awt.geom.Ellipse2D;
+import java.awt.geom.GeneralPath;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Graphic type that lets you draw CustomPoints, i.e. points that can have their name and rotation angle
+ * be set by the user.
+ */
+public class CustomPoint extends OMPoint implements Nameable{
+
+    /**
+     * Statistics of the generation of the points, recorded in the {@link Metrics}.
+     */
+    protected static final OperationStats GENERATE_STATS = Metrics.getStats(CustomPoint.class, "generate");
+
+    /**
+     * String field that contains the name of the object.
+     */
+    protected String name;
+
+    /**
+     * Listeners to be notified when the name of the object changes, null until one is added.
+     */
+    protected transient NameListeners nameListeners;
+
+    /**
+     * Field containing the rotation angle of the object in radians.
+     */
+    protected double rotationAngle = DEFAULT_ROTATIONANGLE;
+
+    /**
+     * The rotation angle used at render time, depending on rotate-ability.
+     * Radians. If DEFAULT_ROTATIONANGLE, no rotation is applied at render time.
+     */
+    protected double renderRotationAngle = DEFAULT_ROTATIONANGLE;
+
+    /**
+     * Whether the NO_ROTATE attribute is set, so the point compensates for the rotation of the projection. Kept along
+     * with the attribute, not to look it up in the attributes on each generate.
+     */
+    protected boolean noRotate;
+
+    /**
+     * State of the generation of the object, created when first needed since the constructors of the superclass
+     * already mark the object as needing to be generated.
+     */
+    protected transient GenerationState generationState;
+
+    /** Default constructor, waiting to be filled. */
+    public CustomPoint() {
+        super();
+    }
+
+    /**
+     * Create a CustomPoint at a lat/lon position, with the default radius.
+     * <p>Set the name of the object to 'point' by default. </p>
+     */
+    public CustomPoint(double lat, double lon) {
+        this(lat, lon, DEFAULT_RADIUS);
+    }
+
+    /**
+     * Create a CustomPoint at a lat/lon position, with the specified radius.
+     * <p>Set the name of the object to 'point' by default. </p>
+     */
+    public CustomPoint(double lat, double lon, int radius) {
+        setRenderType(RENDERTYPE_LATLON);
+        set(lat, lon);
+        setName("point");
+        this.radius = radius;
+    }
+
+    /**
+     * Create a CustomPoint at a lat/lon position with a screen X/Y pixel offset,
+     * with the default radius.
+     * <p>Set the name of the object to 'point' by default. </p>
+     */
+    public CustomPoint(double lat, double lon, int offsetx, int offsety) {
+        this(lat, lon, offsetx, offsety, DEFAULT_RADIUS);
+    }
+
+    /**
+     * Create a CustomPoint at a lat/lon position with a screen X/Y pixel offset,
+     * with the specified radius.
+     * <p>Set the name of the object to 'point' by default. </p>
+     */
+    public CustomPoint(double lat, double lon, int offsetx, int offsety, int radius) {
+        setRenderType(RENDERTYPE_OFFSET);
+        set(lat, lon, offsetx, offsety);
+        setName("point");
+        this.radius = radius;
+    }
+
+    /**
+     * Put the point at a screen location, marked with a rectangle with edge
+     * size DEFAULT_RADIUS * 2 + 1.
+     * <p>Set the name of the object to 'point' by default. </p>
+     */
+    public CustomPoint(int x, int y) {
+        this(x, y, DEFAULT_RADIUS);
+    }
+
+    /**
+     * Put the point at a screen location, marked with a rectangle with edge
+     * size radius * 2 + 1.
+     * <p>Set the name of the object to 'point' by default. </p>
+     */
+    public CustomPoint(int x, int y, int radius) {
+        setRenderType(RENDERTYPE_XY);
+        set(x, y);
+        setName("point");
+        this.radius = radius;
+    }
+
+    /**
+     * Set the name of the object.
+     * @param name the name to be set for the object.
+     */
+    @Override
+    public synchronized void setName(String name){
+        String oldName = this.name;
+        this.name = name;
+        if (nameListeners != null && !Objects.equals(oldName, name)) {
+            nameListeners.fire(this, oldName);
+        }
+    }
+
+    /**
+     * Set the angle by which the point is to be rotated.
+     *
+     * @param angle the number of radians the point is to be rotated. Measured
+     *        clockwise from horizontal. Positive numbers move the positive x
+     *        axis toward the positive y axis.
+     */
+    public void setRotationAngle(double angle) {
+        this.rotationAngle = angle;
+        setNeedToRegenerate(true);
+    }
+
+    /**
+     * Get the current name of the object.
+     *
+     * @return String containing the name of the object
+     */
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Add a listener to be notified each time the name of the object is changed.
+     * @param listener the listener to be notified.
+     */
+    @Override
+    public synchronized void addNameListener(NameListener listener) {
+        if (nameListeners == null) {
+            nameListeners = new NameListeners();
+        }
+        nameListeners.add(listener);
+    }
+
+    /**
+     * Remove a listener of the name of the object.
+     * @param listener the listener to stop notifying.
+     */
+    @Override
+    public synchronized void removeNameListener(NameListener listener) {
+        if (nameListeners != null) {
+            nameListeners.remove(listener);
+        }
+    }
+
+    /**
+     * Mark the object as needing to be generated. Setting the flag increases the version of the geometry, so the
+     * next call to generate rebuilds the shape.
+     * @param value true if the object has to be generated again.
+     */
+    @Override
+    public void setNeedToRegenerate(boolean value) {
+        if (value) {
+            getGenerationState().changed();
+        }
+        super.setNeedToRegenerate(value);
+    }
+
+    /**
+     * Get the state of the generation of the object.
+     * @return the state.
+     */
+    protected GenerationState getGenerationState() {
+        if (generationState == null) {
+            generationState = new GenerationState();
+        }
+        return generationState;
+    }
+
+    /**
+     * Copy the object. The copy gets its own state of generation, and no name listeners.
+     * @return the copy.
+     */
+    @Override
+    public Object clone() {
+        CustomPoint copy = (CustomPoint) super.clone();
+        copy.generationState = null;
+        copy.nameListeners = null;
+        return copy;
+    }
+
+    /**
+     * Restore the shape the current geometry has been generated into for the projection, if
+     * they are still in the {@link ProjectedShapeCache}.
+     * @param proj Projection
+     * @return true if the shape has been restored.
+     */
+    protected boolean restoreGenerated(Projection proj) {
+        ProjectedShapeCache.Projected projected = getGenerationState().restore(this, proj);
+        if (projected == null) {
+            return false;
+        }
+        evaluateRotationAngle(proj);
+        setShape(projected.shape);
+        initLabelingDuringGenerate();
+        setLabelLocation(projected.label, proj);
+        setNeedToRegenerate(false);
+        return true;
+    }
+
+    /**
+     * Set an attribute of the point. The NO_ROTATE attribute changes the way the point is generated.
+     * @param key key of the attribute.
+     * @param value value of the attribute.
+     */
+    @Override
+    public void putAttribute(Object key, Object value) {
+        super.putAttribute(key, value);
+        if (OMGraphicConstants.NO_ROTATE.equals(key)) {
+            updateNoRotate();
+        }
+    }
+
+    /**
+     * Remove an attribute of the point. The NO_ROTATE attribute changes the way the point is generated.
+     * @param key key of the attribute.
+     * @return previous value of the attribute.
+     */
+    @Override
+    public Object removeAttribute(Object key) {
+        Object value = super.removeAttribute(key);
+        if (OMGraphicConstants.NO_ROTATE.equals(key)) {
+            updateNoRotate();
+        }
+        return value;
+    }
+
+    /**
+     * Replace the attributes of the point, which may change the NO_ROTATE attribute.
+     * @param atts the attributes.
+     */
+    @Override
+    public void setAttributes(Map<Object, Object> atts) {
+        super.setAttributes(atts);
+        updateNoRotate();
+    }
+
+    /**
+     * Remove the attributes of the point, which may change the NO_ROTATE attribute.
+     */
+    @Override
+    public void clearAttributes() {
+        super.clearAttributes();
+        updateNoRotate();
+    }
+
+    /**
+     * Read the NO_ROTATE attribute into the flag used by generate, regenerating the point if it changes.
+     */
+    protected void updateNoRotate() {
+        Object noRotationAtt = getAttribute(OMGraphicConstants.NO_ROTATE);
+        boolean value = noRotationAtt != null && !noRotationAtt.equals(Boolean.FALSE);
+        if (value != noRotate) {
+            noRotate = value;
+            setNeedToRegenerate(true);
+        }
+    }
+
+    /**
+     * Get the current rotation of the point.
+     *
+     * @return the angle of point rotation.
+     */
+    public double getRotationAngle() {
+        return rotationAngle;
+    }
+
+    /**
+     * Prepare the point for rendering. Nothing is done if the point has already been generated for the projection
+     * and its geometry hasn't changed since.
+     *
+     * @param proj Projection
+     * @return true if generate was successful
+     */
+    @Override
+    public boolean generate(Projection proj) {
+        long start = Metrics.startNanos();
+        GenerateEvent event = new GenerateEvent();
+        event.begin();
+        try {
+            return generateShape(proj);
+        } finally {
+            GENERATE_STATS.record(start);
+            if (event.shouldCommit()) {
+                event.set(this, proj);
+                event.commit();
+            }
+        }
+    }
+
+    /**
+     * Generate the shape of the point, unless it has already been generated for the projection.
+     * @param proj Projection
+     * @return true if generate was successful
+     */
+    protected boolean generateShape(Projection proj) {
+
+        if (proj == null) {
+            setNeedToRegenerate(true);
+            Debug.message("omgraphic", "CustomPoint: null projection in generate!");
+            return false;
+        }
+        if (getGenerationState().isGenerated(getShape(), proj) || restoreGenerated(proj)) {
+            return true;
+        }
+
+        // reset the internals
+        int x1 = 0;
+        int x2 = 0;
+        int y1 = 0;
+        int y2 = 0;
+
+
+        switch (renderType) {
+            case RENDERTYPE_XY:
+                x1 = x - radius;
+                y1 = y - radius;
+                x2 = x + radius;
+                y2 = y + radius;
+
+                break;
+            case RENDERTYPE_OFFSET:
+            case RENDERTYPE_LATLON:
+                if (!proj.isPlotable(lat1, lon1)) {
+                    setNeedToRegenerate(true);
+                    return false;
+                }
+                Point p1 = (Point) proj.forward(lat1, lon1, new Point());
+
+                x1 = p1.x + x - radius;
+                y1 = p1.y + y - radius;
+                x2 = p1.x + x + radius;
+                y2 = p1.y + y + radius;
+                break;
+            case RENDERTYPE_UNKNOWN:
+                System.err.println("CustomPoint.generate(): invalid RenderType");
+                setNeedToRegenerate(true);
+                return false;
+        }
+        evaluateRotationAngle(proj);
+        int x = Math.min(x2, x1);
+        int y = Math.min(y2, y1);
+        GeneralPath shape;
+        if (oval) {
+            shape = new GeneralPath(new Ellipse2D.Float((float) x, (float) y, (float) Math.abs(x2
+                    - x1), (float) Math.abs(y2 - y1)));
+        } else {
+            shape = createBoxShape(x, y, Math.abs(x2 - x1),
+                    Math.abs(y2 - y1));
+        }
+        if (renderRotationAngle != DEFAULT_ROTATIONANGLE) {
+            shape.transform(RotationCache.get(renderRotationAngle).getTransform(x, y));
+        }
+        setShape(shape);
+
+        initLabelingDuringGenerate();
+        Point label = new Point(x2, y1);
+        setLabelLocation(label, proj);
+
+        setNeedToRegenerate(false);
+        getGenerationState().setGenerated(this, proj, shape, label);
+        return true;
+    }
+
+    /**
+     * Set the renderRotationAngle based on the projection angle and this CustomPoint
+     * settings.
+     *
+     * @param proj the current projection.
+     */
+    public void evaluateRotationAngle(Projection proj) {
+        renderRotationAngle = noRotate ? rotationAngle - proj.getRotationAngle() : rotationAngle;
+    }
+
+    /**
+     * Takes the OMGeometry object and if it also belongs to this class copies it to this object.
+     * @param source Object to be restored.
+     */
+    @Override
+    public void restore(OMGeometry source) {
+        super.restore(source);
+        if (source instanceof CustomPoint) {
+            CustomPoint point = (CustomPoint) source;
+            this.radius = point.radius;
+            this.x = point.x;
+            this.y = point.y;
+            this.lat1 = point.lat1;
+            this.lon1 = point.lon1;
+            this.oval = point.oval;
+            setName(point.name);
+            this.rotationAngle = point.rotationAngle;
+            updateNoRotate();
+            setNeedToRegenerate(true);
+        }
+    }
+}
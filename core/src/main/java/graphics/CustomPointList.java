@@ -0,0 +1,1133 @@
+package graphics;
+
+import com.bbn.openmap.omGraphics.OMAction;
+import com.bbn.openmap.omGraphics.OMGraphic;
+import com.bbn.openmap.omGraphics.OMGraphicConstants;
+import com.bbn.openmap.omGraphics.OMGraphicList;
+import com.bbn.openmap.proj.GeoProj;
+import com.bbn.openmap.proj.Projection;
+
+import java.awt.*;
+import java.awt.geom.AffineTransform;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.*;
+import java.util.List;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
+
+/**
+ * List of graphics storing CustomPoints as records of parallel primitive arrays instead of objects, which takes a
+ * fraction of the memory of a CustomPoint per point.
+ * <p>The records are projected and rendered straight from the arrays. A record is turned into a CustomPoint only when
+ * it is found under the mouse, so it can be selected and edited with the drawing tool. The CustomPoint is a member of
+ * the list while it is materialized, and its state is written back to the record when the drawing tool is done with
+ * it. Other graphics added to the list are kept as regular members.</p>
+ * <p>Records are rendered with the default stroke of the graphics, only the line and fill colors are kept per record.
+ * Since the records are not members of the list, iterating over the list only visits the materialized points and the
+ * other graphics.</p>
+ * <p>The points found by {@link #searchRecords(String, int)} and {@link #queryRecords} are copies of the records,
+ * which stay linked to them until a record is removed, so a change of a copy can be written back to its record with
+ * {@link #writeBack(CustomPoint)}.</p>
+ * <p>In clustering mode, the records are grouped by the cells of a lat/lon grid which cells are about the cluster
+ * size in pixels at the current zoom level, and each group of several records is drawn as a single
+ * {@link PointCluster}. The grids of a level are nested in the grids of the levels above, and the clusters of the
+ * last zoom levels are kept, so zooming back and forth and panning don't group the records again. The rendering cost
+ * is then bounded by the number of cells on the screen rather than by the number of records.</p>
+ */
+public class CustomPointList extends OMGraphicList {
+
+    /**
+     * Initial capacity of the arrays.
+     */
+    protected static final int INITIAL_CAPACITY = 64;
+
+    /**
+     * Default size of the cluster cells, in pixels.
+     */
+    public static final int DEFAULT_CLUSTER_SIZE = 48;
+
+    /**
+     * Deepest zoom level the records are clustered at. The records are rendered one by one below it.
+     */
+    protected static final int MAX_CLUSTER_LEVEL = 24;
+
+    /**
+     * Number of zoom levels which clusters are kept.
+     */
+    protected static final int MAX_CACHED_LEVELS = 8;
+
+    /**
+     * Number of names listed in the name of a cluster.
+     */
+    protected static final int TOP_NAMES = 5;
+
+    /**
+     * Number of records.
+     */
+    protected int count = 0;
+
+    /**
+     * Latitudes of the records, in decimal degrees.
+     */
+    protected double[] lats = new double[INITIAL_CAPACITY];
+
+    /**
+     * Longitudes of the records, in decimal degrees.
+     */
+    protected double[] lons = new double[INITIAL_CAPACITY];
+
+    /**
+     * Radiuses of the records, in pixels.
+     */
+    protected int[] radii = new int[INITIAL_CAPACITY];
+
+    /**
+     * Rotation angles of the records, in radians.
+     */
+    protected double[] rotations = new double[INITIAL_CAPACITY];
+
+    /**
+     * Indices of the names of the records in the name table.
+     */
+    protected int[] nameIndices = new int[INITIAL_CAPACITY];
+
+    /**
+     * Line colors of the records, as ARGB values.
+     */
+    protected int[] lineColors = new int[INITIAL_CAPACITY];
+
+    /**
+     * Fill colors of the records, as ARGB values.
+     */
+    protected int[] fillColors = new int[INITIAL_CAPACITY];
+
+    /**
+     * Records drawn as ovals rather than boxes.
+     */
+    protected final BitSet ovals = new BitSet();
+
+    /**
+     * Distinct names of the records, so records sharing a name share the string.
+     */
+    protected final List<String> nameTable = new ArrayList<>();
+
+    /**
+     * Indices of the names in the name table.
+     */
+    protected final Map<String, Integer> nameTableIndices = new HashMap<>();
+
+    /**
+     * Index of the names of the name table, for searching the records by name. It is built on the first search, then
+     * kept up to date with the name table.
+     */
+    protected NameIndex<Integer> recordNames;
+
+    /**
+     * Index of the records by location, built on the first query, then kept up to date with the records.
+     */
+    protected SpatialIndex<Integer> recordLocations;
+
+    /**
+     * Size of the cells of the index of the records by location, in decimal degrees.
+     */
+    protected double indexCellSize = SpatialIndex.DEFAULT_CELL_SIZE;
+
+    /**
+     * Projected x coordinates of the centers of the records.
+     */
+    protected int[] xs = new int[0];
+
+    /**
+     * Projected y coordinates of the centers of the records.
+     */
+    protected int[] ys = new int[0];
+
+    /**
+     * Records that are plotable in the projection the list was generated for.
+     */
+    protected final BitSet plotted = new BitSet();
+
+    /**
+     * Projection the records were generated for, null if they haven't been generated.
+     */
+    protected Projection projection;
+
+    /**
+     * Batch projection of the records for the projection, null if they haven't been generated.
+     */
+    protected BatchProjection batch;
+
+    /**
+     * Whether the records are rendered as clusters.
+     */
+    protected boolean clustering = false;
+
+    /**
+     * Size of the cluster cells, in pixels.
+     */
+    protected int clusterSize = DEFAULT_CLUSTER_SIZE;
+
+    /**
+     * Clusters of the last zoom levels, by level, the least recently used first.
+     */
+    protected final Map<Integer, ClusterLevel> clusterLevels = new LinkedHashMap<Integer, ClusterLevel>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Integer, ClusterLevel> eldest) {
+            return size() > MAX_CACHED_LEVELS;
+        }
+    };
+
+    /**
+     * Line color of the last record rendered, reused while the following records have the same color.
+     */
+    protected Color renderLineColor;
+
+    /**
+     * Fill color of the last record rendered, reused while the following records have the same color.
+     */
+    protected Color renderFillColor;
+
+    /**
+     * Records currently materialized as CustomPoints, which are rendered as members of the list instead.
+     */
+    protected final BitSet materialized = new BitSet();
+
+    /**
+     * Materialized CustomPoints, by record.
+     */
+    protected final Map<Integer, CustomPoint> pointsByRecord = new HashMap<>();
+
+    /**
+     * Records of the materialized CustomPoints.
+     */
+    protected final Map<CustomPoint, Integer> recordsByPoint = new IdentityHashMap<>();
+
+    /**
+     * Records of the copies found by the searches and the queries, forgotten when a record is removed, since the
+     * records are then renumbered.
+     */
+    protected final Map<CustomPoint, Integer> recordsByCopy = new WeakHashMap<>();
+
+    /**
+     * Point materialized under the mouse that is not being edited, released when the mouse moves to another record.
+     */
+    protected CustomPoint probe;
+
+    /**
+     * Construct an empty list.
+     */
+    public CustomPointList() {
+        super();
+    }
+
+    /**
+     * Get the number of records, not counting the members of the list.
+     * @return number of records.
+     */
+    public synchronized int getRecordCount() {
+        return count;
+    }
+
+    /**
+     * Set whether the records are rendered as clusters.
+     * @param clustering true to render the records as clusters.
+     */
+    public synchronized void setClustering(boolean clustering) {
+        if (this.clustering != clustering) {
+            this.clustering = clustering;
+            // the records are not projected one by one while they are clustered
+            project(0, count);
+        }
+    }
+
+    /**
+     * Check whether the records are rendered as clusters.
+     * @return true if the records are rendered as clusters.
+     */
+    public synchronized boolean isClustering() {
+        return clustering;
+    }
+
+    /**
+     * Set the size of the cluster cells.
+     * @param clusterSize size in pixels.
+     */
+    public synchronized void setClusterSize(int clusterSize) {
+        if (this.clusterSize != clusterSize) {
+            this.clusterSize = Math.max(1, clusterSize);
+            clusterLevels.clear();
+        }
+    }
+
+    /**
+     * Get the size of the cluster cells.
+     * @return size in pixels.
+     */
+    public synchronized int getClusterSize() {
+        return clusterSize;
+    }
+
+    /**
+     * Add a record.
+     * @param lat latitude in decimal degrees.
+     * @param lon longitude in decimal degrees.
+     * @param radius radius in pixels.
+     * @param rotation rotation angle in radians.
+     * @param oval true if the point is drawn as an oval.
+     * @param name name of the point.
+     * @param lineColor line color as an ARGB value.
+     * @param fillColor fill color as an ARGB value.
+     * @return index of the record.
+     */
+    public synchronized int addRecord(double lat, double lon, int radius, double rotation, boolean oval, String name,
+                                      int lineColor, int fillColor) {
+        if (count == lats.length) {
+            int capacity = count * 2;
+            lats = Arrays.copyOf(lats, capacity);
+            lons = Arrays.copyOf(lons, capacity);
+            radii = Arrays.copyOf(radii, capacity);
+            rotations = Arrays.copyOf(rotations, capacity);
+            nameIndices = Arrays.copyOf(nameIndices, capacity);
+            lineColors = Arrays.copyOf(lineColors, capacity);
+            fillColors = Arrays.copyOf(fillColors, capacity);
+        }
+        int index = count++;
+        setRecord(index, lat, lon, radius, rotation, oval, name, lineColor, fillColor);
+        plotted.clear(index);
+        project(index, index + 1);
+        return index;
+    }
+
+    /**
+     * Add a record holding the state of the point.
+     * @param point the point.
+     * @return index of the record.
+     */
+    public int addRecord(CustomPoint point) {
+        return addRecord(point.getLat(), point.getLon(), point.getRadius(), point.getRotationAngle(), point.isOval(),
+                point.getName(), colorValue(point.getLinePaint(), Color.black),
+                colorValue(point.getFillPaint(), OMGraphicConstants.clear));
+    }
+
+    /**
+     * Set the fields of a record.
+     * @param index index of the record.
+     * @param lat latitude in decimal degrees.
+     * @param lon longitude in decimal degrees.
+     * @param radius radius in pixels.
+     * @param rotation rotation angle in radians.
+     * @param oval true if the point is drawn as an oval.
+     * @param name name of the point.
+     * @param lineColor line color as an ARGB value.
+     * @param fillColor fill color as an ARGB value.
+     */
+    protected void setRecord(int index, double lat, double lon, int radius, double rotation, boolean oval, String name,
+                             int lineColor, int fillColor) {
+        lats[index] = lat;
+        lons[index] = lon;
+        radii[index] = radius;
+        rotations[index] = rotation;
+        ovals.set(index, oval);
+        nameIndices[index] = nameIndex(name);
+        lineColors[index] = lineColor;
+        fillColors[index] = fillColor;
+        clusterLevels.clear();
+        if (recordLocations != null) {
+            recordLocations.add(index, lat, lon, lat, lon);
+        }
+    }
+
+    /**
+     * Write the state of the point back to its record.
+     * @param index index of the record.
+     * @param point the point.
+     */
+    protected void setRecord(int index, CustomPoint point) {
+        setRecord(index, point.getLat(), point.getLon(), point.getRadius(), point.getRotationAngle(), point.isOval(),
+                point.getName(), colorValue(point.getLinePaint(), Color.black),
+                colorValue(point.getFillPaint(), OMGraphicConstants.clear));
+        project(index, index + 1);
+    }
+
+    /**
+     * Remove a record. The last record takes its index. The clusters of all the levels are computed again, since the
+     * record is in them.
+     * @param index index of the record.
+     */
+    public synchronized void removeRecord(int index) {
+        if (index < 0 || index >= count) {
+            throw new IndexOutOfBoundsException("record " + index + " of " + count);
+        }
+        clusterLevels.clear();
+        recordsByCopy.clear();
+        CustomPoint point = pointsByRecord.remove(index);
+        if (point != null) {
+            recordsByPoint.remove(point);
+            remove(point);
+            materialized.clear(index);
+        }
+        int last = --count;
+        if (index != last) {
+            setRecord(index, lats[last], lons[last], radii[last], rotations[last], ovals.get(last),
+                    nameTable.get(nameIndices[last]), lineColors[last], fillColors[last]);
+            if (xs.length > last) {
+                xs[index] = xs[last];
+                ys[index] = ys[last];
+            }
+            plotted.set(index, plotted.get(last));
+            materialized.set(index, materialized.get(last));
+            CustomPoint moved = pointsByRecord.remove(last);
+            if (moved != null) {
+                pointsByRecord.put(index, moved);
+                recordsByPoint.put(moved, index);
+            }
+        }
+        plotted.clear(last);
+        materialized.clear(last);
+        ovals.clear(last);
+        if (recordLocations != null) {
+            recordLocations.remove(last);
+        }
+    }
+
+    /**
+     * Get the name of a record.
+     * @param index index of the record.
+     * @return name of the record.
+     */
+    public synchronized String getRecordName(int index) {
+        return nameTable.get(nameIndices[index]);
+    }
+
+    /**
+     * Search the records by name, as {@link NameIndex#search(String, int)} does.
+     * @param query the query.
+     * @param limit maximal number of names matched.
+     * @return new points holding the state of the first record of each matched name, linked to the records.
+     */
+    public synchronized List<CustomPoint> searchRecords(String query, int limit) {
+        if (recordNames == null) {
+            recordNames = new NameIndex<>();
+            for (int i = 0; i < nameTable.size(); i++) {
+                recordNames.add(nameTable.get(i), i);
+            }
+        }
+        List<Integer> matches = recordNames.search(query, limit);
+        // names of the table may no longer be used by any record
+        Map<Integer, Integer> recordsByName = new LinkedHashMap<>();
+        for (Integer match : matches) {
+            recordsByName.put(match, -1);
+        }
+        int remaining = recordsByName.size();
+        for (int i = 0; i < count && remaining > 0; i++) {
+            Integer record = recordsByName.get(nameIndices[i]);
+            if (record != null && record < 0) {
+                recordsByName.put(nameIndices[i], i);
+                remaining--;
+            }
+        }
+        List<CustomPoint> points = new ArrayList<>();
+        for (int record : recordsByName.values()) {
+            if (record >= 0) {
+                points.add(createCopy(record));
+            }
+        }
+        return points;
+    }
+
+    /**
+     * Set the size of the cells of the index of the records by location.
+     * @param indexCellSize size in decimal degrees.
+     */
+    public synchronized void setIndexCellSize(double indexCellSize) {
+        if (this.indexCellSize != indexCellSize) {
+            this.indexCellSize = indexCellSize;
+            recordLocations = null;
+        }
+    }
+
+    /**
+     * Find the records within a region and which names match a predicate.
+     * @param south southern latitude of the region, in decimal degrees.
+     * @param west western longitude of the region, in decimal degrees.
+     * @param north northern latitude of the region, in decimal degrees.
+     * @param east eastern longitude of the region, in decimal degrees, west of the western one if the region crosses
+     *             the date line.
+     * @param name predicate on the names of the records, null to accept any name.
+     * @return lazy stream of new points holding the state of the records as they are reached, linked to the records.
+     */
+    public Stream<CustomPoint> queryRecords(double south, double west, double north, double east,
+                                            Predicate<String> name) {
+        SpatialIndex<Integer> locations;
+        synchronized (this) {
+            if (recordLocations == null) {
+                recordLocations = new SpatialIndex<>(indexCellSize);
+                for (int i = 0; i < count; i++) {
+                    recordLocations.add(i, lats[i], lons[i], lats[i], lons[i]);
+                }
+            }
+            locations = recordLocations;
+        }
+        return locations.query(south, west, north, east)
+                .map(this::createPointIfPresent)
+                .filter(point -> point != null && (name == null || name.test(point.getName())));
+    }
+
+    /**
+     * Create a copy of a record, if the record still exists.
+     * @param index index of the record.
+     * @return a new point linked to the record, or null if the record has been removed.
+     */
+    protected synchronized CustomPoint createPointIfPresent(int index) {
+        return index < count ? createCopy(index) : null;
+    }
+
+    /**
+     * Create a CustomPoint holding the state of a record, linked to the record until a record is removed.
+     * @param index index of the record.
+     * @return a new point.
+     */
+    protected CustomPoint createCopy(int index) {
+        CustomPoint point = createPoint(index);
+        recordsByCopy.put(point, index);
+        return point;
+    }
+
+    /**
+     * Tell whether a point is a copy of a record found by a search or a query, still linked to its record.
+     * @param point the point.
+     * @return true if changes of the point can be written back to its record.
+     */
+    public synchronized boolean isCopy(CustomPoint point) {
+        return recordsByCopy.containsKey(point);
+    }
+
+    /**
+     * Write the state of a copy found by a search or a query back to its record. Records materialized as points are
+     * left to the drawing tool, which writes them back itself.
+     * @param point the copy.
+     * @return true if the record was written, false if the point is no longer linked to a record or the record is
+     * materialized.
+     */
+    public synchronized boolean writeBack(CustomPoint point) {
+        Integer index = recordsByCopy.get(point);
+        if (index == null || materialized.get(index)) {
+            return false;
+        }
+        setRecord(index, point);
+        return true;
+    }
+
+    /**
+     * Create a CustomPoint holding the state of a record. The point is not linked to the record.
+     * @param index index of the record.
+     * @return a new point.
+     */
+    public synchronized CustomPoint createPoint(int index) {
+        CustomPoint point = new CustomPoint(lats[index], lons[index], radii[index]);
+        point.setRotationAngle(rotations[index]);
+        point.setOval(ovals.get(index));
+        point.setName(nameTable.get(nameIndices[index]));
+        point.setLinePaint(new Color(lineColors[index], true));
+        point.setFillPaint(new Color(fillColors[index], true));
+        return point;
+    }
+
+    /**
+     * Turn a record into a CustomPoint member of the list, which is rendered instead of the record until it is
+     * released.
+     * @param index index of the record.
+     * @return the materialized point.
+     */
+    public synchronized CustomPoint materialize(int index) {
+        CustomPoint point = pointsByRecord.get(index);
+        if (point == null) {
+            point = createPoint(index);
+            if (projection != null) {
+                point.generate(projection);
+            }
+            pointsByRecord.put(index, point);
+            recordsByPoint.put(point, index);
+            materialized.set(index);
+            add(point);
+        }
+        return point;
+    }
+
+    /**
+     * Write the state of a materialized point back to its record and remove the point from the list.
+     * @param point the point.
+     * @return true if the point was materialized from a record of the list.
+     */
+    public synchronized boolean release(CustomPoint point) {
+        Integer index = recordsByPoint.remove(point);
+        if (index == null) {
+            return false;
+        }
+        pointsByRecord.remove(index);
+        materialized.clear(index);
+        remove(point);
+        setRecord(index, point);
+        if (probe == point) {
+            probe = null;
+        }
+        return true;
+    }
+
+    /**
+     * Check whether a record is currently materialized as a CustomPoint member of the list.
+     * @param index index of the record.
+     * @return true if the record is materialized.
+     */
+    public synchronized boolean isMaterialized(int index) {
+        return materialized.get(index);
+    }
+
+    /**
+     * Keep the materialized point while it is edited, rather than releasing it when the mouse moves away.
+     * @param point the point.
+     */
+    public synchronized void pin(CustomPoint point) {
+        if (probe == point) {
+            probe = null;
+        }
+    }
+
+    /**
+     * Find the graphic closest to the location. The members of the list are searched first, then the records, the
+     * closest record being materialized so it can be selected.
+     * @param x horizontal pixel location.
+     * @param y vertical pixel location.
+     * @param limit maximal distance from the location.
+     * @return the closest graphic, or null if no graphic is within the limit.
+     */
+    @Override
+    public synchronized OMGraphic findClosest(double x, double y, float limit) {
+        OMGraphic closest = super.findClosest(x, y, limit);
+        if (closest != null) {
+            return closest;
+        }
+        int index;
+        ClusterLevel clusters = getClusters();
+        if (clusters != null) {
+            int cluster = clusters.find(x, y, limit);
+            if (cluster >= 0 && clusters.getCount(cluster) > 1) {
+                if (probe != null) {
+                    release(probe);
+                }
+                return clusters.getGraphic(cluster);
+            }
+            index = cluster >= 0 ? clusters.getFirstRecord(cluster) : -1;
+        } else {
+            index = findRecord(x, y, limit);
+        }
+        if (probe != null) {
+            release(probe);
+        }
+        if (index < 0) {
+            return null;
+        }
+        probe = materialize(index);
+        return probe;
+    }
+
+    /**
+     * Find the record closest to the location, among the records not materialized.
+     * @param x horizontal pixel location.
+     * @param y vertical pixel location.
+     * @param limit maximal distance from the edge of the record.
+     * @return index of the record, or -1 if no record is within the limit.
+     */
+    protected int findRecord(double x, double y, float limit) {
+        int closest = -1;
+        double closestDistance = Double.MAX_VALUE;
+        for (int i = plotted.nextSetBit(0); i >= 0 && i < count; i = plotted.nextSetBit(i + 1)) {
+            if (materialized.get(i)) {
+                continue;
+            }
+            double dx = xs[i] - x;
+            double dy = ys[i] - y;
+            double distance = Math.max(0, Math.sqrt(dx * dx + dy * dy) - radii[i]);
+            if (distance <= limit && distance < closestDistance) {
+                closest = i;
+                closestDistance = distance;
+            }
+        }
+        return closest;
+    }
+
+    /**
+     * Handle an action of the drawing tool. A materialized point is written back to its record when it has been
+     * updated or deselected, and its record is removed when it is deleted. New CustomPoints are stored as records.
+     * @param graphic graphic the action applies to.
+     * @param action the action.
+     */
+    @Override
+    public synchronized void doAction(OMGraphic graphic, OMAction action) {
+        if (action != null && graphic instanceof CustomPoint) {
+            CustomPoint point = (CustomPoint) graphic;
+            Integer index = recordsByPoint.get(point);
+            if (index != null) {
+                if (action.isMask(OMAction.DELETE_GRAPHIC_MASK)) {
+                    removeRecord(index);
+                    return;
+                }
+                if (action.isMask(OMAction.UPDATE_GRAPHIC_MASK) || action.isMask(OMAction.DESELECT_GRAPHIC_MASK)
+                        || action.isMask(OMAction.ADD_GRAPHIC_MASK)) {
+                    release(point);
+                    return;
+                }
+            } else if (!contains(graphic) && (action.isMask(OMAction.ADD_GRAPHIC_MASK)
+                    || action.isMask(OMAction.UPDATE_GRAPHIC_MASK))) {
+                addRecord(point);
+                return;
+            }
+        }
+        super.doAction(graphic, action);
+    }
+
+    /**
+     * Project the records and generate the members of the list.
+     * @param proj Projection
+     * @return true if generate was successful
+     */
+    @Override
+    public synchronized boolean generate(Projection proj) {
+        if (proj == null) {
+            return false;
+        }
+        if (projection != proj) {
+            batch = BatchProjection.forProjection(proj);
+        }
+        projection = proj;
+        if (getClusters() == null) {
+            project(0, count);
+        }
+        return super.generate(proj);
+    }
+
+    /**
+     * Project a range of records with the batch projection, if the list has been generated.
+     * @param from index of the first record.
+     * @param to index after the last record.
+     */
+    protected void project(int from, int to) {
+        if (batch == null) {
+            return;
+        }
+        if (xs.length < to) {
+            xs = Arrays.copyOf(xs, lats.length);
+            ys = Arrays.copyOf(ys, lats.length);
+        }
+        batch.forward(lats, lons, from, to, xs, ys, plotted);
+    }
+
+    /**
+     * Get the clusters of the records at the zoom level of the projection, grouping the records if the level hasn't
+     * been clustered yet.
+     * @return the clusters, or null if the records are not clustered at this level.
+     */
+    protected ClusterLevel getClusters() {
+        if (!clustering || !(projection instanceof GeoProj)) {
+            return null;
+        }
+        // the deepest level which cells are at least the cluster size at the equator
+        GeoProj geoProj = (GeoProj) projection;
+        double circumference = geoProj.getPlanetPixelCircumference() / geoProj.getScale();
+        int level = Math.max(0, (int) Math.floor(Math.log(circumference / clusterSize) / Math.log(2)));
+        if (level > MAX_CLUSTER_LEVEL) {
+            return null;
+        }
+        ClusterLevel clusters = clusterLevels.get(level);
+        if (clusters == null) {
+            clusters = new ClusterLevel(level);
+            clusterLevels.put(level, clusters);
+        }
+        if (clusters.projection != projection) {
+            clusters.project();
+        }
+        return clusters;
+    }
+
+    /**
+     * Render the records, or their clusters, then the members of the list.
+     * @param g Graphics context to render into.
+     */
+    @Override
+    public synchronized void render(Graphics g) {
+        // the visibility of the list itself, isVisible only considers the members
+        if (!visible) {
+            return;
+        }
+        Graphics2D g2 = (Graphics2D) g;
+        Stroke stroke = g2.getStroke();
+        g2.setStroke(OMGraphicConstants.BASIC_STROKE);
+        Rectangle clip = g2.getClipBounds();
+        ClusterLevel clusters = getClusters();
+        if (clusters != null) {
+            renderClusters(g2, clusters, clip);
+        } else {
+            for (int i = plotted.nextSetBit(0); i >= 0 && i < count; i = plotted.nextSetBit(i + 1)) {
+                if (!materialized.get(i)) {
+                    renderRecord(g2, i, xs[i], ys[i], clip);
+                }
+            }
+        }
+        g2.setStroke(stroke);
+        super.render(g);
+    }
+
+    /**
+     * Render the clusters, the clusters of a single record being rendered as the record.
+     * @param g2 Graphics context to render into.
+     * @param clusters the clusters.
+     * @param clip clip bounds of the graphics context, null if it is not clipped.
+     */
+    protected void renderClusters(Graphics2D g2, ClusterLevel clusters, Rectangle clip) {
+        for (int c = clusters.plotted.nextSetBit(0); c >= 0 && c < clusters.size; c = clusters.plotted.nextSetBit(c + 1)) {
+            int x = clusters.xs[c];
+            int y = clusters.ys[c];
+            int size = clusters.getCount(c);
+            int first = clusters.getFirstRecord(c);
+            if (size == 1) {
+                if (!materialized.get(first)) {
+                    renderRecord(g2, first, x, y, clip);
+                }
+                continue;
+            }
+            int radius = PointCluster.getRadius(size);
+            if (clip != null && !clip.intersects(x - radius, y - radius, 2 * radius, 2 * radius)) {
+                continue;
+            }
+            int color = lineColors[first];
+            PointCluster.renderSymbol(g2, x, y, size, getLineColor(color),
+                    getFillColor((color & 0xFFFFFF) | (PointCluster.FILL_ALPHA << 24)));
+        }
+    }
+
+    /**
+     * Render a record.
+     * @param g2 Graphics context to render into.
+     * @param i index of the record.
+     * @param cx horizontal pixel location of the center of the record.
+     * @param cy vertical pixel location of the center of the record.
+     * @param clip clip bounds of the graphics context, null if it is not clipped.
+     */
+    protected void renderRecord(Graphics2D g2, int i, int cx, int cy, Rectangle clip) {
+        int radius = radii[i];
+        int x = cx - radius;
+        int y = cy - radius;
+        int size = 2 * radius;
+        // the bounds of a rotated point are within its radius doubled from the rotation corner
+        if (clip != null && (x + 2 * size < clip.x || y + 2 * size < clip.y
+                || x - size > clip.x + clip.width || y - size > clip.y + clip.height)) {
+            return;
+        }
+        AffineTransform transform = null;
+        if (rotations[i] != OMGraphicConstants.DEFAULT_ROTATIONANGLE) {
+            transform = g2.getTransform();
+            g2.rotate(rotations[i], x, y);
+        }
+        boolean oval = ovals.get(i);
+        if ((fillColors[i] >>> 24) != 0) {
+            g2.setColor(getFillColor(fillColors[i]));
+            if (oval) {
+                g2.fillOval(x, y, size, size);
+            } else {
+                g2.fillRect(x, y, size, size);
+            }
+        }
+        g2.setColor(getLineColor(lineColors[i]));
+        if (oval) {
+            g2.drawOval(x, y, size, size);
+        } else {
+            g2.drawRect(x, y, size, size);
+        }
+        if (transform != null) {
+            g2.setTransform(transform);
+        }
+    }
+
+    /**
+     * Get the line color for an ARGB value, reusing the last one if it has the same value.
+     * @param argb ARGB value.
+     * @return the color.
+     */
+    protected Color getLineColor(int argb) {
+        if (renderLineColor == null || renderLineColor.getRGB() != argb) {
+            renderLineColor = new Color(argb, true);
+        }
+        return renderLineColor;
+    }
+
+    /**
+     * Get the fill color for an ARGB value, reusing the last one if it has the same value.
+     * @param argb ARGB value.
+     * @return the color.
+     */
+    protected Color getFillColor(int argb) {
+        if (renderFillColor == null || renderFillColor.getRGB() != argb) {
+            renderFillColor = new Color(argb, true);
+        }
+        return renderFillColor;
+    }
+
+    /**
+     * Feed the records into the digest.
+     * @param digest digest to be updated.
+     */
+    public synchronized void digestRecords(MessageDigest digest) {
+        ByteBuffer buffer = ByteBuffer.allocate(64);
+        for (int i = 0; i < count; i++) {
+            buffer.clear();
+            buffer.putDouble(lats[i]).putDouble(lons[i]).putInt(radii[i]).putDouble(rotations[i]);
+            buffer.putInt(lineColors[i]).putInt(fillColors[i]).put((byte) (ovals.get(i) ? 1 : 0));
+            digest.update(buffer.array(), 0, buffer.position());
+            String name = nameTable.get(nameIndices[i]);
+            if (name != null) {
+                digest.update(name.getBytes(StandardCharsets.UTF_8));
+            }
+        }
+    }
+
+    /**
+     * Get the index of the name in the name table, adding it if needed.
+     * @param name the name.
+     * @return index in the name table.
+     */
+    protected int nameIndex(String name) {
+        Integer index = nameTableIndices.get(name);
+        if (index == null) {
+            index = nameTable.size();
+            nameTable.add(name);
+            nameTableIndices.put(name, index);
+            if (recordNames != null) {
+                recordNames.add(name, index);
+            }
+        }
+        return index;
+    }
+
+    /**
+     * Get the ARGB value of a paint.
+     * @param paint the paint.
+     * @param other color used for paints other than colors.
+     * @return ARGB value.
+     */
+    protected static int colorValue(Paint paint, Color other) {
+        return paint instanceof Color ? ((Color) paint).getRGB() : other.getRGB();
+    }
+
+    /**
+     * Records grouped by the cells of the lat/lon grid of a zoom level. The records of a cluster are stored
+     * contiguously in a single array of record indices.
+     */
+    protected class ClusterLevel {
+
+        /**
+         * Zoom level, the grid having 2^level columns.
+         */
+        protected final int level;
+
+        /**
+         * Number of clusters.
+         */
+        protected final int size;
+
+        /**
+         * Start of the records of each cluster in the record array, followed by the end of the last cluster.
+         */
+        protected final int[] starts;
+
+        /**
+         * Indices of the records, grouped by cluster.
+         */
+        protected final int[] records;
+
+        /**
+         * Latitudes of the centers of the clusters, in decimal degrees.
+         */
+        protected final double[] clusterLats;
+
+        /**
+         * Longitudes of the centers of the clusters, in decimal degrees.
+         */
+        protected final double[] clusterLons;
+
+        /**
+         * Projected x coordinates of the centers of the clusters.
+         */
+        protected final int[] xs;
+
+        /**
+         * Projected y coordinates of the centers of the clusters.
+         */
+        protected final int[] ys;
+
+        /**
+         * Clusters that are plotable in the projection.
+         */
+        protected final BitSet plotted = new BitSet();
+
+        /**
+         * Projection the clusters were projected for.
+         */
+        protected Projection projection;
+
+        /**
+         * Graphics created for the clusters found under the mouse, by cluster.
+         */
+        protected final Map<Integer, PointCluster> graphics = new HashMap<>();
+
+        /**
+         * Group the records by the cells of the grid of the level.
+         * @param level zoom level.
+         */
+        ClusterLevel(int level) {
+            this.level = level;
+            int columns = 1 << level;
+            double cellSize = 360.0 / columns;
+            Map<Long, Integer> cells = new HashMap<>();
+            int[] clusterOf = new int[count];
+            for (int i = 0; i < count; i++) {
+                long column = Math.floorMod((long) Math.floor((lons[i] + 180) / cellSize), columns);
+                long row = Math.min(columns, Math.max(0, (long) Math.floor((lats[i] + 90) / cellSize)));
+                Long cell = row * columns + column;
+                Integer cluster = cells.get(cell);
+                if (cluster == null) {
+                    cluster = cells.size();
+                    cells.put(cell, cluster);
+                }
+                clusterOf[i] = cluster;
+            }
+            size = cells.size();
+            starts = new int[size + 1];
+            for (int i = 0; i < count; i++) {
+                starts[clusterOf[i] + 1]++;
+            }
+            for (int c = 0; c < size; c++) {
+                starts[c + 1] += starts[c];
+            }
+            records = new int[count];
+            int[] next = Arrays.copyOf(starts, size);
+            clusterLats = new double[size];
+            clusterLons = new double[size];
+            for (int i = 0; i < count; i++) {
+                int c = clusterOf[i];
+                records[next[c]++] = i;
+                clusterLats[c] += lats[i];
+                clusterLons[c] += lons[i];
+            }
+            for (int c = 0; c < size; c++) {
+                clusterLats[c] /= getCount(c);
+                clusterLons[c] /= getCount(c);
+            }
+            xs = new int[size];
+            ys = new int[size];
+        }
+
+        /**
+         * Project the centers of the clusters with the projection of the list.
+         */
+        protected void project() {
+            batch.forward(clusterLats, clusterLons, 0, size, xs, ys, plotted);
+            projection = CustomPointList.this.projection;
+        }
+
+        /**
+         * Get the number of records of a cluster.
+         * @param cluster index of the cluster.
+         * @return number of records.
+         */
+        protected int getCount(int cluster) {
+            return starts[cluster + 1] - starts[cluster];
+        }
+
+        /**
+         * Get the first record of a cluster.
+         * @param cluster index of the cluster.
+         * @return index of the record.
+         */
+        protected int getFirstRecord(int cluster) {
+            return records[starts[cluster]];
+        }
+
+        /**
+         * Find the cluster closest to the location.
+         * @param x horizontal pixel location.
+         * @param y vertical pixel location.
+         * @param limit maximal distance from the edge of the cluster.
+         * @return index of the cluster, or -1 if no cluster is within the limit.
+         */
+        protected int find(double x, double y, float limit) {
+            int closest = -1;
+            double closestDistance = Double.MAX_VALUE;
+            for (int c = plotted.nextSetBit(0); c >= 0 && c < size; c = plotted.nextSetBit(c + 1)) {
+                int clusterCount = getCount(c);
+                int first = getFirstRecord(c);
+                if (clusterCount == 1 && materialized.get(first)) {
+                    continue;
+                }
+                double dx = xs[c] - x;
+                double dy = ys[c] - y;
+                int radius = clusterCount == 1 ? radii[first] : PointCluster.getRadius(clusterCount);
+                double distance = Math.max(0, Math.sqrt(dx * dx + dy * dy) - radius);
+                if (distance <= limit && distance < closestDistance) {
+                    closest = c;
+                    closestDistance = distance;
+                }
+            }
+            return closest;
+        }
+
+        /**
+         * Get the graphic of a cluster, generated for the projection.
+         * @param cluster index of the cluster.
+         * @return the graphic.
+         */
+        protected PointCluster getGraphic(int cluster) {
+            PointCluster graphic = graphics.get(cluster);
+            if (graphic == null) {
+                graphic = new PointCluster(clusterLats[cluster], clusterLons[cluster], getCount(cluster),
+                        new Color(lineColors[getFirstRecord(cluster)], true), describe(cluster));
+                graphics.put(cluster, graphic);
+            }
+            graphic.generate(projection);
+            return graphic;
+        }
+
+        /**
+         * Describe a cluster by its number of records and their most common names.
+         * @param cluster index of the cluster.
+         * @return the description.
+         */
+        protected String describe(int cluster) {
+            Map<Integer, Integer> nameCounts = new HashMap<>();
+            for (int r = starts[cluster]; r < starts[cluster + 1]; r++) {
+                nameCounts.merge(nameIndices[records[r]], 1, Integer::sum);
+            }
+            List<Map.Entry<Integer, Integer>> names = new ArrayList<>(nameCounts.entrySet());
+            names.sort((a, b) -> b.getValue() - a.getValue());
+            StringBuilder description = new StringBuilder().append(getCount(cluster)).append(" points");
+            int listed = 0;
+            for (Map.Entry<Integer, Integer> entry : names) {
+                String name = nameTable.get(entry.getKey());
+                if (name == null || name.isEmpty()) {
+                    continue;
+                }
+                if (listed == TOP_NAMES) {
+                    description.append(", ...");
+                    break;
+                }
+                description.append(listed == 0 ? ": " : ", ").append(name);
+                if (entry.getValue() > 1) {
+                    description.append(" (").append(entry.getValue()).append(')');
+                }
+                listed++;
+            }
+            return description.toString();
+        }
+    }
+}
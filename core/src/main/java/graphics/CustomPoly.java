@@ -0,0 +1,419 @@
+package graphics;
+
+import com.bbn.openmap.omGraphics.OMGeometry;
+import com.bbn.openmap.omGraphics.OMPoly;
+import com.bbn.openmap.proj.GeoProj;
+import com.bbn.openmap.proj.ProjMath;
+import com.bbn.openmap.proj.Projection;
+import com.bbn.openmap.util.DeepCopyUtil;
+import metrics.GenerateEvent;
+import metrics.Metrics;
+import metrics.OperationStats;
+
+import java.util.ArrayList;
+import java.util.Objects;
+
+
+/**
+ * Graphic type that lets you draw CustomPolys, i.e. polys that can have their name
+ * be set by the user.
+ */
+public class CustomPoly extends OMPoly implements Nameable{
+
+    /**
+     * Statistics of the generation of the polys, recorded in the {@link Metrics}.
+     */
+    protected static final OperationStats GENERATE_STATS = Metrics.getStats(CustomPoly.class, "generate");
+
+    /**
+     * String field that contains the name of the object.
+     */
+    protected String name;
+
+    /**
+     * Listeners to be notified when the name of the object changes, null until one is added.
+     */
+    protected transient NameListeners nameListeners;
+
+    /**
+     * State of the generation of the object, created when first needed since the constructors of the superclass
+     * already mark the object as needing to be generated.
+     */
+    protected transient GenerationState generationState;
+
+    /**
+     * Densified points of the poly for the great circle and rhumb line types, created when first needed.
+     */
+    protected transient LatLonDensifier densifier;
+
+    /**
+     * Whether OMPoly is generating the shape, which marks the poly as needing to be generated without its geometry
+     * having changed.
+     */
+    protected transient boolean generating;
+
+    /**
+     * Construct a default CustomPoly.
+     * <p>Set the name of the object to 'poly' by default. </p>
+     */
+    public CustomPoly() {
+        super();
+        setName("poly");
+    }
+
+    /**
+     * Create an CustomPoly from a list of float lat/lon pairs.
+     * <p>Set the name of the object to 'poly' by default. </p>
+     * <p>
+     * NOTES:
+     * <ul>
+     * <li>llPoints array is converted into radians IN PLACE for more efficient
+     * handling internally if it's not already in radians! For even better
+     * performance, you should send us an array already in radians format!
+     * <li>If you want the poly to be connected (as a polygon), you need to
+     * ensure that the first and last coordinate pairs are the same.
+     * </ul>
+     *
+     * @param llPoints array of lat/lon points, arranged lat, lon, lat, lon,
+     *        etc.
+     * @param units radians or decimal degrees. Use OMGraphic.RADIANS or
+     *        OMGraphic.DECIMAL_DEGREES
+     * @param lType line type, from a list defined in OMGraphic.
+     */
+    public CustomPoly(double[] llPoints, int units, int lType) {
+        this(llPoints, units, lType, -1);
+    }
+
+    /**
+     * Create an CustomPoly from a list of float lat/lon pairs.
+     * <p>Set the name of the object to 'poly' by default. </p>
+     * <p>
+     * NOTES:
+     * <ul>
+     * <li>llPoints array is converted into radians IN PLACE for more efficient
+     * handling internally if it's not already in radians! For even better
+     * performance, you should send us an array already in radians format!
+     * <li>If you want the poly to be connected (as a polygon), you need to
+     * ensure that the first and last coordinate pairs are the same.
+     * </ul>
+     *
+     * @param llPoints array of lat/lon points, arranged lat, lon, lat, lon,
+     *        etc.
+     * @param units radians or decimal degrees. Use OMGraphic.RADIANS or
+     *        OMGraphic.DECIMAL_DEGREES
+     * @param lType line type, from a list defined in OMGraphic.
+     * @param nsegs number of segment points (only for LINETYPE_GREATCIRCLE or
+     *        LINETYPE_RHUMB line types, and if &lt; 1, this value is generated
+     *        internally)
+     */
+    public CustomPoly(double[] llPoints, int units, int lType, int nsegs) {
+        super(llPoints, units, lType, nsegs);
+        setName("poly");
+    }
+
+    /**
+     * Create an CustomPoly from a list of xy pairs. If you want the poly to be
+     * connected, you need to ensure that the first and last coordinate pairs
+     * are the same.
+     * <p>Set the name of the object to 'poly' by default. </p>
+     *
+     * @param xypoints array of x/y points, arranged x, y, x, y, etc.
+     */
+    public CustomPoly(int[] xypoints) {
+        super(xypoints);
+        setName("poly");
+    }
+
+    /**
+     * Create an x/y CustomPoly. If you want the poly to be connected, you need to
+     * ensure that the first and last coordinate pairs are the same.
+     * <p>Set the name of the object to 'poly' by default. </p>
+     * @param xPoints float[] of x coordinates
+     * @param yPoints float[] of y coordinates
+     */
+    public CustomPoly(int[] xPoints, int[] yPoints) {
+        super(xPoints, yPoints);
+        setName("poly");
+    }
+
+    /**
+     * Create an x/y CustomPoly at an offset from lat/lon. If you want the poly to
+     * be connected, you need to ensure that the first and last coordinate pairs
+     * are the same.
+     * <p>Set the name of the object to 'poly' by default. </p>
+     * @param latPoint latitude in decimal degrees
+     * @param lonPoint longitude in decimal degrees
+     * @param xypoints float[] of x,y pairs
+     * @param cMode offset coordinate mode
+     */
+    public CustomPoly(double latPoint, double lonPoint, int[] xypoints, int cMode) {
+        super(latPoint, lonPoint, xypoints, cMode);
+        setName("poly");
+    }
+
+    /**
+     * Create an x/y CustomPoly at an offset from lat/lon. If you want the poly to
+     * be connected, you need to ensure that the first and last coordinate pairs
+     * are the same.
+     * <p>Set the name of the object to 'poly' by default. </p>
+     * @param latPoint latitude in decimal degrees
+     * @param lonPoint longitude in decimal degrees
+     * @param xPoints float[] of x coordinates
+     * @param yPoints float[] of y coordinates
+     * @param cMode offset coordinate mode
+     */
+    public CustomPoly(double latPoint, double lonPoint, int[] xPoints, int[] yPoints, int cMode) {
+        super(latPoint, lonPoint, xPoints, yPoints, cMode);
+        setName("poly");
+    }
+
+    /**
+     * Sets the name of the object.
+     * @param name name to be set for the object.
+     */
+    @Override
+    public synchronized void setName(String name){
+        String oldName = this.name;
+        this.name = name;
+        if (nameListeners != null && !Objects.equals(oldName, name)) {
+            nameListeners.fire(this, oldName);
+        }
+    }
+
+    /**
+     * Get the current name of the object.
+     *
+     * @return String containing the name of the object
+     */
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Add a listener to be notified each time the name of the object is changed.
+     * @param listener the listener to be notified.
+     */
+    @Override
+    public synchronized void addNameListener(NameListener listener) {
+        if (nameListeners == null) {
+            nameListeners = new NameListeners();
+        }
+        nameListeners.add(listener);
+    }
+
+    /**
+     * Remove a listener of the name of the object.
+     * @param listener the listener to stop notifying.
+     */
+    @Override
+    public synchronized void removeNameListener(NameListener listener) {
+        if (nameListeners != null) {
+            nameListeners.remove(listener);
+        }
+    }
+
+    /**
+     * Mark the object as needing to be generated. Setting the flag increases the version of the geometry, so the
+     * next call to generate rebuilds the shape, unless it is set by OMPoly while generating the shape.
+     * @param value true if the object has to be generated again.
+     */
+    @Override
+    public void setNeedToRegenerate(boolean value) {
+        if (value && !generating) {
+            getGenerationState().changed();
+        }
+        super.setNeedToRegenerate(value);
+    }
+
+    /**
+     * Get the state of the generation of the object.
+     * @return the state.
+     */
+    protected GenerationState getGenerationState() {
+        if (generationState == null) {
+            generationState = new GenerationState();
+        }
+        return generationState;
+    }
+
+    /**
+     * Copy the object. The copy gets its own state of generation, and no name listeners.
+     * @return the copy.
+     */
+    @Override
+    public Object clone() {
+        CustomPoly copy = (CustomPoly) super.clone();
+        copy.generationState = null;
+        copy.nameListeners = null;
+        return copy;
+    }
+
+    /**
+     * Restore the shape and the projected points the current geometry has been generated into for the projection, if
+     * they are still in the {@link ProjectedShapeCache}. The arrowheads are generated again from the points.
+     * @param proj Projection
+     * @return true if the shape has been restored.
+     */
+    protected boolean restoreGenerated(Projection proj) {
+        ProjectedShapeCache.Projected projected = getGenerationState().restore(this, proj);
+        if (projected == null) {
+            return false;
+        }
+        xpoints = projected.xpoints;
+        ypoints = projected.ypoints;
+        if (arrowhead != null) {
+            arrowhead.generate(this);
+        }
+        setShape(projected.shape);
+        setLabelLocation(getShape(), proj);
+        setNeedToRegenerate(false);
+        return true;
+    }
+
+    /**
+     * Set whether the poly is a polygon, which changes its shape.
+     * @param set true if the poly is a polygon.
+     */
+    @Override
+    public void setIsPolygon(boolean set) {
+        super.setIsPolygon(set);
+        setNeedToRegenerate(true);
+    }
+
+    /**
+     * Set the number of segments between the points of great circle or rhumb lines, which changes the shape.
+     * @param nsegs number of segment points.
+     */
+    @Override
+    public void setNumSegs(int nsegs) {
+        super.setNumSegs(nsegs);
+        setNeedToRegenerate(true);
+    }
+
+    /**
+     * Prepare the poly for rendering. Nothing is done if the poly has already been generated for the projection
+     * and its geometry hasn't changed since.
+     *
+     * @param proj Projection
+     * @return true if generate was successful
+     */
+    @Override
+    public boolean generate(Projection proj) {
+        long start = Metrics.startNanos();
+        GenerateEvent event = new GenerateEvent();
+        event.begin();
+        try {
+            return generateShape(proj);
+        } finally {
+            GENERATE_STATS.record(start);
+            if (event.shouldCommit()) {
+                event.set(this, proj);
+                event.commit();
+            }
+        }
+    }
+
+    /**
+     * Generate the shape of the poly, unless it has already been generated for the projection.
+     * @param proj Projection
+     * @return true if generate was successful
+     */
+    protected boolean generateShape(Projection proj) {
+        if (proj != null && (getGenerationState().isGenerated(getShape(), proj) || restoreGenerated(proj))) {
+            return true;
+        }
+        boolean generated;
+        if (renderType == RENDERTYPE_LATLON && proj instanceof GeoProj && rawllpts != null && rawllpts.length >= 4
+                && (lineType == LINETYPE_GREATCIRCLE || lineType == LINETYPE_RHUMB)) {
+            generated = generateDensified((GeoProj) proj);
+        } else {
+            generating = true;
+            try {
+                generated = super.generate(proj);
+            } finally {
+                generating = false;
+            }
+        }
+        if (generated) {
+            getGenerationState().setGenerated(this, proj, getShape(), null, xpoints, ypoints);
+        }
+        return generated;
+    }
+
+    /**
+     * Generate the shape of a lat/lon poly of great circle or rhumb lines as OMPoly does, except that the lines are
+     * densified once per number of segments until the geometry changes, and the dense points are forwarded as
+     * straight lines.
+     * @param proj the projection.
+     * @return true if generate was successful
+     */
+    protected boolean generateDensified(GeoProj proj) {
+        setShape(null);
+        if (units != RADIANS) {
+            ProjMath.arrayDegToRad(rawllpts);
+            units = RADIANS;
+        }
+        synchronized (this) {
+            if (densifier == null) {
+                densifier = new LatLonDensifier();
+            }
+        }
+        int segments = LatLonDensifier.getSegments(proj, rawllpts, nsegs);
+        double[] dense = densifier.get(rawllpts, getGenerationState().getVersion(), lineType, segments);
+        ArrayList<float[]> vector = proj.forwardPoly(dense, LINETYPE_STRAIGHT, -1, isPolygon());
+        int size = vector.size();
+        xpoints = new float[size / 2][0];
+        ypoints = new float[size / 2][0];
+        for (int i = 0, j = 0; i < size; i += 2, j++) {
+            xpoints[j] = vector.get(i);
+            ypoints[j] = vector.get(i + 1);
+        }
+
+        if (doShapes) {
+            if (arrowhead != null) {
+                arrowhead.generate(this);
+            }
+            setNeedToRegenerate(false);
+            setShape(createShape());
+            setLabelLocation(getShape(), proj);
+            return true;
+        }
+        if (size <= 1) {
+            return false;
+        }
+        if (arrowhead != null) {
+            arrowhead.generate(this);
+        }
+        setNeedToRegenerate(false);
+        initLabelingDuringGenerate();
+        if (checkPoints(xpoints, ypoints)) {
+            setLabelLocation(xpoints[0], ypoints[0], proj);
+        }
+        return true;
+    }
+
+    /**
+     * Takes the OMGeometry object and if it also belongs to this class copies it to this object.
+     * @param source Object to be restored.
+     */
+    @Override
+    public void restore(OMGeometry source) {
+        super.restore(source);
+        if (source instanceof CustomPoly) {
+            CustomPoly polySource = (CustomPoly) source;
+            this.units = polySource.units;
+            // These two things are in radians!
+            this.lat = polySource.lat;
+            this.lon = polySource.lon;
+            this.coordMode = polySource.coordMode;
+            this.xs = DeepCopyUtil.deepCopy(polySource.xs);
+            this.ys = DeepCopyUtil.deepCopy(polySource.ys);
+            this.isPolygon = polySource.isPolygon;
+            this.rawllpts = DeepCopyUtil.deepCopy(polySource.getLatLonArray());
+            this.doShapes = polySource.doShapes;
+            setName(polySource.name);
+            setNeedToRegenerate(true);
+        }
+    }
+}
@@ -3,14 +3,18 @@ package graphics;
 import com.bbn.openmap.omGraphics.OMGeometry;
 import com.bbn.openmap.omGraphics.OMRect;
 import com.bbn.openmap.proj.GeoProj;
-import com.bbn.openmap.proj.Length;
 import com.bbn.openmap.proj.Projection;
 import com.bbn.openmap.proj.coords.LatLonPoint;
 import com.bbn.openmap.util.Debug;
+import metrics.GenerateEvent;
+import metrics.LatLonPointsEvent;
+import metrics.Metrics;
+import metrics.OperationStats;
 
 import java.awt.*;
 import java.awt.geom.*;
 import java.util.ArrayList;
+import java.util.Objects;
 
 /**
  * Graphic type that lets you draw CustomSectors, i.e. sectors that can have their name, center-point coordinates
@@ -19,6 +23,11 @@ import java.util.ArrayList;
  */
 public class CustomSector extends OMRect implements Nameable {
 
+    /**
+     * Statistics of the generation of the sectors, recorded in the {@link Metrics}.
+     */
+    protected static final OperationStats GENERATE_STATS = Metrics.getStats(CustomSector.class, "generate");
+
     /**
      * Constants for drawing the sector. They define that it covers the area from between angles -Pi/2 and 0.0.
      */
@@ -31,6 +40,32 @@ public class CustomSector extends OMRect implements Nameable {
      */
     protected String name;
 
+    /**
+     * Listeners to be notified when the name of the object changes, null until one is added.
+     */
+    protected transient NameListeners nameListeners;
+
+    /**
+     * State of the generation of the object, created when first needed since the constructors of the superclass
+     * already mark the object as needing to be generated.
+     */
+    protected transient GenerationState generationState;
+
+    /**
+     * Points of the arc computed for the geometry version latLonVersion, null if not computed yet.
+     */
+    protected transient double[] latLonPoints;
+
+    /**
+     * Version of the geometry the points of the arc have been computed for.
+     */
+    protected transient int latLonVersion;
+
+    /**
+     * Densified points of the arc for the great circle and rhumb line types, created when first needed.
+     */
+    protected transient LatLonDensifier densifier;
+
     /** Default constructor, waiting to be filled. */
     public CustomSector() {
         super();
@@ -112,7 +147,11 @@ public class CustomSector extends OMRect implements Nameable {
      */
     @Override
     public synchronized void setName(String name){
+        String oldName = this.name;
         this.name = name;
+        if (nameListeners != null && !Objects.equals(oldName, name)) {
+            nameListeners.fire(this, oldName);
+        }
     }
 
     /**
@@ -120,34 +159,42 @@ public class CustomSector extends OMRect implements Nameable {
      */
     public void setLat1(double lat1){
         this.lat1 = lat1;
+        setNeedToRegenerate(true);
     }
 
     public void setLat2(double lat2){
         this.lat2 = lat2;
+        setNeedToRegenerate(true);
     }
 
     public void setLon1(double lon1){
         this.lon1 = lon1;
+        setNeedToRegenerate(true);
     }
 
     public void setLon2(double lon2){
         this.lon2 = lon2;
+        setNeedToRegenerate(true);
     }
 
     public void setX1(int x1){
         this.x1 = x1;
+        setNeedToRegenerate(true);
     }
 
     public void setX2(int x2){
         this.x2 = x2;
+        setNeedToRegenerate(true);
     }
 
     public void setY1(int y1){
         this.y1 = y1;
+        setNeedToRegenerate(true);
     }
 
     public void setY2(int y2){
         this.y2 = y2;
+        setNeedToRegenerate(true);
     }
 
     /**
@@ -160,6 +207,82 @@ public class CustomSector extends OMRect implements Nameable {
         return this.name;
     }
 
+    /**
+     * Add a listener to be notified each time the name of the object is changed.
+     * @param listener the listener to be notified.
+     */
+    @Override
+    public synchronized void addNameListener(NameListener listener) {
+        if (nameListeners == null) {
+            nameListeners = new NameListeners();
+        }
+        nameListeners.add(listener);
+    }
+
+    /**
+     * Remove a listener of the name of the object.
+     * @param listener the listener to stop notifying.
+     */
+    @Override
+    public synchronized void removeNameListener(NameListener listener) {
+        if (nameListeners != null) {
+            nameListeners.remove(listener);
+        }
+    }
+
+    /**
+     * Mark the object as needing to be generated. Setting the flag increases the version of the geometry, so the
+     * next call to generate rebuilds the shape.
+     * @param value true if the object has to be generated again.
+     */
+    @Override
+    public void setNeedToRegenerate(boolean value) {
+        if (value) {
+            getGenerationState().changed();
+        }
+        super.setNeedToRegenerate(value);
+    }
+
+    /**
+     * Get the state of the generation of the object.
+     * @return the state.
+     */
+    protected GenerationState getGenerationState() {
+        if (generationState == null) {
+            generationState = new GenerationState();
+        }
+        return generationState;
+    }
+
+    /**
+     * Copy the object. The copy gets its own state of generation, and no name listeners.
+     * @return the copy.
+     */
+    @Override
+    public Object clone() {
+        CustomSector copy = (CustomSector) super.clone();
+        copy.generationState = null;
+        copy.nameListeners = null;
+        return copy;
+    }
+
+    /**
+     * Restore the shape the current geometry has been generated into for the projection, if it is still in the
+     * {@link ProjectedShapeCache}.
+     * @param proj Projection
+     * @return true if the shape has been restored.
+     */
+    protected boolean restoreGenerated(Projection proj) {
+        ProjectedShapeCache.Projected projected = getGenerationState().restore(this, proj);
+        if (projected == null) {
+            return false;
+        }
+        setShape(projected.shape);
+        setLabelLocation(getShape(), proj);
+        setNeedToRegenerate(false);
+        return true;
+    }
+
     /**
      * Getters for other fields of the object that may be accessed.
      */
@@ -196,20 +319,43 @@ public class CustomSector extends OMRect implements Nameable {
     }
 
     /**
-     * Prepare the sector for rendering.
+     * Prepare the sector for rendering. Nothing is done if the sector has already been generated for the projection
+     * and its geometry hasn't changed since.
      *
      * @param proj Projection
      * @return true if generate was successful
      */
     @Override
     public boolean generate(Projection proj) {
+        long start = Metrics.startNanos();
+        GenerateEvent event = new GenerateEvent();
+        event.begin();
+        try {
+            return generateShape(proj);
+        } finally {
+            GENERATE_STATS.record(start);
+            if (event.shouldCommit()) {
+                event.set(this, proj);
+                event.commit();
+            }
+        }
+    }
 
-        setNeedToRegenerate(true);
+    /**
+     * Generate the shape of the sector, unless it has already been generated for the projection.
+     * @param proj Projection
+     * @return true if generate was successful
+     */
+    protected boolean generateShape(Projection proj) {
 
         if (proj == null) {
+            setNeedToRegenerate(true);
             Debug.message("omgraphic", "CustomSector: null projection in generate!");
             return false;
         }
+        if (getGenerationState().isGenerated(getShape(), proj) || restoreGenerated(proj)) {
+            return true;
+        }
         // reset the internals
         GeneralPath projectedShape = null;
         double x;
@@ -250,11 +396,10 @@ public class CustomSector extends OMRect implements Nameable {
                 projectedShape.append(pi, false);
                 break;
             case RENDERTYPE_LATLON:
-                double[] rawllpts = createLatLonPoints();
                 ArrayList<float[]> vector;
 
                 if (proj instanceof GeoProj) {
-                    vector = ((GeoProj) proj).forwardPoly(rawllpts, getLineType(), -1, true);
+                    vector = forwardLatLonPoints((GeoProj) proj);
 
                     int size = vector.size();
                     for (int i = 0; i < size; i += 2) {
@@ -272,12 +417,14 @@ public class CustomSector extends OMRect implements Nameable {
                 break;
             case RENDERTYPE_UNKNOWN:
                 System.err.println("CustomSector.generate(): invalid RenderType");
+                setNeedToRegenerate(true);
                 return false;
         }
         setShape(projectedShape);
         setLabelLocation(getShape(), proj);
 
         setNeedToRegenerate(false);
+        getGenerationState().setGenerated(this, proj, getShape(), null);
         return true;
     }
 
@@ -290,7 +437,7 @@ public class CustomSector extends OMRect implements Nameable {
         super.restore(source);
         if (source instanceof CustomSector) {
             CustomSector sector = (CustomSector) source;
-            this.name = sector.name;
+            setName(sector.name);
             this.x1 = sector.x1;
             this.y1 = sector.y1;
             this.lat1 = sector.lat1;
@@ -300,6 +447,7 @@ public class CustomSector extends OMRect implements Nameable {
             this.lat2 = sector.lat2;
             this.lon2 = sector.lon2;
             this.nsegs = sector.nsegs;
+            setNeedToRegenerate(true);
         }
     }
 
@@ -315,60 +463,59 @@ public class CustomSector extends OMRect implements Nameable {
      * Internal method that creates a set of points constituting an arc to be rendered as a polygon later.
      * @return coordinates of points on the arc
      */
-
     public double[] createLatLonPoints() {
-        int i;
-        int nMax = 18;
-        double angle = -Math.PI/2;
-        double angleInc = Math.PI / 2 / nMax;
-        double[] distance = new double[nMax + 1];
-        double x;
-        double y;
-        double a;
-        double b;
-        double[] azimuth = new double[nMax + 1];
-        double[] llPoints = new double[2 * (nMax + 1)];
-        Length units = Length.DECIMAL_DEGREE;
-        b = units.toRadians(Math.abs(lat1 - lat2));
-        a = units.toRadians(Math.abs(lon1-lon2));
-
-        for (i = 0; i < nMax - 1; i++) {
-
-            x = Math.sqrt((a * a * b * b) / ((b * b) + ((a * a) * Math.pow(Math.tan(angle), 2))));
-            double yt = (x * x) / (a * a);
-            if (yt > 1.0) {
-                yt = 1.0;
-            }
-            y = Math.sqrt((1.0 - yt) * (b * b));
-
-            distance[i] = Math.sqrt(Math.pow(x, 2) + Math.pow(y, 2));
-            azimuth[i] = angle + com.bbn.openmap.MoreMath.HALF_PI;
-
-            if (Debug.debugging("ellipse")) {
-                Debug.output(" "
-                        + i
-                        + " "
-                        + Math.toDegrees(azimuth[i])
-                        + " ( "
-                        + distance[i]
-                        + " ) "
-                        + (Debug.debugging("ellipsedetail") ? ("[from x:" + x + ", y:" + y + ", a:"
-                        + a + ", b:" + b + "]") : ""));
-            }
-            angle += angleInc;
-        }
-        distance[nMax - 1] = 0;
-        azimuth[nMax - 1] = 0;
-        distance[nMax ] = distance[0];
-        azimuth[nMax ] = azimuth[0];
-        int nCounter = 0;
-        Point2D center = new LatLonPoint.Double(Math.min(lat1, lat2), Math.min(lon1, lon2));
-        for (i = 0; i < nMax + 1; i++) {
-
-            LatLonPoint llPt = LatLonPoint.getDouble(center).getPoint((float) distance[i], azimuth[i]);
-            llPoints[nCounter++] = llPt.getRadLat();
-            llPoints[nCounter++] = llPt.getRadLon();
+        LatLonPointsEvent event = new LatLonPointsEvent();
+        event.begin();
+        double[] llPoints = computeLatLonPoints();
+        if (event.shouldCommit()) {
+            event.graphicClass = getClass().getSimpleName();
+            event.objectCount = 1;
+            event.vertexCount = llPoints.length / 2;
+            event.commit();
         }
         return llPoints;
     }
+
+    /**
+     * Get the points constituting the arc, computing them only if the geometry changed since they were last computed.
+     * @return coordinates of points on the arc, in radians, not to be modified.
+     */
+    public synchronized double[] getLatLonPoints() {
+        if (latLonPoints == null || latLonVersion != getGenerationState().getVersion()) {
+            latLonPoints = createLatLonPoints();
+            latLonVersion = getGenerationState().getVersion();
+        }
+        return latLonPoints;
+    }
+
+    /**
+     * Forward the points of the arc. Great circle and rhumb lines are densified once per number of segments until the
+     * geometry changes, and the dense points are forwarded as straight lines.
+     * @param proj the projection.
+     * @return the projected x and y arrays of each part of the sector.
+     */
+    protected ArrayList<float[]> forwardLatLonPoints(GeoProj proj) {
+        double[] rawllpts = getLatLonPoints();
+        int lineType = getLineType();
+        if (lineType != LINETYPE_GREATCIRCLE && lineType != LINETYPE_RHUMB) {
+            return proj.forwardPoly(rawllpts, lineType, -1, true);
+        }
+        synchronized (this) {
+            if (densifier == null) {
+                densifier = new LatLonDensifier();
+            }
+        }
+        int segments = LatLonDensifier.getSegments(proj, rawllpts, -1);
+        double[] dense = densifier.get(rawllpts, getGenerationState().getVersion(), lineType, segments);
+        return proj.forwardPoly(dense, LINETYPE_STRAIGHT, -1, true);
+    }
+
+    /**
+     * Compute the points constituting the arc, in radians, by the {@link SectorGeometry}: in a plane for small sectors,
+     * on the WGS84 ellipsoid for large ones.
+     * @return coordinates of points on the arc
+     */
+    protected double[] computeLatLonPoints() {
+        return SectorGeometry.getInstance().computeLatLonPoints(lat1, lon1, lat2, lon2);
+    }
 }
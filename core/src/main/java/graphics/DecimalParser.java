@@ -0,0 +1,295 @@
+package graphics;
+
+import javax.swing.text.BadLocationException;
+import javax.swing.text.Document;
+import javax.swing.text.Segment;
+import java.util.Arrays;
+
+/**
+ * Parser of decimal numbers typed in text fields, reading the characters of the document in place.
+ * <p>The number may have a sign, a decimal point or comma and an exponent, and be surrounded by spaces. Anything else
+ * makes it invalid, which is reported as NaN rather than thrown. The digits are accumulated into a long, and numbers
+ * of up to 15 significant digits with a small exponent are scaled by an exact power of ten, which rounds them as
+ * Double.parseDouble does. Longer numbers, which can't be typed as coordinates anyway, are handed over to
+ * Double.parseDouble. A parser is reused from parse to parse and allocates nothing for the usual numbers, so it is
+ * meant to be used by a single thread, such as the event dispatch thread.</p>
+ */
+public class DecimalParser {
+
+    /**
+     * Exact powers of ten as doubles.
+     */
+    protected static final double[] POWERS_OF_TEN = {
+            1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10,
+            1e11, 1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22};
+
+    /**
+     * Maximal number of significant digits accumulated, fitting in a long.
+     */
+    protected static final int MAX_DIGITS = 18;
+
+    /**
+     * States of the parser.
+     */
+    protected static final int LEADING = 0;
+    protected static final int SIGN = 1;
+    protected static final int INTEGER = 2;
+    protected static final int FRACTION = 3;
+    protected static final int EXPONENT_MARK = 4;
+    protected static final int EXPONENT_SIGN = 5;
+    protected static final int EXPONENT = 6;
+    protected static final int TRAILING = 7;
+    protected static final int INVALID = 8;
+
+    /**
+     * Segment the characters of the documents are read into.
+     */
+    protected final Segment segment = new Segment();
+
+    /**
+     * Characters of the number accepted so far, the decimal comma replaced by a point, for the numbers which can't
+     * be scaled exactly.
+     */
+    protected char[] buffer = new char[32];
+
+    /**
+     * Number of characters in the buffer.
+     */
+    protected int length;
+
+    /**
+     * Current state.
+     */
+    protected int state;
+
+    /**
+     * Whether the number is negative.
+     */
+    protected boolean negative;
+
+    /**
+     * Significant digits of the number.
+     */
+    protected long mantissa;
+
+    /**
+     * Number of significant digits accumulated.
+     */
+    protected int digits;
+
+    /**
+     * Power of ten the mantissa is to be scaled by, from the position of the decimal point.
+     */
+    protected int scale;
+
+    /**
+     * Whether the mantissa has at least a digit.
+     */
+    protected boolean hasDigits;
+
+    /**
+     * Exponent of the number and its sign.
+     */
+    protected int exponent;
+    protected boolean negativeExponent;
+
+    /**
+     * Parse the text of a document.
+     * @param document the document.
+     * @return the number, or NaN if the text is not a number.
+     */
+    public double parse(Document document) {
+        reset();
+        segment.setPartialReturn(true);
+        int length = document.getLength();
+        int offset = 0;
+        try {
+            while (offset < length) {
+                document.getText(offset, length - offset, segment);
+                accept(segment.array, segment.offset, segment.count);
+                offset += segment.count;
+            }
+        } catch (BadLocationException e) {
+            return Double.NaN;
+        }
+        return value();
+    }
+
+    /**
+     * Parse characters.
+     * @param chars array of the characters.
+     * @param offset index of the first character.
+     * @param count number of characters.
+     * @return the number, or NaN if the characters are not a number.
+     */
+    public double parse(char[] chars, int offset, int count) {
+        reset();
+        accept(chars, offset, count);
+        return value();
+    }
+
+    /**
+     * Parse a string.
+     * @param text the string.
+     * @return the number, or NaN if the string is not a number or is null.
+     */
+    public double parse(CharSequence text) {
+        if (text == null) {
+            return Double.NaN;
+        }
+        reset();
+        for (int i = 0; i < text.length() && state != INVALID; i++) {
+            accept(text.charAt(i));
+        }
+        return value();
+    }
+
+    /**
+     * Get back to the initial state.
+     */
+    protected void reset() {
+        state = LEADING;
+        length = 0;
+        negative = false;
+        mantissa = 0;
+        digits = 0;
+        scale = 0;
+        hasDigits = false;
+        exponent = 0;
+        negativeExponent = false;
+    }
+
+    /**
+     * Feed characters to the parser.
+     * @param chars array of the characters.
+     * @param offset index of the first character.
+     * @param count number of characters.
+     */
+    protected void accept(char[] chars, int offset, int count) {
+        for (int i = offset; i < offset + count && state != INVALID; i++) {
+            accept(chars[i]);
+        }
+    }
+
+    /**
+     * Feed a character to the parser.
+     * @param c the character.
+     */
+    protected void accept(char c) {
+        if (c != ' ' && c != '\t') {
+            if (length == buffer.length) {
+                buffer = Arrays.copyOf(buffer, length * 2);
+            }
+            buffer[length++] = c == ',' ? '.' : c;
+        }
+        boolean digit = c >= '0' && c <= '9';
+        boolean space = c == ' ' || c == '\t';
+        switch (state) {
+            case LEADING:
+            case SIGN:
+                if (space && state == LEADING) {
+                    return;
+                } else if ((c == '-' || c == '+') && state == LEADING) {
+                    negative = c == '-';
+                    state = SIGN;
+                } else if (digit) {
+                    addDigit(c, false);
+                    state = INTEGER;
+                } else if (c == '.' || c == ',') {
+                    state = FRACTION;
+                } else {
+                    state = INVALID;
+                }
+                return;
+            case INTEGER:
+            case FRACTION:
+                if (digit) {
+                    addDigit(c, state == FRACTION);
+                } else if ((c == '.' || c == ',') && state == INTEGER) {
+                    state = FRACTION;
+                } else if ((c == 'e' || c == 'E') && hasDigits) {
+                    state = EXPONENT_MARK;
+                } else if (space && hasDigits) {
+                    state = TRAILING;
+                } else {
+                    state = INVALID;
+                }
+                return;
+            case EXPONENT_MARK:
+            case EXPONENT_SIGN:
+                if ((c == '-' || c == '+') && state == EXPONENT_MARK) {
+                    negativeExponent = c == '-';
+                    state = EXPONENT_SIGN;
+                } else if (digit) {
+                    exponent = c - '0';
+                    state = EXPONENT;
+                } else {
+                    state = INVALID;
+                }
+                return;
+            case EXPONENT:
+                if (digit) {
+                    // beyond the range of doubles anyway
+                    exponent = Math.min(exponent * 10 + (c - '0'), 10000);
+                } else if (space) {
+                    state = TRAILING;
+                } else {
+                    state = INVALID;
+                }
+                return;
+            case TRAILING:
+                if (!space) {
+                    state = INVALID;
+                }
+                return;
+            default:
+                state = INVALID;
+        }
+    }
+
+    /**
+     * Add a digit of the mantissa.
+     * @param c the digit.
+     * @param fraction true if the digit is after the decimal point.
+     */
+    protected void addDigit(char c, boolean fraction) {
+        hasDigits = true;
+        if (mantissa == 0 && c == '0') {
+            // leading zeros are not significant
+            if (fraction) {
+                scale--;
+            }
+            return;
+        }
+        if (digits < MAX_DIGITS) {
+            mantissa = mantissa * 10 + (c - '0');
+            digits++;
+            if (fraction) {
+                scale--;
+            }
+        } else if (!fraction) {
+            scale++;
+        }
+    }
+
+    /**
+     * Get the number parsed.
+     * @return the number, or NaN if the characters fed are not a number.
+     */
+    protected double value() {
+        boolean complete = state == INTEGER || state == FRACTION || state == EXPONENT || state == TRAILING;
+        if (!complete || !hasDigits) {
+            return Double.NaN;
+        }
+        int power = scale + (negativeExponent ? -exponent : exponent);
+        double value;
+        if (mantissa == 0) {
+            value = 0.0;
+        } else if (mantissa < (1L << 53) && power >= -22 && power <= 22) {
+            value = power >= 0 ? mantissa * POWERS_OF_TEN[power] : mantissa / POWERS_OF_TEN[-power];
+        } else {
+            return Double.parseDouble(String.valueOf(buffer, 0, length));
+        }
+        return negative ? -value : value;
+    }
+}
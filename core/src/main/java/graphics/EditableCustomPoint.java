@@ -0,0 +1,683 @@
+package graphics;
+
+import com.bbn.openmap.Environment;
+import com.bbn.openmap.I18n;
+import com.bbn.openmap.omGraphics.*;
+import com.bbn.openmap.omGraphics.editable.*;
+import com.bbn.openmap.proj.Projection;
+import com.bbn.openmap.proj.coords.LatLonPoint;
+import com.bbn.openmap.util.Debug;
+import com.bbn.openmap.util.PaletteHelper;
+import com.bbn.openmap.util.stateMachine.State;
+import metrics.EditEvent;
+import metrics.Metrics;
+import metrics.OperationStats;
+
+import javax.swing.*;
+import java.awt.*;
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
+import java.awt.geom.Point2D;
+import java.util.Objects;
+
+/**
+ * A class that encompasses basic CustomPoint and provides methods for creating it or modifying the existing one.
+ */
+public class EditableCustomPoint extends EditableOMPoint implements ActionListener{
+
+    /**
+     * Statistics of the updates of the edited points from their grab points, recorded in the {@link Metrics}.
+     */
+    protected static final OperationStats GRAB_POINTS_STATS =
+            Metrics.getStats(EditableCustomPoint.class, "setGrabPoints");
+
+    /**
+     * This object's instance of CustomPoint that it creates and/or modifies.
+     */
+    protected CustomPoint point;
+
+    /**
+     * Create the EditableCustomPoint, setting the state machine to create the point
+     * off of the gestures.
+     */
+    public EditableCustomPoint() {
+        createGraphic(null);
+    }
+
+    /**
+     * Create an EditableCustomPoint with the pointType and renderType parameters in
+     * the GraphicAttributes object.
+     */
+    public EditableCustomPoint(GraphicAttributes ga) {
+        createGraphic(ga);
+    }
+
+    /**
+     * Create the EditableCustomPoint with a CustomPoint already defined, ready for
+     * editing.
+     *
+     * @param point CustomPoint that should be edited.
+     */
+    public EditableCustomPoint(CustomPoint point) {
+        setGraphic(point);
+    }
+
+    /**
+     * Set the graphic within the state machine. If the graphic is null, then
+     * one shall be created, and located off screen until the gestures driving
+     * the state machine place it on the map.
+     */
+    @Override
+    public void setGraphic(OMGraphic graphic) {
+        init();
+        if (graphic instanceof CustomPoint) {
+            point = (CustomPoint) graphic;
+            stateMachine.setSelected();
+            setGrabPoints(point);
+        } else {
+            createGraphic(null);
+        }
+    }
+
+    /**
+     * Create and set the graphic within the state machine. The
+     * GraphicAttributes describe the type of point to create.
+     */
+    @Override
+    public void createGraphic(GraphicAttributes ga) {
+        init();
+        stateMachine.setUndefined();
+        int renderType = OMGraphic.RENDERTYPE_UNKNOWN;
+
+        if (ga != null) {
+            renderType = ga.getRenderType();
+        }
+
+        if (Debug.debugging("eomg")) {
+            Debug.output("EditableCustomPoint.createGraphic(): rendertype = " + renderType);
+        }
+
+        switch (renderType) {
+            case (OMGraphic.RENDERTYPE_LATLON):
+                point = new CustomPoint(90f, -180f);
+                break;
+            case (OMGraphic.RENDERTYPE_OFFSET):
+                point = new CustomPoint(90f, -180f, 0, 0);
+                break;
+            default:
+                point = new CustomPoint(-1, -1);
+        }
+
+        if (ga != null) {
+            ga.setTo(point);
+        }
+
+        assertGrabPoints();
+    }
+
+    /**
+     * Get the OMGraphic being created/modified by the EditableCustomPoint.
+     */
+    @Override
+    public OMGraphic getGraphic() {
+        return point;
+    }
+
+    /**
+     * Set the grab points for the graphic provided, setting them on the extents
+     * of the graphic. Called when you want to set the grab points off the
+     * location of the graphic.
+     */
+    @Override
+    public void setGrabPoints(OMGraphic graphic) {
+        Debug.message("eomg", "EditableCustomPoint.setGrabPoints(graphic)");
+        if (!(graphic instanceof CustomPoint)) {
+            return;
+        }
+
+        assertGrabPoints();
+
+        CustomPoint point = (CustomPoint) graphic;
+        boolean ntr = point.getNeedToRegenerate();
+        int renderType = point.getRenderType();
+
+        LatLonPoint llp;
+        int latoffset = 0;
+        int lonoffset = 0;
+
+        boolean doStraight = true;
+
+        if (!ntr) {
+
+            if (renderType == OMGraphic.RENDERTYPE_LATLON
+                    || renderType == OMGraphic.RENDERTYPE_OFFSET) {
+
+                if (projection != null) {
+                    double lon = point.getLon();
+                    double lat = point.getLat();
+
+                    llp = new LatLonPoint.Double(lat, lon);
+                    Point2D p = projection.forward(llp);
+                    if (renderType == OMGraphic.RENDERTYPE_LATLON) {
+                        doStraight = false;
+                        gpc.set((int) p.getX(), (int) p.getY());
+                    } else {
+                        latoffset = (int) p.getY();
+                        lonoffset = (int) p.getX();
+                        gpo.set(lonoffset, latoffset);
+                    }
+                }
+            }
+
+            if (doStraight) {
+                gpc.set(lonoffset + point.getX(), latoffset + point.getY());
+            }
+
+            if (renderType == OMGraphic.RENDERTYPE_OFFSET) {
+                gpo.updateOffsets();
+            }
+
+        } else {
+            Debug.message("eomg", "EditableCustomPoint.setGrabPoints: graphic needs to be regenerated");
+        }
+    }
+
+    /**
+     * Take the current location of the GrabPoints, and modify the location
+     * parameters of the CustomPoint with them. Called when you want the graphic to
+     * change according to the grab points.
+     */
+    @Override
+    public void setGrabPoints() {
+        long start = System.nanoTime();
+        long allocated = Metrics.allocatedBytes();
+        EditEvent event = new EditEvent("setGrabPoints");
+        event.begin();
+        try {
+            setGraphicFromGrabPoints();
+        } finally {
+            GRAB_POINTS_STATS.record(start, allocated);
+            commit(event);
+        }
+    }
+
+    /**
+     * Commit the event of an edit of the point, if it is recorded.
+     * @param event the event.
+     */
+    protected void commit(EditEvent event) {
+        if (event.shouldCommit()) {
+            if (point != null) {
+                event.set(point, getProjection());
+            }
+            event.commit();
+        }
+    }
+
+    /**
+     * Modify the location parameters of the CustomPoint with the current location of the GrabPoints.
+     */
+    protected void setGraphicFromGrabPoints() {
+
+        int renderType = point.getRenderType();
+        LatLonPoint llp1;
+
+        Debug.message("eomg", "EditableCustCustomPoint.setGrabPoints()");
+
+        // Do center point for lat/lon or offset points
+        if (renderType == OMGraphic.RENDERTYPE_LATLON) {
+
+            if (projection != null) {
+                // movingPoint == gpc
+                llp1 = projection.inverse(gpc.getX(), gpc.getY(), new LatLonPoint.Double());
+                point.set(llp1.getY(), llp1.getX());
+                // point.setNeedToRegenerate set
+            }
+        }
+
+        boolean settingOffset = getStateMachine().getState() instanceof GraphicSetOffsetState
+                && movingPoint == gpo;
+
+        // If the center point is moving, the offset distance changes
+        if (renderType == OMGraphic.RENDERTYPE_OFFSET) {
+
+            llp1 = projection.inverse(gpo.getX(), gpo.getY(), new LatLonPoint.Double());
+
+            point.setLat(llp1.getY());
+            point.setLon(llp1.getX());
+
+            if (settingOffset || movingPoint == gpc) {
+                // Don't call point.setLocation because we only want
+                // to
+                // setNeedToRegenerate if !settingOffset.
+                point.setX(gpc.getX() - gpo.getX());
+                point.setY(gpc.getY() - gpo.getY());
+            }
+
+            if (!settingOffset) {
+                Debug.message("eomg", "EditableCustomPoint: updating offset point");
+                point.set(gpc.getX() - gpo.getX(), gpc.getY() - gpo.getY());
+            }
+
+            // Set Location has reset the rendertype, but provides
+            // the convenience of setting the max and min values
+            // for us.
+            point.setRenderType(OMGraphic.RENDERTYPE_OFFSET);
+        }
+
+        // Do the point height and width for XY and OFFSET render
+        // types.
+        if (renderType == OMGraphic.RENDERTYPE_XY) {
+            Debug.message("eomg", "EditableCustomPoint: updating x/y point");
+
+            if (movingPoint == gpc) {
+                point.set(gpc.getX(), gpc.getY());
+            }
+        }
+
+        if (projection != null) {
+            regenerate(projection);
+        }
+    }
+
+    /**
+     * Use the current projection to place the graphics on the screen. Has to be
+     * called to at least assure the graphics that they are ready for rendering.
+     * Called when the graphic position changes.
+     *
+     * @param proj com.bbn.openmap.proj.Projection
+     * @return true
+     */
+    @Override
+    public boolean generate(Projection proj) {
+        Debug.message("eomgdetail", "EditableCustomPoint.generate()");
+        if (this.point != null)
+            this.point.generate(proj);
+
+        for (GrabPoint gp : gPoints) {
+            if (gp != null) {
+                gp.generate(proj);
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Given a new projection, the grab points may need to be repositioned off
+     * the current position of the graphic. Called when the projection changes.
+     */
+    @Override
+    public void regenerate(Projection proj) {
+        Debug.message("eomg", "EditableCustomPoint.regenerate()");
+        if (this.point != null)
+            this.point.generate(proj);
+
+        setGrabPoints(this.point);
+        generate(proj);
+    }
+
+    /**
+     * Draw the EditableCustomPoint parts into the java.awt.Graphics object. The
+     * grab points are only rendered if the point machine state is
+     * PointSelectedState.POINT_SELECTED.
+     *
+     * @param graphics java.awt.Graphics.
+     */
+    @Override
+    public void render(java.awt.Graphics graphics) {
+        Debug.message("eomgdetail", "EditableCustomPoint.render()");
+
+        if (this.point == null) {
+            Debug.message("eomg", "EditableCustomPoint.render: null point.");
+            return;
+        }
+
+        State state = getStateMachine().getState();
+
+        if (!(state instanceof GraphicUndefinedState)) {
+            this.point.setVisible(true);
+            this.point.render(graphics);
+            this.point.setVisible(false);
+
+            int renderType = this.point.getRenderType();
+
+            if (state instanceof GraphicSelectedState || state instanceof GraphicEditState) {
+
+                for (int i = 0; i < gPoints.length; i++) {
+
+                    GrabPoint gp = gPoints[i];
+                    if (gp != null) {
+                        if ((i == OFFSET_POINT_INDEX && renderType == OMGraphic.RENDERTYPE_OFFSET && movingPoint == gpo)
+                                || (state instanceof GraphicSelectedState && (i != OFFSET_POINT_INDEX || renderType == OMGraphic.RENDERTYPE_OFFSET))
+
+                        ) {
+
+                            gp.setVisible(true);
+                            gp.render(graphics);
+                            gp.setVisible(false);
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Attribute panel shared by all the editable points, created on the first request and bound to the point being
+     * edited on each following one.
+     */
+    protected static AttributePanel attributePanel;
+
+    /**
+     * Modifies the gui to not include line type adjustments, and adds widgets
+     * to control point settings. The widgets are created once for all the
+     * editable points, and only filled with the values of this point.
+     *
+     * @param graphicAttributes the GraphicAttributes to use to get the GUI
+     *        widget from to control those parameters for this EOMG.
+     * @return java.awt.Component to use to control parameters for this EOMG.
+     */
+    @Override
+    public Component getGUI(GraphicAttributes graphicAttributes) {
+        Debug.message("eomg", "EditableCustomPoint.getGUI");
+        int orientation = graphicAttributes != null ? graphicAttributes.getOrientation() : SwingConstants.HORIZONTAL;
+        if (attributePanel == null || !attributePanel.fits(graphicAttributes, orientation)) {
+            attributePanel = new AttributePanel(graphicAttributes, orientation,
+                    graphicAttributes != null ? createAttributePanel(graphicAttributes) : null);
+        }
+        return attributePanel.bind(this);
+    }
+
+    /** Commands for changing the name, rotation angle and coordinates of the point. */
+    public final static String NameFieldCommand = "NameField";
+    public final static String PointRotationCommand = "PointRotation";
+    public final static String PointLatitudeCommand = "PointLatitude";
+    public final static String PointLongitudeCommand = "PointLongitude";
+
+    /**
+     * Widgets changing a CustomPoint, forwarding their actions to the editable point they are bound to.
+     */
+    protected static class AttributePanel implements ActionListener {
+
+        /**
+         * GraphicAttributes the panel has been created for, null if none.
+         */
+        protected final GraphicAttributes graphicAttributes;
+
+        /**
+         * Orientation of the panel, SwingConstants.HORIZONTAL/VERTICAL.
+         */
+        protected final int orientation;
+
+        /**
+         * Component returned as the GUI.
+         */
+        protected final JComponent guiComp;
+
+        /**
+         * Fields of the name, rotation angle and coordinates of the point.
+         */
+        protected final JTextField textField;
+        protected final JTextField rotationTextField;
+        protected final JTextField latTextField;
+        protected final JTextField lonTextField;
+
+        /**
+         * Debouncer applying the typed rotation angle and coordinates once per frame.
+         */
+        protected final FieldDebouncer debouncer;
+
+        /**
+         * Editable point the actions are forwarded to.
+         */
+        protected EditableCustomPoint editable;
+
+        /**
+         * Create the widgets.
+         *
+         * @param graphicAttributes GraphicAttributes the panel is created for, null if none.
+         * @param orientation SwingConstants.HORIZONTAL/VERTICAL
+         * @param guiComp the JComponent to add stuff to. If the orientation is
+         *        HORIZONTAL, the components will be added directly to this
+         *        component, or to a new JComponent if null. If the
+         *        orientation is Vertical, a button will be added to the guiComp.
+         *        This button will call up a dialog box with the settings,
+         *        since they don't really lay out vertically.
+         */
+        protected AttributePanel(GraphicAttributes graphicAttributes, int orientation, JComponent guiComp) {
+            this.graphicAttributes = graphicAttributes;
+            this.orientation = orientation;
+            I18n i18n = Environment.getI18n();
+            JComponent attributeBox = null;
+
+            if (guiComp == null || orientation == SwingConstants.VERTICAL) {
+                attributeBox = javax.swing.Box.createHorizontalBox();
+
+                attributeBox.setAlignmentX(Component.CENTER_ALIGNMENT);
+                attributeBox.setAlignmentY(Component.CENTER_ALIGNMENT);
+
+            } else if (orientation == SwingConstants.HORIZONTAL) {
+                attributeBox = guiComp;
+            }
+
+            if (guiComp == null) {
+                guiComp = new JPanel();
+            }
+            this.guiComp = guiComp;
+
+            guiComp.add(PaletteHelper.getToolBarFill(orientation));
+
+            if (orientation == SwingConstants.VERTICAL) {
+                JButton launchButton = new JButton("CustomPoint");
+                JComponent dialogBox = attributeBox;
+                launchButton.addActionListener(ae -> {
+                    JDialog dialog = new JDialog();
+                    dialog.setContentPane(dialogBox);
+                    dialog.setModal(true);
+                    dialog.pack();
+                    dialog.setLocationRelativeTo((JButton) ae.getSource());
+                    dialog.setVisible(true);
+                });
+                guiComp.add(launchButton);
+            }
+
+            attributeBox.add(PaletteHelper.getToolBarFill(SwingConstants.HORIZONTAL));
+
+            textField = new JTextField("Text", 25);
+            textField.setActionCommand(NameFieldCommand);
+            textField.addActionListener(this);
+            textField.setMinimumSize(new java.awt.Dimension(100, 20));
+            textField.setPreferredSize(new java.awt.Dimension(100, 20));
+            attributeBox.add(textField);
+
+            attributeBox.add(PaletteHelper.getToolBarFill(SwingConstants.HORIZONTAL));
+
+            javax.swing.Box rotationPalette = javax.swing.Box.createHorizontalBox();
+            rotationTextField = new JTextField(5);
+            rotationTextField.setActionCommand(PointRotationCommand);
+            rotationTextField.setToolTipText(i18n.get(EditableCustomPoint.class, "rotationTextField", I18n.TOOLTIP, "Point rotation in degrees"));
+            rotationTextField.addActionListener(this);
+            rotationTextField.setMinimumSize(new java.awt.Dimension(30, 20));
+            rotationTextField.setPreferredSize(new java.awt.Dimension(30, 20));
+            rotationPalette.add(rotationTextField);
+            rotationPalette.add(new JLabel("\u00b0 "));
+            attributeBox.add(rotationPalette);
+
+            javax.swing.Box latPalette = javax.swing.Box.createHorizontalBox();
+            latTextField = new JTextField(25);
+            latTextField.setActionCommand(PointLatitudeCommand);
+            latTextField.setToolTipText(i18n.get(EditableCustomPoint.class, "latTextField", I18n.TOOLTIP, "Point latitude, decimal degrees."));
+            latTextField.addActionListener(this);
+            latTextField.setMinimumSize(new java.awt.Dimension(100, 20));
+            latTextField.setPreferredSize(new java.awt.Dimension(100, 20));
+            latPalette.add(latTextField);
+            latPalette.add(new JLabel("\u00b0 "));
+            attributeBox.add(latPalette);
+
+            javax.swing.Box lonPalette = javax.swing.Box.createHorizontalBox();
+            lonTextField = new JTextField(25);
+            lonTextField.setActionCommand(PointLongitudeCommand);
+            lonTextField.setToolTipText(i18n.get(EditableCustomPoint.class, "lonTextField", I18n.TOOLTIP, "Point longitude, decimal degrees."));
+            lonTextField.addActionListener(this);
+            lonTextField.setMinimumSize(new java.awt.Dimension(100, 20));
+            lonTextField.setPreferredSize(new java.awt.Dimension(100, 20));
+            lonPalette.add(lonTextField);
+            lonPalette.add(new JLabel("\u00b0 "));
+            attributeBox.add(lonPalette);
+
+            debouncer = new FieldDebouncer(this::update, this::updated, rotationTextField, latTextField, lonTextField);
+        }
+
+        /**
+         * Check whether the panel can be used with the GraphicAttributes.
+         * @param graphicAttributes GraphicAttributes of the request, null if none.
+         * @param orientation SwingConstants.HORIZONTAL/VERTICAL
+         * @return true if the panel has been created for the same GraphicAttributes and orientation.
+         */
+        protected boolean fits(GraphicAttributes graphicAttributes, int orientation) {
+            return this.graphicAttributes == graphicAttributes && this.orientation == orientation;
+        }
+
+        /**
+         * Bind the widgets to an editable point, filling them with the values of its point.
+         * @param editable the editable point.
+         * @return the component to be used as the GUI.
+         */
+        protected JComponent bind(EditableCustomPoint editable) {
+            this.editable = editable;
+            CustomPoint point = editable.point;
+            debouncer.setEnabled(false);
+            if (point != null) {
+                textField.setText(point.getName() != null ? point.getName() : "Text");
+                rotationTextField.setText(String.valueOf((int) Math.toDegrees(point.getRotationAngle())));
+                latTextField.setText(String.valueOf(point.getLat()));
+                lonTextField.setText(String.valueOf(point.getLon()));
+            }
+            FieldDebouncer.setValid(rotationTextField, true);
+            FieldDebouncer.setValid(latTextField, true);
+            FieldDebouncer.setValid(lonTextField, true);
+            debouncer.setEnabled(true);
+            return guiComp;
+        }
+
+        /**
+         * Apply a field to the bound point, showing whether it holds a valid value.
+         * @param field the field.
+         */
+        protected void update(JTextField field) {
+            if (editable != null) {
+                FieldDebouncer.setValid(field, editable.applyField(getCommand(field), field));
+            }
+        }
+
+        /**
+         * Get the command of a field.
+         * @param field the field.
+         * @return the command the field sends.
+         */
+        protected String getCommand(JTextField field) {
+            if (field == rotationTextField) {
+                return PointRotationCommand;
+            } else if (field == latTextField) {
+                return PointLatitudeCommand;
+            } else if (field == lonTextField) {
+                return PointLongitudeCommand;
+            }
+            return NameFieldCommand;
+        }
+
+        /**
+         * Regenerate the bound point once its fields are applied.
+         */
+        protected void updated() {
+            if (editable != null) {
+                editable.regenerateInBackground();
+            }
+        }
+
+        /**
+         * Apply a field to the bound point when Enter is pressed in it.
+         * @param e event from the fields.
+         */
+        @Override
+        public void actionPerformed(ActionEvent e) {
+            update((JTextField) e.getSource());
+            if (e.getSource() != textField) {
+                updated();
+            }
+        }
+    }
+
+    /**
+     * Parser of the values typed in the fields, used on the event dispatch thread.
+     */
+    protected static final DecimalParser parser = new DecimalParser();
+
+    /**
+     * Method for applying changes from the GUI fields to the point.
+     * @param e event this class listens to, i.e. changes in GUI fields.
+     */
+    @Override
+    public void actionPerformed(ActionEvent e) {
+        Object source = e.getSource();
+        String command = e.getActionCommand();
+        if (source instanceof JTextField && applyField(command, (JTextField) source)
+                && !Objects.equals(command, NameFieldCommand)) {
+            regenerateInBackground();
+        }
+    }
+
+    /**
+     * Apply the text of a field to the point. The point is left unchanged if the text isn't a valid value, and the
+     * point is not regenerated.
+     * @param command command of the field.
+     * @param field the field.
+     * @return true if the text is valid.
+     */
+    protected boolean applyField(String command, JTextField field) {
+        if (point == null) {
+            return false;
+        }
+        if (Objects.equals(command, NameFieldCommand)) {
+            point.setName(field.getText());
+            return true;
+        }
+        double value = parser.parse(field.getDocument());
+        if (Objects.equals(command, PointRotationCommand)) {
+            if (Double.isNaN(value) || Double.isInfinite(value)) {
+                return false;
+            }
+            point.setRotationAngle(Math.toRadians(value));
+        } else if (Objects.equals(command, PointLatitudeCommand)) {
+            if (!(Math.abs(value) < 90)) {
+                return false;
+            }
+            point.setLat(value);
+            moveGrabPoints();
+        } else if (Objects.equals(command, PointLongitudeCommand)) {
+            if (!(Math.abs(value) < 180)) {
+                return false;
+            }
+            point.setLon(value);
+            moveGrabPoints();
+        }
+        return true;
+    }
+
+    /**
+     * Move the grab points to the location of the point.
+     */
+    protected void moveGrabPoints() {
+        for (GrabPoint gp: gPoints) {
+            gp.set(point.getLon(), point.getLat(), 0, 0);
+            gp.setVisible(true);
+        }
+    }
+
+    /**
+     * Regenerate the point on a background thread, and repaint once it is done.
+     */
+    protected void regenerateInBackground() {
+        BackgroundRegenerator.regenerate(point, projection, this::repaint);
+    }
+}
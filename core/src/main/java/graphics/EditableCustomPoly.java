@@ -1,5 +1,7 @@
 package graphics;
 
+import com.bbn.openmap.Environment;
+import com.bbn.openmap.I18n;
 import com.bbn.openmap.gui.GridBagToolBar;
 import com.bbn.openmap.omGraphics.*;
 import com.bbn.openmap.omGraphics.editable.*;
@@ -9,6 +11,9 @@ import com.bbn.openmap.proj.coords.LatLonPoint;
 import com.bbn.openmap.util.Debug;
 import com.bbn.openmap.util.PaletteHelper;
 import com.bbn.openmap.util.stateMachine.State;
+import metrics.EditEvent;
+import metrics.Metrics;
+import metrics.OperationStats;
 
 import javax.swing.*;
 import java.awt.*;
@@ -24,6 +29,12 @@ import java.util.Objects;
  */
 public class EditableCustomPoly extends EditableOMPoly implements ActionListener{
 
+    /**
+     * Statistics of the updates of the edited polys from their grab points, recorded in the {@link Metrics}.
+     */
+    protected static final OperationStats GRAB_POINTS_STATS =
+            Metrics.getStats(EditableCustomPoly.class, "setGrabPoints");
+
     /**
      *  This object's instance of CustomPoly that it creates and/or modifies.
      */
@@ -141,6 +152,35 @@ public class EditableCustomPoly extends EditableOMPoly implements ActionListener
      */
     @Override
     public void setGrabPoints() {
+        long start = System.nanoTime();
+        long allocated = Metrics.allocatedBytes();
+        EditEvent event = new EditEvent("setGrabPoints");
+        event.begin();
+        try {
+            setGraphicFromGrabPoints();
+        } finally {
+            GRAB_POINTS_STATS.record(start, allocated);
+            commit(event);
+        }
+    }
+
+    /**
+     * Commit the event of an edit of the poly, if it is recorded.
+     * @param event the event.
+     */
+    protected void commit(EditEvent event) {
+        if (event.shouldCommit()) {
+            if (poly != null) {
+                event.set(poly, getProjection());
+            }
+            event.commit();
+        }
+    }
+
+    /**
+     * Modify the location parameters of the CustomPoly with the current location of the GrabPoints.
+     */
+    protected void setGraphicFromGrabPoints() {
         int renderType = poly.getRenderType();
         Projection proj = getProjection();
         if (renderType == OMGraphic.RENDERTYPE_LATLON) {
@@ -251,6 +291,22 @@ public class EditableCustomPoly extends EditableOMPoly implements ActionListener
      */
     @Override
     public int addPoint(GrabPoint gp, int position) {
+        EditEvent event = new EditEvent("addPoint");
+        event.begin();
+        try {
+            return insertPoint(gp, position);
+        } finally {
+            commit(event);
+        }
+    }
+
+    /**
+     * Add a point at a certain point in the polygon coordinate list, as addPoint does.
+     * @param gp grab point of the node.
+     * @param position index of the point in the polygon.
+     * @return the index for the point in the polygon, starting with 0.
+     */
+    protected int insertPoint(GrabPoint gp, int position) {
 
         if (gp == null) {
             return -1;
@@ -427,6 +483,20 @@ public class EditableCustomPoly extends EditableOMPoly implements ActionListener
      */
     @Override
     public void deletePoint(int position) {
+        EditEvent event = new EditEvent("deletePoint");
+        event.begin();
+        try {
+            removePoint(position);
+        } finally {
+            commit(event);
+        }
+    }
+
+    /**
+     * Delete a point at a certain point in the polygon coordinate list, as deletePoint does.
+     * @param position index of the point in the polygon.
+     */
+    protected void removePoint(int position) {
 
         int renderType = poly.getRenderType();
         Projection proj = getProjection();
@@ -663,7 +733,14 @@ public class EditableCustomPoly extends EditableOMPoly implements ActionListener
     }
 
     /**
-     * Adds widgets to modify polygon.
+     * Attribute panel shared by all the editable polys, created on the first request and bound to the poly being
+     * edited on each following one.
+     */
+    protected static AttributePanel attributePanel;
+
+    /**
+     * Adds widgets to modify polygon. The widgets are created once for all
+     * the editable polys, and only set to the state of this poly.
      *
      * @param graphicAttributes the GraphicAttributes to use to get the GUI
      *        widget from to control those parameters for this EOMG.
@@ -672,15 +749,16 @@ public class EditableCustomPoly extends EditableOMPoly implements ActionListener
     @Override
     public Component getGUI(GraphicAttributes graphicAttributes) {
         Debug.message("eomg", "EditableCustomPoly.getGUI");
+        int orientation = graphicAttributes != null ? graphicAttributes.getOrientation() : SwingConstants.HORIZONTAL;
         if (graphicAttributes != null) {
             JMenu ahm = getArrowHeadMenu();
             graphicAttributes.setLineMenuAdditions(new JMenu[] { ahm });
-            JComponent toolbar = createAttributePanel(graphicAttributes);
-            getPolyGUI(graphicAttributes.getOrientation(), toolbar);
-            return toolbar;
-        } else {
-            return getPolyGUI();
         }
+        if (attributePanel == null || !attributePanel.fits(graphicAttributes, orientation)) {
+            attributePanel = new AttributePanel(this, graphicAttributes, orientation,
+                    graphicAttributes != null ? createAttributePanel(graphicAttributes) : null);
+        }
+        return attributePanel.bind(this);
     }
 
     /** Command for changing the name of the object. */
@@ -843,8 +921,165 @@ public class EditableCustomPoly extends EditableOMPoly implements ActionListener
 
         if (Objects.equals(command, NameFieldCommand)) {
             poly.setName(((JTextField) source).getText());
-            poly.regenerate(projection);
-            repaint();
+        }
+    }
+
+    /**
+     * Widgets changing a CustomPoly, forwarding their actions to the editable poly they are bound to.
+     */
+    protected static class AttributePanel implements ActionListener {
+
+        /**
+         * GraphicAttributes the panel has been created for, null if none.
+         */
+        protected final GraphicAttributes graphicAttributes;
+
+        /**
+         * Orientation of the panel, SwingConstants.HORIZONTAL/VERTICAL.
+         */
+        protected final int orientation;
+
+        /**
+         * Component returned as the GUI.
+         */
+        protected final JComponent buttonBox;
+
+        /**
+         * Buttons of the polygon edition and field of the name of the poly.
+         */
+        protected final JToggleButton polygonButton;
+        protected final JButton extButton;
+        protected final JButton addButton;
+        protected final JButton deleteButton;
+        protected final JTextField textField;
+
+        /**
+         * Editable poly the actions are forwarded to.
+         */
+        protected EditableCustomPoly editable;
+
+        /**
+         * Create the widgets.
+         *
+         * @param creator editable poly the icons of the buttons are found from.
+         * @param graphicAttributes GraphicAttributes the panel is created for, null if none.
+         * @param orientation SwingConstants.HORIZONTAL/VERTICAL
+         * @param buttonBox the JComponent to add the widgets to, or null to create one.
+         */
+        protected AttributePanel(EditableCustomPoly creator, GraphicAttributes graphicAttributes, int orientation,
+                                 JComponent buttonBox) {
+            this.graphicAttributes = graphicAttributes;
+            this.orientation = orientation;
+            I18n i18n = Environment.getI18n();
+
+            if (buttonBox == null) {
+                buttonBox = new GridBagToolBar();
+                ((GridBagToolBar) buttonBox).setOrientation(orientation);
+            }
+            this.buttonBox = buttonBox;
+
+            buttonBox.add(PaletteHelper.getToolBarFill(orientation));
+
+            polygonButton = new JToggleButton(new ImageIcon(creator.getImageURL("enclosepoly.gif")));
+            polygonButton.setToolTipText(i18n.get(EditableCustomPoly.class, "polygonButton.tooltip", "Automatically link first and last nodes"));
+            polygonButton.addActionListener(e -> {
+                if (editable == null) {
+                    return;
+                }
+                if (editable.getStateMachine().getState() instanceof GraphicSelectedState) {
+                    editable.enclose(((JToggleButton) e.getSource()).isSelected());
+                } else {
+                    editable.setEnclosed(((JToggleButton) e.getSource()).isSelected());
+                }
+                editable.updateCurrentState(null);
+            });
+            buttonBox.add(polygonButton);
+
+            extButton = new JButton(new ImageIcon(creator.getImageURL("addpoint.gif")));
+            extButton.setToolTipText(i18n.get(EditableCustomPoly.class, "extButton.tooltip", "Add a point to the polygon"));
+            extButton.addActionListener(e -> {
+                if (editable == null) {
+                    return;
+                }
+                if (editable.isEnclosed()) {
+                    editable.enclose(false);
+                    editable.setEnclosed(true);
+                }
+                ((PolyStateMachine) editable.stateMachine).setAddPoint();
+                editable.enablePolygonEditButtons(false);
+            });
+            buttonBox.add(extButton);
+
+            addButton = new JButton(new ImageIcon(creator.getImageURL("addnode.gif")));
+            addButton.setToolTipText(i18n.get(EditableCustomPoly.class, "addButton.tooltip", "Add a node to the polygon"));
+            addButton.addActionListener(e -> {
+                if (editable == null) {
+                    return;
+                }
+                ((PolyStateMachine) editable.stateMachine).setAddNode();
+                editable.enablePolygonEditButtons(false);
+            });
+            buttonBox.add(addButton);
+
+            deleteButton = new JButton(new ImageIcon(creator.getImageURL("deletepoint.gif")));
+            deleteButton.setToolTipText(i18n.get(EditableCustomPoly.class, "deleteButton.tooltip", "Delete a node from the polygon"));
+            deleteButton.addActionListener(e -> {
+                if (editable == null) {
+                    return;
+                }
+                ((PolyStateMachine) editable.stateMachine).setDeleteNode();
+                editable.enablePolygonEditButtons(false);
+            });
+            buttonBox.add(deleteButton);
+
+            buttonBox.add(PaletteHelper.getToolBarFill(SwingConstants.HORIZONTAL));
+
+            textField = new JTextField("Text", 25);
+            textField.setActionCommand(NameFieldCommand);
+            textField.addActionListener(this);
+            textField.setMinimumSize(new java.awt.Dimension(100, 20));
+            textField.setPreferredSize(new java.awt.Dimension(100, 20));
+            buttonBox.add(textField);
+        }
+
+        /**
+         * Check whether the panel can be used with the GraphicAttributes.
+         * @param graphicAttributes GraphicAttributes of the request, null if none.
+         * @param orientation SwingConstants.HORIZONTAL/VERTICAL
+         * @return true if the panel has been created for the same GraphicAttributes and orientation.
+         */
+        protected boolean fits(GraphicAttributes graphicAttributes, int orientation) {
+            return this.graphicAttributes == graphicAttributes && this.orientation == orientation;
+        }
+
+        /**
+         * Bind the widgets to an editable poly, setting them to the state of its poly. The buttons become the ones
+         * of the editable poly, so it enables and disables them as its state changes.
+         * @param editable the editable poly.
+         * @return the component to be used as the GUI.
+         */
+        protected JComponent bind(EditableCustomPoly editable) {
+            this.editable = editable;
+            editable.polygonButton = polygonButton;
+            editable.extButton = extButton;
+            editable.addButton = addButton;
+            editable.deleteButton = deleteButton;
+            polygonButton.setSelected(editable.isEnclosed());
+            editable.enablePolygonEditButtons(false);
+            CustomPoly poly = editable.poly;
+            textField.setText(poly != null && poly.getName() != null ? poly.getName() : "Text");
+            return buttonBox;
+        }
+
+        /**
+         * Forward the changes of the name field to the bound editable poly.
+         * @param e event from the field.
+         */
+        @Override
+        public void actionPerformed(ActionEvent e) {
+            if (editable != null) {
+                editable.actionPerformed(e);
+            }
         }
     }
 }
@@ -0,0 +1,689 @@
+package graphics;
+
+import com.bbn.openmap.Environment;
+import com.bbn.openmap.I18n;
+import com.bbn.openmap.omGraphics.*;
+import com.bbn.openmap.omGraphics.editable.GraphicEditState;
+import com.bbn.openmap.omGraphics.editable.GraphicSelectedState;
+import com.bbn.openmap.omGraphics.editable.GraphicSetOffsetState;
+import com.bbn.openmap.proj.Projection;
+import com.bbn.openmap.proj.coords.LatLonPoint;
+import com.bbn.openmap.util.Debug;
+import com.bbn.openmap.util.PaletteHelper;
+import com.bbn.openmap.util.stateMachine.State;
+import metrics.EditEvent;
+import metrics.Metrics;
+import metrics.OperationStats;
+
+import javax.swing.*;
+import java.awt.*;
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
+import java.util.Objects;
+
+/**
+ * A class that encompasses basic CustomSector and provides methods for creating it or modifying the existing one.
+ */
+public class EditableCustomSector extends EditableOMRect implements ActionListener{
+
+    /**
+     * Statistics of the updates of the edited sectors from their grab points, recorded in the {@link Metrics}.
+     */
+    protected static final OperationStats GRAB_POINTS_STATS =
+            Metrics.getStats(EditableCustomSector.class, "setGrabPoints");
+
+    /**
+     * This object's instance of CustomSector that it creates and/or modifies.
+     */
+    protected CustomSector sector;
+    public final static int OFFSET_POINT_INDEX = 5;
+
+    /**
+     * Create the EditableCustomSector() setting the state machine to create the sector
+     * off of the gestures.
+     */
+    public EditableCustomSector() {
+        createGraphic(null);
+    }
+
+    /**
+     * Create an EditableCustomSector with the sectorType and renderType parameters in
+     * the GraphicAttributes object.
+     */
+    public EditableCustomSector(GraphicAttributes ga) {
+        createGraphic(ga);
+    }
+
+    /**
+     * Create the EditableCustomSector with an CustomSector already defined, ready for
+     * editing.
+     *
+     * @param omc CustomSector that should be edited.
+     */
+    public EditableCustomSector(CustomSector omc) {
+        setGraphic(omc);
+    }
+
+    /**
+     * Set the graphic within the state machine. If the graphic is null, then
+     * one shall be created, and located off screen until the gestures driving
+     * the state machine place it on the map.
+     */
+    @Override
+    public void setGraphic(OMGraphic graphic) {
+        init();
+        if (graphic instanceof CustomSector) {
+            sector = (CustomSector) graphic;
+            stateMachine.setSelected();
+            setGrabPoints(sector);
+        } else {
+            createGraphic(null);
+        }
+    }
+
+    /**
+     * Create and set the graphic within the state machine. The
+     * GraphicAttributes describe the type of sector to create.
+     */
+    @Override
+    public void createGraphic(GraphicAttributes ga) {
+        init();
+        stateMachine.setUndefined();
+        int renderType = OMGraphic.RENDERTYPE_UNKNOWN;
+        int lineType = OMGraphic.LINETYPE_GREATCIRCLE;
+
+        if (ga != null) {
+            renderType = ga.getRenderType();
+            lineType = ga.getLineType();
+        }
+
+        if (Debug.debugging("eomg")) {
+            Debug.output("EditableCustomSector.createGraphic(): rendertype = " + renderType);
+            Debug.output("EditableCustomSector.createGraphic(): linetype = " + lineType);
+        }
+
+        switch (renderType) {
+            case (OMGraphic.RENDERTYPE_LATLON):
+                if (lineType == OMGraphic.LINETYPE_UNKNOWN) {
+                    lineType = OMGraphic.LINETYPE_GREATCIRCLE;
+                    ga.setLineType(OMGraphic.LINETYPE_GREATCIRCLE);
+                }
+
+                sector = new CustomSector(90f, -180f, 90f, -180f, lineType);
+                break;
+            case (OMGraphic.RENDERTYPE_OFFSET):
+                sector = new CustomSector(90d, -180d, -1, -1, 1, 1);
+                break;
+            default:
+                sector = new CustomSector(-1, -1, -1, -1);
+        }
+
+        if (ga != null) {
+            ga.setTo(sector, true);
+        }
+
+        assertGrabPoints();
+    }
+
+    /**
+     * Get the OMGraphic being created/modified by the EditableCustomSector.
+     */
+    @Override
+    public OMGraphic getGraphic() {
+        return sector;
+    }
+
+    double diffx;
+    double diffy;
+
+    @Override
+    public void initRectSize() {
+        diffx = Math.abs(sector.getEastLon() - sector.getWestLon()) / 2f;
+        diffy = Math.abs(sector.getNorthLat() - sector.getSouthLat()) / 2f;
+    }
+
+    /**
+     * Take the current location of the GrabPoints, and modify the location
+     * parameters of the Custom Sector with them. Called when you want the graphic to
+     * change according to the grab points.
+     */
+    @Override
+    public void setGrabPoints() {
+        long start = System.nanoTime();
+        long allocated = Metrics.allocatedBytes();
+        EditEvent event = new EditEvent("setGrabPoints");
+        event.begin();
+        try {
+            setGraphicFromGrabPoints();
+        } finally {
+            GRAB_POINTS_STATS.record(start, allocated);
+            commit(event);
+        }
+    }
+
+    /**
+     * Commit the event of an edit of the sector, if it is recorded.
+     * @param event the event.
+     */
+    protected void commit(EditEvent event) {
+        if (event.shouldCommit()) {
+            if (sector != null) {
+                event.set(sector, getProjection());
+            }
+            event.commit();
+        }
+    }
+
+    /**
+     * Modify the location parameters of the Custom Sector with the current location of the GrabPoints.
+     */
+    protected void setGraphicFromGrabPoints() {
+
+        int renderType = sector.getRenderType();
+        LatLonPoint llp1;
+
+        Debug.message("eomg", "EditableCustomSector.setGrabPoints()");
+
+        if (renderType == OMGraphic.RENDERTYPE_LATLON) {
+            if (projection != null) {
+
+                if (movingPoint == gpne) {
+                    llp1 = projection.inverse(gpne.getX(), gpne.getY(), new LatLonPoint.Double());
+                    sector.setLat1(llp1.getY());
+                    sector.setLon2(llp1.getX());
+                } else if (movingPoint == gpnw) {
+                    llp1 = projection.inverse(gpnw.getX(), gpnw.getY(), new LatLonPoint.Double());
+                    sector.setLat1(llp1.getY());
+                    sector.setLon1(llp1.getX());
+                } else if (movingPoint == gpsw) {
+                    llp1 = projection.inverse(gpsw.getX(), gpsw.getY(), new LatLonPoint.Double());
+                    sector.setLat2(llp1.getY());
+                    sector.setLon1(llp1.getX());
+                } else if (movingPoint == gpse) {
+                    llp1 = projection.inverse(gpse.getX(), gpse.getY(), new LatLonPoint.Double());
+                    LatLonPoint llp2 = projection.inverse(gpnw.getX(), gpnw.getY(), new LatLonPoint.Double());
+                    sector.setLat1(llp2.getY());
+                    sector.setLon1(llp2.getX());
+                    sector.setLat2(llp1.getY());
+                    sector.setLon2(llp1.getX());
+                } else {
+                    llp1 = projection.inverse(gpc.getX(),
+                            gpc.getY(),
+                            new LatLonPoint.Double());
+                    sector.setLat1(llp1.getY() + diffy);
+                    sector.setLon1(llp1.getX() - diffx);
+                    sector.setLat2(llp1.getY() - diffy);
+                    sector.setLon2(llp1.getX() + diffx);
+                }
+                sector.setNeedToRegenerate(true);
+            }
+        }
+
+        boolean settingOffset = getStateMachine().getState() instanceof GraphicSetOffsetState
+                && movingPoint == gpo;
+
+        if (renderType == OMGraphic.RENDERTYPE_OFFSET) {
+
+            llp1 = projection.inverse(gpo.getX(), gpo.getY(), new LatLonPoint.Double());
+
+            sector.setLat1(llp1.getY());
+            sector.setLon1(llp1.getX());
+
+            if (settingOffset || movingPoint == gpc) {
+                int halfheight = (gpse.getY() - gpnw.getY()) / 2;
+                int halfwidth = (gpse.getX() - gpnw.getX()) / 2;
+
+                sector.setX1(gpc.getX() - halfwidth - gpo.getX());
+                sector.setY1(gpc.getY() - halfheight - gpo.getY());
+                sector.setX2(gpc.getX() + halfwidth - gpo.getX());
+                sector.setY2(gpc.getY() + halfheight - gpo.getY());
+            }
+
+            if (!settingOffset) {
+                Debug.message("eomg", "EditableCustomSector: updating offset sector");
+                if (movingPoint == gpnw || movingPoint == gpse) {
+                    sector.setLocation(gpnw.getX() - gpo.getX(), gpnw.getY() - gpo.getY(), gpse.getX()
+                            - gpo.getX(), gpse.getY() - gpo.getY());
+                } else if (movingPoint == gpne || movingPoint == gpsw) {
+                    sector.setLocation(gpsw.getX() - gpo.getX(), gpne.getY()
+                            - gpo.getY(), gpne.getX() - gpo.getX(), gpsw.getY() - gpo.getY());
+                }
+                sector.setNeedToRegenerate(true);
+            }
+
+            sector.setRenderType(OMGraphic.RENDERTYPE_OFFSET);
+        }
+
+        if (renderType == OMGraphic.RENDERTYPE_XY) {
+            Debug.message("eomg", "EditableCustomSector: updating x/y sector");
+
+            if (movingPoint == gpc) {
+                int halfheight = (gpse.getY() - gpnw.getY()) / 2;
+                int halfwidth = (gpse.getX() - gpnw.getX()) / 2;
+                sector.setLocation(gpc.getX() - halfwidth, gpc.getY() - halfheight, gpc.getX()
+                        + halfwidth, gpc.getY() + halfheight);
+            } else if (movingPoint == gpnw || movingPoint == gpse) {
+                sector.setLocation(gpnw.getX(), gpnw.getY(), gpse.getX(), gpse.getY());
+            } else if (movingPoint == gpne || movingPoint == gpsw) {
+                sector.setLocation(gpsw.getX(), gpne.getY(), gpne.getX(), gpsw.getY());
+            }
+        }
+
+        if (projection != null) {
+            regenerate(projection);
+        }
+    }
+
+    /**
+     * Use the current projection to place the graphics on the screen. Has to be
+     * called to at least assure the graphics that they are ready for rendering.
+     * Called when the graphic position changes.
+     *
+     * @param proj com.bbn.openmap.proj.Projection
+     * @return true
+     */
+    @Override
+    public boolean generate(Projection proj) {
+        Debug.message("eomgdetail", "EditableCustomSector.generate()");
+        if (sector != null)
+            sector.generate(proj);
+
+        for (GrabPoint gp : gPoints) {
+            if (gp != null) {
+                gp.generate(proj);
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Given a new projection, the grab points may need to be repositioned off
+     * the current position of the graphic. Called when the projection changes.
+     */
+    @Override
+    public void regenerate(Projection proj) {
+        Debug.message("eomg", "EditableCustomSector.regenerate()");
+        if (sector != null)
+            sector.regenerate(proj);
+
+        setGrabPoints(sector);
+        generate(proj);
+    }
+
+    /**
+     * Draw the EditableCustomSector parts into the java.awt.Graphics object. The grab
+     * points are only rendered if the rect machine state is
+     * RectSelectedState.RECT_SELECTED.
+     *
+     * @param graphics java.awt.Graphics.
+     */
+    @Override
+    public void render(java.awt.Graphics graphics) {
+        Debug.message("eomgdetail", "EditableCustomSector.render()");
+
+        State state = getStateMachine().getState();
+
+        if (sector == null) {
+            Debug.message("eomg", "EditableCustomSector.render: null sector.");
+            return;
+        }
+
+        sector.setVisible(true);
+        sector.render(graphics);
+        sector.setVisible(false);
+
+        int renderType = sector.getRenderType();
+
+        if (state instanceof GraphicSelectedState || state instanceof GraphicEditState) {
+
+            for (int i = 0; i < gPoints.length; i++) {
+
+                GrabPoint gp = gPoints[i];
+                if (gp != null) {
+                    if ((i == OFFSET_POINT_INDEX && renderType == OMGraphic.RENDERTYPE_OFFSET && movingPoint == gpo)
+                            || (state instanceof GraphicSelectedState && (i != OFFSET_POINT_INDEX || renderType == OMGraphic.RENDERTYPE_OFFSET))
+
+                    ) {
+
+                        gp.setVisible(true);
+                        gp.render(graphics);
+                        gp.setVisible(false);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Attribute panel shared by all the editable sectors, created on the first request and bound to the sector being
+     * edited on each following one.
+     */
+    protected static AttributePanel attributePanel;
+
+    /**
+     * Modifies the gui to not include line type adjustments, and adds widgets
+     * to control sector settings. The widgets are created once for all the
+     * editable sectors, and only filled with the values of this sector.
+     *
+     * @param graphicAttributes the GraphicAttributes to use to get the GUI
+     *        widget from to control those parameters for this EOMG.
+     * @return java.awt.Component to use to control parameters for this EOMG.
+     */
+    @Override
+    public Component getGUI(GraphicAttributes graphicAttributes) {
+        Debug.message("eomg", "EditableCustomSector.getGUI");
+        int orientation = graphicAttributes != null ? graphicAttributes.getOrientation() : SwingConstants.HORIZONTAL;
+        if (attributePanel == null || !attributePanel.fits(graphicAttributes, orientation)) {
+            attributePanel = new AttributePanel(graphicAttributes, orientation,
+                    graphicAttributes != null ? createAttributePanel(graphicAttributes) : null);
+        }
+        return attributePanel.bind(this);
+    }
+
+    /** Commands for changing the name, coordinates of the center-point and radiuses. */
+    public final static String NameFieldCommand = "NameField";
+    public final static String CenterLatitudeCommand = "CenterLatitude";
+    public final static String CenterLongitudeCommand = "CenterLongitude";
+    public final static String LatitudeRadiusCommand = "LatitudeRadius";
+    public final static String LongitudeRadiusCommand = "LongitudeRadius";
+
+    /**
+     * Widgets changing a CustomSector, forwarding their actions to the editable sector they are bound to.
+     */
+    protected static class AttributePanel implements ActionListener {
+
+        /**
+         * GraphicAttributes the panel has been created for, null if none.
+         */
+        protected final GraphicAttributes graphicAttributes;
+
+        /**
+         * Orientation of the panel, SwingConstants.HORIZONTAL/VERTICAL.
+         */
+        protected final int orientation;
+
+        /**
+         * Component returned as the GUI.
+         */
+        protected final JComponent guiComp;
+
+        /**
+         * Fields of the name, coordinates of the center-point and radiuses of the sector.
+         */
+        protected final JTextField textField;
+        protected final JTextField latTextField;
+        protected final JTextField lonTextField;
+        protected final JTextField latRadTextField;
+        protected final JTextField lonRadTextField;
+
+        /**
+         * Debouncer applying the typed coordinates and radiuses once per frame.
+         */
+        protected final FieldDebouncer debouncer;
+
+        /**
+         * Editable sector the actions are forwarded to.
+         */
+        protected EditableCustomSector editable;
+
+        /**
+         * Create the widgets.
+         *
+         * @param graphicAttributes GraphicAttributes the panel is created for, null if none.
+         * @param orientation SwingConstants.HORIZONTAL/VERTICAL
+         * @param guiComp the JComponent to add stuff to. If the orientation is
+         *        HORIZONTAL, the components will be added directly to this
+         *        component, or to a new JComponent if null. If the
+         *        orientation is Vertical, a button will be added to the guiComp.
+         *        This button will call up a dialog box with the settings,
+         *        since they don't really lay out vertically.
+         */
+        protected AttributePanel(GraphicAttributes graphicAttributes, int orientation, JComponent guiComp) {
+            this.graphicAttributes = graphicAttributes;
+            this.orientation = orientation;
+            I18n i18n = Environment.getI18n();
+            JComponent attributeBox = null;
+
+            if (guiComp == null || orientation == SwingConstants.VERTICAL) {
+                attributeBox = javax.swing.Box.createHorizontalBox();
+
+                attributeBox.setAlignmentX(Component.CENTER_ALIGNMENT);
+                attributeBox.setAlignmentY(Component.CENTER_ALIGNMENT);
+
+            } else if (orientation == SwingConstants.HORIZONTAL) {
+                attributeBox = guiComp;
+            }
+
+            if (guiComp == null) {
+                guiComp = new JPanel();
+            }
+            this.guiComp = guiComp;
+
+            guiComp.add(PaletteHelper.getToolBarFill(orientation));
+
+            if (orientation == SwingConstants.VERTICAL) {
+                JButton launchButton = new JButton("CustomSector");
+                JComponent dialogBox = attributeBox;
+                launchButton.addActionListener(ae -> {
+                    JDialog dialog = new JDialog();
+                    dialog.setContentPane(dialogBox);
+                    dialog.setModal(true);
+                    dialog.pack();
+                    dialog.setLocationRelativeTo((JButton) ae.getSource());
+                    dialog.setVisible(true);
+                });
+                guiComp.add(launchButton);
+            }
+
+            attributeBox.add(PaletteHelper.getToolBarFill(SwingConstants.HORIZONTAL));
+
+            textField = new JTextField("Text", 25);
+            textField.setActionCommand(NameFieldCommand);
+            textField.addActionListener(this);
+            textField.setMinimumSize(new java.awt.Dimension(100, 20));
+            textField.setPreferredSize(new java.awt.Dimension(100, 20));
+            attributeBox.add(textField);
+
+            attributeBox.add(PaletteHelper.getToolBarFill(SwingConstants.HORIZONTAL));
+
+            javax.swing.Box latPalette = javax.swing.Box.createHorizontalBox();
+            latTextField = new JTextField(25);
+            latTextField.setActionCommand(CenterLatitudeCommand);
+            latTextField.setToolTipText(i18n.get(EditableCustomSector.class, "latTextField", I18n.TOOLTIP, "Center latitude, decimal degrees."));
+            latTextField.addActionListener(this);
+            latTextField.setMinimumSize(new java.awt.Dimension(100, 20));
+            latTextField.setPreferredSize(new java.awt.Dimension(100, 20));
+            latPalette.add(latTextField);
+            latPalette.add(new JLabel("\u00b0 "));
+            attributeBox.add(latPalette);
+
+            javax.swing.Box lonPalette = javax.swing.Box.createHorizontalBox();
+            lonTextField = new JTextField(25);
+            lonTextField.setActionCommand(CenterLongitudeCommand);
+            lonTextField.setToolTipText(i18n.get(EditableCustomSector.class, "lonTextField", I18n.TOOLTIP, "Center longitude, decimal degrees."));
+            lonTextField.addActionListener(this);
+            lonTextField.setMinimumSize(new java.awt.Dimension(100, 20));
+            lonTextField.setPreferredSize(new java.awt.Dimension(100, 20));
+            lonPalette.add(lonTextField);
+            lonPalette.add(new JLabel("\u00b0 "));
+            attributeBox.add(lonPalette);
+
+            javax.swing.Box latRadPalette = javax.swing.Box.createHorizontalBox();
+            latRadTextField = new JTextField(25);
+            latRadTextField.setActionCommand(LatitudeRadiusCommand);
+            latRadTextField.setToolTipText(i18n.get(EditableCustomSector.class, "latTextField", I18n.TOOLTIP, "Radius of sector from south to north, decimal degrees."));
+            latRadTextField.addActionListener(this);
+            latRadTextField.setMinimumSize(new java.awt.Dimension(100, 20));
+            latRadTextField.setPreferredSize(new java.awt.Dimension(100, 20));
+            latRadPalette.add(latRadTextField);
+            latRadPalette.add(new JLabel("\u00b0 "));
+            attributeBox.add(latRadPalette);
+
+            javax.swing.Box lonRadPalette = javax.swing.Box.createHorizontalBox();
+            lonRadTextField = new JTextField(25);
+            lonRadTextField.setActionCommand(LongitudeRadiusCommand);
+            lonRadTextField.setToolTipText(i18n.get(EditableCustomSector.class, "lonTextField", I18n.TOOLTIP, "Radius of sector from west to east, decimal degrees."));
+            lonRadTextField.addActionListener(this);
+            lonRadTextField.setMinimumSize(new java.awt.Dimension(100, 20));
+            lonRadTextField.setPreferredSize(new java.awt.Dimension(100, 20));
+            lonRadPalette.add(lonRadTextField);
+            lonRadPalette.add(new JLabel("\u00b0 "));
+            attributeBox.add(lonRadPalette);
+
+            debouncer = new FieldDebouncer(this::update, this::updated, latTextField, lonTextField, latRadTextField,
+                    lonRadTextField);
+        }
+
+        /**
+         * Check whether the panel can be used with the GraphicAttributes.
+         * @param graphicAttributes GraphicAttributes of the request, null if none.
+         * @param orientation SwingConstants.HORIZONTAL/VERTICAL
+         * @return true if the panel has been created for the same GraphicAttributes and orientation.
+         */
+        protected boolean fits(GraphicAttributes graphicAttributes, int orientation) {
+            return this.graphicAttributes == graphicAttributes && this.orientation == orientation;
+        }
+
+        /**
+         * Bind the widgets to an editable sector, filling them with the values of its sector.
+         * @param editable the editable sector.
+         * @return the component to be used as the GUI.
+         */
+        protected JComponent bind(EditableCustomSector editable) {
+            this.editable = editable;
+            CustomSector sector = editable.sector;
+            debouncer.setEnabled(false);
+            if (sector != null) {
+                textField.setText(sector.getName() != null ? sector.getName() : "Text");
+                latTextField.setText(String.valueOf(Math.min(sector.getLat1(), sector.getLat2())));
+                lonTextField.setText(String.valueOf(Math.min(sector.getLon1(), sector.getLon2())));
+                latRadTextField.setText(String.valueOf(Math.abs(sector.getLat2() - sector.getLat1())));
+                lonRadTextField.setText(String.valueOf(Math.abs(sector.getLon2() - sector.getLon1())));
+            }
+            FieldDebouncer.setValid(latTextField, true);
+            FieldDebouncer.setValid(lonTextField, true);
+            FieldDebouncer.setValid(latRadTextField, true);
+            FieldDebouncer.setValid(lonRadTextField, true);
+            debouncer.setEnabled(true);
+            return guiComp;
+        }
+
+        /**
+         * Apply a field to the bound sector, showing whether it holds a valid value.
+         * @param field the field.
+         */
+        protected void update(JTextField field) {
+            if (editable != null) {
+                FieldDebouncer.setValid(field, editable.applyField(getCommand(field), field));
+            }
+        }
+
+        /**
+         * Get the command of a field.
+         * @param field the field.
+         * @return the command the field sends.
+         */
+        protected String getCommand(JTextField field) {
+            if (field == latTextField) {
+                return CenterLatitudeCommand;
+            } else if (field == lonTextField) {
+                return CenterLongitudeCommand;
+            } else if (field == latRadTextField) {
+                return LatitudeRadiusCommand;
+            } else if (field == lonRadTextField) {
+                return LongitudeRadiusCommand;
+            }
+            return NameFieldCommand;
+        }
+
+        /**
+         * Regenerate the bound sector once its fields are applied.
+         */
+        protected void updated() {
+            if (editable != null) {
+                editable.regenerateInBackground();
+            }
+        }
+
+        /**
+         * Apply a field to the bound sector when Enter is pressed in it.
+         * @param e event from the fields.
+         */
+        @Override
+        public void actionPerformed(ActionEvent e) {
+            update((JTextField) e.getSource());
+            if (e.getSource() != textField) {
+                updated();
+            }
+        }
+    }
+
+    /**
+     * Parser of the values typed in the fields, used on the event dispatch thread.
+     */
+    protected static final DecimalParser parser = new DecimalParser();
+
+    /**
+     * Method for applying changes from the GUI fields to the sector.
+     * @param e event this class listens to, i.e. changes in GUI fields.
+     */
+    public void actionPerformed(ActionEvent e) {
+        Object source = e.getSource();
+        String command = e.getActionCommand();
+        if (source instanceof JTextField && applyField(command, (JTextField) source)
+                && !Objects.equals(command, NameFieldCommand)) {
+            regenerateInBackground();
+        }
+    }
+
+    /**
+     * Apply the text of a field to the sector. The sector is left unchanged if the text isn't a valid value, and the
+     * sector is not regenerated.
+     * @param command command of the field.
+     * @param field the field.
+     * @return true if the text is valid.
+     */
+    protected boolean applyField(String command, JTextField field) {
+        if (sector == null) {
+            return false;
+        }
+        if (Objects.equals(command, NameFieldCommand)) {
+            sector.setName(field.getText());
+            return true;
+        }
+        double value = parser.parse(field.getDocument());
+        if (Objects.equals(command, CenterLatitudeCommand)) {
+            if (!(Math.abs(value) < 90)) {
+                return false;
+            }
+            double latRad = Math.abs(sector.getLat2() - sector.getLat1());
+            sector.setLat1(value);
+            sector.setLat2(value + latRad);
+        } else if (Objects.equals(command, CenterLongitudeCommand)) {
+            if (!(Math.abs(value) < 180)) {
+                return false;
+            }
+            double lonRad = Math.abs(sector.getLon2()  - sector.getLon1());
+            sector.setLon1(value);
+            sector.setLon2(value + lonRad);
+        } else if (Objects.equals(command, LatitudeRadiusCommand)) {
+            if (!(value > 0 && value < 90)) {
+                return false;
+            }
+            sector.setLat2(Math.min(sector.getLat1() + value, 90));
+        } else if (Objects.equals(command, LongitudeRadiusCommand)) {
+            if (!(value > 0 && value < 180)) {
+                return false;
+            }
+            sector.setLon2(Math.min(sector.getLon1() + value, 180));
+        }
+        return true;
+    }
+
+    /**
+     * Regenerate the sector on a background thread, and repaint once it is done.
+     */
+    protected void regenerateInBackground() {
+        BackgroundRegenerator.regenerate(sector, projection, this::repaint);
+    }
+}
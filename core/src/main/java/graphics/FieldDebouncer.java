@@ -0,0 +1,151 @@
+package graphics;
+
+import javax.swing.*;
+import javax.swing.event.DocumentEvent;
+import javax.swing.event.DocumentListener;
+import javax.swing.text.Document;
+import java.awt.*;
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
+import java.util.Arrays;
+import java.util.function.Consumer;
+
+/**
+ * Listener of the documents of text fields, applying the typed text at most once per frame.
+ * <p>The first change of a field starts a timer of one frame, the changes made until it fires being coalesced, so
+ * the update of the graphic follows the typing without running on each key stroke. When the timer fires, the changed
+ * fields are handed over to the update one by one, and the completion is run once after them. Changes made while
+ * the debouncer is disabled, such as the filling of the fields with the values of a graphic, are ignored.</p>
+ */
+public class FieldDebouncer implements DocumentListener, ActionListener {
+
+    /**
+     * Delay of the updates, in milliseconds: one frame at 60 frames per second.
+     */
+    public static final int FRAME_DELAY = 16;
+
+    /**
+     * Color of the text of a field which doesn't hold a valid value.
+     */
+    public static final Color INVALID_FOREGROUND = Color.RED;
+
+    /**
+     * Fields listened to.
+     */
+    protected final JTextField[] fields;
+
+    /**
+     * Whether each field has changed since the last update.
+     */
+    protected final boolean[] changed;
+
+    /**
+     * Update called with each changed field.
+     */
+    protected final Consumer<JTextField> update;
+
+    /**
+     * Completion run after the changed fields have been updated.
+     */
+    protected final Runnable completion;
+
+    /**
+     * Timer of the next update.
+     */
+    protected final Timer timer = new Timer(FRAME_DELAY, this);
+
+    /**
+     * Whether the changes of the fields are listened to.
+     */
+    protected boolean enabled = true;
+
+    /**
+     * Create the debouncer and start listening to the fields.
+     * @param update update called with each changed field.
+     * @param completion completion run after the changed fields have been updated.
+     * @param fields fields listened to.
+     */
+    public FieldDebouncer(Consumer<JTextField> update, Runnable completion, JTextField... fields) {
+        this.fields = fields;
+        this.changed = new boolean[fields.length];
+        this.update = update;
+        this.completion = completion;
+        timer.setRepeats(false);
+        for (JTextField field : fields) {
+            field.getDocument().addDocumentListener(this);
+        }
+    }
+
+    /**
+     * Set whether the changes of the fields are listened to. Disabling the debouncer also drops the pending changes.
+     * @param enabled true to listen to the changes.
+     */
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+        if (!enabled) {
+            timer.stop();
+            Arrays.fill(changed, false);
+        }
+    }
+
+    /**
+     * Show whether a field holds a valid value, by the color of its text.
+     * @param field the field.
+     * @param valid true if the value is valid.
+     */
+    public static void setValid(JTextField field, boolean valid) {
+        field.setForeground(valid ? UIManager.getColor("TextField.foreground") : INVALID_FOREGROUND);
+    }
+
+    /**
+     * Remember the field of the changed document and start the timer if it isn't running.
+     * @param document the changed document.
+     */
+    protected void changed(Document document) {
+        if (!enabled) {
+            return;
+        }
+        for (int i = 0; i < fields.length; i++) {
+            if (fields[i].getDocument() == document) {
+                changed[i] = true;
+            }
+        }
+        if (!timer.isRunning()) {
+            timer.start();
+        }
+    }
+
+    @Override
+    public void insertUpdate(DocumentEvent e) {
+        changed(e.getDocument());
+    }
+
+    @Override
+    public void removeUpdate(DocumentEvent e) {
+        changed(e.getDocument());
+    }
+
+    @Override
+    public void changedUpdate(DocumentEvent e) {
+        // attribute changes don't change the text
+    }
+
+    /**
+     * Update the changed fields when the timer fires.
+     * @param e event of the timer.
+     */
+    @Override
+    public void actionPerformed(ActionEvent e) {
+        boolean any = false;
+        for (int i = 0; i < fields.length; i++) {
+            if (changed[i]) {
+                changed[i] = false;
+                any = true;
+                update.accept(fields[i]);
+            }
+        }
+        if (any) {
+            completion.run();
+        }
+    }
+}
@@ -0,0 +1,101 @@
+package graphics;
+
+import com.bbn.openmap.proj.Projection;
+
+import java.awt.*;
+import java.awt.geom.GeneralPath;
+
+/**
+ * State of the generation of a graphic: the version of its geometry, and the version and projection its current
+ * shape has been generated for, so the graphic is not generated again for the same projection until its geometry
+ * changes. The shapes generated are also kept in the {@link ProjectedShapeCache}, for the graphic to go back to a
+ * previous projection without being generated again.
+ */
+public class GenerationState {
+
+    /**
+     * Version of the geometry of the graphic, increased each time the graphic needs to be generated again.
+     */
+    protected int geometryVersion;
+
+    /**
+     * Version of the geometry the current shape has been generated from.
+     */
+    protected int generatedVersion;
+
+    /**
+     * Identifier of the projection the current shape has been generated for, null if it has not been generated.
+     */
+    protected String generatedProjection;
+
+    /**
+     * Get the version of the geometry of the graphic.
+     * @return the version.
+     */
+    public int getVersion() {
+        return geometryVersion;
+    }
+
+    /**
+     * Record a change of the geometry of the graphic, which makes its generated shapes obsolete.
+     */
+    public void changed() {
+        geometryVersion++;
+    }
+
+    /**
+     * Check whether the current shape of the graphic has been generated from the current geometry for the projection.
+     * @param shape current shape of the graphic, null if it has none.
+     * @param proj the projection.
+     * @return true if generating the graphic again would produce the same shape.
+     */
+    public boolean isGenerated(Shape shape, Projection proj) {
+        return shape != null && generatedVersion == geometryVersion
+                && proj.getProjectionID().equals(generatedProjection);
+    }
+
+    /**
+     * Record that the current shape of the graphic has been generated from the current geometry for the projection,
+     * and keep it in the cache.
+     * @param graphic the graphic.
+     * @param proj the projection.
+     * @param shape the generated shape.
+     * @param label location of the label of the graphic, or null if it is placed on the shape.
+     */
+    public void setGenerated(Object graphic, Projection proj, GeneralPath shape, Point label) {
+        setGenerated(graphic, proj, shape, label, null, null);
+    }
+
+    /**
+     * Record that the current shape and projected points of a poly have been generated from the current geometry for
+     * the projection, and keep them in the cache.
+     * @param graphic the graphic.
+     * @param proj the projection.
+     * @param shape the generated shape.
+     * @param label location of the label of the graphic, or null if it is placed on the shape.
+     * @param xpoints projected x coordinates of the parts of the poly.
+     * @param ypoints projected y coordinates of the parts of the poly.
+     */
+    public void setGenerated(Object graphic, Projection proj, GeneralPath shape, Point label, float[][] xpoints,
+                             float[][] ypoints) {
+        generatedVersion = geometryVersion;
+        generatedProjection = proj.getProjectionID();
+        ProjectedShapeCache.getInstance().put(graphic, geometryVersion, proj, shape, label, xpoints, ypoints);
+    }
+
+    /**
+     * Find the shape the current geometry of the graphic has been generated into for the projection in the cache. If
+     * it is found, the graphic is expected to take it as its current shape.
+     * @param graphic the graphic.
+     * @param proj the projection.
+     * @return the cached shape, or null if it isn't in the cache.
+     */
+    public ProjectedShapeCache.Projected restore(Object graphic, Projection proj) {
+        ProjectedShapeCache.Projected projected = ProjectedShapeCache.getInstance().get(graphic, geometryVersion, proj);
+        if (projected != null) {
+            generatedVersion = geometryVersion;
+            generatedProjection = proj.getProjectionID();
+        }
+        return projected;
+    }
+}
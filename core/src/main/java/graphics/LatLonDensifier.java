@@ -0,0 +1,223 @@
+package graphics;
+
+import com.bbn.openmap.omGraphics.OMGraphicConstants;
+import com.bbn.openmap.proj.GeoProj;
+import com.bbn.openmap.proj.GreatCircle;
+
+import java.awt.geom.Point2D;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Densification of the edges of a graphic made of lat/lon points into great circle or rhumb lines, kept per line
+ * type and number of segments until the geometry of the graphic changes, so generating the graphic for another
+ * projection only forwards the dense points as straight lines.
+ * <p>The number of segments of the longest edge is chosen for the projection so that a segment is at most
+ * SEGMENT_PIXELS long, rounded up to a power of 2 so a zoom in or out by less than a factor 2 finds the points
+ * already densified, and capped at MAX_SEGMENTS. Every other edge gets segments in proportion to its length. A graphic
+ * with a number of segments set uses it for the longest edge instead.</p>
+ * <p>Edges are open, the closing edge of a polygon being drawn straight by the projection, as OpenMap does.</p>
+ */
+public class LatLonDensifier {
+
+    /**
+     * Maximal length in pixels of a segment of a densified edge.
+     */
+    protected static final double SEGMENT_PIXELS = 2.0;
+
+    /**
+     * Maximal number of segments of an edge, as OpenMap uses for great circle lines.
+     */
+    protected static final int MAX_SEGMENTS = 512;
+
+    /**
+     * Number of densifications kept, for as many zoom levels.
+     */
+    protected static final int MAX_ENTRIES = 4;
+
+    /**
+     * Latitude in radians the rhumb lines are clamped to, the Mercator ordinate being infinite at the poles.
+     */
+    protected static final double MAX_RHUMB_LAT = Math.toRadians(89.999);
+
+    /**
+     * Points the densifications are made of, null if none.
+     */
+    protected double[] source;
+
+    /**
+     * Version of the geometry of the graphic the densifications are made of.
+     */
+    protected int version;
+
+    /**
+     * Densified points by line type and number of segments, in least recently used order.
+     */
+    protected final Map<Long, double[]> densified = new LinkedHashMap<Long, double[]>(8, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Long, double[]> eldest) {
+            return size() > MAX_ENTRIES;
+        }
+    };
+
+    /**
+     * Get the points of the graphic with its edges densified, densifying them if they haven't been for this line
+     * type and number of segments since the geometry of the graphic changed.
+     * @param llpts lat/lon points of the graphic, in radians.
+     * @param version version of the geometry of the graphic.
+     * @param lineType LINETYPE_GREATCIRCLE or LINETYPE_RHUMB.
+     * @param segments number of segments of the longest edge.
+     * @return the densified lat/lon points, in radians.
+     */
+    public synchronized double[] get(double[] llpts, int version, int lineType, int segments) {
+        if (llpts != source || version != this.version) {
+            densified.clear();
+            source = llpts;
+            this.version = version;
+        }
+        Long key = ((long) lineType << 32) | segments;
+        double[] points = densified.get(key);
+        if (points == null) {
+            points = densify(llpts, lineType, segments);
+            densified.put(key, points);
+        }
+        return points;
+    }
+
+    /**
+     * Get the number of segments of the longest edge of the points for the projection, so no segment is longer than
+     * SEGMENT_PIXELS.
+     * @param proj the projection.
+     * @param llpts lat/lon points, in radians.
+     * @param nsegs number of segments set on the graphic, used if positive.
+     * @return number of segments, a power of 2 unless set on the graphic.
+     */
+    public static int getSegments(GeoProj proj, double[] llpts, int nsegs) {
+        if (nsegs > 0) {
+            return nsegs;
+        }
+        double maxLength = getMaxEdgeLength(llpts);
+        if (maxLength == 0) {
+            return 1;
+        }
+        double required = 1;
+        Point2D p1 = proj.forward(llpts[0], llpts[1], new Point2D.Double(), true);
+        Point2D p2 = new Point2D.Double();
+        for (int i = 2; i < llpts.length; i += 2) {
+            proj.forward(llpts[i], llpts[i + 1], p2, true);
+            double length = edgeLength(llpts, i - 2);
+            if (length > 0) {
+                // the segments of this edge are its part of those of the longest edge
+                required = Math.max(required, p1.distance(p2) / SEGMENT_PIXELS * maxLength / length);
+            }
+            Point2D swap = p1;
+            p1 = p2;
+            p2 = swap;
+        }
+        int segments = 1;
+        while (segments < required && segments < MAX_SEGMENTS) {
+            segments <<= 1;
+        }
+        return segments;
+    }
+
+    /**
+     * Densify the edges of the points.
+     * @param llpts lat/lon points, in radians.
+     * @param lineType LINETYPE_GREATCIRCLE or LINETYPE_RHUMB.
+     * @param segments number of segments of the longest edge.
+     * @return the densified lat/lon points, in radians.
+     */
+    public static double[] densify(double[] llpts, int lineType, int segments) {
+        double maxLength = getMaxEdgeLength(llpts);
+        if (llpts.length < 4 || maxLength == 0) {
+            return llpts;
+        }
+        double[] points = new double[llpts.length];
+        int count = 0;
+        for (int i = 0; i + 2 < llpts.length; i += 2) {
+            int n = Math.max(1, (int) Math.ceil(segments * edgeLength(llpts, i) / maxLength));
+            if (count + 2 * n + 2 > points.length) {
+                points = Arrays.copyOf(points, Math.max(points.length * 2, count + 2 * n + 2));
+            }
+            if (n == 1) {
+                points[count++] = llpts[i];
+                points[count++] = llpts[i + 1];
+            } else if (lineType == OMGraphicConstants.LINETYPE_RHUMB) {
+                count = rhumbLine(llpts[i], llpts[i + 1], llpts[i + 2], llpts[i + 3], n, points, count);
+            } else {
+                double[] edge = GreatCircle.greatCircle(llpts[i], llpts[i + 1], llpts[i + 2], llpts[i + 3], n, false);
+                System.arraycopy(edge, 0, points, count, edge.length);
+                count += edge.length;
+            }
+        }
+        points[count++] = llpts[llpts.length - 2];
+        points[count++] = llpts[llpts.length - 1];
+        return Arrays.copyOf(points, count);
+    }
+
+    /**
+     * Interpolate the points of a rhumb line, which is straight in the longitude and the Mercator ordinate.
+     * @param lat1 latitude of the start, in radians.
+     * @param lon1 longitude of the start, in radians.
+     * @param lat2 latitude of the end, in radians.
+     * @param lon2 longitude of the end, in radians.
+     * @param n number of segments.
+     * @param points array the points are written into, the end excluded.
+     * @param count index the points are written from.
+     * @return index after the last point written.
+     */
+    protected static int rhumbLine(double lat1, double lon1, double lat2, double lon2, int n, double[] points,
+                                   int count) {
+        double psi1 = mercatorOrdinate(lat1);
+        double psi2 = mercatorOrdinate(lat2);
+        double dLon = lon2 - lon1;
+        // the shorter way around
+        if (dLon > Math.PI) {
+            dLon -= 2 * Math.PI;
+        } else if (dLon < -Math.PI) {
+            dLon += 2 * Math.PI;
+        }
+        for (int k = 0; k < n; k++) {
+            double f = (double) k / n;
+            double psi = psi1 + (psi2 - psi1) * f;
+            points[count++] = 2 * Math.atan(Math.exp(psi)) - Math.PI / 2;
+            points[count++] = lon1 + dLon * f;
+        }
+        return count;
+    }
+
+    /**
+     * Get the Mercator ordinate of a latitude.
+     * @param lat latitude in radians.
+     * @return the ordinate.
+     */
+    protected static double mercatorOrdinate(double lat) {
+        lat = Math.max(-MAX_RHUMB_LAT, Math.min(MAX_RHUMB_LAT, lat));
+        return Math.log(Math.tan(Math.PI / 4 + lat / 2));
+    }
+
+    /**
+     * Get the length of the longest edge of the points.
+     * @param llpts lat/lon points, in radians.
+     * @return length in radians of arc.
+     */
+    protected static double getMaxEdgeLength(double[] llpts) {
+        double maxLength = 0;
+        for (int i = 0; i + 2 < llpts.length; i += 2) {
+            maxLength = Math.max(maxLength, edgeLength(llpts, i));
+        }
+        return maxLength;
+    }
+
+    /**
+     * Get the great circle length of an edge.
+     * @param llpts lat/lon points, in radians.
+     * @param i index of the start of the edge.
+     * @return length in radians of arc.
+     */
+    protected static double edgeLength(double[] llpts, int i) {
+        return GreatCircle.sphericalDistance(llpts[i], llpts[i + 1], llpts[i + 2], llpts[i + 3]);
+    }
+}
@@ -0,0 +1,585 @@
+package graphics;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+
+/**
+ * Index of objects by name, answering prefix, substring and fuzzy queries. Names are compared ignoring case.
+ * <p>Distinct names are kept in a sorted map for exact and prefix queries. Each name is also split into trigrams,
+ * the posting list of a trigram holding the names it appears in. A substring query only checks the names in the
+ * shortest posting list of its trigrams, and a fuzzy query counts the trigrams each name shares with the query,
+ * only computing the edit distance of the names sharing enough of them.</p>
+ * <p>Removed names leave stale entries in the posting lists, which are skipped, and the lists are rebuilt once most
+ * of the names are stale.</p>
+ * <p>A name given to a single object keeps the object itself, and a name shared by several objects keeps them in a
+ * hash set, so that the many unnamed graphics sharing their default name are added and removed in constant time.</p>
+ * @param <T> type of the indexed objects.
+ */
+public class NameIndex<T> {
+
+    /**
+     * Length of the n-grams of the names.
+     */
+    protected static final int GRAM = 3;
+
+    /**
+     * Identifiers of the distinct names, sorted by name.
+     */
+    protected final NavigableMap<String, Integer> ids = new TreeMap<>();
+
+    /**
+     * Distinct names by identifier, null for removed names.
+     */
+    protected final List<String> names = new ArrayList<>();
+
+    /**
+     * Lengths of the names by identifier, -1 for removed names, checked before the names in fuzzy queries.
+     */
+    protected int[] lengths = new int[16];
+
+    /**
+     * Objects having each name, by identifier of the name: the object itself for a name of a single object, a
+     * {@link Bucket} for a name shared by several objects.
+     */
+    protected final List<Object> values = new ArrayList<>();
+
+    /**
+     * Posting lists of the trigrams.
+     */
+    protected final GramTable postings = new GramTable();
+
+    /**
+     * Number of removed names still in the posting lists.
+     */
+    protected int removed = 0;
+
+    /**
+     * Number of trigrams shared with the query, by identifier of the name, reused between fuzzy queries.
+     */
+    protected int[] sharedGrams = new int[0];
+
+    /**
+     * Identifiers of the names sharing trigrams with the query, reused between fuzzy queries.
+     */
+    protected int[] touched = new int[16];
+
+    /**
+     * Rows of the distance matrix, reused between distance computations.
+     */
+    protected int[] previousRow = new int[16];
+    protected int[] currentRow = new int[16];
+
+    /**
+     * Add an object under a name. Adding the same object twice under a name has no effect.
+     * @param name the name, objects without a name are not indexed.
+     * @param value the object.
+     */
+    public synchronized void add(String name, T value) {
+        if (name == null) {
+            return;
+        }
+        String key = normalize(name);
+        Integer id = ids.get(key);
+        if (id == null) {
+            int newId = names.size();
+            ids.put(key, newId);
+            names.add(key);
+            values.add(value);
+            if (newId == lengths.length) {
+                lengths = Arrays.copyOf(lengths, newId * 2);
+            }
+            lengths[newId] = key.length();
+            for (long gram : grams(key)) {
+                postings.get(gram, true).add(newId);
+            }
+            return;
+        }
+        Object objects = values.get(id);
+        if (objects instanceof Bucket) {
+            ((Bucket) objects).add(value);
+        } else if (!objects.equals(value)) {
+            Bucket bucket = new Bucket();
+            bucket.add(objects);
+            bucket.add(value);
+            values.set(id, bucket);
+        }
+    }
+
+    /**
+     * Remove an object from a name.
+     * @param name the name.
+     * @param value the object.
+     * @return true if the object was indexed under the name.
+     */
+    public synchronized boolean remove(String name, T value) {
+        if (name == null) {
+            return false;
+        }
+        String key = normalize(name);
+        Integer id = ids.get(key);
+        if (id == null) {
+            return false;
+        }
+        Object objects = values.get(id);
+        if (objects instanceof Bucket) {
+            Bucket bucket = (Bucket) objects;
+            if (!bucket.remove(value)) {
+                return false;
+            }
+            if (bucket.size() == 1) {
+                values.set(id, bucket.iterator().next());
+            }
+        } else if (objects.equals(value)) {
+            ids.remove(key);
+            names.set(id, null);
+            values.set(id, null);
+            lengths[id] = -1;
+            if (++removed > names.size() / 2) {
+                compact();
+            }
+        } else {
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Remove all the objects.
+     */
+    public synchronized void clear() {
+        ids.clear();
+        names.clear();
+        values.clear();
+        postings.clear();
+        removed = 0;
+    }
+
+    /**
+     * Get the number of distinct names.
+     * @return number of names.
+     */
+    public synchronized int size() {
+        return ids.size();
+    }
+
+    /**
+     * Find the objects which names match the query, the names equal to the query first, then the names starting with
+     * it, the names containing it, and finally the names within a small edit distance of it.
+     * @param query the query.
+     * @param limit maximal number of names matched.
+     * @return objects of the matched names, in the order of the names.
+     */
+    public synchronized List<T> search(String query, int limit) {
+        List<T> found = new ArrayList<>();
+        if (query == null || query.trim().isEmpty() || limit <= 0) {
+            return found;
+        }
+        String key = normalize(query.trim());
+        BitSet matched = new BitSet();
+        int[] count = {0};
+        Integer exact = ids.get(key);
+        if (exact != null) {
+            collect(exact, matched, found, count);
+        }
+        for (Map.Entry<String, Integer> entry : ids.tailMap(key, false).entrySet()) {
+            if (count[0] >= limit || !entry.getKey().startsWith(key)) {
+                break;
+            }
+            collect(entry.getValue(), matched, found, count);
+        }
+        if (count[0] < limit) {
+            searchSubstring(key, limit, matched, found, count);
+        }
+        if (count[0] < limit) {
+            searchFuzzy(key, limit, matched, found, count);
+        }
+        return found;
+    }
+
+    /**
+     * Find the names containing the query.
+     * @param key normalized query.
+     * @param limit maximal number of names matched.
+     * @param matched names already matched.
+     * @param found objects of the matched names.
+     * @param count number of names matched, updated.
+     */
+    protected void searchSubstring(String key, int limit, BitSet matched, List<T> found, int[] count) {
+        long[] grams = grams(key);
+        if (grams.length == 0) {
+            // too short for trigrams, checking the names one by one
+            for (int id = 0; id < names.size() && count[0] < limit; id++) {
+                String name = names.get(id);
+                if (name != null && !matched.get(id) && name.contains(key)) {
+                    collect(id, matched, found, count);
+                }
+            }
+            return;
+        }
+        Postings shortest = null;
+        for (long gram : grams) {
+            Postings list = postings.get(gram);
+            if (list == null) {
+                return;
+            }
+            if (shortest == null || list.size < shortest.size) {
+                shortest = list;
+            }
+        }
+        for (int i = 0; i < shortest.size && count[0] < limit; i++) {
+            int id = shortest.ids[i];
+            String name = names.get(id);
+            if (name != null && !matched.get(id) && name.contains(key)) {
+                collect(id, matched, found, count);
+            }
+        }
+    }
+
+    /**
+     * Find the names within an edit distance of the query, which is 1 for short queries and 2 for longer ones.
+     * @param key normalized query.
+     * @param limit maximal number of names matched.
+     * @param matched names already matched.
+     * @param found objects of the matched names.
+     * @param count number of names matched, updated.
+     */
+    protected void searchFuzzy(String key, int limit, BitSet matched, List<T> found, int[] count) {
+        int maxDistance = key.length() <= 4 ? 1 : 2;
+        long[] grams = grams(key);
+        // each edit destroys at most GRAM trigrams of the query
+        int minShared = grams.length - GRAM * maxDistance;
+        List<int[]> candidates = new ArrayList<>();
+        if (minShared <= 0) {
+            for (int id = 0; id < names.size(); id++) {
+                if (Math.abs(lengths[id] - key.length()) <= maxDistance && !matched.get(id)) {
+                    addCandidate(candidates, id, key, maxDistance);
+                }
+            }
+        } else {
+            if (sharedGrams.length < names.size()) {
+                sharedGrams = new int[names.size()];
+            }
+            int touchedCount = 0;
+            for (long gram : grams) {
+                Postings list = postings.get(gram);
+                if (list == null) {
+                    continue;
+                }
+                for (int i = 0; i < list.size; i++) {
+                    int id = list.ids[i];
+                    // names too long or too short can't be within the distance
+                    if (Math.abs(lengths[id] - key.length()) > maxDistance) {
+                        continue;
+                    }
+                    if (sharedGrams[id]++ == 0) {
+                        if (touchedCount == touched.length) {
+                            touched = Arrays.copyOf(touched, touchedCount * 2);
+                        }
+                        touched[touchedCount++] = id;
+                    }
+                }
+            }
+            for (int t = 0; t < touchedCount; t++) {
+                int id = touched[t];
+                if (sharedGrams[id] >= minShared && !matched.get(id)) {
+                    addCandidate(candidates, id, key, maxDistance);
+                }
+                sharedGrams[id] = 0;
+            }
+        }
+        // closest names first
+        candidates.sort((a, b) -> a[1] != b[1] ? a[1] - b[1] : a[0] - b[0]);
+        for (int[] candidate : candidates) {
+            if (count[0] >= limit) {
+                break;
+            }
+            collect(candidate[0], matched, found, count);
+        }
+    }
+
+    /**
+     * Add a name to the candidates of a fuzzy query if it is within the edit distance.
+     * @param candidates identifiers and distances of the candidates.
+     * @param id identifier of the name.
+     * @param key normalized query.
+     * @param maxDistance maximal edit distance.
+     */
+    protected void addCandidate(List<int[]> candidates, int id, String key, int maxDistance) {
+        int distance = distance(names.get(id), key, maxDistance);
+        if (distance <= maxDistance) {
+            candidates.add(new int[]{id, distance});
+        }
+    }
+
+    /**
+     * Add the objects of a name to the result, unless the name has already been matched.
+     * @param id identifier of the name.
+     * @param matched names already matched.
+     * @param found objects of the matched names.
+     * @param count number of names matched, updated.
+     */
+    protected void collect(int id, BitSet matched, List<T> found, int[] count) {
+        if (!matched.get(id)) {
+            matched.set(id);
+            found.addAll(objects(id));
+            count[0]++;
+        }
+    }
+
+    /**
+     * Get the objects having a name.
+     * @param id identifier of the name.
+     * @return the objects.
+     */
+    @SuppressWarnings("unchecked")
+    protected Collection<T> objects(int id) {
+        // only objects of type T are added
+        Object objects = values.get(id);
+        return objects instanceof Bucket ? (Collection<T>) objects : Collections.singletonList((T) objects);
+    }
+
+    /**
+     * Rebuild the posting lists without the removed names. The objects of each name are kept as they are.
+     */
+    protected void compact() {
+        List<String> oldNames = new ArrayList<>(names);
+        List<Object> oldValues = new ArrayList<>(values);
+        clear();
+        for (int id = 0; id < oldNames.size(); id++) {
+            String key = oldNames.get(id);
+            if (key != null) {
+                int newId = names.size();
+                ids.put(key, newId);
+                names.add(key);
+                values.add(oldValues.get(id));
+                lengths[newId] = key.length();
+                for (long gram : grams(key)) {
+                    postings.get(gram, true).add(newId);
+                }
+            }
+        }
+    }
+
+    /**
+     * Normalize a name for comparison.
+     * @param name the name.
+     * @return the name in lower case.
+     */
+    protected static String normalize(String name) {
+        return name.toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Get the distinct trigrams of a normalized name, each packed into a long.
+     * @param key normalized name.
+     * @return the trigrams.
+     */
+    protected static long[] grams(String key) {
+        if (key.length() < GRAM) {
+            return new long[0];
+        }
+        long[] grams = new long[key.length() - GRAM + 1];
+        int size = 0;
+        for (int i = 0; i < grams.length; i++) {
+            long gram = ((long) key.charAt(i) << 32) | ((long) key.charAt(i + 1) << 16) | key.charAt(i + 2);
+            boolean repeated = false;
+            for (int j = 0; j < size && !repeated; j++) {
+                repeated = grams[j] == gram;
+            }
+            if (!repeated) {
+                grams[size++] = gram;
+            }
+        }
+        return size == grams.length ? grams : Arrays.copyOf(grams, size);
+    }
+
+    /**
+     * Compute the edit distance between two strings, giving up once it exceeds the maximum. Only the cells of the
+     * distance matrix within the maximum of the diagonal are computed.
+     * @param a first string.
+     * @param b second string.
+     * @param maxDistance maximal distance of interest.
+     * @return the distance, or maxDistance + 1 if it is larger.
+     */
+    protected int distance(String a, String b, int maxDistance) {
+        int limit = maxDistance + 1;
+        if (Math.abs(a.length() - b.length()) > maxDistance) {
+            return limit;
+        }
+        if (previousRow.length <= b.length()) {
+            previousRow = new int[b.length() + 1];
+            currentRow = new int[b.length() + 1];
+        }
+        int[] previous = previousRow;
+        int[] current = currentRow;
+        for (int j = 0; j <= b.length(); j++) {
+            previous[j] = Math.min(j, limit);
+        }
+        for (int i = 1; i <= a.length(); i++) {
+            int from = Math.max(1, i - maxDistance);
+            int to = Math.min(b.length(), i + maxDistance);
+            current[0] = Math.min(i, limit);
+            if (from > 1) {
+                current[from - 1] = limit;
+            }
+            int rowMin = current[0];
+            for (int j = from; j <= to; j++) {
+                int cost = a.charAt(i - 1) == b.charAt(j - 1) ? 0 : 1;
+                int value = Math.min(Math.min(current[j - 1] + 1, previous[j] + 1), previous[j - 1] + cost);
+                current[j] = Math.min(value, limit);
+                rowMin = Math.min(rowMin, current[j]);
+            }
+            if (to < b.length()) {
+                current[to + 1] = limit;
+            }
+            if (rowMin > maxDistance) {
+                return limit;
+            }
+            int[] swap = previous;
+            previous = current;
+            current = swap;
+        }
+        return previous[b.length()];
+    }
+
+    /**
+     * Objects sharing a name, in the order they were added.
+     */
+    protected static class Bucket extends LinkedHashSet<Object> {
+        private static final long serialVersionUID = 1L;
+    }
+
+    /**
+     * Posting lists by trigram, in an open addressing hash table, so that the trigrams of a name are looked up
+     * without boxing them.
+     */
+    protected static class GramTable {
+
+        /**
+         * Trigrams of the slots.
+         */
+        protected long[] grams = new long[1024];
+
+        /**
+         * Posting lists of the slots, null for the free slots.
+         */
+        protected Postings[] lists = new Postings[1024];
+
+        /**
+         * Number of trigrams.
+         */
+        protected int size = 0;
+
+        /**
+         * Get the posting list of a trigram.
+         * @param gram the trigram.
+         * @param create whether to create the list of a new trigram.
+         * @return the posting list, null if the trigram is new and the list isn't created.
+         */
+        protected Postings get(long gram, boolean create) {
+            int mask = lists.length - 1;
+            int slot = hash(gram) & mask;
+            while (lists[slot] != null) {
+                if (grams[slot] == gram) {
+                    return lists[slot];
+                }
+                slot = (slot + 1) & mask;
+            }
+            if (!create) {
+                return null;
+            }
+            Postings list = new Postings();
+            grams[slot] = gram;
+            lists[slot] = list;
+            // kept at most half full
+            if (++size > lists.length / 2) {
+                grow();
+            }
+            return list;
+        }
+
+        /**
+         * Get the posting list of a trigram.
+         * @param gram the trigram.
+         * @return the posting list, null if there is none.
+         */
+        protected Postings get(long gram) {
+            return get(gram, false);
+        }
+
+        /**
+         * Remove all the posting lists.
+         */
+        protected void clear() {
+            Arrays.fill(lists, null);
+            size = 0;
+        }
+
+        /**
+         * Double the number of slots.
+         */
+        protected void grow() {
+            long[] oldGrams = grams;
+            Postings[] oldLists = lists;
+            grams = new long[oldGrams.length * 2];
+            lists = new Postings[oldLists.length * 2];
+            int mask = lists.length - 1;
+            for (int i = 0; i < oldLists.length; i++) {
+                if (oldLists[i] != null) {
+                    int slot = hash(oldGrams[i]) & mask;
+                    while (lists[slot] != null) {
+                        slot = (slot + 1) & mask;
+                    }
+                    grams[slot] = oldGrams[i];
+                    lists[slot] = oldLists[i];
+                }
+            }
+        }
+
+        /**
+         * Spread the bits of a trigram.
+         * @param gram the trigram.
+         * @return the hash code.
+         */
+        protected static int hash(long gram) {
+            long h = gram * 0x9E3779B97F4A7C15L;
+            return (int) (h ^ (h >>> 32));
+        }
+    }
+
+    /**
+     * Growable list of name identifiers.
+     */
+    protected static class Postings {
+
+        /**
+         * Identifiers of the names.
+         */
+        protected int[] ids = new int[4];
+
+        /**
+         * Number of identifiers.
+         */
+        protected int size = 0;
+
+        /**
+         * Add an identifier.
+         * @param id identifier of the name.
+         */
+        protected void add(int id) {
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, size * 2);
+            }
+            ids[size++] = id;
+        }
+    }
+}
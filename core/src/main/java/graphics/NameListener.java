@@ -0,0 +1,13 @@
+package graphics;
+
+/**
+ * Interface for objects that want to be notified when the name of a Nameable object changes.
+ */
+public interface NameListener {
+    /**
+     * Method called after the name of the object has been changed.
+     * @param source the object whose name has been changed.
+     * @param oldName the name the object had before the change.
+     */
+    void nameChanged(Nameable source, String oldName);
+}
@@ -0,0 +1,73 @@
+package graphics;
+
+import java.util.Arrays;
+
+/**
+ * Listeners of the name of a {@link Nameable} object. The listeners are kept in an array copied on each change, so
+ * they can be added and removed from any thread while the object notifies them.
+ */
+public class NameListeners {
+
+    /**
+     * Array of no listeners.
+     */
+    protected static final NameListener[] NONE = new NameListener[0];
+
+    /**
+     * The listeners.
+     */
+    protected volatile NameListener[] listeners = NONE;
+
+    /**
+     * Add a listener. Adding a listener twice has no effect.
+     * @param listener the listener.
+     */
+    public synchronized void add(NameListener listener) {
+        if (listener == null || indexOf(listener) >= 0) {
+            return;
+        }
+        NameListener[] added = Arrays.copyOf(listeners, listeners.length + 1);
+        added[listeners.length] = listener;
+        listeners = added;
+    }
+
+    /**
+     * Remove a listener.
+     * @param listener the listener.
+     */
+    public synchronized void remove(NameListener listener) {
+        int index = indexOf(listener);
+        if (index < 0) {
+            return;
+        }
+        NameListener[] removed = new NameListener[listeners.length - 1];
+        System.arraycopy(listeners, 0, removed, 0, index);
+        System.arraycopy(listeners, index + 1, removed, index, removed.length - index);
+        listeners = removed;
+    }
+
+    /**
+     * Notify the listeners that the name of the object has been changed.
+     * @param source the object whose name has been changed.
+     * @param oldName the name the object had before the change.
+     */
+    public void fire(Nameable source, String oldName) {
+        for (NameListener listener : listeners) {
+            listener.nameChanged(source, oldName);
+        }
+    }
+
+    /**
+     * Find a listener.
+     * @param listener the listener.
+     * @return index of the listener, -1 if it isn't added.
+     */
+    protected int indexOf(NameListener listener) {
+        for (int i = 0; i < listeners.length; i++) {
+            if (listeners[i] == listener) {
+                return i;
+            }
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,33 @@
+package graphics;
+
+/**
+ * Interface for naming Objects.
+ */
+public interface Nameable {
+    /**
+     * Method for setting the name of the object.
+     * @param name the name to be set for the object.
+     */
+    void setName(String name);
+
+    /**
+     * Method for retrieving name of named object.
+     * @return name of the object
+     */
+    String getName();
+
+    /**
+     * Method for adding a listener to be notified each time the name of the object is changed. Objects which names
+     * don't change, or which don't notify the changes, may ignore the listeners.
+     * @param listener the listener to be notified.
+     */
+    default void addNameListener(NameListener listener) {
+    }
+
+    /**
+     * Method for removing a listener added with {@link #addNameListener(NameListener)}.
+     * @param listener the listener to stop notifying.
+     */
+    default void removeNameListener(NameListener listener) {
+    }
+}
@@ -0,0 +1,168 @@
+package graphics;
+
+import com.bbn.openmap.omGraphics.OMPoint;
+
+import java.awt.*;
+import java.util.Objects;
+
+/**
+ * Graphic standing for a cluster of points too close to each other on the screen to be told apart. It is drawn as a
+ * single circle with the number of points in it, and is named after the most common names of its points, so the name
+ * shows up as its tooltip.
+ */
+public class PointCluster extends OMPoint implements Nameable {
+
+    /**
+     * Alpha of the fill color of the circle.
+     */
+    protected static final int FILL_ALPHA = 0x60;
+
+    /**
+     * Name of the cluster.
+     */
+    protected String name;
+
+    /**
+     * Listeners to be notified when the name of the cluster changes, null until one is added.
+     */
+    protected transient NameListeners nameListeners;
+
+    /**
+     * Number of points in the cluster.
+     */
+    protected final int count;
+
+    /**
+     * Create a cluster at a lat/lon position.
+     * @param lat latitude of the center of the cluster, in decimal degrees.
+     * @param lon longitude of the center of the cluster, in decimal degrees.
+     * @param count number of points in the cluster.
+     * @param color color the circle is drawn with.
+     * @param name name of the cluster.
+     */
+    public PointCluster(double lat, double lon, int count, Color color, String name) {
+        super(lat, lon, getRadius(count));
+        this.count = count;
+        this.name = name;
+        setOval(true);
+        setLinePaint(color);
+        setFillPaint(getFillColor(color));
+    }
+
+    /**
+     * Get the number of points in the cluster.
+     * @return number of points.
+     */
+    public int getCount() {
+        return count;
+    }
+
+    /**
+     * Get the radius of the circle of a cluster, which grows with the logarithm of the number of points.
+     * @param count number of points in the cluster.
+     * @return radius in pixels.
+     */
+    public static int getRadius(int count) {
+        return 8 + 2 * (31 - Integer.numberOfLeadingZeros(Math.max(1, count)));
+    }
+
+    /**
+     * Get the color the circle of a cluster is filled with.
+     * @param color color the circle is drawn with.
+     * @return the translucent fill color.
+     */
+    public static Color getFillColor(Color color) {
+        return new Color(color.getRed(), color.getGreen(), color.getBlue(), FILL_ALPHA);
+    }
+
+    /**
+     * Render the circle and the number of points.
+     * @param g Graphics context to render into.
+     */
+    @Override
+    public void render(Graphics g) {
+        super.render(g);
+        if (getShape() != null && isVisible()) {
+            Rectangle bounds = getShape().getBounds();
+            renderCount(g, (int) bounds.getCenterX(), (int) bounds.getCenterY(), count, getLinePaint());
+        }
+    }
+
+    /**
+     * Render a cluster circle without creating the graphic for it.
+     * @param g Graphics context to render into.
+     * @param x horizontal pixel location of the center.
+     * @param y vertical pixel location of the center.
+     * @param count number of points in the cluster.
+     * @param color color the circle is drawn with.
+     * @param fillColor color the circle is filled with.
+     */
+    public static void renderSymbol(Graphics g, int x, int y, int count, Color color, Color fillColor) {
+        int radius = getRadius(count);
+        g.setColor(fillColor);
+        g.fillOval(x - radius, y - radius, 2 * radius, 2 * radius);
+        g.setColor(color);
+        g.drawOval(x - radius, y - radius, 2 * radius, 2 * radius);
+        renderCount(g, x, y, count, color);
+    }
+
+    /**
+     * Render the number of points centered on the location.
+     * @param g Graphics context to render into.
+     * @param x horizontal pixel location of the center.
+     * @param y vertical pixel location of the center.
+     * @param count number of points in the cluster.
+     * @param paint paint the number is drawn with.
+     */
+    protected static void renderCount(Graphics g, int x, int y, int count, Paint paint) {
+        String text = Integer.toString(count);
+        FontMetrics metrics = g.getFontMetrics();
+        ((Graphics2D) g).setPaint(paint);
+        g.drawString(text, x - metrics.stringWidth(text) / 2, y + (metrics.getAscent() - metrics.getDescent()) / 2);
+    }
+
+    /**
+     * Set the name of the cluster.
+     * @param name the name to be set for the cluster.
+     */
+    @Override
+    public synchronized void setName(String name) {
+        String oldName = this.name;
+        this.name = name;
+        if (nameListeners != null && !Objects.equals(oldName, name)) {
+            nameListeners.fire(this, oldName);
+        }
+    }
+
+    /**
+     * Get the name of the cluster.
+     * @return the name, listing the most common names of its points.
+     */
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Add a listener to be notified each time the name of the cluster is changed.
+     * @param listener the listener to be notified.
+     */
+    @Override
+    public synchronized void addNameListener(NameListener listener) {
+        if (nameListeners == null) {
+            nameListeners = new NameListeners();
+        }
+        nameListeners.add(listener);
+    }
+
+    /**
+     * Remove a listener of the name of the cluster.
+     * @param listener the listener to stop notifying.
+     */
+    @Override
+    public synchronized void removeNameListener(NameListener listener) {
+        if (nameListeners != null) {
+            nameListeners.remove(listener);
+        }
+    }
+}
@@ -0,0 +1,584 @@
+package graphics;
+
+import com.bbn.openmap.proj.Projection;
+import com.bbn.openmap.util.Debug;
+
+import java.awt.*;
+import java.awt.geom.GeneralPath;
+import java.awt.geom.PathIterator;
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Cache of the shapes the graphics have been generated into, so going back to a projection the graphics were
+ * generated for, e.g. through the projection stack, doesn't generate them again.
+ * <p>The shapes are kept per projection, the projection being identified by its class, scale, center, rotation and
+ * size, and per graphic, along with the version of the geometry of the graphic they were generated from, so a change
+ * of the graphic makes its shapes obsolete. The graphics are weakly referenced, their shapes being dropped once they
+ * are garbage collected, or when they are removed from their layer.</p>
+ * <p>The shapes of a projection are evicted together, the least recently used projection first, when the estimated
+ * size of the cache gets over the memory budget, which is set in megabytes by the graphics.shapeCacheSize system
+ * property. A projection which shapes alone fill the budget keeps them but takes no more, so the graphics of a layer
+ * too large for the cache don't evict each other while they are generated, nor pay for estimating their shapes.</p>
+ * <p>The shapes of a projection are spread over several maps by graphic, each with its own lock, so layers generating
+ * their graphics concurrently rarely wait for each other.</p>
+ * <p>The cached shapes are shared with the graphics, which must not modify them once generated.</p>
+ */
+public class ProjectedShapeCache {
+
+    /**
+     * System property for the memory budget of the cache, in megabytes.
+     */
+    public static final String SizeProperty = "graphics.shapeCacheSize";
+
+    /**
+     * Default memory budget of the cache, in megabytes.
+     */
+    public static final int DEFAULT_SIZE = 32;
+
+    /**
+     * Estimated number of bytes taken by an entry besides the segments of its shape.
+     */
+    protected static final long ENTRY_BYTES = 160;
+
+    /**
+     * Estimated number of bytes taken by a segment of a shape: its type and up to three points of float coordinates.
+     */
+    protected static final long SEGMENT_BYTES = 25;
+
+    /**
+     * Estimated number of bytes taken by a projected point of a poly, as two floats.
+     */
+    protected static final long POINT_BYTES = 8;
+
+    /**
+     * Number of maps the shapes of a projection are spread over, a power of 2.
+     */
+    protected static final int STRIPES = 16;
+
+    /**
+     * The shared instance.
+     */
+    private static ProjectedShapeCache instance;
+
+    /**
+     * Shapes by projection identifier, in least recently used order.
+     */
+    protected final LinkedHashMap<String, Slot> slots = new LinkedHashMap<>(16, 0.75f, true);
+
+    /**
+     * Shapes of the last projection used, looked up without locking the cache, the graphics of a layer being
+     * generated for the same projection.
+     */
+    protected volatile Slot lastSlot;
+
+    /**
+     * Memory budget of the cache, in bytes.
+     */
+    protected volatile long maxBytes;
+
+    /**
+     * Estimated size of the cached shapes, in bytes.
+     */
+    protected final AtomicLong bytes = new AtomicLong();
+
+    /**
+     * Last projection a key has been made for, the graphics of a layer being generated for the same projection.
+     */
+    protected volatile ProjectionKey lastKey;
+
+    /**
+     * Create a cache.
+     * @param maxBytes memory budget in bytes.
+     */
+    public ProjectedShapeCache(long maxBytes) {
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * Get the shared instance of the cache.
+     * @return the cache.
+     */
+    public static synchronized ProjectedShapeCache getInstance() {
+        if (instance == null) {
+            instance = new ProjectedShapeCache(Integer.getInteger(SizeProperty, DEFAULT_SIZE) * 1024L * 1024L);
+        }
+        return instance;
+    }
+
+    /**
+     * Set the memory budget of the cache, evicting shapes if it is exceeded. The projections which filled the
+     * previous budget take shapes again.
+     * @param maxBytes budget in bytes, 0 to disable the cache.
+     */
+    public synchronized void setMaxBytes(long maxBytes) {
+        this.maxBytes = Math.max(0, maxBytes);
+        for (Slot slot : slots.values()) {
+            slot.full = false;
+        }
+        evict(null);
+    }
+
+    /**
+     * Get the memory budget of the cache.
+     * @return budget in bytes.
+     */
+    public long getMaxBytes() {
+        return maxBytes;
+    }
+
+    /**
+     * Get the estimated size of the cached shapes.
+     * @return size in bytes.
+     */
+    public long getBytes() {
+        return bytes.get();
+    }
+
+    /**
+     * Get the shape a graphic has been generated into for a projection.
+     * @param graphic the graphic.
+     * @param version version of the geometry of the graphic.
+     * @param proj the projection.
+     * @return the cached shape, or null if the graphic hasn't been generated for the projection since its geometry
+     * last changed.
+     */
+    public Projected get(Object graphic, int version, Projection proj) {
+        Slot slot = getSlot(getProjectionKey(proj), false);
+        return slot == null ? null : slot.get(graphic, version);
+    }
+
+    /**
+     * Keep the shape a graphic has been generated into for a projection.
+     * @param graphic the graphic.
+     * @param version version of the geometry of the graphic the shape has been generated from.
+     * @param proj the projection.
+     * @param shape the generated shape.
+     * @param label location of the label of the graphic, or null if it is placed on the shape.
+     */
+    public void put(Object graphic, int version, Projection proj, GeneralPath shape, Point label) {
+        put(graphic, version, proj, shape, label, null, null);
+    }
+
+    /**
+     * Keep the shape and the projected points a poly has been generated into for a projection.
+     * @param graphic the graphic.
+     * @param version version of the geometry of the graphic the shape has been generated from.
+     * @param proj the projection.
+     * @param shape the generated shape.
+     * @param label location of the label of the graphic, or null if it is placed on the shape.
+     * @param xpoints projected x coordinates of the parts of the poly, or null if the graphic is not a poly.
+     * @param ypoints projected y coordinates of the parts of the poly, or null if the graphic is not a poly.
+     */
+    public void put(Object graphic, int version, Projection proj, GeneralPath shape, Point label, float[][] xpoints,
+                    float[][] ypoints) {
+        if (shape == null || maxBytes == 0) {
+            return;
+        }
+        Slot slot = getSlot(getProjectionKey(proj), true);
+        if (slot.full) {
+            return;
+        }
+        slot.put(graphic, new Projected(version, shape, label, xpoints, ypoints));
+        if (bytes.get() > maxBytes) {
+            synchronized (this) {
+                evict(slot);
+            }
+        }
+    }
+
+    /**
+     * Forget the shapes of a graphic, e.g. when it is removed from its layer.
+     * @param graphic the graphic.
+     */
+    public void remove(Object graphic) {
+        List<Slot> current;
+        synchronized (this) {
+            current = new ArrayList<>(slots.values());
+        }
+        for (Slot slot : current) {
+            slot.remove(graphic);
+        }
+    }
+
+    /**
+     * Forget all the cached shapes.
+     */
+    public synchronized void clear() {
+        for (Iterator<Slot> iterator = slots.values().iterator(); iterator.hasNext(); ) {
+            iterator.next().evict();
+            iterator.remove();
+        }
+    }
+
+    /**
+     * Get the shapes of a projection.
+     * @param key identifier of the projection.
+     * @param create true to create the shapes of the projection if it has none.
+     * @return the shapes, or null if the projection has none and they are not created.
+     */
+    protected Slot getSlot(String key, boolean create) {
+        Slot slot = lastSlot;
+        if (slot != null && !slot.evicted && slot.key.equals(key)) {
+            return slot;
+        }
+        synchronized (this) {
+            slot = slots.get(key);
+            if (slot == null) {
+                if (!create) {
+                    return null;
+                }
+                slot = new Slot(key);
+                slots.put(key, slot);
+            }
+            lastSlot = slot;
+            return slot;
+        }
+    }
+
+    /**
+     * Evict the shapes of the least recently used projections until the cache fits into the memory budget. If the
+     * shapes of the projection being added to fill the budget alone, they are kept but the projection takes no more.
+     * Called with the cache locked.
+     * @param adding projection shapes are being added to, null if none.
+     */
+    protected void evict(Slot adding) {
+        for (Iterator<Slot> iterator = slots.values().iterator(); bytes.get() > maxBytes && iterator.hasNext(); ) {
+            Slot slot = iterator.next();
+            if (slot != adding) {
+                slot.evict();
+                iterator.remove();
+            }
+        }
+        if (adding != null && bytes.get() > maxBytes && !adding.full) {
+            adding.full = true;
+            if (Debug.debugging("shapecache")) {
+                Debug.output("ProjectedShapeCache: " + adding.bytes.get() + " bytes of shapes fill the cache, no "
+                        + "more shapes kept for " + adding.key);
+            }
+        }
+        if (Debug.debugging("shapecache")) {
+            Debug.output("ProjectedShapeCache: " + slots.size() + " projections, " + bytes.get() + " bytes");
+        }
+    }
+
+    /**
+     * Get the identifier of a projection: its class, scale, center, rotation and size.
+     * @param proj the projection.
+     * @return the identifier.
+     */
+    protected String getProjectionKey(Projection proj) {
+        // a projection changed in place gets a new identifier, except for its rotation
+        String id = proj.getProjectionID();
+        double rotation = proj.getRotationAngle();
+        ProjectionKey last = lastKey;
+        if (last != null && last.proj == proj && last.id == id && last.rotation == rotation) {
+            return last.key;
+        }
+        String key = proj.getClass().getName() + ':' + proj.getScale() + ':' + proj.getCenter().getY() + ':'
+                + proj.getCenter().getX() + ':' + rotation + ':' + proj.getWidth() + 'x' + proj.getHeight();
+        lastKey = new ProjectionKey(proj, id, rotation, key);
+        return key;
+    }
+
+    /**
+     * Estimate the number of bytes taken by a shape and the projected points of a poly.
+     * @param shape the shape.
+     * @param xpoints projected x coordinates of the parts of the poly, or null.
+     * @return size in bytes.
+     */
+    protected static long estimateBytes(GeneralPath shape, float[][] xpoints) {
+        long segments = 0;
+        for (PathIterator iterator = shape.getPathIterator(null); !iterator.isDone(); iterator.next()) {
+            segments++;
+        }
+        long points = 0;
+        if (xpoints != null) {
+            for (float[] part : xpoints) {
+                points += part.length;
+            }
+        }
+        return ENTRY_BYTES + segments * SEGMENT_BYTES + points * POINT_BYTES;
+    }
+
+    /**
+     * Shapes of the graphics for a projection, spread over stripes by graphic.
+     */
+    protected class Slot {
+
+        /**
+         * Identifier of the projection.
+         */
+        protected final String key;
+
+        /**
+         * The stripes.
+         */
+        protected final Stripe[] stripes = new Stripe[STRIPES];
+
+        /**
+         * Estimated size of the shapes, in bytes.
+         */
+        protected final AtomicLong bytes = new AtomicLong();
+
+        /**
+         * Whether the shapes of the projection fill the budget, in which case no more are kept.
+         */
+        protected volatile boolean full;
+
+        /**
+         * Whether the shapes have been evicted from the cache.
+         */
+        protected volatile boolean evicted;
+
+        /**
+         * Create the shapes of a projection.
+         * @param key identifier of the projection.
+         */
+        protected Slot(String key) {
+            this.key = key;
+            for (int i = 0; i < STRIPES; i++) {
+                stripes[i] = new Stripe();
+            }
+        }
+
+        /**
+         * Get the stripe of a graphic.
+         * @param graphic the graphic.
+         * @return the stripe.
+         */
+        protected Stripe stripe(Object graphic) {
+            int hash = System.identityHashCode(graphic);
+            return stripes[(hash ^ (hash >>> 16)) & (STRIPES - 1)];
+        }
+
+        /**
+         * Get the shape of a graphic, forgetting it if the geometry of the graphic has changed since.
+         * @param graphic the graphic.
+         * @param version version of the geometry of the graphic.
+         * @return the shape, or null if the graphic has none for the current version.
+         */
+        protected Projected get(Object graphic, int version) {
+            Stripe stripe = stripe(graphic);
+            synchronized (stripe) {
+                stripe.expunge(this);
+                GraphicRef ref = new GraphicRef(graphic, null);
+                Projected projected = stripe.shapes.get(ref);
+                if (projected != null && projected.version != version) {
+                    stripe.remove(this, ref);
+                    return null;
+                }
+                return projected;
+            }
+        }
+
+        /**
+         * Keep the shape of a graphic, replacing the previous one.
+         * @param graphic the graphic.
+         * @param projected the shape.
+         */
+        protected void put(Object graphic, Projected projected) {
+            Stripe stripe = stripe(graphic);
+            synchronized (stripe) {
+                if (evicted) {
+                    return;
+                }
+                stripe.expunge(this);
+                GraphicRef ref = new GraphicRef(graphic, stripe.queue);
+                stripe.remove(this, ref);
+                stripe.shapes.put(ref, projected);
+                stripe.bytes += projected.bytes;
+                add(projected.bytes);
+            }
+        }
+
+        /**
+         * Forget the shape of a graphic.
+         * @param graphic the graphic.
+         */
+        protected void remove(Object graphic) {
+            Stripe stripe = stripe(graphic);
+            synchronized (stripe) {
+                stripe.expunge(this);
+                stripe.remove(this, new GraphicRef(graphic, null));
+            }
+        }
+
+        /**
+         * Forget all the shapes, the projection being evicted from the cache.
+         */
+        protected void evict() {
+            evicted = true;
+            for (Stripe stripe : stripes) {
+                synchronized (stripe) {
+                    stripe.shapes.clear();
+                    while (stripe.queue.poll() != null) {
+                        // the shapes of the collected graphics were cleared with the others
+                    }
+                    add(-stripe.bytes);
+                    stripe.bytes = 0;
+                }
+            }
+        }
+
+        /**
+         * Account for shapes added or removed, in the projection and in the cache.
+         * @param delta number of bytes added, negative if removed.
+         */
+        protected void add(long delta) {
+            bytes.addAndGet(delta);
+            ProjectedShapeCache.this.bytes.addAndGet(delta);
+        }
+    }
+
+    /**
+     * Shapes of some of the graphics for a projection, guarded by the lock of the stripe.
+     */
+    protected static class Stripe {
+
+        /**
+         * Shapes by graphic.
+         */
+        protected final Map<GraphicRef, Projected> shapes = new HashMap<>();
+
+        /**
+         * References of the graphics garbage collected.
+         */
+        protected final ReferenceQueue<Object> queue = new ReferenceQueue<>();
+
+        /**
+         * Estimated size of the shapes, in bytes.
+         */
+        protected long bytes;
+
+        /**
+         * Forget the shape of a graphic.
+         * @param slot projection the stripe is part of.
+         * @param ref reference of the graphic.
+         */
+        protected void remove(Slot slot, GraphicRef ref) {
+            Projected removed = shapes.remove(ref);
+            if (removed != null) {
+                bytes -= removed.bytes;
+                slot.add(-removed.bytes);
+            }
+        }
+
+        /**
+         * Forget the shapes of the graphics which have been garbage collected.
+         * @param slot projection the stripe is part of.
+         */
+        protected void expunge(Slot slot) {
+            for (Reference<?> ref; (ref = queue.poll()) != null; ) {
+                remove(slot, (GraphicRef) ref);
+            }
+        }
+    }
+
+    /**
+     * Shape a graphic has been generated into for a projection.
+     */
+    public static class Projected {
+
+        /**
+         * Version of the geometry of the graphic the shape has been generated from.
+         */
+        protected final int version;
+
+        /**
+         * The shape.
+         */
+        public final GeneralPath shape;
+
+        /**
+         * Location of the label of the graphic, or null if it is placed on the shape.
+         */
+        public final Point label;
+
+        /**
+         * Projected x coordinates of the parts of a poly, or null if the graphic is not a poly.
+         */
+        public final float[][] xpoints;
+
+        /**
+         * Projected y coordinates of the parts of a poly, or null if the graphic is not a poly.
+         */
+        public final float[][] ypoints;
+
+        /**
+         * Estimated size of the entry, in bytes.
+         */
+        protected final long bytes;
+
+        /**
+         * Create the entry.
+         * @param version version of the geometry of the graphic.
+         * @param shape the shape.
+         * @param label location of the label, or null.
+         * @param xpoints projected x coordinates of the parts of a poly, or null.
+         * @param ypoints projected y coordinates of the parts of a poly, or null.
+         */
+        protected Projected(int version, GeneralPath shape, Point label, float[][] xpoints, float[][] ypoints) {
+            this.version = version;
+            this.shape = shape;
+            this.label = label;
+            this.xpoints = xpoints;
+            this.ypoints = ypoints;
+            this.bytes = estimateBytes(shape, xpoints);
+        }
+    }
+
+    /**
+     * Weak reference of a graphic, compared by the identity of the graphic.
+     */
+    protected static class GraphicRef extends WeakReference<Object> {
+        final int hash;
+
+        GraphicRef(Object graphic, ReferenceQueue<Object> queue) {
+            super(graphic, queue);
+            hash = System.identityHashCode(graphic);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof GraphicRef)) {
+                return false;
+            }
+            Object graphic = get();
+            return graphic != null && graphic == ((GraphicRef) o).get();
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+
+    /**
+     * Identifier made for a projection.
+     */
+    protected static class ProjectionKey {
+        final Projection proj;
+        final String id;
+        final double rotation;
+        final String key;
+
+        ProjectionKey(Projection proj, String id, double rotation, String key) {
+            this.proj = proj;
+            this.id = id;
+            this.rotation = rotation;
+            this.key = key;
+        }
+    }
+}
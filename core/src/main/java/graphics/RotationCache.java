@@ -0,0 +1,84 @@
+package graphics;
+
+import java.awt.geom.AffineTransform;
+
+/**
+ * Cache of the sines and cosines of the rotation angles, shared by the graphics, so rotating many graphics by the
+ * same few angles, e.g. the angle of a rotated projection, doesn't compute them for each graphic.
+ * <p>The cache is a direct mapped table of immutable entries, an angle replacing the one it collides with, so it can
+ * be read and written by several threads without locking.</p>
+ */
+public class RotationCache {
+
+    /**
+     * Number of entries of the table, a power of 2.
+     */
+    protected static final int SIZE = 1024;
+
+    /**
+     * Rotations by the hash of their angle.
+     */
+    protected static final Rotation[] rotations = new Rotation[SIZE];
+
+    private RotationCache() {
+    }
+
+    /**
+     * Get the rotation by an angle.
+     * @param angle angle in radians.
+     * @return the rotation.
+     */
+    public static Rotation get(double angle) {
+        long bits = Double.doubleToLongBits(angle);
+        int hash = (int) (bits ^ (bits >>> 32));
+        int index = (hash ^ (hash >>> 16)) & (SIZE - 1);
+        Rotation rotation = rotations[index];
+        if (rotation == null || rotation.angle != angle) {
+            rotation = new Rotation(angle);
+            rotations[index] = rotation;
+        }
+        return rotation;
+    }
+
+    /**
+     * Rotation by an angle, with its sine and cosine.
+     */
+    public static class Rotation {
+
+        /**
+         * The angle, in radians.
+         */
+        public final double angle;
+
+        /**
+         * Cosine of the angle.
+         */
+        public final double cos;
+
+        /**
+         * Sine of the angle.
+         */
+        public final double sin;
+
+        /**
+         * Create the rotation.
+         * @param angle angle in radians.
+         */
+        protected Rotation(double angle) {
+            this.angle = angle;
+            this.cos = Math.cos(angle);
+            this.sin = Math.sin(angle);
+        }
+
+        /**
+         * Get the transform rotating around an anchor point, as AffineTransform.getRotateInstance(angle, x, y) does
+         * without computing the sine and cosine.
+         * @param x horizontal coordinate of the anchor point.
+         * @param y vertical coordinate of the anchor point.
+         * @return the transform.
+         */
+        public AffineTransform getTransform(double x, double y) {
+            return new AffineTransform(cos, sin, -sin, cos, x - x * cos + y * sin, y - x * sin - y * cos);
+        }
+    }
+}
@@ -0,0 +1,370 @@
+package graphics;
+
+import com.bbn.openmap.proj.Ellipsoid;
+import com.bbn.openmap.util.Debug;
+
+/**
+ * Computation of the points of the lat/lon sectors on the WGS84 ellipsoid.
+ * <p>A sector is the quarter of an ellipse centered on its south west corner, going from north to east. Its north
+ * semi-axis is the meridian arc up to the north latitude of the sector and its east semi-axis is the parallel arc up to
+ * the east longitude of the sector. The arc is sampled at even azimuths from the center, from north to one segment
+ * short of east, at 80 degrees, where the sectors have always stopped.</p>
+ * <p>Sectors smaller than the planar size, set in meters by the graphics.sectorPlanarSize system property, are
+ * computed in a plane tangent at the center, in which the ellipse is scaled into the latitude and longitude
+ * differences of the sector, with a second order correction for the convergence of the meridians. The error of the
+ * plane grows with the cube of the size of the sector, about 1 cm at 10 km and 1 m at 50 km at mid latitudes, more
+ * towards the poles. Larger sectors are computed on the ellipsoid, each point of the arc being at the end of the
+ * geodesic from the center, solved by Vincenty's direct formula.</p>
+ */
+public class SectorGeometry {
+
+    /**
+     * System property for the size in meters under which the sectors are computed in a plane.
+     */
+    public static final String PlanarSizeProperty = "graphics.sectorPlanarSize";
+
+    /**
+     * Default size under which the sectors are computed in a plane, in meters.
+     */
+    public static final double DEFAULT_PLANAR_SIZE = 10000;
+
+    /**
+     * Number of segments the quarter of the ellipse is divided into.
+     */
+    public static final int SEGMENTS = 18;
+
+    /**
+     * Number of points of the arc of a sector, which stops one segment short of the east axis.
+     */
+    public static final int ARC_POINTS = SEGMENTS - 1;
+
+    /**
+     * Ellipsoid the sectors are computed on.
+     */
+    protected static final Ellipsoid ELLIPSOID = Ellipsoid.WGS_84;
+
+    /**
+     * Flattening of the ellipsoid.
+     */
+    protected static final double FLATTENING = (ELLIPSOID.radius - ELLIPSOID.polarRadius) / ELLIPSOID.radius;
+
+    /**
+     * Convergence threshold of Vincenty's formula, in radians of arc on the auxiliary sphere, about 0.1 mm.
+     */
+    protected static final double CONVERGENCE = 1e-12;
+
+    /**
+     * Maximal number of iterations of Vincenty's formula.
+     */
+    protected static final int MAX_ITERATIONS = 100;
+
+    /**
+     * Sines of the azimuths of the points of the arc.
+     */
+    protected static final double[] SIN = new double[ARC_POINTS];
+
+    /**
+     * Cosines of the azimuths of the points of the arc.
+     */
+    protected static final double[] COS = new double[ARC_POINTS];
+
+    static {
+        for (int i = 0; i < ARC_POINTS; i++) {
+            double azimuth = Math.PI / 2 * i / SEGMENTS;
+            SIN[i] = Math.sin(azimuth);
+            COS[i] = Math.cos(azimuth);
+        }
+        // exact north axis, so the arc starts on it
+        SIN[0] = 0;
+    }
+
+    /**
+     * The shared instance.
+     */
+    private static SectorGeometry instance;
+
+    /**
+     * Size in meters under which the sectors are computed in a plane.
+     */
+    protected volatile double planarSize;
+
+    /**
+     * Create the geometry.
+     * @param planarSize size in meters under which the sectors are computed in a plane.
+     */
+    public SectorGeometry(double planarSize) {
+        this.planarSize = planarSize;
+    }
+
+    /**
+     * Get the shared instance of the geometry.
+     * @return the geometry.
+     */
+    public static synchronized SectorGeometry getInstance() {
+        if (instance == null) {
+            double planarSize = DEFAULT_PLANAR_SIZE;
+            String property = System.getProperty(PlanarSizeProperty);
+            if (property != null) {
+                try {
+                    planarSize = Double.parseDouble(property);
+                } catch (NumberFormatException e) {
+                    Debug.error("SectorGeometry: invalid " + PlanarSizeProperty + " " + property);
+                }
+            }
+            instance = new SectorGeometry(planarSize);
+        }
+        return instance;
+    }
+
+    /**
+     * Set the size under which the sectors are computed in a plane.
+     * @param planarSize size in meters, 0 to compute all the sectors on the ellipsoid.
+     */
+    public void setPlanarSize(double planarSize) {
+        this.planarSize = planarSize;
+    }
+
+    /**
+     * Get the size under which the sectors are computed in a plane.
+     * @return size in meters.
+     */
+    public double getPlanarSize() {
+        return planarSize;
+    }
+
+    /**
+     * Compute the points of a sector, in a plane if it is smaller than the planar size, on the ellipsoid otherwise.
+     * @param lat1 latitude of a corner, in decimal degrees.
+     * @param lon1 longitude of a corner, in decimal degrees.
+     * @param lat2 latitude of the opposite corner, in decimal degrees.
+     * @param lon2 longitude of the opposite corner, in decimal degrees.
+     * @return lat/lon pairs in radians: the arc from north towards east, the center and the first point of the arc
+     * again.
+     */
+    public double[] computeLatLonPoints(double lat1, double lon1, double lat2, double lon2) {
+        double lat = Math.toRadians(Math.min(lat1, lat2));
+        double north = meridianRadius(lat + Math.toRadians(Math.abs(lat1 - lat2)) / 2)
+                * Math.toRadians(Math.abs(lat1 - lat2));
+        double east = parallelRadius(lat) * Math.toRadians(Math.abs(lon1 - lon2));
+        boolean planar = Math.max(north, east) < planarSize;
+        if (Debug.debugging("ellipse")) {
+            Debug.output("SectorGeometry: " + (planar ? "planar" : "ellipsoidal") + " sector of " + east + " m by "
+                    + north + " m");
+        }
+        return planar ? computePlanar(lat1, lon1, lat2, lon2) : computeEllipsoidal(lat1, lon1, lat2, lon2);
+    }
+
+    /**
+     * Compute the points of a sector in the plane tangent at its center, whatever its size.
+     * @param lat1 latitude of a corner, in decimal degrees.
+     * @param lon1 longitude of a corner, in decimal degrees.
+     * @param lat2 latitude of the opposite corner, in decimal degrees.
+     * @param lon2 longitude of the opposite corner, in decimal degrees.
+     * @return lat/lon pairs in radians: the arc from north towards east, the center and the first point of the arc
+     * again.
+     */
+    public static double[] computePlanar(double lat1, double lon1, double lat2, double lon2) {
+        double lat = Math.toRadians(Math.min(lat1, lat2));
+        double dLat = Math.toRadians(Math.abs(lat1 - lat2));
+        double dLon = Math.toRadians(Math.abs(lon1 - lon2));
+        // only the ratio of the axes matters, the meridian radius at the middle is close enough
+        double north = meridianRadius(lat + dLat / 2) * dLat;
+        double east = parallelRadius(lat) * dLon;
+        return planarPoints(lat, Math.toRadians(Math.min(lon1, lon2)), dLat, dLon, north, east);
+    }
+
+    /**
+     * Compute the points of a sector on the ellipsoid, whatever its size.
+     * @param lat1 latitude of a corner, in decimal degrees.
+     * @param lon1 longitude of a corner, in decimal degrees.
+     * @param lat2 latitude of the opposite corner, in decimal degrees.
+     * @param lon2 longitude of the opposite corner, in decimal degrees.
+     * @return lat/lon pairs in radians: the arc from north towards east, the center and the first point of the arc
+     * again.
+     */
+    public static double[] computeEllipsoidal(double lat1, double lon1, double lat2, double lon2) {
+        double lat = Math.toRadians(Math.min(lat1, lat2));
+        double dLat = Math.toRadians(Math.abs(lat1 - lat2));
+        double dLon = Math.toRadians(Math.abs(lon1 - lon2));
+        double north = meridianArc(lat + dLat) - meridianArc(lat);
+        double east = parallelRadius(lat) * dLon;
+        return ellipsoidalPoints(lat, Math.toRadians(Math.min(lon1, lon2)), north, east);
+    }
+
+    /**
+     * Compute the points of a sector in the plane tangent at its center, the ellipse being scaled from meters into the
+     * latitude and longitude differences of the sector. The points are corrected to the second order for the
+     * convergence of the meridians, which moves the points east of the center to the south and those north of it to
+     * the east.
+     * @param lat latitude of the center, in radians.
+     * @param lon longitude of the center, in radians.
+     * @param dLat latitude difference of the sector, in radians.
+     * @param dLon longitude difference of the sector, in radians.
+     * @param north north semi-axis, in meters.
+     * @param east east semi-axis, in meters.
+     * @return lat/lon pairs in radians.
+     */
+    protected static double[] planarPoints(double lat, double lon, double dLat, double dLon, double north,
+                                           double east) {
+        double[] llPoints = new double[2 * (ARC_POINTS + 2)];
+        double tan = Math.tan(lat);
+        double normalRadius = parallelRadius(lat) / Math.cos(lat);
+        double southward = tan / (2 * meridianRadius(lat) * normalRadius);
+        double eastward = tan / normalRadius;
+        int n = 0;
+        for (int i = 0; i < ARC_POINTS; i++) {
+            double r = radius(north, east, i);
+            double y = r * COS[i];
+            double x = r * SIN[i];
+            // fractions of the axes, r being 1 at both ends of the arc
+            llPoints[n++] = lat + (north == 0 ? 0 : y / north * dLat) - x * x * southward;
+            llPoints[n++] = lon + (east == 0 ? 0 : x / east * dLon) * (1 + y * eastward);
+        }
+        return close(llPoints, n, lat, lon);
+    }
+
+    /**
+     * Compute the points of a sector on the ellipsoid, at the end of the geodesics from the center.
+     * @param lat latitude of the center, in radians.
+     * @param lon longitude of the center, in radians.
+     * @param north north semi-axis, in meters.
+     * @param east east semi-axis, in meters.
+     * @return lat/lon pairs in radians.
+     */
+    protected static double[] ellipsoidalPoints(double lat, double lon, double north, double east) {
+        double[] llPoints = new double[2 * (ARC_POINTS + 2)];
+        int n = 0;
+        for (int i = 0; i < ARC_POINTS; i++) {
+            n = direct(lat, lon, SIN[i], COS[i], radius(north, east, i), llPoints, n);
+        }
+        return close(llPoints, n, lat, lon);
+    }
+
+    /**
+     * Add the center and the first point of the arc again after the arc.
+     * @param llPoints lat/lon pairs of the sector.
+     * @param n index after the arc.
+     * @param lat latitude of the center, in radians.
+     * @param lon longitude of the center, in radians.
+     * @return the points.
+     */
+    protected static double[] close(double[] llPoints, int n, double lat, double lon) {
+        llPoints[n++] = lat;
+        llPoints[n++] = lon;
+        llPoints[n++] = llPoints[0];
+        llPoints[n] = llPoints[1];
+        return llPoints;
+    }
+
+    /**
+     * Get the distance from the center of the ellipse to a point of the arc.
+     * @param north north semi-axis.
+     * @param east east semi-axis.
+     * @param i index of the point.
+     * @return the distance, in the unit of the semi-axes.
+     */
+    protected static double radius(double north, double east, int i) {
+        if (north == 0 || east == 0) {
+            return i == 0 ? north : 0;
+        }
+        double x = north * SIN[i];
+        double y = east * COS[i];
+        return north * east / Math.sqrt(x * x + y * y);
+    }
+
+    /**
+     * Solve the direct geodesic problem by Vincenty's formula: find the point at a distance and an azimuth from
+     * another.
+     * @param lat latitude of the start, in radians.
+     * @param lon longitude of the start, in radians.
+     * @param sinAzimuth sine of the azimuth at the start.
+     * @param cosAzimuth cosine of the azimuth at the start.
+     * @param distance distance in meters.
+     * @param llPoints array the latitude and longitude of the point are written into, in radians.
+     * @param n index the point is written at.
+     * @return index after the point.
+     */
+    protected static int direct(double lat, double lon, double sinAzimuth, double cosAzimuth, double distance,
+                                double[] llPoints, int n) {
+        double a = ELLIPSOID.radius;
+        double b = ELLIPSOID.polarRadius;
+        double f = FLATTENING;
+        double tanU1 = (1 - f) * Math.tan(lat);
+        double cosU1 = 1 / Math.sqrt(1 + tanU1 * tanU1);
+        double sinU1 = tanU1 * cosU1;
+        double sigma1 = Math.atan2(tanU1, cosAzimuth);
+        double sinAlpha = cosU1 * sinAzimuth;
+        double cosSqAlpha = 1 - sinAlpha * sinAlpha;
+        double uSq = cosSqAlpha * (a * a - b * b) / (b * b);
+        double bigA = 1 + uSq / 16384 * (4096 + uSq * (-768 + uSq * (320 - 175 * uSq)));
+        double bigB = uSq / 1024 * (256 + uSq * (-128 + uSq * (74 - 47 * uSq)));
+
+        double sigma = distance / (b * bigA);
+        double sinSigma;
+        double cosSigma;
+        double cos2SigmaM;
+        int iterations = 0;
+        while (true) {
+            cos2SigmaM = Math.cos(2 * sigma1 + sigma);
+            sinSigma = Math.sin(sigma);
+            cosSigma = Math.cos(sigma);
+            double deltaSigma = bigB * sinSigma * (cos2SigmaM + bigB / 4 * (cosSigma * (-1 + 2 * cos2SigmaM
+                    * cos2SigmaM) - bigB / 6 * cos2SigmaM * (-3 + 4 * sinSigma * sinSigma) * (-3 + 4 * cos2SigmaM
+                    * cos2SigmaM)));
+            double previous = sigma;
+            sigma = distance / (b * bigA) + deltaSigma;
+            if (Math.abs(sigma - previous) < CONVERGENCE || ++iterations >= MAX_ITERATIONS) {
+                break;
+            }
+        }
+        cos2SigmaM = Math.cos(2 * sigma1 + sigma);
+        sinSigma = Math.sin(sigma);
+        cosSigma = Math.cos(sigma);
+
+        double x = sinU1 * sinSigma - cosU1 * cosSigma * cosAzimuth;
+        llPoints[n++] = Math.atan2(sinU1 * cosSigma + cosU1 * sinSigma * cosAzimuth,
+                (1 - f) * Math.sqrt(sinAlpha * sinAlpha + x * x));
+        double lambda = Math.atan2(sinSigma * sinAzimuth, cosU1 * cosSigma - sinU1 * sinSigma * cosAzimuth);
+        double c = f / 16 * cosSqAlpha * (4 + f * (4 - 3 * cosSqAlpha));
+        double l = lambda - (1 - c) * f * sinAlpha * (sigma + c * sinSigma * (cos2SigmaM + c * cosSigma
+                * (-1 + 2 * cos2SigmaM * cos2SigmaM)));
+        llPoints[n++] = lon + l;
+        return n;
+    }
+
+    /**
+     * Get the length of the meridian arc from the equator, by its series in the eccentricity.
+     * @param lat latitude in radians.
+     * @return length in meters, negative in the southern hemisphere.
+     */
+    protected static double meridianArc(double lat) {
+        double e2 = ELLIPSOID.eccsq;
+        double e4 = e2 * e2;
+        double e6 = e4 * e2;
+        return ELLIPSOID.radius * ((1 - e2 / 4 - 3 * e4 / 64 - 5 * e6 / 256) * lat
+                - (3 * e2 / 8 + 3 * e4 / 32 + 45 * e6 / 1024) * Math.sin(2 * lat)
+                + (15 * e4 / 256 + 45 * e6 / 1024) * Math.sin(4 * lat)
+                - (35 * e6 / 3072) * Math.sin(6 * lat));
+    }
+
+    /**
+     * Get the radius of curvature of the meridian at a latitude.
+     * @param lat latitude in radians.
+     * @return radius in meters.
+     */
+    protected static double meridianRadius(double lat) {
+        double sin = Math.sin(lat);
+        double w = 1 - ELLIPSOID.eccsq * sin * sin;
+        return ELLIPSOID.radius * (1 - ELLIPSOID.eccsq) / (w * Math.sqrt(w));
+    }
+
+    /**
+     * Get the radius of the parallel at a latitude.
+     * @param lat latitude in radians.
+     * @return radius in meters.
+     */
+    protected static double parallelRadius(double lat) {
+        double sin = Math.sin(lat);
+        return ELLIPSOID.radius * Math.cos(lat) / Math.sqrt(1 - ELLIPSOID.eccsq * sin * sin);
+    }
+}
@@ -0,0 +1,554 @@
+package graphics;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.LongConsumer;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+/**
+ * Index of objects by their lat/lon bounds, over a grid of cells of a fixed size in degrees.
+ * <p>An object is stored in every cell its bounds overlap, or in a separate list of large objects if they overlap
+ * too many cells. A query only visits the cells overlapping the queried region, and returns an object from the first
+ * of its cells in the region, so objects spanning several cells are returned once without remembering them.</p>
+ * <p>The content of a cell is an array replaced on each change, so the lazy streams returned by the queries can be
+ * consumed while the index changes, each cell being read as it was when the stream reached it.</p>
+ * <p>Objects may also be added without bounds, e.g. objects placed in screen coordinates. They are never found by
+ * {@link #query}, only by {@link #queryInOrder} which returns the objects in the order they were first added, so
+ * objects rendered in that order overlap as they did when added.</p>
+ * @param <T> type of the indexed objects.
+ */
+public class SpatialIndex<T> {
+
+    /**
+     * Default size of the cells, in decimal degrees.
+     */
+    public static final double DEFAULT_CELL_SIZE = 1.0;
+
+    /**
+     * Maximal number of cells an object is stored in. Larger objects are stored in the list of large objects.
+     */
+    protected static final int MAX_CELLS = 64;
+
+    /**
+     * Size of the cells, in decimal degrees.
+     */
+    protected final double cellSize;
+
+    /**
+     * Number of columns of the grid.
+     */
+    protected final int columns;
+
+    /**
+     * Number of rows of the grid.
+     */
+    protected final int rows;
+
+    /**
+     * Entries of the cells, by cell.
+     */
+    protected final Map<Long, Entry<T>[]> cells = new ConcurrentHashMap<>();
+
+    /**
+     * Entries of the large objects.
+     */
+    protected volatile Entry<T>[] large = newEntries(0);
+
+    /**
+     * Entries of the objects without bounds.
+     */
+    protected volatile Entry<T>[] unbounded = newEntries(0);
+
+    /**
+     * Entries of all the objects, by object.
+     */
+    protected final Map<T, Entry<T>> entries = new HashMap<>();
+
+    /**
+     * Order given to the next object added.
+     */
+    protected long nextOrder = 0;
+
+    /**
+     * Create an index with cells of the default size.
+     */
+    public SpatialIndex() {
+        this(DEFAULT_CELL_SIZE);
+    }
+
+    /**
+     * Create an index.
+     * @param cellSize size of the cells, in decimal degrees.
+     */
+    public SpatialIndex(double cellSize) {
+        this.cellSize = cellSize;
+        columns = (int) Math.ceil(360 / cellSize);
+        rows = (int) Math.ceil(180 / cellSize);
+    }
+
+    /**
+     * Get the size of the cells.
+     * @return size in decimal degrees.
+     */
+    public double getCellSize() {
+        return cellSize;
+    }
+
+    /**
+     * Add an object, replacing its previous bounds if it is already indexed.
+     * @param value the object.
+     * @param south southern latitude of the bounds, in decimal degrees.
+     * @param west western longitude of the bounds, in decimal degrees.
+     * @param north northern latitude of the bounds, in decimal degrees.
+     * @param east eastern longitude of the bounds, in decimal degrees, west of the western one if the bounds cross
+     *             the date line.
+     */
+    public synchronized void add(T value, double south, double west, double north, double east) {
+        long order = getOrder(value);
+        remove(value);
+        Entry<T> entry = new Entry<>(value, order, south, west, north, east, row(south), column(west), row(north),
+                column(east));
+        entries.put(value, entry);
+        if (cellCount(entry) > MAX_CELLS) {
+            large = append(large, entry);
+            return;
+        }
+        forEachCell(entry, key -> cells.merge(key, singleton(entry), SpatialIndex::concat));
+    }
+
+    /**
+     * Add an object without bounds, replacing its bounds if it is already indexed.
+     * @param value the object.
+     */
+    public synchronized void addUnbounded(T value) {
+        long order = getOrder(value);
+        remove(value);
+        Entry<T> entry = new Entry<>(value, order);
+        entries.put(value, entry);
+        unbounded = append(unbounded, entry);
+    }
+
+    /**
+     * Add several objects, replacing the previous bounds of the ones already indexed. Each cell concerned is
+     * replaced once for all the objects, rather than once per object as {@link #add} does.
+     * @param values the objects.
+     * @param bounds bounds of the objects, south, west, north and east in decimal degrees, null for an object without
+     *               bounds.
+     */
+    public synchronized void addAll(List<T> values, List<double[]> bounds) {
+        Map<Long, Set<Entry<T>>> removed = new HashMap<>();
+        Map<Long, List<Entry<T>>> added = new HashMap<>();
+        Set<Entry<T>> removedLarge = new HashSet<>();
+        List<Entry<T>> addedLarge = new ArrayList<>();
+        Set<Entry<T>> removedUnbounded = new HashSet<>();
+        List<Entry<T>> addedUnbounded = new ArrayList<>();
+        for (int i = 0; i < values.size(); i++) {
+            T value = values.get(i);
+            long order = getOrder(value);
+            Entry<T> previous = entries.remove(value);
+            if (previous != null) {
+                if (previous.isUnbounded()) {
+                    removedUnbounded.add(previous);
+                } else if (cellCount(previous) > MAX_CELLS) {
+                    removedLarge.add(previous);
+                } else {
+                    forEachCell(previous, key -> removed.computeIfAbsent(key, k -> new HashSet<>()).add(previous));
+                }
+            }
+            double[] b = bounds.get(i);
+            if (b == null) {
+                Entry<T> entry = new Entry<>(value, order);
+                entries.put(value, entry);
+                addedUnbounded.add(entry);
+                continue;
+            }
+            Entry<T> entry = new Entry<>(value, order, b[0], b[1], b[2], b[3], row(b[0]), column(b[1]), row(b[2]),
+                    column(b[3]));
+            entries.put(value, entry);
+            if (cellCount(entry) > MAX_CELLS) {
+                addedLarge.add(entry);
+            } else {
+                forEachCell(entry, key -> added.computeIfAbsent(key, k -> new ArrayList<>()).add(entry));
+            }
+        }
+        Set<Long> keys = new HashSet<>(removed.keySet());
+        keys.addAll(added.keySet());
+        for (Long key : keys) {
+            Set<Entry<T>> out = removed.getOrDefault(key, Collections.emptySet());
+            List<Entry<T>> in = added.getOrDefault(key, Collections.emptyList());
+            cells.compute(key, (k, cell) -> {
+                Stream<Entry<T>> kept = cell == null ? Stream.empty()
+                        : Arrays.stream(cell).filter(e -> !out.contains(e));
+                Entry<T>[] replaced = Stream.concat(kept, in.stream().filter(e -> !out.contains(e)))
+                        .toArray(SpatialIndex::newEntries);
+                return replaced.length > 0 ? replaced : null;
+            });
+        }
+        if (!removedLarge.isEmpty() || !addedLarge.isEmpty()) {
+            large = Stream.concat(Arrays.stream(large).filter(e -> !removedLarge.contains(e)), addedLarge.stream())
+                    .toArray(SpatialIndex::newEntries);
+        }
+        if (!removedUnbounded.isEmpty() || !addedUnbounded.isEmpty()) {
+            unbounded = Stream.concat(Arrays.stream(unbounded).filter(e -> !removedUnbounded.contains(e)),
+                    addedUnbounded.stream()).toArray(SpatialIndex::newEntries);
+        }
+    }
+
+    /**
+     * Get the order of an object: the order it was first added in if it is indexed, the next order otherwise.
+     * @param value the object.
+     * @return the order.
+     */
+    protected long getOrder(T value) {
+        Entry<T> entry = entries.get(value);
+        return entry != null ? entry.order : nextOrder++;
+    }
+
+    /**
+     * Call an action with the key of each cell the bounds of an entry overlap.
+     * @param entry the entry.
+     * @param action action called with the keys.
+     */
+    protected void forEachCell(Entry<T> entry, LongConsumer action) {
+        for (int r = entry.minRow; r <= entry.maxRow; r++) {
+            if (entry.crossesDateLine()) {
+                for (int c = 0; c < columns; c++) {
+                    if (entry.coversColumn(c)) {
+                        action.accept(key(r, c));
+                    }
+                }
+            } else {
+                for (int c = entry.minColumn; c <= entry.maxColumn; c++) {
+                    action.accept(key(r, c));
+                }
+            }
+        }
+    }
+
+    /**
+     * Get the number of cells the bounds of an entry overlap.
+     * @param entry the entry.
+     * @return number of cells.
+     */
+    protected long cellCount(Entry<T> entry) {
+        long columnCount;
+        if (!entry.crossesDateLine()) {
+            columnCount = entry.maxColumn - entry.minColumn + 1;
+        } else if (entry.minColumn <= entry.maxColumn) {
+            columnCount = columns;
+        } else {
+            columnCount = columns - entry.minColumn + entry.maxColumn + 1;
+        }
+        return (entry.maxRow - entry.minRow + 1) * columnCount;
+    }
+
+    /**
+     * Remove an object.
+     * @param value the object.
+     * @return true if the object was indexed.
+     */
+    public synchronized boolean remove(T value) {
+        Entry<T> entry = entries.remove(value);
+        if (entry == null) {
+            return false;
+        }
+        if (entry.isUnbounded()) {
+            unbounded = without(unbounded, entry);
+            return true;
+        }
+        if (cellCount(entry) > MAX_CELLS) {
+            large = without(large, entry);
+            return true;
+        }
+        forEachCell(entry, key -> cells.computeIfPresent(key, (k, cell) -> {
+            Entry<T>[] remaining = without(cell, entry);
+            return remaining.length > 0 ? remaining : null;
+        }));
+        return true;
+    }
+
+    /**
+     * Remove all the objects.
+     */
+    public synchronized void clear() {
+        entries.clear();
+        cells.clear();
+        large = newEntries(0);
+        unbounded = newEntries(0);
+        nextOrder = 0;
+    }
+
+    /**
+     * Get the number of indexed objects.
+     * @return number of objects.
+     */
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    /**
+     * Find the objects which bounds intersect a region. A region which western longitude is east of its eastern one
+     * crosses the date line, an object intersecting both sides of the date line being returned once.
+     * @param south southern latitude of the region, in decimal degrees.
+     * @param west western longitude of the region, in decimal degrees.
+     * @param north northern latitude of the region, in decimal degrees.
+     * @param east eastern longitude of the region, in decimal degrees.
+     * @return lazy stream of the objects, only reading the cells of the region as it is consumed.
+     */
+    public Stream<T> query(double south, double west, double north, double east) {
+        return queryEntries(south, west, north, east).map(entry -> entry.value);
+    }
+
+    /**
+     * Find the objects which bounds intersect a region, as {@link #query} does, in the order they were first added.
+     * @param south southern latitude of the region, in decimal degrees.
+     * @param west western longitude of the region, in decimal degrees.
+     * @param north northern latitude of the region, in decimal degrees.
+     * @param east eastern longitude of the region, in decimal degrees.
+     * @param withUnbounded whether the objects without bounds are found as well.
+     * @return the objects.
+     */
+    public List<T> queryInOrder(double south, double west, double north, double east, boolean withUnbounded) {
+        Stream<Entry<T>> found = queryEntries(south, west, north, east);
+        if (withUnbounded) {
+            found = Stream.concat(found, Arrays.stream(unbounded));
+        }
+        return found.sorted(Comparator.comparingLong(entry -> entry.order)).map(entry -> entry.value)
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Find the entries which bounds intersect a region.
+     * @param south southern latitude of the region, in decimal degrees.
+     * @param west western longitude of the region, in decimal degrees.
+     * @param north northern latitude of the region, in decimal degrees.
+     * @param east eastern longitude of the region, in decimal degrees.
+     * @return lazy stream of the entries.
+     */
+    protected Stream<Entry<T>> queryEntries(double south, double west, double north, double east) {
+        if (west > east) {
+            return Stream.concat(queryEntries(south, west, north, 180), queryEntries(south, -180, north, east))
+                    .distinct();
+        }
+        int minRow = row(south);
+        int maxRow = row(north);
+        int minColumn = column(west);
+        int maxColumn = column(east);
+        Stream<Entry<T>> inCells = IntStream.rangeClosed(minRow, maxRow).boxed()
+                .flatMap(r -> IntStream.rangeClosed(minColumn, maxColumn).boxed()
+                        .flatMap(c -> {
+                            Entry<T>[] cell = cells.get(key(r, c));
+                            if (cell == null) {
+                                return Stream.empty();
+                            }
+                            // an entry is returned from its first cell in the region only
+                            return Arrays.stream(cell).filter(entry -> Math.max(entry.minRow, minRow) == r
+                                    && entry.firstColumn(minColumn) == c);
+                        }));
+        return Stream.concat(inCells, Arrays.stream(large))
+                .filter(entry -> entry.intersects(south, west, north, east));
+    }
+
+    /**
+     * Get the row of the cells containing a latitude.
+     * @param lat latitude in decimal degrees.
+     * @return the row.
+     */
+    protected int row(double lat) {
+        return Math.min(rows - 1, Math.max(0, (int) Math.floor((lat + 90) / cellSize)));
+    }
+
+    /**
+     * Get the column of the cells containing a longitude.
+     * @param lon longitude in decimal degrees.
+     * @return the column.
+     */
+    protected int column(double lon) {
+        return Math.min(columns - 1, Math.max(0, (int) Math.floor((lon + 180) / cellSize)));
+    }
+
+    /**
+     * Get the key of a cell.
+     * @param row row of the cell.
+     * @param column column of the cell.
+     * @return the key.
+     */
+    protected long key(int row, int column) {
+        return (long) row * columns + column;
+    }
+
+    /**
+     * Create an array of entries.
+     * @param length length of the array.
+     * @param <T> type of the objects.
+     * @return the array.
+     */
+    @SuppressWarnings("unchecked")
+    private static <T> Entry<T>[] newEntries(int length) {
+        return (Entry<T>[]) new Entry[length];
+    }
+
+    /**
+     * Create an array of a single entry.
+     * @param entry the entry.
+     * @param <T> type of the objects.
+     * @return the array.
+     */
+    private static <T> Entry<T>[] singleton(Entry<T> entry) {
+        Entry<T>[] entries = newEntries(1);
+        entries[0] = entry;
+        return entries;
+    }
+
+    /**
+     * Create an array of the entries of two arrays.
+     * @param a first array.
+     * @param b second array.
+     * @param <T> type of the objects.
+     * @return the new array.
+     */
+    private static <T> Entry<T>[] concat(Entry<T>[] a, Entry<T>[] b) {
+        Entry<T>[] entries = Arrays.copyOf(a, a.length + b.length);
+        System.arraycopy(b, 0, entries, a.length, b.length);
+        return entries;
+    }
+
+    /**
+     * Create an array of the entries of an array followed by an entry.
+     * @param a the array.
+     * @param entry the entry.
+     * @param <T> type of the objects.
+     * @return the new array.
+     */
+    private static <T> Entry<T>[] append(Entry<T>[] a, Entry<T> entry) {
+        return concat(a, singleton(entry));
+    }
+
+    /**
+     * Create an array of the entries of an array but one.
+     * @param a the array.
+     * @param entry the entry left out.
+     * @param <T> type of the objects.
+     * @return the new array.
+     */
+    private static <T> Entry<T>[] without(Entry<T>[] a, Entry<T> entry) {
+        return Arrays.stream(a).filter(e -> e != entry).toArray(SpatialIndex::newEntries);
+    }
+
+    /**
+     * Indexed object with its bounds and the range of cells they overlap.
+     * @param <T> type of the object.
+     */
+    protected static class Entry<T> {
+
+        /**
+         * The object.
+         */
+        protected final T value;
+
+        /**
+         * Order the object was first added in.
+         */
+        protected final long order;
+
+        /**
+         * Bounds of the object, in decimal degrees.
+         */
+        protected final double south;
+        protected final double west;
+        protected final double north;
+        protected final double east;
+
+        /**
+         * Range of cells the bounds overlap.
+         */
+        protected final int minRow;
+        protected final int minColumn;
+        protected final int maxRow;
+        protected final int maxColumn;
+
+        Entry(T value, long order) {
+            this(value, order, Double.NaN, Double.NaN, Double.NaN, Double.NaN, 0, 0, -1, -1);
+        }
+
+        Entry(T value, long order, double south, double west, double north, double east, int minRow, int minColumn,
+              int maxRow, int maxColumn) {
+            this.value = value;
+            this.order = order;
+            this.south = south;
+            this.west = west;
+            this.north = north;
+            this.east = east;
+            this.minRow = minRow;
+            this.minColumn = minColumn;
+            this.maxRow = maxRow;
+            this.maxColumn = maxColumn;
+        }
+
+        /**
+         * Check whether the object has no bounds.
+         * @return true if the object has no bounds.
+         */
+        protected boolean isUnbounded() {
+            return Double.isNaN(south);
+        }
+
+        /**
+         * Check whether the bounds cross the date line, in which case they cover the columns from minColumn eastwards
+         * to the date line, and from the date line to maxColumn.
+         * @return true if the western longitude is east of the eastern one.
+         */
+        protected boolean crossesDateLine() {
+            return west > east;
+        }
+
+        /**
+         * Check whether the bounds overlap a column of cells.
+         * @param column the column.
+         * @return true if the bounds overlap the column.
+         */
+        protected boolean coversColumn(int column) {
+            if (!crossesDateLine()) {
+                return column >= minColumn && column <= maxColumn;
+            }
+            return column >= minColumn || column <= maxColumn;
+        }
+
+        /**
+         * Get the first column of cells the bounds overlap from a column eastwards, up to the date line.
+         * @param from the column.
+         * @return the first column overlapped.
+         */
+        protected int firstColumn(int from) {
+            return coversColumn(from) ? from : Math.max(minColumn, from);
+        }
+
+        /**
+         * Check whether the bounds intersect a region which doesn't cross the date line.
+         * @param south southern latitude of the region.
+         * @param west western longitude of the region.
+         * @param north northern latitude of the region.
+         * @param east eastern longitude of the region.
+         * @return true if the bounds intersect the region.
+         */
+        protected boolean intersects(double south, double west, double north, double east) {
+            if (this.south > north || this.north < south) {
+                return false;
+            }
+            if (crossesDateLine()) {
+                return this.west <= east || this.east >= west;
+            }
+            return this.west <= east && this.east >= west;
+        }
+    }
+}
@@ -0,0 +1,27 @@
+package metrics;
+
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Edition of a graphic by the drawing tool, such as adding or deleting a vertex or moving the graphic to its grab
+ * points. Edits follow the mouse, so they are all recorded.
+ */
+@Name("openmap.Edit")
+@Label("Edit Graphic")
+public class EditEvent extends GraphicsEvent {
+
+    /**
+     * Edit operation, such as addPoint, deletePoint or setGrabPoints.
+     */
+    @Label("Operation")
+    public String operation;
+
+    /**
+     * Create the event of an edit operation.
+     * @param operation name of the operation.
+     */
+    public EditEvent(String operation) {
+        this.operation = operation;
+    }
+}
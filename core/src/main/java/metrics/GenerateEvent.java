@@ -0,0 +1,15 @@
+package metrics;
+
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Threshold;
+
+/**
+ * Generation of a graphic for a projection. Graphics are generated one by one for each prepare of their layer, so
+ * only the generations taking longer than the threshold are recorded by default.
+ */
+@Name("openmap.Generate")
+@Label("Generate Graphic")
+@Threshold("1 ms")
+public class GenerateEvent extends GraphicsEvent {
+}
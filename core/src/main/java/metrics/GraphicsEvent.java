@@ -0,0 +1,107 @@
+package metrics;
+
+import com.bbn.openmap.omGraphics.OMGraphic;
+import com.bbn.openmap.omGraphics.OMPoint;
+import com.bbn.openmap.omGraphics.OMPoly;
+import com.bbn.openmap.proj.Projection;
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+
+import java.awt.Shape;
+import java.awt.geom.PathIterator;
+
+/**
+ * Java Flight Recorder event of an operation on graphics, carrying the number of graphics and of vertices involved
+ * and the type of the projection.
+ * <p>The events follow the usual pattern of JFR, the fields being filled only if the event is to be committed:</p>
+ * <pre>
+ * GenerateEvent event = new GenerateEvent();
+ * event.begin();
+ * ...
+ * if (event.shouldCommit()) {
+ *     event.set(graphic, proj);
+ *     event.commit();
+ * }
+ * </pre>
+ * <p>When no recording is running, shouldCommit is false and the event, which never escapes, is optimized away by
+ * the compiler, so the operations cost nothing more.</p>
+ */
+@Category({"OpenMap", "Graphics"})
+public abstract class GraphicsEvent extends Event {
+
+    /**
+     * Class of the graphics.
+     */
+    @Label("Graphic Class")
+    public String graphicClass;
+
+    /**
+     * Number of graphics involved.
+     */
+    @Label("Object Count")
+    public int objectCount;
+
+    /**
+     * Number of vertices of the graphics involved.
+     */
+    @Label("Vertex Count")
+    @Description("Vertices of the lat/lon geometry, or of the projected shape for the other graphics")
+    public int vertexCount;
+
+    /**
+     * Type of the projection the graphics are generated for.
+     */
+    @Label("Projection Type")
+    public String projectionType;
+
+    /**
+     * Fill the fields of the event for a single graphic.
+     * @param graphic the graphic.
+     * @param proj projection the graphic is generated for, may be null.
+     */
+    public void set(OMGraphic graphic, Projection proj) {
+        graphicClass = graphic.getClass().getSimpleName();
+        objectCount = 1;
+        vertexCount = countVertices(graphic);
+        projectionType = getProjectionType(proj);
+    }
+
+    /**
+     * Get the type of a projection.
+     * @param proj the projection, may be null.
+     * @return the simple name of the class of the projection, or null.
+     */
+    public static String getProjectionType(Projection proj) {
+        return proj != null ? proj.getClass().getSimpleName() : null;
+    }
+
+    /**
+     * Count the vertices of a graphic: one for a point, the vertices of a poly, and the vertices of the projected
+     * shape of the other graphics.
+     * @param graphic the graphic.
+     * @return number of vertices.
+     */
+    public static int countVertices(OMGraphic graphic) {
+        if (graphic instanceof OMPoint) {
+            return 1;
+        }
+        if (graphic instanceof OMPoly) {
+            OMPoly poly = (OMPoly) graphic;
+            if (poly.getRenderType() == OMGraphic.RENDERTYPE_LATLON && poly.getLatLonArray() != null) {
+                return poly.getLatLonArray().length / 2;
+            }
+            return poly.getXs() != null ? poly.getXs().length : 0;
+        }
+        Shape shape = graphic.getShape();
+        if (shape == null) {
+            return 0;
+        }
+        int count = 0;
+        for (PathIterator pi = shape.getPathIterator(null); !pi.isDone(); pi.next()) {
+            count++;
+        }
+        return count;
+    }
+}
@@ -0,0 +1,15 @@
+package metrics;
+
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Threshold;
+
+/**
+ * Computation of the lat/lon vertices of a graphic, such as the arc of a sector. Like the generations, only the
+ * computations taking longer than the threshold are recorded by default.
+ */
+@Name("openmap.CreateLatLonPoints")
+@Label("Create Lat/Lon Points")
+@Threshold("1 ms")
+public class LatLonPointsEvent extends GraphicsEvent {
+}
@@ -0,0 +1,33 @@
+package metrics;
+
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Phase of a repaint cycle of a layer: the generation of its graphics for a new projection, or their rendering.
+ * The object and vertex counts are the ones of the whole layer.
+ */
+@Name("openmap.LayerRepaint")
+@Label("Layer Repaint")
+public class LayerRepaintEvent extends GraphicsEvent {
+
+    /**
+     * Name of the layer.
+     */
+    @Label("Layer")
+    public String layer;
+
+    /**
+     * Phase of the cycle, generate or render.
+     */
+    @Label("Phase")
+    public String phase;
+
+    /**
+     * Create the event of a phase of a repaint cycle.
+     * @param phase name of the phase.
+     */
+    public LayerRepaintEvent(String phase) {
+        this.phase = phase;
+    }
+}
@@ -0,0 +1,293 @@
+package metrics;
+
+import com.bbn.openmap.util.Debug;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.management.StandardMBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Registry of the statistics of the operations the application wants to watch, such as the generation and the
+ * rendering of the layers or the generation of each class of graphics.
+ * <p>An operation is timed by taking the time and the allocated bytes before it, and handing them over to its
+ * statistics once done:</p>
+ * <pre>
+ * long start = System.nanoTime();
+ * long allocated = Metrics.allocatedBytes();
+ * try {
+ *     ...
+ * } finally {
+ *     stats.record(start, allocated);
+ * }
+ * </pre>
+ * <p>Operations performed for each graphic, such as their generation, only record their duration, taking their start
+ * time with {@link #startNanos()}, which doesn't read the clock while the recording is disabled, and handing it over
+ * to {@link OperationStats#record(long)}.</p>
+ * <p>Each statistics is registered as an MBean named metrics:type=Operation,source=...,operation=..., and the
+ * registry itself as metrics:type=Control, which enables or disables the recording and resets the statistics. The
+ * MBeans are only registered once the recording is enabled or {@link #registerMBeans()} is called, such as when the
+ * metrics layer is added to the map. The recording is disabled unless the metrics.enabled system property is true.
+ * The allocated bytes are measured if the runtime supports it.</p>
+ */
+public class Metrics {
+
+    /**
+     * Domain of the names of the MBeans.
+     */
+    public static final String DOMAIN = "metrics";
+
+    /**
+     * System property enabling the recording when the application starts.
+     */
+    public static final String EnabledProperty = "metrics.enabled";
+
+    /**
+     * Start time handed over by {@link #startNanos()} while the recording is disabled.
+     */
+    public static final long NOT_RECORDED = Long.MIN_VALUE;
+
+    /**
+     * Statistics of the operations, by source and operation.
+     */
+    protected static final ConcurrentMap<String, OperationStats> stats = new ConcurrentHashMap<>();
+
+    /**
+     * Thread bean measuring the bytes allocated by the threads, null if the runtime can't.
+     */
+    protected static final com.sun.management.ThreadMXBean threadBean = createThreadBean();
+
+    /**
+     * Whether the operations are recorded.
+     */
+    protected static volatile boolean enabled = Boolean.getBoolean(EnabledProperty);
+
+    /**
+     * Whether the MBeans are registered.
+     */
+    protected static boolean registered = false;
+
+    static {
+        if (enabled) {
+            registerMBeans();
+        }
+    }
+
+    private Metrics() {
+    }
+
+    /**
+     * Management interface of the registry.
+     */
+    public interface ControlMBean {
+
+        /**
+         * Tell whether the operations are recorded.
+         * @return true if they are recorded.
+         */
+        boolean isEnabled();
+
+        /**
+         * Set whether the operations are recorded.
+         * @param enabled true to record them.
+         */
+        void setEnabled(boolean enabled);
+
+        /**
+         * Forget the operations recorded so far.
+         */
+        void reset();
+    }
+
+    /**
+     * Registry as exposed through JMX.
+     */
+    protected static class Control implements ControlMBean {
+
+        @Override
+        public boolean isEnabled() {
+            return Metrics.isEnabled();
+        }
+
+        @Override
+        public void setEnabled(boolean enabled) {
+            Metrics.setEnabled(enabled);
+        }
+
+        @Override
+        public void reset() {
+            Metrics.reset();
+        }
+    }
+
+    /**
+     * Get the thread bean of the runtime if it measures the bytes allocated by the threads, enabling the
+     * measurement.
+     * @return the thread bean, or null.
+     */
+    protected static com.sun.management.ThreadMXBean createThreadBean() {
+        try {
+            ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+            if (bean instanceof com.sun.management.ThreadMXBean) {
+                com.sun.management.ThreadMXBean threadBean = (com.sun.management.ThreadMXBean) bean;
+                if (threadBean.isThreadAllocatedMemorySupported()) {
+                    threadBean.setThreadAllocatedMemoryEnabled(true);
+                    return threadBean;
+                }
+            }
+        } catch (RuntimeException | LinkageError e) {
+            Debug.message("metrics", "Metrics: allocations can't be measured: " + e);
+        }
+        return null;
+    }
+
+    /**
+     * Tell whether the operations are recorded.
+     * @return true if they are recorded.
+     */
+    public static boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Set whether the operations are recorded.
+     * @param enabled true to record them.
+     */
+    public static void setEnabled(boolean enabled) {
+        if (enabled) {
+            registerMBeans();
+        }
+        Metrics.enabled = enabled;
+    }
+
+    /**
+     * Get the start time of an operation, to be handed over to {@link OperationStats#record(long)} once the operation
+     * is done.
+     * @return value of System.nanoTime(), or {@link #NOT_RECORDED} if the recording is disabled.
+     */
+    public static long startNanos() {
+        return enabled ? System.nanoTime() : NOT_RECORDED;
+    }
+
+    /**
+     * Tell whether the bytes allocated by the operations are measured.
+     * @return true if they are measured.
+     */
+    public static boolean isAllocationMeasured() {
+        return threadBean != null;
+    }
+
+    /**
+     * Get the number of bytes allocated so far by the current thread, to be handed over to
+     * {@link OperationStats#record(long, long)} once the operation is done.
+     * @return the allocated bytes, or -1 if they are not measured or the recording is disabled.
+     */
+    public static long allocatedBytes() {
+        if (!enabled || threadBean == null) {
+            return -1;
+        }
+        return threadBean.getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+
+    /**
+     * Get the statistics of an operation, creating and registering them if needed. The statistics are meant to be
+     * kept by the caller rather than looked up on each operation.
+     * @param source name of what performs the operation, such as a layer.
+     * @param operation name of the operation.
+     * @return the statistics.
+     */
+    public static OperationStats getStats(String source, String operation) {
+        String key = source + '\u0000' + operation;
+        OperationStats operationStats = stats.get(key);
+        if (operationStats == null) {
+            OperationStats created = new OperationStats(source, operation);
+            operationStats = stats.putIfAbsent(key, created);
+            if (operationStats == null) {
+                operationStats = created;
+                synchronized (Metrics.class) {
+                    if (registered) {
+                        register(operationStats);
+                    }
+                }
+            }
+        }
+        return operationStats;
+    }
+
+    /**
+     * Get the statistics of an operation performed by a class.
+     * @param source the class performing the operation.
+     * @param operation name of the operation.
+     * @return the statistics.
+     */
+    public static OperationStats getStats(Class<?> source, String operation) {
+        return getStats(source.getSimpleName(), operation);
+    }
+
+    /**
+     * Get all the statistics, the ones of the operations which took the most time first.
+     * @return list of the statistics.
+     */
+    public static List<OperationStats> getAllStats() {
+        List<OperationStats> all = new ArrayList<>(stats.values());
+        all.sort(Comparator.comparingDouble(OperationStats::getTotalMillis).reversed());
+        return all;
+    }
+
+    /**
+     * Forget the operations recorded so far.
+     */
+    public static void reset() {
+        for (OperationStats operationStats : stats.values()) {
+            operationStats.reset();
+        }
+    }
+
+    /**
+     * Register the registry and the statistics created so far as MBeans, if they aren't yet. The statistics created
+     * afterwards are registered as they are created.
+     */
+    public static synchronized void registerMBeans() {
+        if (registered) {
+            return;
+        }
+        registered = true;
+        register(new StandardMBean(new Control(), ControlMBean.class, false), DOMAIN + ":type=Control");
+        for (OperationStats operationStats : stats.values()) {
+            register(operationStats);
+        }
+    }
+
+    /**
+     * Register the statistics of an operation as an MBean.
+     * @param operationStats the statistics.
+     */
+    protected static void register(OperationStats operationStats) {
+        register(operationStats, DOMAIN + ":type=Operation,source=" + ObjectName.quote(operationStats.getSource())
+                + ",operation=" + ObjectName.quote(operationStats.getOperation()));
+    }
+
+    /**
+     * Register an MBean on the platform server, reporting a failure rather than throwing it.
+     * @param mbean the MBean.
+     * @param name name of the MBean.
+     */
+    protected static void register(Object mbean, String name) {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName objectName = new ObjectName(name);
+            if (!server.isRegistered(objectName)) {
+                server.registerMBean(mbean, objectName);
+            }
+        } catch (JMException | RuntimeException e) {
+            Debug.error("Metrics: can't register " + name + ": " + e.getMessage());
+        }
+    }
+}
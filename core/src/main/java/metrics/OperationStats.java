@@ -0,0 +1,241 @@
+package metrics;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Statistics of an operation performed by a source, such as the rendering of a layer or the generation of a class
+ * of graphics: count, durations and allocated bytes.
+ * <p>Recording is lock free and allocates nothing, so the operation may be recorded by any thread, as often as each
+ * graphic is generated. The durations are counted into a histogram which buckets are a quarter of a power of two
+ * wide, so the percentiles are estimated within a quarter of their value without keeping the durations.</p>
+ */
+public class OperationStats implements OperationStatsMBean {
+
+    /**
+     * Number of sub-buckets each power of two is divided into.
+     */
+    protected static final int SUB_BUCKETS = 4;
+
+    /**
+     * Number of buckets of the histogram, covering all the positive longs.
+     */
+    protected static final int BUCKETS = 64 * SUB_BUCKETS;
+
+    /**
+     * Nanoseconds in a millisecond.
+     */
+    protected static final double NANOS_PER_MILLI = 1e6;
+
+    /**
+     * Name of what performs the operation.
+     */
+    protected final String source;
+
+    /**
+     * Name of the operation.
+     */
+    protected final String operation;
+
+    /**
+     * Number of operations.
+     */
+    protected final LongAdder count = new LongAdder();
+
+    /**
+     * Total duration of the operations, in nanoseconds.
+     */
+    protected final LongAdder totalNanos = new LongAdder();
+
+    /**
+     * Longest duration of the operations, in nanoseconds.
+     */
+    protected final LongAccumulator maxNanos = new LongAccumulator(Math::max, 0);
+
+    /**
+     * Bytes allocated by the operations.
+     */
+    protected final LongAdder allocatedBytes = new LongAdder();
+
+    /**
+     * Number of operations which allocations have been measured.
+     */
+    protected final LongAdder allocationCount = new LongAdder();
+
+    /**
+     * Number of operations which durations fall in each bucket.
+     */
+    protected final AtomicLongArray histogram = new AtomicLongArray(BUCKETS);
+
+    /**
+     * Create the statistics of an operation.
+     * @param source name of what performs the operation.
+     * @param operation name of the operation.
+     */
+    public OperationStats(String source, String operation) {
+        this.source = source;
+        this.operation = operation;
+    }
+
+    /**
+     * Record an operation which started at the given time, if the metrics are enabled.
+     * @param startNanos value of System.nanoTime() when the operation started, or {@link Metrics#NOT_RECORDED}.
+     * @param startAllocatedBytes value of {@link Metrics#allocatedBytes()} when the operation started.
+     */
+    public void record(long startNanos, long startAllocatedBytes) {
+        if (startNanos == Metrics.NOT_RECORDED || !Metrics.isEnabled()) {
+            return;
+        }
+        long nanos = Math.max(System.nanoTime() - startNanos, 0);
+        count.increment();
+        totalNanos.add(nanos);
+        maxNanos.accumulate(nanos);
+        histogram.incrementAndGet(bucket(nanos));
+        if (startAllocatedBytes >= 0) {
+            long allocated = Metrics.allocatedBytes();
+            if (allocated >= startAllocatedBytes) {
+                allocationCount.increment();
+                allocatedBytes.add(allocated - startAllocatedBytes);
+            }
+        }
+    }
+
+    /**
+     * Record the duration of an operation which started at the given time, without its allocations, if the metrics
+     * are enabled. Measuring the allocations costs about as much as the duration, so the operations performed for
+     * each graphic only record their duration.
+     * @param startNanos value of {@link Metrics#startNanos()} when the operation started.
+     */
+    public void record(long startNanos) {
+        record(startNanos, -1);
+    }
+
+    /**
+     * Get the bucket of the histogram a duration falls in.
+     * @param nanos the duration, in nanoseconds.
+     * @return index of the bucket.
+     */
+    protected static int bucket(long nanos) {
+        if (nanos < 2 * SUB_BUCKETS) {
+            return (int) nanos;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(nanos);
+        int sub = (int) (nanos >>> (exponent - 2)) - SUB_BUCKETS;
+        return exponent * SUB_BUCKETS + sub;
+    }
+
+    /**
+     * Get the greatest duration falling in a bucket of the histogram.
+     * @param bucket index of the bucket.
+     * @return the duration, in nanoseconds.
+     */
+    protected static long bucketLimit(int bucket) {
+        if (bucket < 2 * SUB_BUCKETS) {
+            return bucket;
+        }
+        int exponent = bucket / SUB_BUCKETS;
+        long sub = bucket % SUB_BUCKETS + SUB_BUCKETS;
+        return exponent >= 62 ? Long.MAX_VALUE : ((sub + 1) << (exponent - 2)) - 1;
+    }
+
+    /**
+     * Estimate the duration a fraction of the operations don't exceed.
+     * @param fraction the fraction, between 0 and 1.
+     * @return the duration, in milliseconds, or 0 if no operation has been recorded.
+     */
+    public double getPercentileMillis(double fraction) {
+        long total = 0;
+        long[] counts = new long[BUCKETS];
+        for (int i = 0; i < BUCKETS; i++) {
+            counts[i] = histogram.get(i);
+            total += counts[i];
+        }
+        if (total == 0) {
+            return 0;
+        }
+        long rank = Math.max((long) Math.ceil(fraction * total), 1);
+        long cumulated = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            cumulated += counts[i];
+            if (cumulated >= rank) {
+                return Math.min(bucketLimit(i), maxNanos.get()) / NANOS_PER_MILLI;
+            }
+        }
+        return maxNanos.get() / NANOS_PER_MILLI;
+    }
+
+    @Override
+    public String getSource() {
+        return source;
+    }
+
+    @Override
+    public String getOperation() {
+        return operation;
+    }
+
+    @Override
+    public long getCount() {
+        return count.sum();
+    }
+
+    @Override
+    public double getTotalMillis() {
+        return totalNanos.sum() / NANOS_PER_MILLI;
+    }
+
+    @Override
+    public double getMeanMillis() {
+        long n = count.sum();
+        return n == 0 ? 0 : totalNanos.sum() / NANOS_PER_MILLI / n;
+    }
+
+    @Override
+    public double getMaxMillis() {
+        return maxNanos.get() / NANOS_PER_MILLI;
+    }
+
+    @Override
+    public double getP50Millis() {
+        return getPercentileMillis(0.5);
+    }
+
+    @Override
+    public double getP95Millis() {
+        return getPercentileMillis(0.95);
+    }
+
+    @Override
+    public double getP99Millis() {
+        return getPercentileMillis(0.99);
+    }
+
+    @Override
+    public long getAllocatedBytes() {
+        return Metrics.isAllocationMeasured() && allocationCount.sum() > 0 ? allocatedBytes.sum() : -1;
+    }
+
+    @Override
+    public long getAllocatedBytesPerOperation() {
+        long n = allocationCount.sum();
+        return Metrics.isAllocationMeasured() && n > 0 ? allocatedBytes.sum() / n : -1;
+    }
+
+    @Override
+    public void reset() {
+        count.reset();
+        totalNanos.reset();
+        maxNanos.reset();
+        allocatedBytes.reset();
+        allocationCount.reset();
+        for (int i = 0; i < BUCKETS; i++) {
+            histogram.set(i, 0);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return source + " " + operation + ": " + getCount() + " in " + getTotalMillis() + " ms";
+    }
+}
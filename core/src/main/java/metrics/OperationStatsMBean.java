@@ -0,0 +1,79 @@
+package metrics;
+
+/**
+ * Management interface of the statistics of an operation, exposed through JMX. Durations are in milliseconds, the
+ * percentiles being estimated within a quarter of their value.
+ */
+public interface OperationStatsMBean {
+
+    /**
+     * Get the name of what performs the operation, such as a layer or a class of graphics.
+     * @return the source of the operation.
+     */
+    String getSource();
+
+    /**
+     * Get the name of the operation.
+     * @return the operation.
+     */
+    String getOperation();
+
+    /**
+     * Get the number of times the operation has been performed.
+     * @return the count.
+     */
+    long getCount();
+
+    /**
+     * Get the total time spent in the operation.
+     * @return the total duration, in milliseconds.
+     */
+    double getTotalMillis();
+
+    /**
+     * Get the mean duration of the operation.
+     * @return the mean duration, in milliseconds.
+     */
+    double getMeanMillis();
+
+    /**
+     * Get the longest duration of the operation.
+     * @return the maximal duration, in milliseconds.
+     */
+    double getMaxMillis();
+
+    /**
+     * Get the median duration of the operation.
+     * @return the 50th percentile, in milliseconds.
+     */
+    double getP50Millis();
+
+    /**
+     * Get the duration 95% of the operations don't exceed.
+     * @return the 95th percentile, in milliseconds.
+     */
+    double getP95Millis();
+
+    /**
+     * Get the duration 99% of the operations don't exceed.
+     * @return the 99th percentile, in milliseconds.
+     */
+    double getP99Millis();
+
+    /**
+     * Get the number of bytes allocated by the operation, if the runtime measures the allocations of threads.
+     * @return the allocated bytes, or -1 if they are not measured.
+     */
+    long getAllocatedBytes();
+
+    /**
+     * Get the mean number of bytes allocated by each operation.
+     * @return the allocated bytes per operation, or -1 if they are not measured.
+     */
+    long getAllocatedBytesPerOperation();
+
+    /**
+     * Forget the operations recorded so far.
+     */
+    void reset();
+}
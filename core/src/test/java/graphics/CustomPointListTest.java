@@ -0,0 +1,154 @@
+package graphics;
+
+import com.bbn.openmap.omGraphics.OMGraphic;
+import com.bbn.openmap.proj.Mercator;
+import com.bbn.openmap.proj.coords.LatLonPoint;
+import org.junit.Test;
+
+import java.awt.*;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests of {@link CustomPointList}.
+ */
+public class CustomPointListTest {
+
+    /**
+     * Add a record with default radius and colors.
+     * @param list the list.
+     * @param lat latitude in decimal degrees.
+     * @param lon longitude in decimal degrees.
+     * @param name name of the record.
+     * @return index of the record.
+     */
+    protected static int add(CustomPointList list, double lat, double lon, String name) {
+        return list.addRecord(lat, lon, 3, 0, false, name, Color.black.getRGB(), Color.white.getRGB());
+    }
+
+    /**
+     * Get the names of points.
+     * @param points the points.
+     * @return the names, sorted.
+     */
+    protected static List<String> names(List<CustomPoint> points) {
+        return points.stream().map(CustomPoint::getName).sorted().collect(Collectors.toList());
+    }
+
+    /**
+     * Records hold the state of the points they are created from.
+     */
+    @Test
+    public void storesRecords() {
+        CustomPointList list = new CustomPointList();
+        CustomPoint point = new CustomPoint(12.5, -3.25, 7);
+        point.setName("Depot");
+        point.setOval(true);
+        point.setRotationAngle(0.5);
+        point.setFillPaint(Color.red);
+        int index = list.addRecord(point);
+        assertEquals(1, list.getRecordCount());
+        CustomPoint created = list.createPoint(index);
+        assertEquals(12.5, created.getLat(), 1e-6);
+        assertEquals(-3.25, created.getLon(), 1e-6);
+        assertEquals(7, created.getRadius());
+        assertTrue(created.isOval());
+        assertEquals(0.5, created.getRotationAngle(), 0);
+        assertEquals("Depot", created.getName());
+        assertEquals(Color.red, created.getFillPaint());
+    }
+
+    /**
+     * Removing a record moves the last record into its place, and the indexes follow.
+     */
+    @Test
+    public void removesRecords() {
+        CustomPointList list = new CustomPointList();
+        add(list, 0, 0, "Alpha");
+        add(list, 10, 10, "Bravo");
+        add(list, 20, 20, "Charlie");
+        assertEquals(Collections.singletonList("Bravo"), names(list.searchRecords("bravo", 10)));
+        assertEquals(1, list.queryRecords(9, 9, 11, 11, null).count());
+        list.removeRecord(0);
+        assertEquals(2, list.getRecordCount());
+        assertEquals("Charlie", list.getRecordName(0));
+        assertEquals(Collections.emptyList(), names(list.searchRecords("alpha", 10)));
+        assertEquals(0, list.queryRecords(-1, -1, 1, 1, null).count());
+        assertEquals(Collections.singletonList("Charlie"), list.queryRecords(19, 19, 21, 21, null)
+                .map(CustomPoint::getName).collect(Collectors.toList()));
+    }
+
+    /**
+     * Records are found by region and name predicate, across the date line too.
+     */
+    @Test
+    public void queriesRecords() {
+        CustomPointList list = new CustomPointList();
+        add(list, 1, 179, "East Buoy");
+        add(list, 1, -179, "West Buoy");
+        add(list, 1, -179.5, "West Mast");
+        add(list, 1, 0, "Greenwich Buoy");
+        assertEquals(Arrays.asList("East Buoy", "West Buoy"), list.queryRecords(0, 170, 2, -170,
+                name -> name.endsWith("Buoy")).map(CustomPoint::getName).sorted().collect(Collectors.toList()));
+    }
+
+    /**
+     * Records close to each other on the screen are grouped into a cluster, which shrinks as records are removed.
+     */
+    @Test
+    public void clustersRecords() {
+        CustomPointList list = new CustomPointList();
+        for (int i = 0; i < 5; i++) {
+            add(list, 40 + i * 0.001, 5, "Point " + i);
+        }
+        list.setClustering(true);
+        Mercator proj = new Mercator(new LatLonPoint.Double(40, 5), 100000000f, 800, 600);
+        list.generate(proj);
+        Point center = new Point(400, 300);
+        OMGraphic found = list.findClosest(center.x, center.y, 10);
+        assertTrue(found instanceof PointCluster);
+        assertEquals(5, ((PointCluster) found).getCount());
+
+        for (int i = 0; i < 3; i++) {
+            list.removeRecord(list.getRecordCount() - 1);
+        }
+        list.generate(proj);
+        found = list.findClosest(center.x, center.y, 10);
+        assertTrue(found instanceof PointCluster);
+        assertEquals(2, ((PointCluster) found).getCount());
+
+        list.removeRecord(1);
+        list.generate(proj);
+        found = list.findClosest(center.x, center.y, 10);
+        assertTrue(found instanceof CustomPoint);
+        assertEquals("Point 0", ((CustomPoint) found).getName());
+    }
+
+    /**
+     * A record found under the mouse is materialized as a point until it is released, which writes it back.
+     */
+    @Test
+    public void materializesRecords() {
+        CustomPointList list = new CustomPointList();
+        int index = add(list, 0, 0, "Alpha");
+        CustomPoint point = list.materialize(index);
+        assertTrue(list.isMaterialized(index));
+        assertSame(point, list.materialize(index));
+        assertNotNull(point);
+        point.setName("Renamed");
+        assertTrue(list.release(point));
+        assertFalse(list.isMaterialized(index));
+        assertFalse(list.release(point));
+        assertEquals("Renamed", list.getRecordName(index));
+        assertNull(list.findClosest(0, 0, 1));
+    }
+}
@@ -0,0 +1,85 @@
+package graphics;
+
+import org.junit.Test;
+
+import javax.swing.text.BadLocationException;
+import javax.swing.text.PlainDocument;
+import java.util.Locale;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests of {@link DecimalParser}.
+ */
+public class DecimalParserTest {
+
+    /**
+     * Check that a string is parsed as Double.parseDouble parses it, bit for bit.
+     * @param parser the parser.
+     * @param text the string.
+     */
+    protected static void assertParsed(DecimalParser parser, String text) {
+        double expected = Double.parseDouble(text.trim().replace(',', '.'));
+        assertEquals(text, Double.doubleToLongBits(expected), Double.doubleToLongBits(parser.parse(text)));
+    }
+
+    /**
+     * Numbers are rounded as Double.parseDouble rounds them, whether they are scaled exactly or handed over to it.
+     */
+    @Test
+    public void parsesAsParseDouble() {
+        DecimalParser parser = new DecimalParser();
+        String[] numbers = {"0", "-0", "12", "+12", "-45.5", "0.1", "0.30000000000000004", "179.99999999999997",
+                "-89.123456789012", "1e3", "1.5E-3", "2.5e+2", ".5", "5.", "123456789012345678901234567890",
+                "0.000000000000000000000000123", "4.9e-324", "1.7976931348623157e308", "1e400", "  42.25  "};
+        for (String number : numbers) {
+            assertParsed(parser, number);
+        }
+        Random random = new Random(1);
+        for (int i = 0; i < 10000; i++) {
+            assertParsed(parser, Double.toString((random.nextDouble() - 0.5) * 360));
+            assertParsed(parser, String.format(Locale.ROOT, "%.6f", (random.nextDouble() - 0.5) * 180));
+        }
+    }
+
+    /**
+     * A decimal comma is read as a decimal point.
+     */
+    @Test
+    public void acceptsDecimalComma() {
+        DecimalParser parser = new DecimalParser();
+        assertEquals(12.5, parser.parse("12,5"), 0);
+        assertEquals(-0.25, parser.parse("-,25"), 0);
+    }
+
+    /**
+     * Anything which is not a number gives NaN, and doesn't spoil the next parse.
+     */
+    @Test
+    public void reportsInvalidNumbersAsNaN() {
+        DecimalParser parser = new DecimalParser();
+        String[] invalid = {null, "", "  ", "-", ".", "1.2.3", "1,2.3", "12a", "e5", "1e", "1e+", "--1", "1 2",
+                "NaN", "Infinity", "0x10"};
+        for (String text : invalid) {
+            assertTrue(String.valueOf(text), Double.isNaN(parser.parse(text)));
+        }
+        assertEquals(7, parser.parse("7"), 0);
+    }
+
+    /**
+     * The characters of a document and of an array are parsed in place.
+     */
+    @Test
+    public void parsesDocumentsAndArrays() throws BadLocationException {
+        DecimalParser parser = new DecimalParser();
+        PlainDocument document = new PlainDocument();
+        document.insertString(0, " -33.865 ", null);
+        assertEquals(-33.865, parser.parse(document), 0);
+        document.insertString(document.getLength(), "x", null);
+        assertTrue(Double.isNaN(parser.parse(document)));
+        char[] chars = "lat=151.209;".toCharArray();
+        assertEquals(151.209, parser.parse(chars, 4, 7), 0);
+    }
+}
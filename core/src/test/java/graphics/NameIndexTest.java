@@ -0,0 +1,123 @@
+package graphics;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests of {@link NameIndex}.
+ */
+public class NameIndexTest {
+
+    /**
+     * Create an index of objects named after themselves.
+     * @param names the names.
+     * @return the index.
+     */
+    protected static NameIndex<String> index(String... names) {
+        NameIndex<String> index = new NameIndex<>();
+        for (String name : names) {
+            index.add(name, name);
+        }
+        return index;
+    }
+
+    /**
+     * The exact name comes first, then the names starting with the query, then those containing it.
+     */
+    @Test
+    public void ranksExactPrefixAndSubstringMatches() {
+        NameIndex<String> index = index("Port Harbor", "Harbor", "Harbor Light", "Old Harbor Road", "Lighthouse");
+        assertEquals(Arrays.asList("Harbor", "Harbor Light", "Port Harbor", "Old Harbor Road"),
+                index.search("harbor", 10));
+    }
+
+    /**
+     * Names are compared ignoring case.
+     */
+    @Test
+    public void ignoresCase() {
+        NameIndex<String> index = index("Alpha Base");
+        assertEquals(Collections.singletonList("Alpha Base"), index.search("ALPHA base", 10));
+    }
+
+    /**
+     * Names within a small edit distance of the query are found when nothing better matches.
+     */
+    @Test
+    public void findsMisspelledNames() {
+        NameIndex<String> index = index("Brighton", "Bristol", "Boston");
+        assertEquals(Collections.singletonList("Brighton"), index.search("Brigthon", 10));
+        assertEquals(Collections.singletonList("Boston"), index.search("Bostn", 10));
+        assertEquals(Collections.emptyList(), index.search("Manchester", 10));
+    }
+
+    /**
+     * Short queries are matched as substrings without trigrams.
+     */
+    @Test
+    public void findsShortSubstrings() {
+        NameIndex<String> index = index("Alpha", "Bravo", "Charlie");
+        assertEquals(Collections.singletonList("Charlie"), index.search("rl", 10));
+    }
+
+    /**
+     * The number of names matched is limited, the objects of a name being returned together.
+     */
+    @Test
+    public void limitsNamesMatched() {
+        NameIndex<String> index = index("Point 1", "Point 2", "Point 3");
+        index.add("Point 1", "other");
+        assertEquals(Arrays.asList("Point 1", "other", "Point 2"), index.search("point", 2));
+        assertEquals(Collections.emptyList(), index.search("point", 0));
+        assertEquals(Collections.emptyList(), index.search("  ", 10));
+    }
+
+    /**
+     * Removed objects are no longer found, including after the posting lists are rebuilt.
+     */
+    @Test
+    public void removesObjects() {
+        NameIndex<String> index = index("North Gate", "South Gate", "East Gate", "West Gate");
+        assertTrue(index.remove("North Gate", "North Gate"));
+        assertFalse(index.remove("North Gate", "North Gate"));
+        assertTrue(index.remove("South Gate", "South Gate"));
+        assertTrue(index.remove("East Gate", "East Gate"));
+        assertEquals(1, index.size());
+        assertEquals(Collections.singletonList("West Gate"), index.search("gate", 10));
+        index.add("North Gate", "North Gate");
+        assertEquals(Arrays.asList("West Gate", "North Gate"), index.search("gate", 10));
+    }
+
+    /**
+     * Many objects share a name, as unnamed graphics share their default name, and are added and removed one by one.
+     */
+    @Test
+    public void sharesNamesBetweenManyObjects() {
+        NameIndex<Integer> index = new NameIndex<>();
+        int count = 200000;
+        for (int i = 0; i < count; i++) {
+            index.add("point", i);
+            index.add("Point", i);
+        }
+        assertEquals(1, index.size());
+        List<Integer> found = index.search("point", 1);
+        assertEquals(count, found.size());
+        assertEquals(Integer.valueOf(0), found.get(0));
+        assertEquals(Integer.valueOf(count - 1), found.get(count - 1));
+        for (int i = 0; i < count - 1; i++) {
+            assertTrue(index.remove("point", i));
+        }
+        assertFalse(index.remove("point", 0));
+        assertEquals(Collections.singletonList(count - 1), index.search("point", 1));
+        assertTrue(index.remove("point", count - 1));
+        assertEquals(0, index.size());
+        assertEquals(Collections.emptyList(), index.search("point", 1));
+    }
+}
@@ -0,0 +1,156 @@
+package graphics;
+
+import com.bbn.openmap.omGraphics.OMGraphic;
+import com.bbn.openmap.proj.Mercator;
+import com.bbn.openmap.proj.coords.LatLonPoint;
+import org.junit.Test;
+
+import java.awt.geom.GeneralPath;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests of {@link ProjectedShapeCache}.
+ */
+public class ProjectedShapeCacheTest {
+
+    /**
+     * Create a projection.
+     * @param scale scale of the projection.
+     * @return the projection.
+     */
+    protected static Mercator projection(float scale) {
+        return new Mercator(new LatLonPoint.Double(0, 0), scale, 800, 600);
+    }
+
+    /**
+     * Create a shape of a segment.
+     * @return the shape.
+     */
+    protected static GeneralPath segment() {
+        GeneralPath shape = new GeneralPath();
+        shape.moveTo(0, 0);
+        shape.lineTo(10, 10);
+        return shape;
+    }
+
+    /**
+     * A shape is found for the graphic, projection and version it was generated for, and removed with the graphic.
+     */
+    @Test
+    public void keepsShapesPerGraphicProjectionAndVersion() {
+        ProjectedShapeCache cache = new ProjectedShapeCache(1 << 20);
+        Object graphic = new Object();
+        Mercator proj = projection(1000000f);
+        GeneralPath shape = segment();
+        cache.put(graphic, 1, proj, shape, null);
+        assertSame(shape, cache.get(graphic, 1, proj).shape);
+        assertNull(cache.get(new Object(), 1, proj));
+        assertNull(cache.get(graphic, 1, projection(2000000f)));
+        assertNull(cache.get(graphic, 2, proj));
+        // the obsolete shape is forgotten
+        assertEquals(0, cache.getBytes());
+
+        cache.put(graphic, 2, proj, shape, null);
+        assertTrue(cache.getBytes() > 0);
+        cache.remove(graphic);
+        assertNull(cache.get(graphic, 2, proj));
+        assertEquals(0, cache.getBytes());
+    }
+
+    /**
+     * The shapes of the least recently used projection are evicted first, and a projection filling the budget alone
+     * keeps its shapes but takes no more.
+     */
+    @Test
+    public void evictsProjectionsAndStopsFillingTheBudget() {
+        long entry = ProjectedShapeCache.estimateBytes(segment(), null);
+        ProjectedShapeCache cache = new ProjectedShapeCache(3 * entry);
+        Mercator first = projection(1000000f);
+        Mercator second = projection(2000000f);
+        Object a = new Object();
+        Object b = new Object();
+        cache.put(a, 1, first, segment(), null);
+        cache.put(a, 1, second, segment(), null);
+        cache.put(b, 1, second, segment(), null);
+        assertEquals(3 * entry, cache.getBytes());
+
+        Object c = new Object();
+        cache.put(c, 1, second, segment(), null);
+        assertNull(cache.get(a, 1, first));
+        assertNotNull(cache.get(a, 1, second));
+        assertNotNull(cache.get(c, 1, second));
+
+        Object d = new Object();
+        cache.put(d, 1, second, segment(), null);
+        Object e = new Object();
+        cache.put(e, 1, second, segment(), null);
+        // full: the shapes are kept, the new ones are not
+        assertNotNull(cache.get(a, 1, second));
+        assertNotNull(cache.get(d, 1, second));
+        assertNull(cache.get(e, 1, second));
+
+        cache.setMaxBytes(0);
+        assertEquals(0, cache.getBytes());
+    }
+
+    /**
+     * Poly exposing its projected points.
+     */
+    protected static class ExposedPoly extends CustomPoly {
+
+        /**
+         * Create a poly of straight lines.
+         * @param llPoints lat/lon points in decimal degrees.
+         */
+        protected ExposedPoly(double[] llPoints) {
+            super(llPoints, DECIMAL_DEGREES, LINETYPE_STRAIGHT);
+            addArrowHead(true);
+        }
+
+        /**
+         * Get the projected x coordinates of the parts of the poly.
+         * @return the coordinates.
+         */
+        protected float[][] getXpoints() {
+            return xpoints;
+        }
+
+        /**
+         * Get the projected y coordinates of the parts of the poly.
+         * @return the coordinates.
+         */
+        protected float[][] getYpoints() {
+            return ypoints;
+        }
+    }
+
+    /**
+     * A poly going back to a projection gets the points and arrowhead projected for it, not those of the last
+     * projection it was generated for.
+     */
+    @Test
+    public void restoresPolyPoints() {
+        double[] llPoints = {10, 10, 20, 30, 15, 40};
+        ExposedPoly poly = new ExposedPoly(llPoints.clone());
+        Mercator near = projection(10000000f);
+        Mercator far = projection(50000000f);
+        assertTrue(poly.generate(near));
+        assertTrue(poly.generate(far));
+        assertTrue(poly.generate(near));
+
+        ExposedPoly expected = new ExposedPoly(llPoints.clone());
+        assertTrue(expected.generate(near));
+        assertEquals(expected.getXpoints().length, poly.getXpoints().length);
+        for (int i = 0; i < expected.getXpoints().length; i++) {
+            assertArrayEquals(expected.getXpoints()[i], poly.getXpoints()[i], 0);
+            assertArrayEquals(expected.getYpoints()[i], poly.getYpoints()[i], 0);
+        }
+        assertEquals(expected.getArrowHead().getShape().getBounds(), poly.getArrowHead().getShape().getBounds());
+    }
+}
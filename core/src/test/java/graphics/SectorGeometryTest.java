@@ -0,0 +1,123 @@
+package graphics;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests of {@link SectorGeometry}.
+ */
+public class SectorGeometryTest {
+
+    /**
+     * Tolerance on the ends of the arc, in radians, about 1 cm.
+     */
+    protected static final double END_TOLERANCE = 2e-9;
+
+    /**
+     * Check the layout of the points of a sector: the arc from the north corner towards east, the center and the first
+     * point again.
+     * @param points points of the sector, in radians.
+     * @param south southern latitude of the sector, in decimal degrees.
+     * @param west western longitude of the sector, in decimal degrees.
+     * @param north northern latitude of the sector, in decimal degrees.
+     * @param tolerance tolerance on the north end of the arc, in radians.
+     */
+    protected static void assertSector(double[] points, double south, double west, double north, double tolerance) {
+        int center = 2 * SectorGeometry.ARC_POINTS;
+        assertEquals(center + 4, points.length);
+        assertEquals(Math.toRadians(north), points[0], tolerance);
+        assertEquals(Math.toRadians(west), points[1], 0);
+        assertEquals(Math.toRadians(south), points[center], 0);
+        assertEquals(Math.toRadians(west), points[center + 1], 0);
+        assertEquals(points[0], points[center + 2], 0);
+        assertEquals(points[1], points[center + 3], 0);
+    }
+
+    /**
+     * Get the position of a point of the arc of a sector on the ellipse scaled into the latitude and longitude
+     * differences of the sector.
+     * @param points points of the sector, in radians.
+     * @param i index of the point of the arc.
+     * @param south southern latitude of the sector, in decimal degrees.
+     * @param west western longitude of the sector, in decimal degrees.
+     * @param north northern latitude of the sector, in decimal degrees.
+     * @param east eastern longitude of the sector, in decimal degrees.
+     * @return 1 if the point is on the ellipse.
+     */
+    protected static double onEllipse(double[] points, int i, double south, double west, double north, double east) {
+        double y = (points[2 * i] - Math.toRadians(south)) / Math.toRadians(north - south);
+        double x = (points[2 * i + 1] - Math.toRadians(west)) / Math.toRadians(east - west);
+        return x * x + y * y;
+    }
+
+    /**
+     * A small sector computed in a plane has its arc on the ellipse through its north and east corners, stopping 10
+     * degrees short of the east corner.
+     */
+    @Test
+    public void computesPlanarSector() {
+        double[] points = SectorGeometry.computePlanar(45, 10, 45.05, 10.05);
+        assertSector(points, 45, 10, 45.05, END_TOLERANCE);
+        for (int i = 0; i < SectorGeometry.ARC_POINTS; i++) {
+            assertEquals(1, onEllipse(points, i, 45, 10, 45.05, 10.05), 1e-3);
+        }
+        int last = 2 * (SectorGeometry.ARC_POINTS - 1);
+        double azimuth = Math.atan2((points[last + 1] - Math.toRadians(10)) / Math.toRadians(0.05),
+                (points[last] - Math.toRadians(45)) / Math.toRadians(0.05));
+        assertTrue(azimuth < Math.toRadians(90));
+        assertTrue(points[last + 1] < Math.toRadians(10.05));
+    }
+
+    /**
+     * The corners may be given in any order.
+     */
+    @Test
+    public void acceptsCornersInAnyOrder() {
+        assertArrayEquals(SectorGeometry.computePlanar(45, 10, 46, 11), SectorGeometry.computePlanar(46, 11, 45, 10),
+                0);
+        assertArrayEquals(SectorGeometry.computeEllipsoidal(45, 10, 46, 11),
+                SectorGeometry.computeEllipsoidal(46, 10, 45, 11), 0);
+    }
+
+    /**
+     * A large sector computed on the ellipsoid reaches its north latitude along the meridian.
+     */
+    @Test
+    public void computesEllipsoidalSector() {
+        double[] points = SectorGeometry.computeEllipsoidal(-30, 100, -20, 110);
+        assertSector(points, -30, 100, -20, 1e-8);
+        // the geodesics bend away from the ellipse scaled into degrees
+        for (int i = 0; i < SectorGeometry.ARC_POINTS; i++) {
+            assertEquals(1, onEllipse(points, i, -30, 100, -20, 110), 0.05);
+        }
+    }
+
+    /**
+     * The plane and the ellipsoid agree on small sectors.
+     */
+    @Test
+    public void planarMatchesEllipsoidalForSmallSectors() {
+        double[] planar = SectorGeometry.computePlanar(60, -20, 60.02, -19.96);
+        double[] ellipsoidal = SectorGeometry.computeEllipsoidal(60, -20, 60.02, -19.96);
+        // 1e-8 radians is about 6 cm
+        assertArrayEquals(ellipsoidal, planar, 1e-8);
+    }
+
+    /**
+     * Sectors are computed in a plane under the planar size only.
+     */
+    @Test
+    public void choosesPlaneBySize() {
+        SectorGeometry geometry = new SectorGeometry(10000);
+        assertArrayEquals(SectorGeometry.computePlanar(10, 10, 10.05, 10.05),
+                geometry.computeLatLonPoints(10, 10, 10.05, 10.05), 0);
+        assertArrayEquals(SectorGeometry.computeEllipsoidal(10, 10, 10.5, 10.5),
+                geometry.computeLatLonPoints(10, 10, 10.5, 10.5), 0);
+        geometry.setPlanarSize(0);
+        assertArrayEquals(SectorGeometry.computeEllipsoidal(10, 10, 10.05, 10.05),
+                geometry.computeLatLonPoints(10, 10, 10.05, 10.05), 0);
+    }
+}
@@ -0,0 +1,140 @@
+package graphics;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests of {@link SpatialIndex}.
+ */
+public class SpatialIndexTest {
+
+    /**
+     * Query the index, sorting the result.
+     * @param index the index.
+     * @param south southern latitude of the region.
+     * @param west western longitude of the region.
+     * @param north northern latitude of the region.
+     * @param east eastern longitude of the region.
+     * @return the objects found, sorted.
+     */
+    protected static List<String> query(SpatialIndex<String> index, double south, double west, double north,
+                                        double east) {
+        return index.query(south, west, north, east).sorted().collect(Collectors.toList());
+    }
+
+    /**
+     * Objects are found by the regions they intersect, once even if they span several cells.
+     */
+    @Test
+    public void findsIntersectingObjectsOnce() {
+        SpatialIndex<String> index = new SpatialIndex<>();
+        index.add("point", 10.5, 20.5, 10.5, 20.5);
+        index.add("area", 5, 15, 15, 25);
+        index.add("far", -40, -60, -39, -59);
+        assertEquals(Arrays.asList("area", "point"), query(index, 10, 20, 11, 21));
+        assertEquals(Collections.singletonList("area"), query(index, 14, 24, 16, 26));
+        assertEquals(Arrays.asList("area", "far", "point"), query(index, -90, -180, 90, 180));
+        assertEquals(Collections.emptyList(), query(index, 30, 30, 40, 40));
+    }
+
+    /**
+     * Objects larger than the cells they may be put in are still found.
+     */
+    @Test
+    public void findsLargeObjects() {
+        SpatialIndex<String> index = new SpatialIndex<>(0.01);
+        index.add("large", -50, -100, 50, 100);
+        assertEquals(Collections.singletonList("large"), query(index, 0, 0, 0.001, 0.001));
+        assertEquals(Collections.emptyList(), query(index, 60, 0, 61, 1));
+    }
+
+    /**
+     * A query crossing the date line finds the objects on both sides of it.
+     */
+    @Test
+    public void queriesAcrossTheDateLine() {
+        SpatialIndex<String> index = new SpatialIndex<>();
+        index.add("east", 0, 175, 1, 176);
+        index.add("west", 0, -176, 1, -175);
+        index.add("middle", 0, 0, 1, 1);
+        assertEquals(Arrays.asList("east", "west"), query(index, -1, 170, 2, -170));
+    }
+
+    /**
+     * Bounds crossing the date line are found from both sides of it, once.
+     */
+    @Test
+    public void indexesBoundsAcrossTheDateLine() {
+        SpatialIndex<String> index = new SpatialIndex<>();
+        index.add("crossing", -10, 170, 10, -170);
+        assertEquals(Collections.singletonList("crossing"), query(index, -1, 174, 1, 176));
+        assertEquals(Collections.singletonList("crossing"), query(index, -1, -176, 1, -174));
+        assertEquals(Collections.singletonList("crossing"), query(index, -1, 165, 1, -165));
+        assertEquals(Collections.singletonList("crossing"), query(index, -90, -180, 90, 180));
+        assertEquals(Collections.emptyList(), query(index, -1, 0, 1, 10));
+    }
+
+    /**
+     * Small bounds crossing the date line, which stay in the cells rather than in the large objects, are found once
+     * they are added one by one or all at once, and no longer found once removed.
+     */
+    @Test
+    public void indexesSmallBoundsAcrossTheDateLine() {
+        SpatialIndex<String> index = new SpatialIndex<>();
+        index.add("crossing", 0, 179.5, 0.5, -179.5);
+        assertEquals(Collections.singletonList("crossing"), query(index, 0, 179.5, 0.5, -179.5));
+        assertEquals(Collections.singletonList("crossing"), query(index, 0, -179.9, 0.5, -179.8));
+        assertTrue(index.remove("crossing"));
+        assertEquals(Collections.emptyList(), query(index, 0, 179.5, 0.5, -179.5));
+
+        index.addAll(Arrays.asList("crossing", "other"),
+                Arrays.asList(new double[]{0, 179.5, 0.5, -179.5}, new double[]{10, 10, 11, 11}));
+        assertEquals(Collections.singletonList("crossing"), query(index, 0, 179.8, 0.5, 179.9));
+        assertTrue(index.remove("crossing"));
+        assertEquals(1, index.size());
+        assertEquals(Collections.emptyList(), query(index, 0, 179.5, 0.5, -179.5));
+        assertEquals(Collections.emptyList(), query(index, -90, -180, 90, 180).stream()
+                .filter("crossing"::equals).collect(Collectors.toList()));
+    }
+
+    /**
+     * Adding an object again moves it, and removing it removes it.
+     */
+    @Test
+    public void movesAndRemovesObjects() {
+        SpatialIndex<String> index = new SpatialIndex<>();
+        index.add("moving", 0, 0, 1, 1);
+        index.add("moving", 40, 40, 41, 41);
+        assertEquals(1, index.size());
+        assertEquals(Collections.emptyList(), query(index, 0, 0, 1, 1));
+        assertEquals(Collections.singletonList("moving"), query(index, 40, 40, 41, 41));
+        assertTrue(index.remove("moving"));
+        assertFalse(index.remove("moving"));
+        assertEquals(0, index.size());
+        assertEquals(Collections.emptyList(), query(index, 40, 40, 41, 41));
+    }
+
+    /**
+     * Objects are returned in the order they were first added, the unbounded ones only on request.
+     */
+    @Test
+    public void queriesInOrder() {
+        SpatialIndex<String> index = new SpatialIndex<>();
+        index.add("first", 0, 0, 1, 1);
+        index.addUnbounded("screen");
+        index.add("second", 0, 0, 1, 1);
+        index.add("first", 0.5, 0.5, 1, 1);
+        assertEquals(Arrays.asList("first", "second"), index.queryInOrder(0, 0, 1, 1, false));
+        assertEquals(Arrays.asList("first", "screen", "second"), index.queryInOrder(0, 0, 1, 1, true));
+        assertEquals(Collections.emptyList(), query(index, -90, -180, 90, 180).stream()
+                .filter("screen"::equals).collect(Collectors.toList()));
+    }
+}
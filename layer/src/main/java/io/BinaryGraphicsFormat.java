@@ -0,0 +1,196 @@
+package io;
+
+import com.bbn.openmap.omGraphics.OMGraphic;
+import com.bbn.openmap.omGraphics.OMGraphicConstants;
+import graphics.CustomPoint;
+import graphics.CustomPoly;
+import graphics.CustomSector;
+
+import java.awt.*;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Binary form of the custom graphics, holding the same fields as the {@link CustomGraphicsFormat} without the cost of
+ * formatting and parsing numbers. It is meant for caches written and read by the application itself, such as the
+ * startup snapshot, not for exchanging graphics.
+ * <pre>
+ * type name lineColor fillColor
+ * point: lat lon radius rotation oval
+ * sector: lat1 lon1 lat2 lon2 lineType
+ * poly: lineType isPolygon count lat lon lat lon ...
+ * </pre>
+ * <p>Coordinates are stored as doubles, in decimal degrees for points and sectors and in radians for polys, as they
+ * are held by the graphics. Colors are ARGB ints.</p>
+ */
+public class BinaryGraphicsFormat {
+
+    /**
+     * Type of CustomPoints.
+     */
+    public static final byte POINT = 1;
+
+    /**
+     * Type of CustomSectors.
+     */
+    public static final byte SECTOR = 2;
+
+    /**
+     * Type of CustomPolys.
+     */
+    public static final byte POLY = 3;
+
+    /**
+     * Check whether a graphic can be stored.
+     * @param graphic the graphic.
+     * @return true if it is a lat/lon custom graphic.
+     */
+    public static boolean canWrite(OMGraphic graphic) {
+        return graphic.getRenderType() == OMGraphicConstants.RENDERTYPE_LATLON
+                && (graphic instanceof CustomPoint || graphic instanceof CustomSector || graphic instanceof CustomPoly);
+    }
+
+    /**
+     * Write a graphic.
+     * @param out output the graphic is written to.
+     * @param graphic the graphic, which must be one that {@link #canWrite(OMGraphic)}.
+     * @throws IOException if the graphic can't be written.
+     */
+    public static void write(DataOutput out, OMGraphic graphic) throws IOException {
+        if (graphic instanceof CustomPoint) {
+            CustomPoint point = (CustomPoint) graphic;
+            writeCommon(out, POINT, point.getName(), graphic);
+            out.writeDouble(point.getLat());
+            out.writeDouble(point.getLon());
+            out.writeInt(point.getRadius());
+            out.writeDouble(point.getRotationAngle());
+            out.writeBoolean(point.isOval());
+        } else if (graphic instanceof CustomSector) {
+            CustomSector sector = (CustomSector) graphic;
+            writeCommon(out, SECTOR, sector.getName(), graphic);
+            out.writeDouble(sector.getLat1());
+            out.writeDouble(sector.getLon1());
+            out.writeDouble(sector.getLat2());
+            out.writeDouble(sector.getLon2());
+            out.writeInt(sector.getLineType());
+        } else if (graphic instanceof CustomPoly) {
+            CustomPoly poly = (CustomPoly) graphic;
+            writeCommon(out, POLY, poly.getName(), graphic);
+            out.writeInt(poly.getLineType());
+            out.writeBoolean(poly.isPolygon());
+            double[] llPoints = poly.getLatLonArray();
+            out.writeInt(llPoints.length);
+            for (double coordinate : llPoints) {
+                out.writeDouble(coordinate);
+            }
+        } else {
+            throw new IOException("can't write " + graphic.getClass().getName());
+        }
+    }
+
+    /**
+     * Read a graphic.
+     * @param in input the graphic is read from.
+     * @return the graphic.
+     * @throws IOException if the input doesn't hold a graphic.
+     */
+    public static OMGraphic read(DataInput in) throws IOException {
+        byte type = in.readByte();
+        String name = readString(in);
+        Color lineColor = new Color(in.readInt(), true);
+        Color fillColor = new Color(in.readInt(), true);
+        OMGraphic graphic;
+        switch (type) {
+            case POINT:
+                CustomPoint point = new CustomPoint(in.readDouble(), in.readDouble(), in.readInt());
+                point.setRotationAngle(in.readDouble());
+                point.setOval(in.readBoolean());
+                point.setName(name);
+                graphic = point;
+                break;
+            case SECTOR:
+                CustomSector sector = new CustomSector(in.readDouble(), in.readDouble(), in.readDouble(),
+                        in.readDouble(), in.readInt());
+                sector.setName(name);
+                graphic = sector;
+                break;
+            case POLY:
+                int lineType = in.readInt();
+                boolean isPolygon = in.readBoolean();
+                double[] llPoints = new double[in.readInt()];
+                for (int i = 0; i < llPoints.length; i++) {
+                    llPoints[i] = in.readDouble();
+                }
+                CustomPoly poly = new CustomPoly(llPoints, OMGraphicConstants.RADIANS, lineType);
+                poly.setName(name);
+                poly.setLinePaint(lineColor);
+                poly.setFillPaint(fillColor);
+                // set after the fill paint, which changes whether the poly is a polygon
+                poly.setIsPolygon(isPolygon);
+                return poly;
+            default:
+                throw new IOException("unknown graphic type " + type);
+        }
+        graphic.setLinePaint(lineColor);
+        graphic.setFillPaint(fillColor);
+        return graphic;
+    }
+
+    /**
+     * Write the fields common to all graphics.
+     * @param out output the graphic is written to.
+     * @param type type of the graphic.
+     * @param name name of the graphic.
+     * @param graphic the graphic.
+     * @throws IOException if the fields can't be written.
+     */
+    protected static void writeCommon(DataOutput out, byte type, String name, OMGraphic graphic) throws IOException {
+        out.writeByte(type);
+        writeString(out, name);
+        out.writeInt(colorValue(graphic.getLinePaint()));
+        out.writeInt(colorValue(graphic.getFillPaint()));
+    }
+
+    /**
+     * Get the ARGB value of a paint, paints other than colors being stored as clear.
+     * @param paint the paint.
+     * @return ARGB value.
+     */
+    protected static int colorValue(Paint paint) {
+        return (paint instanceof Color ? (Color) paint : OMGraphicConstants.clear).getRGB();
+    }
+
+    /**
+     * Write a string of any length, which may be null.
+     * @param out output the string is written to.
+     * @param s the string.
+     * @throws IOException if the string can't be written.
+     */
+    public static void writeString(DataOutput out, String s) throws IOException {
+        if (s == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    /**
+     * Read a string written by {@link #writeString(DataOutput, String)}.
+     * @param in input the string is read from.
+     * @return the string, which may be null.
+     * @throws IOException if the input doesn't hold a string.
+     */
+    public static String readString(DataInput in) throws IOException {
+        int length = in.readInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
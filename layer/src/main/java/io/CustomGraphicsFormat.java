@@ -0,0 +1,227 @@
+package io;
+
+import com.bbn.openmap.omGraphics.OMGraphic;
+import com.bbn.openmap.omGraphics.OMGraphicConstants;
+import com.bbn.openmap.proj.ProjMath;
+import com.bbn.openmap.util.ColorFactory;
+import graphics.CustomPoint;
+import graphics.CustomPoly;
+import graphics.CustomSector;
+
+import java.awt.*;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Text format the custom graphics are imported from and exported to. Each graphic takes one line of fields separated
+ * by ';', the fields common to all graphics being followed by the geometry of the graphic:
+ * <pre>
+ * point;name;lineColor;fillColor;lat;lon;radius;rotation;oval
+ * sector;name;lineColor;fillColor;lat1;lon1;lat2;lon2;lineType
+ * poly;name;lineColor;fillColor;lineType;isPolygon;lat lon lat lon ...
+ * </pre>
+ * <p>Coordinates and the rotation are in decimal degrees, colors are ARGB hex strings. Empty lines and lines starting
+ * with '#' are ignored, ';' and '\' in names are escaped with '\'. Only lat/lon graphics can be stored.</p>
+ */
+public class CustomGraphicsFormat {
+
+    /**
+     * Separator of the fields of a line.
+     */
+    public static final char SEPARATOR = ';';
+
+    /**
+     * Character escaping separators in names.
+     */
+    public static final char ESCAPE = '\\';
+
+    /**
+     * Prefix of comment lines.
+     */
+    public static final String COMMENT = "#";
+
+    /**
+     * Type field of CustomPoints.
+     */
+    public static final String POINT = "point";
+
+    /**
+     * Type field of CustomSectors.
+     */
+    public static final String SECTOR = "sector";
+
+    /**
+     * Type field of CustomPolys.
+     */
+    public static final String POLY = "poly";
+
+    /**
+     * Split a line into its fields.
+     * @param line line of the file.
+     * @return fields of the line, or null if the line is empty or a comment.
+     */
+    public static String[] parse(String line) {
+        if (line.trim().isEmpty() || line.startsWith(COMMENT)) {
+            return null;
+        }
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (c == ESCAPE && i + 1 < line.length()) {
+                field.append(line.charAt(++i));
+            } else if (c == SEPARATOR) {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else {
+                field.append(c);
+            }
+        }
+        fields.add(field.toString());
+        return fields.toArray(new String[0]);
+    }
+
+    /**
+     * Create the graphic described by the fields of a line.
+     * @param fields fields of the line.
+     * @return the graphic.
+     * @throws IllegalArgumentException if the fields don't describe a graphic.
+     */
+    public static OMGraphic construct(String[] fields) {
+        if (fields.length < 4) {
+            throw new IllegalArgumentException("expected at least 4 fields, found " + fields.length);
+        }
+        OMGraphic graphic;
+        switch (fields[0]) {
+            case POINT:
+                checkLength(fields, 9);
+                CustomPoint point = new CustomPoint(Double.parseDouble(fields[4]), Double.parseDouble(fields[5]),
+                        Integer.parseInt(fields[6]));
+                point.setRotationAngle(Math.toRadians(Double.parseDouble(fields[7])));
+                point.setOval(Boolean.parseBoolean(fields[8]));
+                point.setName(fields[1]);
+                graphic = point;
+                break;
+            case SECTOR:
+                checkLength(fields, 9);
+                CustomSector sector = new CustomSector(Double.parseDouble(fields[4]), Double.parseDouble(fields[5]),
+                        Double.parseDouble(fields[6]), Double.parseDouble(fields[7]), Integer.parseInt(fields[8]));
+                sector.setName(fields[1]);
+                graphic = sector;
+                break;
+            case POLY:
+                checkLength(fields, 7);
+                String[] coordinates = fields[6].trim().split("\\s+");
+                if (coordinates.length < 2 || coordinates.length % 2 != 0) {
+                    throw new IllegalArgumentException("expected lat/lon pairs, found " + coordinates.length + " values");
+                }
+                double[] llPoints = new double[coordinates.length];
+                for (int i = 0; i < coordinates.length; i++) {
+                    llPoints[i] = Double.parseDouble(coordinates[i]);
+                }
+                CustomPoly poly = new CustomPoly(llPoints, OMGraphicConstants.DECIMAL_DEGREES,
+                        Integer.parseInt(fields[4]));
+                poly.setName(fields[1]);
+                graphic = poly;
+                break;
+            default:
+                throw new IllegalArgumentException("unknown graphic type " + fields[0]);
+        }
+        graphic.setLinePaint(ColorFactory.parseColor(fields[2], true));
+        graphic.setFillPaint(ColorFactory.parseColor(fields[3], true));
+        if (graphic instanceof CustomPoly) {
+            // set after the fill paint, which changes whether the poly is a polygon
+            ((CustomPoly) graphic).setIsPolygon(Boolean.parseBoolean(fields[5]));
+        }
+        return graphic;
+    }
+
+    /**
+     * Describe the graphic as a line of the file.
+     * @param graphic the graphic.
+     * @return the line, or null if the graphic can't be stored.
+     */
+    public static String format(OMGraphic graphic) {
+        if (graphic.getRenderType() != OMGraphicConstants.RENDERTYPE_LATLON) {
+            return null;
+        }
+        StringBuilder line = new StringBuilder();
+        if (graphic instanceof CustomPoint) {
+            CustomPoint point = (CustomPoint) graphic;
+            appendCommon(line, POINT, point.getName(), graphic);
+            line.append(point.getLat()).append(SEPARATOR);
+            line.append(point.getLon()).append(SEPARATOR);
+            line.append(point.getRadius()).append(SEPARATOR);
+            line.append(Math.toDegrees(point.getRotationAngle())).append(SEPARATOR);
+            line.append(point.isOval());
+        } else if (graphic instanceof CustomSector) {
+            CustomSector sector = (CustomSector) graphic;
+            appendCommon(line, SECTOR, sector.getName(), graphic);
+            line.append(sector.getLat1()).append(SEPARATOR);
+            line.append(sector.getLon1()).append(SEPARATOR);
+            line.append(sector.getLat2()).append(SEPARATOR);
+            line.append(sector.getLon2()).append(SEPARATOR);
+            line.append(sector.getLineType());
+        } else if (graphic instanceof CustomPoly) {
+            CustomPoly poly = (CustomPoly) graphic;
+            appendCommon(line, POLY, poly.getName(), graphic);
+            line.append(poly.getLineType()).append(SEPARATOR);
+            line.append(poly.isPolygon()).append(SEPARATOR);
+            double[] llPoints = poly.getLatLonArray();
+            for (int i = 0; i < llPoints.length; i++) {
+                if (i > 0) {
+                    line.append(' ');
+                }
+                line.append(ProjMath.radToDeg(llPoints[i]));
+            }
+        } else {
+            return null;
+        }
+        return line.toString();
+    }
+
+    /**
+     * Append the fields common to all graphics.
+     * @param line line being built.
+     * @param type type of the graphic.
+     * @param name name of the graphic.
+     * @param graphic the graphic.
+     */
+    protected static void appendCommon(StringBuilder line, String type, String name, OMGraphic graphic) {
+        line.append(type).append(SEPARATOR);
+        if (name != null) {
+            for (int i = 0; i < name.length(); i++) {
+                char c = name.charAt(i);
+                if (c == SEPARATOR || c == ESCAPE) {
+                    line.append(ESCAPE);
+                }
+                line.append(c == '\n' || c == '\r' ? ' ' : c);
+            }
+        }
+        line.append(SEPARATOR);
+        line.append(colorString(graphic.getLinePaint())).append(SEPARATOR);
+        line.append(colorString(graphic.getFillPaint())).append(SEPARATOR);
+    }
+
+    /**
+     * Get the hex string of a paint, paints other than colors being stored as clear.
+     * @param paint the paint.
+     * @return ARGB hex string.
+     */
+    protected static String colorString(Paint paint) {
+        return ColorFactory.getHexColorString(paint instanceof Color ? (Color) paint : OMGraphicConstants.clear);
+    }
+
+    /**
+     * Check the number of fields of a line.
+     * @param fields fields of the line.
+     * @param length expected number of fields.
+     * @throws IllegalArgumentException if the number of fields differs.
+     */
+    protected static void checkLength(String[] fields, int length) {
+        if (fields.length != length) {
+            throw new IllegalArgumentException("expected " + length + " fields for " + fields[0] + ", found "
+                    + fields.length);
+        }
+    }
+}
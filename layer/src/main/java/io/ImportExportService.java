@@ -0,0 +1,451 @@
+package io;
+
+import com.bbn.openmap.omGraphics.OMAction;
+import com.bbn.openmap.omGraphics.OMGraphic;
+import com.bbn.openmap.omGraphics.OMGraphicList;
+import com.bbn.openmap.util.Debug;
+import layer.CustomEditorLayer;
+import startup.StartupSnapshot;
+
+import javax.swing.*;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.function.Function;
+
+/**
+ * Service importing and exporting the graphics of custom layers in the {@link CustomGraphicsFormat}.
+ * <p>An import goes through a pipeline of stages: the file is read, its lines are parsed and the graphics constructed,
+ * the graphics are indexed into a list, which is finally published to the layer on the event dispatch thread. Only
+ * adding the graphics to the list of the layer happens there, the graphics being indexed by name and bounds ahead.
+ * Parsing and constructing run concurrently on chunks of the file, and independent files run concurrently with
+ * each other. Exports go through the same stages in reverse.</p>
+ * <p>When the application has a {@link StartupSnapshot}, the graphics of an imported file are taken from it as long
+ * as the file is unchanged, skipping the read, parse and construct stages, and the graphics read or written are kept
+ * in it for the next launch.</p>
+ * <p>Tasks run on virtual threads when the runtime provides them and on a fixed pool of threads otherwise.
+ * The number of files read or written at the same time is bounded, so many layers don't compete for the disk.</p>
+ */
+public class ImportExportService {
+
+    /**
+     * Number of lines parsed or formatted by a single task.
+     */
+    public static final int CHUNK_SIZE = 2048;
+
+    /**
+     * Maximal number of chunks of a file parsed or formatted at the same time.
+     */
+    public static final int MAX_CHUNKS_IN_FLIGHT = Math.max(2, Runtime.getRuntime().availableProcessors());
+
+    /**
+     * Maximal number of files read or written at the same time.
+     */
+    public static final int MAX_CONCURRENT_FILES = 4;
+
+    /**
+     * Shared instance of the service.
+     */
+    private static ImportExportService instance;
+
+    /**
+     * Executor running the stages of the pipeline.
+     */
+    protected final ExecutorService executor;
+
+    /**
+     * Permits of reading or writing a file.
+     */
+    protected final Semaphore filePermits = new Semaphore(MAX_CONCURRENT_FILES);
+
+    /**
+     * Create a service running its tasks on the executor.
+     * @param executor executor running the stages of the pipeline.
+     */
+    public ImportExportService(ExecutorService executor) {
+        this.executor = executor;
+    }
+
+    /**
+     * Get the shared instance of the service.
+     * @return the service.
+     */
+    public static synchronized ImportExportService getInstance() {
+        if (instance == null) {
+            instance = new ImportExportService(createExecutor());
+        }
+        return instance;
+    }
+
+    /**
+     * Create an executor starting a virtual thread per task if the runtime supports them, or a fixed pool of
+     * daemon threads otherwise.
+     * @return the executor.
+     */
+    protected static ExecutorService createExecutor() {
+        try {
+            ExecutorService executor = (ExecutorService) Executors.class
+                    .getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+            Debug.message("io", "ImportExportService: using virtual threads");
+            return executor;
+        } catch (ReflectiveOperationException e) {
+            Debug.message("io", "ImportExportService: virtual threads not available, using a thread pool");
+        }
+        return Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors(), r -> {
+            Thread thread = new Thread(r, "ImportExportService worker");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Import the graphics of several layers concurrently.
+     * @param files files to be imported, by layer.
+     * @return future completed when all the layers have their graphics.
+     */
+    public CompletableFuture<Void> importLayers(Map<CustomEditorLayer, File> files) {
+        return CompletableFuture.allOf(files.entrySet().stream()
+                .map(entry -> importLayer(entry.getKey(), entry.getValue()))
+                .toArray(CompletableFuture[]::new));
+    }
+
+    /**
+     * Import the graphics of a layer from a file. The graphics are added to the ones already in the layer.
+     * @param layer layer the graphics are published to.
+     * @param file file to be imported.
+     * @return future completed with the list of imported graphics once it is published.
+     */
+    public CompletableFuture<OMGraphicList> importLayer(CustomEditorLayer layer, File file) {
+        return load(file)
+                .thenCompose(graphics -> {
+                    int generation = layer.getIndexGeneration();
+                    return publish(layer, index(layer, graphics), generation);
+                })
+                .whenComplete((list, error) -> {
+                    if (error != null) {
+                        Debug.error("ImportExportService: can't import " + file + ": " + error.getMessage());
+                    } else {
+                        Debug.message("io", "ImportExportService: imported " + list.size() + " graphics from " + file);
+                    }
+                });
+    }
+
+    /**
+     * Export the graphics of several layers concurrently.
+     * @param files files to be written, by layer.
+     * @return future completed when all the files are written.
+     */
+    public CompletableFuture<Void> exportLayers(Map<CustomEditorLayer, File> files) {
+        return CompletableFuture.allOf(files.entrySet().stream()
+                .map(entry -> exportLayer(entry.getKey(), entry.getValue()))
+                .toArray(CompletableFuture[]::new));
+    }
+
+    /**
+     * Export the graphics of a layer to a file.
+     * @param layer layer which graphics are exported.
+     * @param file file to be written.
+     * @return future completed once the file is written.
+     */
+    public CompletableFuture<Void> exportLayer(CustomEditorLayer layer, File file) {
+        List<OMGraphic> graphics = layer.getGraphicsSnapshot();
+        return inChunks(graphics, this::format)
+                .thenCompose(lines -> write(file, lines))
+                .thenRun(() -> keepWritten(file, graphics))
+                .whenComplete((result, error) -> {
+                    if (error != null) {
+                        Debug.error("ImportExportService: can't export " + file + ": " + error.getMessage());
+                    } else {
+                        Debug.message("io", "ImportExportService: exported " + graphics.size() + " graphics to " + file);
+                    }
+                });
+    }
+
+    /**
+     * Get the graphics of a file, from the snapshot of the application if it has them for the file as it is, or
+     * through the read, parse and construct stages otherwise, keeping them in the snapshot.
+     * @param file file to be imported.
+     * @return future completed with the graphics of the file.
+     */
+    protected CompletableFuture<List<OMGraphic>> load(File file) {
+        StartupSnapshot snapshot = StartupSnapshot.getCurrent();
+        if (snapshot == null) {
+            return read(file).thenCompose(lines -> inChunks(lines, this::construct));
+        }
+        String section = StartupSnapshot.getGraphicsSection(file);
+        return CompletableFuture.supplyAsync(() -> decode(snapshot.get(section)), executor).thenCompose(kept -> {
+            if (kept != null) {
+                Debug.message("io", "ImportExportService: took " + kept.size() + " graphics of " + file
+                        + " from the snapshot");
+                return CompletableFuture.completedFuture(kept);
+            }
+            return CompletableFuture.supplyAsync(() -> fingerprint(file), executor)
+                    .thenCompose(source -> read(file)
+                            .thenCompose(lines -> inChunks(lines, this::construct))
+                            .thenApply(graphics -> {
+                                if (source != null) {
+                                    snapshot.put(section, Collections.singletonList(source), encode(graphics));
+                                    CompletableFuture.runAsync(snapshot::save, executor);
+                                }
+                                return graphics;
+                            }));
+        });
+    }
+
+    /**
+     * Keep the graphics written to a file in the snapshot of the application, if it has one.
+     * @param file the written file.
+     * @param graphics graphics of the file.
+     */
+    protected void keepWritten(File file, List<OMGraphic> graphics) {
+        StartupSnapshot snapshot = StartupSnapshot.getCurrent();
+        StartupSnapshot.Source source = snapshot != null ? fingerprint(file) : null;
+        if (source != null) {
+            snapshot.put(StartupSnapshot.getGraphicsSection(file), Collections.singletonList(source),
+                    encode(graphics));
+            snapshot.save();
+        }
+    }
+
+    /**
+     * Record a file as a source of the snapshot.
+     * @param file the file.
+     * @return the record of the file, or null if it can't be read.
+     */
+    protected StartupSnapshot.Source fingerprint(File file) {
+        try {
+            return StartupSnapshot.fingerprint(file);
+        } catch (IOException e) {
+            Debug.message("io", "ImportExportService: can't record " + file + ": " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Encode graphics in the {@link BinaryGraphicsFormat}. Graphics that can't be stored are skipped.
+     * @param graphics the graphics.
+     * @return the encoded graphics.
+     */
+    protected byte[] encode(List<OMGraphic> graphics) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            int count = 0;
+            for (OMGraphic omg : graphics) {
+                if (BinaryGraphicsFormat.canWrite(omg)) {
+                    count++;
+                }
+            }
+            out.writeInt(count);
+            for (OMGraphic omg : graphics) {
+                if (BinaryGraphicsFormat.canWrite(omg)) {
+                    BinaryGraphicsFormat.write(out, omg);
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Decode graphics encoded by {@link #encode(List)}.
+     * @param data the encoded graphics, may be null.
+     * @return the graphics, or null if there is no data or it can't be decoded.
+     */
+    protected List<OMGraphic> decode(byte[] data) {
+        if (data == null) {
+            return null;
+        }
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(data))) {
+            int count = in.readInt();
+            List<OMGraphic> graphics = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                graphics.add(BinaryGraphicsFormat.read(in));
+            }
+            return graphics;
+        } catch (IOException e) {
+            Debug.error("ImportExportService: can't decode the graphics of the snapshot: " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Read stage, reading the lines of the file.
+     * @param file file to be read.
+     * @return future completed with the lines of the file.
+     */
+    protected CompletableFuture<List<String>> read(File file) {
+        return CompletableFuture.supplyAsync(() -> {
+            filePermits.acquireUninterruptibly();
+            try {
+                return Files.readAllLines(file.toPath(), StandardCharsets.UTF_8);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            } finally {
+                filePermits.release();
+            }
+        }, executor);
+    }
+
+    /**
+     * Write stage, replacing the file by the lines once they are all written.
+     * @param file file to be written.
+     * @param lines lines of the file.
+     * @return future completed once the file is written.
+     */
+    protected CompletableFuture<Void> write(File file, List<String> lines) {
+        return CompletableFuture.runAsync(() -> {
+            filePermits.acquireUninterruptibly();
+            try {
+                Path target = file.toPath().toAbsolutePath();
+                Files.createDirectories(target.getParent());
+                Path temp = target.resolveSibling(target.getFileName() + ".tmp");
+                Files.write(temp, lines, StandardCharsets.UTF_8);
+                Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            } finally {
+                filePermits.release();
+            }
+        }, executor);
+    }
+
+    /**
+     * Parse and construct stage for a chunk of lines. Lines that don't describe a graphic are reported and skipped.
+     * @param lines chunk of lines.
+     * @return graphics described by the lines.
+     */
+    protected List<OMGraphic> construct(List<String> lines) {
+        List<OMGraphic> graphics = new ArrayList<>(lines.size());
+        for (String line : lines) {
+            String[] fields = CustomGraphicsFormat.parse(line);
+            if (fields == null) {
+                continue;
+            }
+            try {
+                graphics.add(CustomGraphicsFormat.construct(fields));
+            } catch (IllegalArgumentException e) {
+                Debug.error("ImportExportService: skipping line '" + line + "': " + e.getMessage());
+            }
+        }
+        return graphics;
+    }
+
+    /**
+     * Format stage for a chunk of graphics. Graphics that can't be stored are skipped.
+     * @param graphics chunk of graphics.
+     * @return lines describing the graphics.
+     */
+    protected List<String> format(List<OMGraphic> graphics) {
+        List<String> lines = new ArrayList<>(graphics.size());
+        for (OMGraphic omg : graphics) {
+            String line = CustomGraphicsFormat.format(omg);
+            if (line != null) {
+                lines.add(line);
+            } else {
+                Debug.message("io", "ImportExportService: can't store " + omg.getClass().getName());
+            }
+        }
+        return lines;
+    }
+
+    /**
+     * Index stage, collecting the graphics into the list to be published and adding their names and bounds to the
+     * indexes of the layer, which can be updated from any thread.
+     * @param layer layer the graphics are published to.
+     * @param graphics the graphics.
+     * @return list of the graphics.
+     */
+    protected OMGraphicList index(CustomEditorLayer layer, List<OMGraphic> graphics) {
+        OMGraphicList list = new OMGraphicList(graphics.size());
+        list.addAll(graphics);
+        layer.indexGraphics(graphics);
+        return list;
+    }
+
+    /**
+     * Publish stage, adding the graphics to the list of the layer on the event dispatch thread. A layer without
+     * graphics gets an empty list first, so the graphics are added to it as to an existing list rather than the whole
+     * layer being indexed again. The graphics are only indexed again if the indexes of the layer were rebuilt since
+     * they were indexed.
+     * @param layer layer the graphics are published to.
+     * @param list list of the graphics.
+     * @param generation index generation of the layer before the graphics were indexed.
+     * @return future completed with the list once it is published.
+     */
+    protected CompletableFuture<OMGraphicList> publish(CustomEditorLayer layer, OMGraphicList list, int generation) {
+        CompletableFuture<OMGraphicList> published = new CompletableFuture<>();
+        SwingUtilities.invokeLater(() -> {
+            try {
+                if (layer.getOMGraphics() == null) {
+                    layer.setOMGraphics(new OMGraphicList(list.size()));
+                }
+                OMGraphicList current = layer.getOMGraphics();
+                // added through actions, so lists storing their graphics differently can take them in
+                OMAction add = new OMAction(OMAction.ADD_GRAPHIC_MASK);
+                synchronized (current) {
+                    for (OMGraphic omg : list) {
+                        current.doAction(omg, add);
+                    }
+                }
+                if (layer.getIndexGeneration() != generation) {
+                    layer.indexGraphics(list);
+                }
+                layer.setOMGraphics(current);
+                layer.doPrepare();
+                published.complete(list);
+            } catch (RuntimeException e) {
+                published.completeExceptionally(e);
+            }
+        });
+        return published;
+    }
+
+    /**
+     * Run a stage concurrently on chunks of the items, keeping the order of the results. At most
+     * MAX_CHUNKS_IN_FLIGHT chunks are processed at the same time, each chunk starting once the one
+     * MAX_CHUNKS_IN_FLIGHT before it is done, so a large file doesn't flood the executor with tasks.
+     * @param items items to be processed.
+     * @param stage stage processing a chunk of items.
+     * @param <T> type of the items.
+     * @param <R> type of the results.
+     * @return future completed with the results of all the chunks.
+     */
+    protected <T, R> CompletableFuture<List<R>> inChunks(List<T> items, Function<List<T>, List<R>> stage) {
+        List<CompletableFuture<List<R>>> chunks = new ArrayList<>();
+        for (int start = 0; start < items.size(); start += CHUNK_SIZE) {
+            List<T> chunk = items.subList(start, Math.min(items.size(), start + CHUNK_SIZE));
+            int index = chunks.size();
+            if (index < MAX_CHUNKS_IN_FLIGHT) {
+                chunks.add(CompletableFuture.supplyAsync(() -> stage.apply(chunk), executor));
+            } else {
+                // failures are reported by the chunk itself, the next one starts anyway
+                chunks.add(chunks.get(index - MAX_CHUNKS_IN_FLIGHT).handle((result, error) -> chunk)
+                        .thenApplyAsync(stage, executor));
+            }
+        }
+        return CompletableFuture.allOf(chunks.toArray(new CompletableFuture[0])).thenApply(done -> {
+            List<R> results = new ArrayList<>(items.size());
+            for (CompletableFuture<List<R>> chunk : chunks) {
+                results.addAll(chunk.join());
+            }
+            return results;
+        });
+    }
+}
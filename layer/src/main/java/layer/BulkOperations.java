@@ -0,0 +1,642 @@
+package layer;
+
+import com.bbn.openmap.event.UndoEvent;
+import com.bbn.openmap.event.UndoStack;
+import com.bbn.openmap.omGraphics.OMGraphic;
+import com.bbn.openmap.omGraphics.OMPoint;
+import com.bbn.openmap.omGraphics.OMPoly;
+import com.bbn.openmap.omGraphics.OMRect;
+import com.bbn.openmap.proj.ProjMath;
+import com.bbn.openmap.proj.coords.LatLonPoint;
+import com.bbn.openmap.util.Debug;
+import graphics.CustomPoint;
+import graphics.CustomSector;
+import graphics.Nameable;
+
+import javax.swing.*;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.UnaryOperator;
+import java.util.stream.IntStream;
+
+/**
+ * Transforms applied at once to a selection of graphics of a {@link CustomEditorLayer}: moving, rotating and renaming.
+ * <p>The graphics are changed in parallel off the event dispatch thread, moved graphics being indexed again by their
+ * bounds there too, all at once. The layer is only updated once all of them are changed: the tiles and tooltips are
+ * forgotten and the layer prepared, which regenerates and repaints it once for the whole selection. Renaming doesn't
+ * notify the layer from the worker threads, the layer is told about the old names in the same final update.</p>
+ * <p>Each operation is a single step of the undo stack, which records the states of the graphics before and after the
+ * operation. The steps of the stack only tell which position of the history of the operations is to be reached, so the
+ * stock OpenMap UndoStack and its triggers can be used. Operations, undos and redos run one after the other, in the
+ * order they are requested.</p>
+ * <p>Graphics placed in XY coordinates are not moved, and only CustomPoints are rotated. The points a
+ * {@link CustomPointLayer} finds for its records are copies, which are written back to the records once changed, as
+ * long as the records are neither removed nor being edited. Graphics not linked to the layer are left unchanged, and
+ * only the graphics actually changed are counted.</p>
+ */
+public class BulkOperations {
+
+    /**
+     * Layer the graphics belong to.
+     */
+    protected final CustomEditorLayer layer;
+
+    /**
+     * Executor running the operations.
+     */
+    protected final Executor executor;
+
+    /**
+     * Undo stack the operations are recorded into.
+     */
+    protected UndoStack undoStack;
+
+    /**
+     * Operations performed, in order, including the ones undone which may be redone.
+     */
+    protected final List<Edit> edits = new ArrayList<>();
+
+    /**
+     * Number of operations of the history applied to the graphics, once the pending tasks are done.
+     */
+    protected int applied = 0;
+
+    /**
+     * Last task queued, the next ones being chained to it.
+     */
+    protected CompletableFuture<?> pending = CompletableFuture.completedFuture(null);
+
+    /**
+     * Create the operations of a layer, running on the common fork/join pool and recorded into a new undo stack.
+     * @param layer layer the graphics belong to.
+     */
+    public BulkOperations(CustomEditorLayer layer) {
+        this(layer, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Create the operations of a layer.
+     * @param layer layer the graphics belong to.
+     * @param executor executor running the operations.
+     */
+    public BulkOperations(CustomEditorLayer layer, Executor executor) {
+        this.layer = layer;
+        this.executor = executor;
+        setUndoStack(new UndoStack());
+    }
+
+    /**
+     * Set the undo stack the operations are recorded into, such as one shared with the other editing tools of the
+     * application.
+     * @param undoStack the undo stack.
+     */
+    public void setUndoStack(UndoStack undoStack) {
+        int position;
+        synchronized (this) {
+            this.undoStack = undoStack;
+            position = applied;
+        }
+        undoStack.setTheWayThingsAre(new HistoryState(position, "Initial state"));
+    }
+
+    /**
+     * Get the undo stack the operations are recorded into, to which undo/redo menu items or buttons can be attached.
+     * @return the undo stack.
+     */
+    public UndoStack getUndoStack() {
+        return undoStack;
+    }
+
+    /**
+     * Move the graphics by a lat/lon offset. The latitudes are kept in range and the longitudes wrapped.
+     * @param selection graphics to be moved.
+     * @param dLat latitude offset, in decimal degrees.
+     * @param dLon longitude offset, in decimal degrees.
+     * @return future completed with the number of graphics moved once the layer is updated.
+     */
+    public CompletableFuture<Integer> move(Collection<? extends OMGraphic> selection, double dLat, double dLon) {
+        return perform(selection, new Move(dLat, dLon));
+    }
+
+    /**
+     * Rotate the CustomPoints of the selection.
+     * @param selection graphics to be rotated.
+     * @param dAngle angle added to the rotation of the points, in radians.
+     * @return future completed with the number of points rotated once the layer is updated.
+     */
+    public CompletableFuture<Integer> rotate(Collection<? extends OMGraphic> selection, double dAngle) {
+        return perform(selection, new Rotate(dAngle));
+    }
+
+    /**
+     * Rename the graphics of the selection after a pattern, formatted with the old name and the position of the graphic
+     * in the selection, counted from 1. For example "%2$03d" numbers the graphics, "%s (copy)" adds to their names.
+     * @param selection graphics to be renamed.
+     * @param pattern pattern of the names.
+     * @return future completed with the number of graphics renamed once the layer is updated.
+     */
+    public CompletableFuture<Integer> rename(Collection<? extends OMGraphic> selection, String pattern) {
+        return perform(selection, new Rename((name, index) -> String.format(pattern, name, index + 1)));
+    }
+
+    /**
+     * Rename the graphics of the selection.
+     * @param selection graphics to be renamed.
+     * @param names function giving the new name of a graphic from its old one.
+     * @return future completed with the number of graphics renamed once the layer is updated.
+     */
+    public CompletableFuture<Integer> rename(Collection<? extends OMGraphic> selection, UnaryOperator<String> names) {
+        return perform(selection, new Rename((name, index) -> names.apply(name)));
+    }
+
+    /**
+     * Perform a transform on the selection and record it as the next operation of the history, dropping the
+     * operations undone before.
+     * @param selection graphics to be transformed.
+     * @param transform the transform.
+     * @return future completed with the number of graphics changed once the layer is updated.
+     */
+    protected CompletableFuture<Integer> perform(Collection<? extends OMGraphic> selection, Transform transform) {
+        Edit edit = new Edit(new ArrayList<>(new LinkedHashSet<>(selection)), transform);
+        CompletableFuture<Integer> done;
+        int position;
+        synchronized (this) {
+            edits.subList(applied, edits.size()).clear();
+            edits.add(edit);
+            position = applied = edits.size();
+            done = queue(() -> edit.run(Edit.PERFORM));
+        }
+        // outside of the lock, the undo stack calling back into goTo while holding its own
+        undoStack.setTheWayThingsAre(new HistoryState(position, transform.description));
+        return done;
+    }
+
+    /**
+     * Bring the graphics to a position of the history, undoing or redoing the operations in between.
+     * @param position number of operations of the history to be applied.
+     */
+    protected synchronized void goTo(int position) {
+        position = Math.max(0, Math.min(edits.size(), position));
+        while (applied > position) {
+            Edit edit = edits.get(--applied);
+            queue(() -> edit.run(Edit.UNDO));
+        }
+        while (applied < position) {
+            Edit edit = edits.get(applied++);
+            queue(() -> edit.run(Edit.REDO));
+        }
+    }
+
+    /**
+     * Queue a run of an operation after the pending ones, then update the layer on the event dispatch thread.
+     * @param run run of the operation, returning the graphics changed and their names before the run.
+     * @return future completed with the number of graphics changed once the layer is updated.
+     */
+    protected synchronized CompletableFuture<Integer> queue(RunResultSupplier run) {
+        CompletableFuture<Integer> done = pending
+                .handle((previous, error) -> null)
+                .thenApplyAsync(nothing -> {
+                    long start = System.nanoTime();
+                    RunResult result = run.get();
+                    if (result.moved) {
+                        layer.indexBounds(result.graphics);
+                    }
+                    Debug.message("bulk", "BulkOperations: " + result.graphics.size() + " graphics changed in "
+                            + (System.nanoTime() - start) / 1000 + " us");
+                    return result;
+                }, executor)
+                .thenCompose(this::update)
+                .whenComplete((count, error) -> {
+                    if (error != null) {
+                        Debug.error("BulkOperations: operation failed: " + error.getMessage());
+                    }
+                });
+        pending = done;
+        return done;
+    }
+
+    /**
+     * Update the layer once for all the graphics changed by a run, on the event dispatch thread.
+     * @param result the graphics changed and their names before the run.
+     * @return future completed with the number of graphics changed once the layer is updated.
+     */
+    protected CompletableFuture<Integer> update(RunResult result) {
+        CompletableFuture<Integer> updated = new CompletableFuture<>();
+        SwingUtilities.invokeLater(() -> {
+            try {
+                if (result.oldNames != null) {
+                    for (int i = 0; i < result.graphics.size(); i++) {
+                        layer.nameChanged((Nameable) result.graphics.get(i), result.oldNames.get(i));
+                    }
+                }
+                if (!result.graphics.isEmpty()) {
+                    layer.modified = true;
+                    layer.invalidateTiles(null);
+                    layer.invalidateToolTips();
+                    layer.doPrepare();
+                }
+                updated.complete(result.graphics.size());
+            } catch (RuntimeException e) {
+                updated.completeExceptionally(e);
+            }
+        });
+        return updated;
+    }
+
+    /**
+     * Run of an operation.
+     */
+    @FunctionalInterface
+    protected interface RunResultSupplier {
+        /**
+         * Run the operation.
+         * @return the graphics changed and their names before the run.
+         */
+        RunResult get();
+    }
+
+    /**
+     * Graphics changed by a run of an operation.
+     */
+    protected static class RunResult {
+
+        /**
+         * The graphics changed.
+         */
+        protected final List<OMGraphic> graphics;
+
+        /**
+         * Names of the graphics before the run, or null if the run doesn't rename them.
+         */
+        protected final List<String> oldNames;
+
+        /**
+         * Whether the run has moved the graphics.
+         */
+        protected final boolean moved;
+
+        RunResult(List<OMGraphic> graphics, List<String> oldNames, boolean moved) {
+            this.graphics = graphics;
+            this.oldNames = oldNames;
+            this.moved = moved;
+        }
+    }
+
+    /**
+     * Operation of the history: a transform applied to a selection, with the states of the graphics before and after.
+     */
+    protected class Edit {
+
+        /**
+         * Runs of an operation.
+         */
+        static final int PERFORM = 0;
+        static final int UNDO = 1;
+        static final int REDO = 2;
+
+        /**
+         * Graphics of the selection.
+         */
+        protected final List<OMGraphic> graphics;
+
+        /**
+         * The transform.
+         */
+        protected final Transform transform;
+
+        /**
+         * States of the graphics before the operation, null for the graphics the transform doesn't apply to or which
+         * are not linked to the layer.
+         */
+        protected Object[] before;
+
+        /**
+         * States of the graphics after the operation.
+         */
+        protected Object[] after;
+
+        Edit(List<OMGraphic> graphics, Transform transform) {
+            this.graphics = graphics;
+            this.transform = transform;
+        }
+
+        /**
+         * Perform, undo or redo the operation on all the graphics in parallel.
+         * @param mode PERFORM, UNDO or REDO.
+         * @return the graphics changed and their names before the run.
+         */
+        RunResult run(int mode) {
+            int size = graphics.size();
+            if (mode == PERFORM) {
+                before = new Object[size];
+                after = new Object[size];
+            }
+            String[] oldNames = transform.renames() ? new String[size] : null;
+            boolean[] written = new boolean[size];
+            IntStream.range(0, size).parallel().forEach(i -> {
+                OMGraphic omg = graphics.get(i);
+                if (mode == PERFORM) {
+                    before[i] = layer.isLinked(omg) ? transform.capture(omg) : null;
+                }
+                if (before[i] == null) {
+                    return;
+                }
+                if (oldNames != null) {
+                    oldNames[i] = ((Nameable) omg).getName();
+                }
+                if (mode == PERFORM) {
+                    transform.apply(omg, i);
+                    after[i] = transform.capture(omg);
+                } else {
+                    transform.restore(omg, mode == UNDO ? before[i] : after[i]);
+                }
+                written[i] = layer.writeBack(omg);
+            });
+            List<OMGraphic> changed = new ArrayList<>();
+            List<String> changedNames = oldNames != null ? new ArrayList<>() : null;
+            for (int i = 0; i < size; i++) {
+                if (written[i]) {
+                    changed.add(graphics.get(i));
+                    if (changedNames != null) {
+                        changedNames.add(oldNames[i]);
+                    }
+                }
+            }
+            return new RunResult(changed, changedNames, transform.moves());
+        }
+    }
+
+    /**
+     * Step of the undo stack, standing for a position of the history of the operations.
+     */
+    protected class HistoryState implements UndoEvent {
+
+        /**
+         * Number of operations of the history applied at this position.
+         */
+        protected final int position;
+
+        /**
+         * Description of the last operation applied at this position.
+         */
+        protected final String description;
+
+        HistoryState(int position, String description) {
+            this.position = position;
+            this.description = description;
+        }
+
+        /**
+         * Get the description of the step.
+         * @return the description.
+         */
+        @Override
+        public String getDescription() {
+            return description;
+        }
+
+        /**
+         * Bring the graphics back to this position of the history.
+         */
+        @Override
+        public void setState() {
+            goTo(position);
+        }
+    }
+
+    /**
+     * Change of a graphic, which can capture and restore the part of the state of a graphic it changes.
+     */
+    protected abstract static class Transform {
+
+        /**
+         * Description of the transform, shown by the undo stack.
+         */
+        protected final String description;
+
+        Transform(String description) {
+            this.description = description;
+        }
+
+        /**
+         * Capture the part of the state of a graphic changed by the transform.
+         * @param omg the graphic.
+         * @return the state, or null if the transform doesn't apply to the graphic.
+         */
+        protected abstract Object capture(OMGraphic omg);
+
+        /**
+         * Restore a captured state of a graphic.
+         * @param omg the graphic.
+         * @param state the state.
+         */
+        protected abstract void restore(OMGraphic omg, Object state);
+
+        /**
+         * Apply the transform to a graphic.
+         * @param omg the graphic.
+         * @param index position of the graphic in the selection.
+         */
+        protected abstract void apply(OMGraphic omg, int index);
+
+        /**
+         * Tell whether the transform changes the names of the graphics.
+         * @return true if the names are changed.
+         */
+        protected boolean renames() {
+            return false;
+        }
+
+        /**
+         * Tell whether the transform changes the locations of the graphics.
+         * @return true if the locations are changed.
+         */
+        protected boolean moves() {
+            return false;
+        }
+    }
+
+    /**
+     * Move by a lat/lon offset.
+     */
+    protected static class Move extends Transform {
+
+        /**
+         * Offset in decimal degrees.
+         */
+        protected final double dLat;
+        protected final double dLon;
+
+        Move(double dLat, double dLon) {
+            super("Move");
+            this.dLat = dLat;
+            this.dLon = dLon;
+        }
+
+        @Override
+        protected Object capture(OMGraphic omg) {
+            if (omg.getRenderType() != OMGraphic.RENDERTYPE_LATLON) {
+                return null;
+            }
+            if (omg instanceof CustomSector) {
+                CustomSector sector = (CustomSector) omg;
+                return new double[]{sector.getLat1(), sector.getLon1(), sector.getLat2(), sector.getLon2()};
+            } else if (omg instanceof OMRect) {
+                OMRect rect = (OMRect) omg;
+                return new double[]{rect.getNorthLat(), rect.getWestLon(), rect.getSouthLat(), rect.getEastLon()};
+            } else if (omg instanceof OMPoint) {
+                OMPoint point = (OMPoint) omg;
+                return new double[]{point.getLat(), point.getLon()};
+            } else if (omg instanceof OMPoly && ((OMPoly) omg).getLatLonArray() != null) {
+                return ((OMPoly) omg).getLatLonArray().clone();
+            }
+            return null;
+        }
+
+        @Override
+        protected void restore(OMGraphic omg, Object state) {
+            double[] coordinates = (double[]) state;
+            if (omg instanceof CustomSector) {
+                CustomSector sector = (CustomSector) omg;
+                sector.setLat1(coordinates[0]);
+                sector.setLon1(coordinates[1]);
+                sector.setLat2(coordinates[2]);
+                sector.setLon2(coordinates[3]);
+            } else if (omg instanceof OMRect) {
+                ((OMRect) omg).setLocation(coordinates[0], coordinates[1], coordinates[2], coordinates[3],
+                        omg.getLineType());
+            } else if (omg instanceof OMPoint) {
+                ((OMPoint) omg).set(coordinates[0], coordinates[1]);
+            } else if (omg instanceof OMPoly) {
+                // the vertices, in radians
+                ((OMPoly) omg).setLocation(coordinates.clone(), OMGraphic.RADIANS);
+            }
+        }
+
+        @Override
+        protected void apply(OMGraphic omg, int index) {
+            double[] coordinates = (double[]) capture(omg);
+            if (omg instanceof OMPoly) {
+                double dLatRadians = ProjMath.degToRad(dLat);
+                double dLonRadians = ProjMath.degToRad(dLon);
+                for (int i = 0; i + 1 < coordinates.length; i += 2) {
+                    coordinates[i] = ProjMath.degToRad(
+                            LatLonPoint.normalizeLatitude(ProjMath.radToDeg(coordinates[i] + dLatRadians)));
+                    coordinates[i + 1] = ProjMath.degToRad(
+                            LatLonPoint.wrapLongitude(ProjMath.radToDeg(coordinates[i + 1] + dLonRadians)));
+                }
+            } else {
+                for (int i = 0; i + 1 < coordinates.length; i += 2) {
+                    coordinates[i] = LatLonPoint.normalizeLatitude(coordinates[i] + dLat);
+                    coordinates[i + 1] = LatLonPoint.wrapLongitude(coordinates[i + 1] + dLon);
+                }
+            }
+            restore(omg, coordinates);
+        }
+
+        @Override
+        protected boolean moves() {
+            return true;
+        }
+    }
+
+    /**
+     * Rotation of CustomPoints.
+     */
+    protected static class Rotate extends Transform {
+
+        /**
+         * Angle added to the rotation, in radians.
+         */
+        protected final double dAngle;
+
+        Rotate(double dAngle) {
+            super("Rotate");
+            this.dAngle = dAngle;
+        }
+
+        @Override
+        protected Object capture(OMGraphic omg) {
+            return omg instanceof CustomPoint ? ((CustomPoint) omg).getRotationAngle() : null;
+        }
+
+        @Override
+        protected void restore(OMGraphic omg, Object state) {
+            ((CustomPoint) omg).setRotationAngle((Double) state);
+        }
+
+        @Override
+        protected void apply(OMGraphic omg, int index) {
+            CustomPoint point = (CustomPoint) omg;
+            point.setRotationAngle(point.getRotationAngle() + dAngle);
+        }
+    }
+
+    /**
+     * Renaming of Nameable graphics. The layer is not notified of the new names here, it is told about them in its
+     * final update.
+     */
+    protected class Rename extends Transform {
+
+        /**
+         * Function giving the new name from the old one and the position of the graphic in the selection.
+         */
+        protected final NameFunction names;
+
+        Rename(NameFunction names) {
+            super("Rename");
+            this.names = names;
+        }
+
+        @Override
+        protected Object capture(OMGraphic omg) {
+            // wrapped, so a graphic without a name still has a state
+            return omg instanceof Nameable ? new String[]{((Nameable) omg).getName()} : null;
+        }
+
+        @Override
+        protected void restore(OMGraphic omg, Object state) {
+            setName((Nameable) omg, ((String[]) state)[0]);
+        }
+
+        @Override
+        protected void apply(OMGraphic omg, int index) {
+            setName((Nameable) omg, names.apply(((Nameable) omg).getName(), index));
+        }
+
+        /**
+         * Set the name of a graphic without notifying the layer.
+         * @param nameable the graphic.
+         * @param name the new name.
+         */
+        protected void setName(Nameable nameable, String name) {
+            nameable.removeNameListener(layer);
+            nameable.setName(name);
+            nameable.addNameListener(layer);
+        }
+
+        @Override
+        protected boolean renames() {
+            return true;
+        }
+    }
+
+    /**
+     * Function giving the new name of a graphic.
+     */
+    @FunctionalInterface
+    protected interface NameFunction {
+        /**
+         * Get the new name of a graphic.
+         * @param name old name of the graphic.
+         * @param index position of the graphic in the selection.
+         * @return the new name.
+         */
+        String apply(String name, int index);
+    }
+}
@@ -0,0 +1,1032 @@
+package layer;
+
+import com.bbn.openmap.layer.DrawingToolLayer;
+import com.bbn.openmap.layer.editor.EditorLayer;
+import com.bbn.openmap.omGraphics.OMAction;
+import com.bbn.openmap.omGraphics.OMGraphic;
+import com.bbn.openmap.omGraphics.OMGraphicList;
+import com.bbn.openmap.omGraphics.OMPoint;
+import com.bbn.openmap.omGraphics.OMPoly;
+import com.bbn.openmap.omGraphics.OMRect;
+import com.bbn.openmap.proj.Cylindrical;
+import com.bbn.openmap.proj.ProjMath;
+import com.bbn.openmap.proj.Projection;
+import com.bbn.openmap.tools.drawing.OMDrawingTool;
+import com.bbn.openmap.util.Debug;
+import com.bbn.openmap.util.PropUtils;
+import graphics.CustomPoint;
+import graphics.CustomPointList;
+import graphics.CustomSector;
+import graphics.NameIndex;
+import graphics.NameListener;
+import graphics.ProjectedShapeCache;
+import graphics.Nameable;
+import graphics.SpatialIndex;
+import io.ImportExportService;
+import metrics.GraphicsEvent;
+import metrics.LayerRepaintEvent;
+import metrics.Metrics;
+import metrics.OperationStats;
+
+import java.awt.Graphics;
+import java.awt.Rectangle;
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Properties;
+import java.util.WeakHashMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
+
+/**
+ * Custom Version of EditorLayer used for displaying object names as tooltips.
+ * <p>If the graphicsFile property is set, the graphics of the layer are imported from the file when the layer is
+ * created and exported back to it on exit if they have been edited.</p>
+ * <p>The graphics implementing {@link Nameable} are indexed by name, the index following the changes of their names,
+ * so they can be searched with {@link #search(String, int)}. The graphics are also indexed by their lat/lon bounds
+ * over a grid which cell size is set by the indexCellSize property, so {@link #query(double, double, double, double,
+ * Predicate)} only visits the graphics near the queried region.</p>
+ * <p>Selections of graphics can be moved, rotated or renamed at once with {@link #getBulkOperations()}.</p>
+ * <p>The time taken by the generation and the rendering of the graphics and by the tooltip lookups is recorded in
+ * the {@link Metrics} of the layer, under its name. Both phases of the repaint cycles are also emitted as
+ * {@link LayerRepaintEvent}s while Java Flight Recorder is recording.</p>
+ */
+
+public class CustomEditorLayer extends EditorLayer implements NameListener {
+    public CustomEditorLayer(){
+        super();
+    }
+
+    /**
+     * Value to be displayed for objects that do not have a name.
+     */
+
+    String editInstruction = i18n.get(DrawingToolLayer.class, "CLICK_TO_EDIT", "Click to edit.");
+
+    /**
+     * Property for the text file the graphics of the layer are imported from and exported to. Unlike the file
+     * property of DrawingToolLayer, it is read in the background, concurrently with the files of other layers.
+     */
+    public static final String GraphicsFileProperty = "graphicsFile";
+
+    /**
+     * Maximal time the export of the layers may delay the exit of the application, in seconds.
+     */
+    public static final int EXPORT_TIMEOUT = 30;
+
+    /**
+     * Property for the size of the cells of the spatial index, in decimal degrees.
+     */
+    public static final String IndexCellSizeProperty = "indexCellSize";
+
+    /**
+     * Margin in pixels around an area the graphics are found for, for the symbols, labels and line widths drawn
+     * beyond their lat/lon bounds.
+     */
+    public static final int AREA_MARGIN = 64;
+
+    /**
+     * Layers to be exported on exit, with their files.
+     */
+    protected static final Map<CustomEditorLayer, File> exportedLayers = new LinkedHashMap<>();
+
+    /**
+     * File the graphics of the layer are imported from and exported to, null if the graphics are not stored.
+     */
+    protected File graphicsFile;
+
+    /**
+     * Import of the graphics file of the layer, or null if none was started.
+     */
+    protected CompletableFuture<OMGraphicList> graphicsImport;
+
+    /**
+     * Whether the graphics have been edited since they were imported or exported.
+     */
+    protected volatile boolean modified = false;
+
+    /**
+     * Tooltips already resolved for the graphics of the layer which have no name. The whole map is cleared when the
+     * editability of the graphics changes.
+     */
+    protected final Map<OMGraphic, String> toolTips = new WeakHashMap<>();
+
+    /**
+     * Answers of the drawing tool to the question whether it can edit the graphics of a certain class.
+     */
+    protected final Map<Class<?>, Boolean> canEditClasses = new HashMap<>();
+
+    /**
+     * State of the drawing tool at the moment the cached tooltips were resolved.
+     */
+    protected boolean toolTipsActivated = false;
+
+    /**
+     * Index of the named graphics of the layer.
+     */
+    protected final NameIndex<OMGraphic> nameIndex = new NameIndex<>();
+
+    /**
+     * Index of the graphics of the layer by their lat/lon bounds.
+     */
+    protected SpatialIndex<OMGraphic> spatialIndex = new SpatialIndex<>();
+
+    /**
+     * Number of times the indexes have been cleared and all the graphics of the layer indexed again, telling the
+     * graphics indexed ahead of being published whether they have to be indexed again.
+     */
+    protected volatile int indexGeneration = 0;
+
+    /**
+     * Operations transforming selections of graphics of the layer at once, created when first needed.
+     */
+    protected BulkOperations bulkOperations;
+
+    /**
+     * Statistics of the operations of the layer, by operation, created when first needed under the current name of
+     * the layer.
+     */
+    protected final Map<String, OperationStats> stats = new ConcurrentHashMap<>();
+
+    /**
+     * Names of the operations of the layer recorded in its metrics.
+     */
+    public static final String GENERATE_OPERATION = "generate";
+    public static final String RENDER_OPERATION = "render";
+    public static final String TOOLTIP_OPERATION = "tooltip";
+
+    /**
+     *  Query for what tooltip to display for an OMGraphic when the mouse is over
+     * it. If the graphic has a name (implements nameable interface) display its name,
+     * display default tooltip String otherwise.
+     * <p>The tooltip resolved for a graphic without a name is cached, so hovering over the same graphic again doesn't
+     * query the drawing tool.</p>
+     * @param omgr instance of graphic for which a tooltip is requested.
+     * @return Tooltip string.
+     */
+    @Override
+    public String getToolTipTextFor(OMGraphic omgr) {
+        long start = System.nanoTime();
+        long allocated = Metrics.allocatedBytes();
+        try {
+            return lookUpToolTipFor(omgr);
+        } finally {
+            getStats(TOOLTIP_OPERATION).record(start, allocated);
+        }
+    }
+
+    /**
+     * Get the name of the graphic, or its cached tooltip if it has no name, resolving it if it isn't cached.
+     * @param omgr instance of graphic for which a tooltip is requested.
+     * @return Tooltip string.
+     */
+    protected String lookUpToolTipFor(OMGraphic omgr) {
+        if (omgr instanceof Nameable) {
+            return ((Nameable) omgr).getName();
+        }
+        OMDrawingTool dt = getDrawingTool();
+        boolean activated = dt != null && dt.isActivated();
+        if (activated != toolTipsActivated) {
+            invalidateToolTips();
+            toolTipsActivated = activated;
+        }
+
+        String toolTip = toolTips.get(omgr);
+        if (toolTip == null && !toolTips.containsKey(omgr)) {
+            toolTip = resolveToolTipFor(omgr, dt, activated);
+            toolTips.put(omgr, toolTip);
+        }
+        return toolTip;
+    }
+
+    /**
+     * Find out which tooltip should be displayed for the graphic.
+     * @param omgr instance of graphic for which a tooltip is requested.
+     * @param dt drawing tool of the layer.
+     * @param activated whether the drawing tool is currently active.
+     * @return Tooltip string.
+     */
+    protected String resolveToolTipFor(OMGraphic omgr, OMDrawingTool dt, boolean activated) {
+        if (omgr instanceof Nameable) {
+            return ((Nameable) omgr).getName();
+        } else if (dt != null && shouldEdit(omgr) && canEdit(dt, omgr.getClass()) && !activated) {
+            return editInstruction;
+        } else {
+            return null;
+        }
+    }
+
+    /**
+     * Ask the drawing tool whether it can edit graphics of the class, remembering the answer.
+     * @param dt drawing tool of the layer.
+     * @param graphicClass class of the graphic.
+     * @return true if the graphics of the class can be edited.
+     */
+    protected boolean canEdit(OMDrawingTool dt, Class<?> graphicClass) {
+        Boolean canEdit = canEditClasses.get(graphicClass);
+        if (canEdit == null) {
+            canEdit = dt.canEdit(graphicClass);
+            canEditClasses.put(graphicClass, canEdit);
+        }
+        return canEdit;
+    }
+
+    /**
+     * Forget all the resolved tooltips, so they are resolved again on the next request.
+     */
+    public void invalidateToolTips() {
+        toolTips.clear();
+    }
+
+    /**
+     * Index the graphic which name has been changed under its new name.
+     * @param source the object whose name has been changed.
+     * @param oldName the name the object had before the change.
+     */
+    @Override
+    public void nameChanged(Nameable source, String oldName) {
+        if (source instanceof OMGraphic && nameIndex.remove(oldName, (OMGraphic) source)) {
+            nameIndex.add(source.getName(), (OMGraphic) source);
+        }
+    }
+
+    /**
+     * Search the named graphics of the layer, as {@link NameIndex#search(String, int)} does.
+     * @param query the query.
+     * @param limit maximal number of names matched.
+     * @return the graphics which names match the query.
+     */
+    public List<OMGraphic> search(String query, int limit) {
+        return nameIndex.search(query, limit);
+    }
+
+    /**
+     * Get the operations moving, rotating or renaming selections of graphics of the layer at once, as single undoable
+     * steps.
+     * @return the bulk operations of the layer.
+     */
+    public synchronized BulkOperations getBulkOperations() {
+        if (bulkOperations == null) {
+            bulkOperations = new BulkOperations(this);
+        }
+        return bulkOperations;
+    }
+
+    /**
+     * Find the graphics which lat/lon bounds intersect a region. Graphics that are not placed in lat/lon coordinates
+     * are never found.
+     * @param south southern latitude of the region, in decimal degrees.
+     * @param west western longitude of the region, in decimal degrees.
+     * @param north northern latitude of the region, in decimal degrees.
+     * @param east eastern longitude of the region, in decimal degrees, west of the western one if the region crosses
+     *             the date line.
+     * @return lazy stream of the graphics.
+     */
+    public Stream<OMGraphic> query(double south, double west, double north, double east) {
+        return spatialIndex.query(south, west, north, east);
+    }
+
+    /**
+     * Find the named graphics which lat/lon bounds intersect a region and which names match a predicate.
+     * @param south southern latitude of the region, in decimal degrees.
+     * @param west western longitude of the region, in decimal degrees.
+     * @param north northern latitude of the region, in decimal degrees.
+     * @param east eastern longitude of the region, in decimal degrees, west of the western one if the region crosses
+     *             the date line.
+     * @param name predicate on the names of the graphics.
+     * @return lazy stream of the graphics.
+     */
+    public Stream<OMGraphic> query(double south, double west, double north, double east, Predicate<String> name) {
+        return query(south, west, north, east)
+                .filter(omg -> omg instanceof Nameable && name.test(((Nameable) omg).getName()));
+    }
+
+    /**
+     * Index the graphic by its lat/lon bounds, and by its name if it has one, following the changes of its name.
+     * @param omg the graphic.
+     */
+    protected void indexGraphic(OMGraphic omg) {
+        if (!isIndexed(omg)) {
+            return;
+        }
+        if (omg instanceof Nameable) {
+            Nameable nameable = (Nameable) omg;
+            nameable.addNameListener(this);
+            nameIndex.add(nameable.getName(), omg);
+        }
+        double[] bounds = getLatLonBounds(omg);
+        if (bounds != null) {
+            spatialIndex.add(omg, bounds[0], bounds[1], bounds[2], bounds[3]);
+        } else {
+            spatialIndex.addUnbounded(omg);
+        }
+    }
+
+    /**
+     * Tell whether the graphic is to be indexed by the layer.
+     * @param omg the graphic.
+     * @return true if the graphic is indexed.
+     */
+    protected boolean isIndexed(OMGraphic omg) {
+        return true;
+    }
+
+    /**
+     * Tell whether changing a graphic of a selection taken from the layer changes the layer. The graphics of the
+     * layer are changed in place.
+     * @param omg the graphic.
+     * @return true if the graphic can be changed.
+     */
+    public boolean isLinked(OMGraphic omg) {
+        return true;
+    }
+
+    /**
+     * Write a change of a graphic of a selection back to the layer, for the graphics which stand for other objects
+     * of the layer. The graphics of the layer are changed in place, so there is nothing to write.
+     * @param omg the changed graphic.
+     * @return true if the change reached the layer.
+     */
+    public boolean writeBack(OMGraphic omg) {
+        return true;
+    }
+
+    /**
+     * Remove the graphic from the indexes, and forget the shapes it has been generated into.
+     * @param omg the graphic.
+     */
+    protected void unindexGraphic(OMGraphic omg) {
+        if (omg instanceof Nameable) {
+            ((Nameable) omg).removeNameListener(this);
+            nameIndex.remove(((Nameable) omg).getName(), omg);
+        }
+        spatialIndex.remove(omg);
+        ProjectedShapeCache.getInstance().remove(omg);
+    }
+
+    /**
+     * Get the lat/lon bounds of a graphic.
+     * @param omg the graphic.
+     * @return south, west, north and east bounds in decimal degrees, the western one east of the eastern one if the
+     * bounds cross the date line, or null if the graphic is not placed in lat/lon coordinates.
+     */
+    public static double[] getLatLonBounds(OMGraphic omg) {
+        if (omg.getRenderType() == OMGraphic.RENDERTYPE_XY) {
+            return null;
+        }
+        if (omg instanceof OMPoint) {
+            OMPoint point = (OMPoint) omg;
+            return new double[]{point.getLat(), point.getLon(), point.getLat(), point.getLon()};
+        }
+        double[] llPoints = null;
+        if (omg instanceof CustomSector) {
+            llPoints = ((CustomSector) omg).getLatLonPoints();
+        } else if (omg instanceof OMPoly) {
+            llPoints = ((OMPoly) omg).getLatLonArray();
+        } else if (omg instanceof OMRect) {
+            OMRect rect = (OMRect) omg;
+            return new double[]{Math.min(rect.getSouthLat(), rect.getNorthLat()), rect.getWestLon(),
+                    Math.max(rect.getSouthLat(), rect.getNorthLat()), rect.getEastLon()};
+        }
+        if (llPoints == null || llPoints.length < 2) {
+            return null;
+        }
+        // the vertices, in radians
+        double[] bounds = {Double.MAX_VALUE, Double.MAX_VALUE, -Double.MAX_VALUE, -Double.MAX_VALUE};
+        for (int i = 0; i + 1 < llPoints.length; i += 2) {
+            bounds[0] = Math.min(bounds[0], llPoints[i]);
+            bounds[1] = Math.min(bounds[1], llPoints[i + 1]);
+            bounds[2] = Math.max(bounds[2], llPoints[i]);
+            bounds[3] = Math.max(bounds[3], llPoints[i + 1]);
+        }
+        if (omg instanceof OMPoly && omg.getLineType() == OMGraphic.LINETYPE_GREATCIRCLE) {
+            addGreatCircleExtremes(llPoints, bounds);
+        }
+        for (int i = 0; i < bounds.length; i++) {
+            bounds[i] = ProjMath.radToDeg(bounds[i]);
+        }
+        return bounds;
+    }
+
+    /**
+     * Widen the latitudes of bounds to the great circle edges between lat/lon points, which reach further north or
+     * south than their ends. An edge reaches the northernmost point of its great circle if that point is between its
+     * ends, and the southernmost point, opposite to it, likewise. The closing edge of a polygon is drawn straight.
+     * @param llPoints lat/lon points, in radians.
+     * @param bounds south, west, north and east bounds of the points, in radians, widened.
+     */
+    protected static void addGreatCircleExtremes(double[] llPoints, double[] bounds) {
+        for (int i = 0; i + 3 < llPoints.length; i += 2) {
+            double[] p1 = toVector(llPoints[i], llPoints[i + 1]);
+            double[] p2 = toVector(llPoints[i + 2], llPoints[i + 3]);
+            double[] normal = cross(p1, p2);
+            double length = Math.sqrt(dot(normal, normal));
+            if (length < 1e-12) {
+                // same or opposite points, no single great circle
+                continue;
+            }
+            for (int k = 0; k < 3; k++) {
+                normal[k] /= length;
+            }
+            // the northernmost point of the great circle, the pole projected onto its plane
+            double[] vertex = {-normal[0] * normal[2], -normal[1] * normal[2], 1 - normal[2] * normal[2]};
+            double norm = Math.sqrt(dot(vertex, vertex));
+            if (norm < 1e-12) {
+                // the equator
+                continue;
+            }
+            double extreme = Math.asin(Math.min(1, vertex[2] / norm));
+            if (isBetween(p1, vertex, p2, normal)) {
+                bounds[2] = Math.max(bounds[2], extreme);
+            }
+            for (int k = 0; k < 3; k++) {
+                vertex[k] = -vertex[k];
+            }
+            if (isBetween(p1, vertex, p2, normal)) {
+                bounds[0] = Math.min(bounds[0], -extreme);
+            }
+        }
+    }
+
+    /**
+     * Check whether a point of a great circle is on the shorter arc between two others.
+     * @param p1 start of the arc, as a unit vector.
+     * @param v the point, as a vector.
+     * @param p2 end of the arc, as a unit vector.
+     * @param normal unit normal of the great circle, p1 cross p2.
+     * @return true if the point is between the ends of the arc.
+     */
+    protected static boolean isBetween(double[] p1, double[] v, double[] p2, double[] normal) {
+        return dot(cross(p1, v), normal) >= 0 && dot(cross(v, p2), normal) >= 0;
+    }
+
+    /**
+     * Get the unit vector of a point on the sphere.
+     * @param lat latitude in radians.
+     * @param lon longitude in radians.
+     * @return x, y and z, z towards the north pole.
+     */
+    protected static double[] toVector(double lat, double lon) {
+        double cosLat = Math.cos(lat);
+        return new double[]{cosLat * Math.cos(lon), cosLat * Math.sin(lon), Math.sin(lat)};
+    }
+
+    /**
+     * Get the cross product of two vectors.
+     * @param a first vector.
+     * @param b second vector.
+     * @return a cross b.
+     */
+    protected static double[] cross(double[] a, double[] b) {
+        return new double[]{a[1] * b[2] - a[2] * b[1], a[2] * b[0] - a[0] * b[2], a[0] * b[1] - a[1] * b[0]};
+    }
+
+    /**
+     * Get the dot product of two vectors.
+     * @param a first vector.
+     * @param b second vector.
+     * @return a dot b.
+     */
+    protected static double dot(double[] a, double[] b) {
+        return a[0] * b[0] + a[1] * b[1] + a[2] * b[2];
+    }
+
+    /**
+     * Index graphics about to be added to the layer, or index again graphics which have changed, by their names and
+     * their bounds. Both indexes can be updated from any thread, so a large number of graphics is better indexed
+     * before the graphics are published to the layer, off the event dispatch thread.
+     * @param graphics the graphics.
+     */
+    public void indexGraphics(Iterable<? extends OMGraphic> graphics) {
+        indexNames(graphics);
+        indexBounds(graphics);
+    }
+
+    /**
+     * Index the names of graphics, following the changes of their names. Can be called from any thread.
+     * @param graphics the graphics.
+     */
+    public void indexNames(Iterable<? extends OMGraphic> graphics) {
+        for (OMGraphic omg : graphics) {
+            if (isIndexed(omg) && omg instanceof Nameable) {
+                Nameable nameable = (Nameable) omg;
+                nameable.addNameListener(this);
+                nameIndex.add(nameable.getName(), omg);
+            }
+        }
+    }
+
+    /**
+     * Index the lat/lon bounds of graphics about to be added to the layer or which have moved. Can be called from any
+     * thread. The bounds of all the graphics are added to the spatial index at once.
+     * @param graphics the graphics.
+     */
+    public void indexBounds(Iterable<? extends OMGraphic> graphics) {
+        List<OMGraphic> located = new ArrayList<>();
+        List<double[]> bounds = new ArrayList<>();
+        for (OMGraphic omg : graphics) {
+            if (isIndexed(omg)) {
+                located.add(omg);
+                bounds.add(getLatLonBounds(omg));
+            }
+        }
+        spatialIndex.addAll(located, bounds);
+    }
+
+    /**
+     * Get the number of times all the graphics of the layer have been indexed again. Graphics indexed before being
+     * published to the layer have to be indexed again if it changed in the meantime, as the indexes were cleared.
+     * @return the index generation.
+     */
+    public int getIndexGeneration() {
+        return indexGeneration;
+    }
+
+    /**
+     * Index all the graphics of the layer again.
+     */
+    protected void indexGraphics() {
+        indexGeneration++;
+        nameIndex.clear();
+        spatialIndex.clear();
+        OMGraphicList list = getOMGraphics();
+        if (list != null) {
+            synchronized (list) {
+                indexGraphics(list);
+            }
+        }
+    }
+
+    /**
+     * Generate the graphics of the layer for the current projection, recording the time taken.
+     * @return the list of graphics to be rendered.
+     */
+    @Override
+    public synchronized OMGraphicList prepare() {
+        long start = System.nanoTime();
+        long allocated = Metrics.allocatedBytes();
+        LayerRepaintEvent event = new LayerRepaintEvent(GENERATE_OPERATION);
+        event.begin();
+        OMGraphicList list = null;
+        try {
+            list = prepareGraphics();
+            return list;
+        } finally {
+            getStats(GENERATE_OPERATION).record(start, allocated);
+            commit(event, list);
+        }
+    }
+
+    /**
+     * Generate the graphics of the layer for the current projection.
+     * @return the list of graphics to be rendered.
+     */
+    protected OMGraphicList prepareGraphics() {
+        return super.prepare();
+    }
+
+    /**
+     * Generate only the graphics of the layer which may be drawn within an area of a projection, found from the
+     * spatial index, recording the time taken. The graphics without lat/lon bounds are always generated.
+     * @param proj the projection.
+     * @param area the area, in pixels of the projection.
+     * @return the graphics to be rendered in the area, in the order of the list, or null if they can't be found from
+     * the spatial index, the whole list being prepared then.
+     */
+    public synchronized OMGraphicList prepare(Projection proj, Rectangle area) {
+        long start = System.nanoTime();
+        long allocated = Metrics.allocatedBytes();
+        LayerRepaintEvent event = new LayerRepaintEvent(GENERATE_OPERATION);
+        event.begin();
+        OMGraphicList list = null;
+        try {
+            list = prepareGraphics(proj, area);
+            return list;
+        } finally {
+            getStats(GENERATE_OPERATION).record(start, allocated);
+            commit(event, list);
+        }
+    }
+
+    /**
+     * Generate only the graphics of the layer which may be drawn within an area of a projection.
+     * @param proj the projection.
+     * @param area the area, in pixels of the projection.
+     * @return the graphics to be rendered in the area, or null if they can't be found from the spatial index.
+     */
+    protected OMGraphicList prepareGraphics(Projection proj, Rectangle area) {
+        List<OMGraphic> found = getGraphicsIn(proj, area);
+        if (found == null) {
+            return null;
+        }
+        OMGraphicList list = new OMGraphicList();
+        for (OMGraphic omg : found) {
+            omg.generate(proj);
+            list.add(omg);
+        }
+        list.setVisible(true);
+        return list;
+    }
+
+    /**
+     * Find the graphics of the layer which may be drawn within an area of a projection from the spatial index,
+     * without generating them. Only cylindrical projections are handled, where the area covers a lat/lon region.
+     * @param proj the projection.
+     * @param area the area, in pixels of the projection.
+     * @return the graphics in the order of the list, the ones without lat/lon bounds included, or null if they can't
+     * be found from the spatial index.
+     */
+    public List<OMGraphic> getGraphicsIn(Projection proj, Rectangle area) {
+        OMGraphicList graphics = getOMGraphics();
+        if (!(proj instanceof Cylindrical) || graphics == null || spatialIndex.size() != graphics.size()) {
+            return null;
+        }
+        double[] region = getLatLonRegion((Cylindrical) proj, area);
+        return spatialIndex.queryInOrder(region[0], region[1], region[2], region[3], true);
+    }
+
+    /**
+     * Get the lat/lon region covered by an area of a cylindrical projection, grown by AREA_MARGIN pixels for the
+     * symbols, labels and line widths drawn beyond the lat/lon bounds of the graphics.
+     * @param proj the projection.
+     * @param area the area, in pixels of the projection.
+     * @return south, west, north and east of the region in decimal degrees, west of east if the region crosses the
+     * date line.
+     */
+    protected static double[] getLatLonRegion(Cylindrical proj, Rectangle area) {
+        Rectangle grown = new Rectangle(area);
+        grown.grow(AREA_MARGIN, AREA_MARGIN);
+        double x = grown.getCenterX();
+        double north = proj.inverse(x, grown.getMinY()).getY();
+        double south = proj.inverse(x, grown.getMaxY()).getY();
+        // longitudes are linear in x, wrapping around the world
+        double pixelsPerDegree = (proj.forward(0, 90).getX() - proj.forward(0, 0).getX()) / 90;
+        double width = grown.getWidth() / pixelsPerDegree;
+        if (width >= 360) {
+            return new double[]{Math.max(-90, south), -180, Math.min(90, north), 180};
+        }
+        double west = ProjMath.wrapLongitudeDeg(proj.inverse(grown.getMinX(), grown.getCenterY()).getX());
+        double east = ProjMath.wrapLongitudeDeg(west + width);
+        return new double[]{Math.max(-90, south), west, Math.min(90, north), east};
+    }
+
+    /**
+     * Render the layer, recording the time taken.
+     * @param g Graphics to paint into.
+     */
+    @Override
+    public void paint(Graphics g) {
+        long start = System.nanoTime();
+        long allocated = Metrics.allocatedBytes();
+        LayerRepaintEvent event = new LayerRepaintEvent(RENDER_OPERATION);
+        event.begin();
+        try {
+            super.paint(g);
+        } finally {
+            getStats(RENDER_OPERATION).record(start, allocated);
+            commit(event, getList());
+        }
+    }
+
+    /**
+     * Commit the event of a phase of a repaint cycle of the layer, if it is recorded, counting the graphics and
+     * their vertices only then.
+     * @param event the event.
+     * @param list graphics generated or rendered, may be null.
+     */
+    protected void commit(LayerRepaintEvent event, OMGraphicList list) {
+        if (!event.shouldCommit()) {
+            return;
+        }
+        event.layer = getName();
+        event.projectionType = GraphicsEvent.getProjectionType(getProjection());
+        if (list != null) {
+            synchronized (list) {
+                for (OMGraphic omg : list) {
+                    event.objectCount++;
+                    event.vertexCount += GraphicsEvent.countVertices(omg);
+                }
+            }
+            if (list instanceof CustomPointList) {
+                int records = ((CustomPointList) list).getRecordCount();
+                event.objectCount += records;
+                event.vertexCount += records;
+            }
+        }
+        event.commit();
+    }
+
+    /**
+     * Get the statistics of an operation of the layer.
+     * @param operation name of the operation.
+     * @return the statistics, recorded under the name of the layer.
+     */
+    protected OperationStats getStats(String operation) {
+        OperationStats operationStats = stats.get(operation);
+        if (operationStats == null) {
+            String source = getName() != null ? getName() : getClass().getSimpleName();
+            operationStats = Metrics.getStats(source, operation);
+            stats.put(operation, operationStats);
+        }
+        return operationStats;
+    }
+
+    /**
+     * Set the name of the layer, the following operations being recorded under the new name.
+     * @param name the name.
+     */
+    @Override
+    public void setName(String name) {
+        super.setName(name);
+        if (stats != null) {
+            stats.clear();
+        }
+    }
+
+    /**
+     * Set the drawing tool of the layer. Since the new tool may edit other classes than the previous one,
+     * the cached tooltips are forgotten.
+     * @param tool the drawing tool to be used by the layer.
+     */
+    @Override
+    public void setDrawingTool(OMDrawingTool tool) {
+        super.setDrawingTool(tool);
+        canEditClasses.clear();
+        invalidateToolTips();
+    }
+
+    /**
+     * Start editing the graphic. The graphic is hidden in the layer while it is edited, so the tiles it was rendered
+     * into are forgotten when the layer renders tiles.
+     * @param omg graphic to be edited.
+     */
+    @Override
+    public void edit(OMGraphic omg) {
+        super.edit(omg);
+        invalidateTiles(omg);
+    }
+
+    /**
+     * Called when the drawing tool has finished with the graphic. The tiles the graphic is rendered into are
+     * forgotten when the layer renders tiles.
+     * @param omg the graphic that was created or edited.
+     * @param action the action performed on the graphic.
+     */
+    @Override
+    public void drawingComplete(OMGraphic omg, OMAction action) {
+        super.drawingComplete(omg, action);
+        if (action != null && action.isMask(OMAction.DELETE_GRAPHIC_MASK)) {
+            unindexGraphic(omg);
+        } else {
+            indexGraphic(omg);
+        }
+        modified = true;
+        invalidateTiles(omg);
+        invalidateToolTips();
+    }
+
+    /**
+     * Set the graphics managed by the layer, forgetting the rendered tiles. The list rendered by the layer is a copy
+     * made on each prepare, so it is not the one that triggers the invalidation. A new list is indexed again, the
+     * layer no longer listening to the names of the graphics of the previous one, except the first list of the layer
+     * when it is empty, so the bounds of graphics imported into it, indexed ahead of their publication, are kept.
+     * Graphics added to the current list are expected to be indexed already.
+     * @param list new list of graphics.
+     */
+    @Override
+    public void setOMGraphics(OMGraphicList list) {
+        OMGraphicList previous = getOMGraphics();
+        super.setOMGraphics(list);
+        if (list != previous) {
+            if (previous != null) {
+                synchronized (previous) {
+                    for (OMGraphic omg : previous) {
+                        if (omg instanceof Nameable) {
+                            ((Nameable) omg).removeNameListener(this);
+                        }
+                    }
+                }
+            }
+            if (previous != null || list == null || !list.isEmpty()) {
+                indexGraphics();
+            }
+        }
+        if (getRenderPolicy() instanceof TiledRenderPolicy) {
+            ((TiledRenderPolicy) getRenderPolicy()).invalidate();
+        }
+    }
+
+    /**
+     * Set the properties of the layer, importing its graphics if a file is set. The import runs in the background,
+     * concurrently with the import of other layers.
+     * @param prefix prefix of the properties of the layer.
+     * @param props properties of the application.
+     */
+    @Override
+    public void setProperties(String prefix, Properties props) {
+        super.setProperties(prefix, props);
+        prefix = PropUtils.getScopedPropertyPrefix(prefix);
+        double cellSize = PropUtils.doubleFromProperties(props, prefix + IndexCellSizeProperty,
+                spatialIndex.getCellSize());
+        if (cellSize != spatialIndex.getCellSize()) {
+            spatialIndex = new SpatialIndex<>(cellSize);
+            indexGraphics();
+        }
+        String fileName = props.getProperty(prefix + GraphicsFileProperty);
+        if (fileName == null || fileName.trim().isEmpty()) {
+            return;
+        }
+        graphicsFile = new File(fileName.trim());
+        if (graphicsFile.isFile()) {
+            graphicsImport = ImportExportService.getInstance().importLayer(this, graphicsFile);
+        }
+        registerExport(this, graphicsFile);
+    }
+
+    /**
+     * Get the properties of the layer.
+     * @param props properties the properties of the layer are added to.
+     * @return the properties.
+     */
+    @Override
+    public Properties getProperties(Properties props) {
+        props = super.getProperties(props);
+        props.put(PropUtils.getScopedPropertyPrefix(this) + IndexCellSizeProperty,
+                Double.toString(spatialIndex.getCellSize()));
+        if (graphicsFile != null) {
+            props.put(PropUtils.getScopedPropertyPrefix(this) + GraphicsFileProperty, graphicsFile.getPath());
+        }
+        return props;
+    }
+
+    /**
+     * Get the import of the graphics file of the layer, which completes once the graphics are published to the layer.
+     * @return the import, or null if the layer has no graphics file to import.
+     */
+    public CompletableFuture<OMGraphicList> getGraphicsImport() {
+        return graphicsImport;
+    }
+
+    /**
+     * Get a copy of the graphics managed by the layer, which can be used while the layer changes.
+     * @return list of the graphics.
+     */
+    public List<OMGraphic> getGraphicsSnapshot() {
+        List<OMGraphic> graphics = new ArrayList<>();
+        OMGraphicList list = getOMGraphics();
+        if (list != null) {
+            synchronized (list) {
+                for (OMGraphic omg : list) {
+                    graphics.add(omg);
+                }
+            }
+        }
+        return graphics;
+    }
+
+    /**
+     * Export the graphics of the layer to its file.
+     * @return future completed once the file is written, or null if the layer has no file.
+     */
+    public CompletableFuture<Void> save() {
+        if (graphicsFile == null) {
+            return null;
+        }
+        modified = false;
+        return ImportExportService.getInstance().exportLayer(this, graphicsFile);
+    }
+
+    /**
+     * Register the layer to be exported on exit. The first registration installs the shutdown hook exporting all the
+     * modified layers concurrently.
+     * @param layer layer to be exported.
+     * @param file file of the layer.
+     */
+    protected static void registerExport(CustomEditorLayer layer, File file) {
+        synchronized (exportedLayers) {
+            if (exportedLayers.isEmpty()) {
+                Runtime.getRuntime().addShutdownHook(new Thread(CustomEditorLayer::exportModifiedLayers,
+                        "CustomEditorLayer export"));
+            }
+            exportedLayers.put(layer, file);
+        }
+    }
+
+    /**
+     * Export the layers which graphics have been edited, waiting for the files to be written.
+     */
+    protected static void exportModifiedLayers() {
+        Map<CustomEditorLayer, File> modifiedLayers = new LinkedHashMap<>();
+        synchronized (exportedLayers) {
+            for (Map.Entry<CustomEditorLayer, File> entry : exportedLayers.entrySet()) {
+                if (entry.getKey().modified) {
+                    entry.getKey().modified = false;
+                    modifiedLayers.put(entry.getKey(), entry.getValue());
+                }
+            }
+        }
+        if (modifiedLayers.isEmpty()) {
+            return;
+        }
+        try {
+            ImportExportService.getInstance().exportLayers(modifiedLayers).get(EXPORT_TIMEOUT, TimeUnit.SECONDS);
+        } catch (Exception e) {
+            Debug.error("CustomEditorLayer: export of the layers failed: " + e.getMessage());
+        }
+    }
+
+    /**
+     * If the layer renders tiles, forget the ones the graphic is rendered into.
+     * @param omg graphic that has changed, or null if unknown.
+     */
+    protected void invalidateTiles(OMGraphic omg) {
+        if (getRenderPolicy() instanceof TiledRenderPolicy) {
+            ((TiledRenderPolicy) getRenderPolicy()).invalidate(omg != null ? TiledRenderPolicy.getRenderBounds(omg) : null);
+        }
+    }
+
+    /**
+     * Feed the content of the layer into the digest, so tiles rendered from a previous version of the graphics can be
+     * recognized as obsolete. Names, geometry and rendering attributes of the graphics are digested.
+     * @param digest digest to be updated.
+     */
+    public void digestContent(MessageDigest digest) {
+        OMGraphicList list = getOMGraphics();
+        if (list == null) {
+            return;
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(8 * 8);
+        synchronized (list) {
+            for (OMGraphic omg : list) {
+                digestGraphic(digest, omg, buffer);
+            }
+        }
+    }
+
+    /**
+     * Feed the content of the graphics which may be drawn within an area of a projection into the digest, so a tile
+     * rendered from a previous version of these graphics can be recognized as obsolete while the tiles of the rest
+     * of the layer are not.
+     * @param digest digest to be updated.
+     * @param proj the projection.
+     * @param area the area, in pixels of the projection.
+     * @return false if the graphics of the area can't be found from the spatial index, the digest not being updated.
+     */
+    public boolean digestContent(MessageDigest digest, Projection proj, Rectangle area) {
+        List<OMGraphic> found = getGraphicsIn(proj, area);
+        if (found == null) {
+            return false;
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(8 * 8);
+        for (OMGraphic omg : found) {
+            digestGraphic(digest, omg, buffer);
+        }
+        return true;
+    }
+
+    /**
+     * Feed the name, geometry and rendering attributes of a graphic into the digest.
+     * @param digest digest to be updated.
+     * @param omg the graphic.
+     * @param buffer buffer of at least 64 bytes the attributes are written into.
+     */
+    protected static void digestGraphic(MessageDigest digest, OMGraphic omg, ByteBuffer buffer) {
+        digest.update(omg.getClass().getName().getBytes(StandardCharsets.UTF_8));
+        if (omg instanceof Nameable && ((Nameable) omg).getName() != null) {
+            digest.update(((Nameable) omg).getName().getBytes(StandardCharsets.UTF_8));
+        }
+        buffer.clear();
+        buffer.putInt(omg.getRenderType()).putInt(omg.getLineType());
+        buffer.putInt(Objects.hashCode(omg.getLinePaint())).putInt(Objects.hashCode(omg.getFillPaint()));
+        buffer.putInt(Objects.hashCode(omg.getStroke())).putInt(omg.isVisible() ? 1 : 0);
+        if (omg instanceof OMPoint) {
+            OMPoint point = (OMPoint) omg;
+            buffer.putDouble(point.getLat()).putDouble(point.getLon()).putInt(point.getRadius());
+            if (omg instanceof CustomPoint) {
+                buffer.putDouble(((CustomPoint) omg).getRotationAngle());
+            }
+        } else if (omg instanceof OMRect) {
+            OMRect rect = (OMRect) omg;
+            buffer.putDouble(rect.getNorthLat()).putDouble(rect.getWestLon());
+            buffer.putDouble(rect.getSouthLat()).putDouble(rect.getEastLon());
+        }
+        digest.update(buffer.array(), 0, buffer.position());
+        if (omg instanceof OMPoly && ((OMPoly) omg).getLatLonArray() != null) {
+            for (double coordinate : ((OMPoly) omg).getLatLonArray()) {
+                buffer.clear();
+                buffer.putDouble(coordinate);
+                digest.update(buffer.array(), 0, 8);
+            }
+        }
+    }
+}
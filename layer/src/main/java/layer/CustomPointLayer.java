@@ -0,0 +1,266 @@
+package layer;
+
+import com.bbn.openmap.omGraphics.OMGraphic;
+import com.bbn.openmap.omGraphics.OMGraphicList;
+import com.bbn.openmap.proj.Projection;
+import com.bbn.openmap.util.PropUtils;
+import graphics.CustomPoint;
+import graphics.CustomPointList;
+
+import java.awt.Rectangle;
+import java.security.MessageDigest;
+import java.util.List;
+import java.util.Properties;
+import java.util.stream.Stream;
+
+/**
+ * Version of CustomEditorLayer meant for large numbers of CustomPoints. The points are stored in a
+ * {@link CustomPointList}, which keeps them as records of primitive arrays and turns a record into a CustomPoint only
+ * while it is under the mouse or being edited.
+ * <p>The records are rendered by the list itself, so the layer should use the standard render policy.</p>
+ * <p>If the clustering property is set, points too close to each other at the current zoom level are rendered as
+ * clusters showing their number of points, which size in pixels is set by the clusterSize property.</p>
+ */
+public class CustomPointLayer extends CustomEditorLayer {
+
+    /**
+     * Property for rendering the points as clusters.
+     */
+    public static final String ClusteringProperty = "clustering";
+
+    /**
+     * Property for the size of the clusters, in pixels.
+     */
+    public static final String ClusterSizeProperty = "clusterSize";
+
+    /**
+     * Whether the points are rendered as clusters.
+     */
+    protected boolean clustering = false;
+
+    /**
+     * Size of the clusters, in pixels.
+     */
+    protected int clusterSize = CustomPointList.DEFAULT_CLUSTER_SIZE;
+
+    public CustomPointLayer() {
+        super();
+    }
+
+    /**
+     * Get the list storing the points of the layer, creating it if needed.
+     * @return the list of the layer.
+     */
+    public synchronized CustomPointList getPoints() {
+        OMGraphicList list = getOMGraphics();
+        if (!(list instanceof CustomPointList)) {
+            setOMGraphics(list);
+            list = getOMGraphics();
+        }
+        return (CustomPointList) list;
+    }
+
+    /**
+     * Set whether the points are rendered as clusters.
+     * @param clustering true to render the points as clusters.
+     */
+    public void setClustering(boolean clustering) {
+        this.clustering = clustering;
+        getPoints().setClustering(clustering);
+        doPrepare();
+    }
+
+    /**
+     * Check whether the points are rendered as clusters.
+     * @return true if the points are rendered as clusters.
+     */
+    public boolean isClustering() {
+        return clustering;
+    }
+
+    /**
+     * Set the properties of the layer.
+     * @param prefix prefix of the properties of the layer.
+     * @param props properties of the application.
+     */
+    @Override
+    public void setProperties(String prefix, Properties props) {
+        String scopedPrefix = PropUtils.getScopedPropertyPrefix(prefix);
+        clustering = PropUtils.booleanFromProperties(props, scopedPrefix + ClusteringProperty, clustering);
+        clusterSize = PropUtils.intFromProperties(props, scopedPrefix + ClusterSizeProperty, clusterSize);
+        super.setProperties(prefix, props);
+        getPoints().setClusterSize(clusterSize);
+        getPoints().setClustering(clustering);
+        getPoints().setIndexCellSize(spatialIndex.getCellSize());
+    }
+
+    /**
+     * Get the properties of the layer.
+     * @param props properties the properties of the layer are added to.
+     * @return the properties.
+     */
+    @Override
+    public Properties getProperties(Properties props) {
+        props = super.getProperties(props);
+        String prefix = PropUtils.getScopedPropertyPrefix(this);
+        props.put(prefix + ClusteringProperty, Boolean.toString(clustering));
+        props.put(prefix + ClusterSizeProperty, Integer.toString(clusterSize));
+        return props;
+    }
+
+    /**
+     * Set the graphics managed by the layer. The CustomPoints of a regular list are moved into the records of a
+     * CustomPointList, which replaces it and takes the clustering settings of the layer.
+     * @param list new list of graphics.
+     */
+    @Override
+    public void setOMGraphics(OMGraphicList list) {
+        if (!(list instanceof CustomPointList)) {
+            CustomPointList points = new CustomPointList();
+            if (list != null) {
+                for (OMGraphic omg : list) {
+                    if (omg instanceof CustomPoint) {
+                        points.addRecord((CustomPoint) omg);
+                    } else {
+                        points.add(omg);
+                    }
+                }
+            }
+            points.setClusterSize(clusterSize);
+            points.setClustering(clustering);
+            points.setIndexCellSize(spatialIndex.getCellSize());
+            list = points;
+        }
+        super.setOMGraphics(list);
+    }
+
+    /**
+     * Project the records and return the list itself rather than a copy of its members, which would not contain
+     * the records.
+     * @return the list to be rendered.
+     */
+    @Override
+    protected OMGraphicList prepareGraphics() {
+        CustomPointList points = getPoints();
+        Projection proj = getProjection();
+        if (proj != null) {
+            points.generate(proj);
+        }
+        return points;
+    }
+
+    /**
+     * Find no graphics from the spatial index, so the whole list is prepared, which renders the records from its
+     * own index.
+     * @param proj the projection.
+     * @param area the area, in pixels of the projection.
+     * @return null.
+     */
+    @Override
+    public List<OMGraphic> getGraphicsIn(Projection proj, Rectangle area) {
+        return null;
+    }
+
+    /**
+     * Search the named graphics and the records of the layer.
+     * @param query the query.
+     * @param limit maximal number of names matched, in the graphics and in the records.
+     * @return the graphics, then new points holding the state of the matched records.
+     */
+    @Override
+    public List<OMGraphic> search(String query, int limit) {
+        List<OMGraphic> found = super.search(query, limit);
+        found.addAll(getPoints().searchRecords(query, limit));
+        return found;
+    }
+
+    /**
+     * Find the graphics and the records within a region.
+     * @param south southern latitude of the region, in decimal degrees.
+     * @param west western longitude of the region, in decimal degrees.
+     * @param north northern latitude of the region, in decimal degrees.
+     * @param east eastern longitude of the region, in decimal degrees, west of the western one if the region crosses
+     *             the date line.
+     * @return lazy stream of the graphics, then of new points holding the state of the records.
+     */
+    @Override
+    public Stream<OMGraphic> query(double south, double west, double north, double east) {
+        return Stream.concat(super.query(south, west, north, east),
+                getPoints().queryRecords(south, west, north, east, null));
+    }
+
+    /**
+     * Tell whether changing a graphic of a selection taken from the layer changes the layer, which is the case of the
+     * copies of the records still linked to them.
+     * @param omg the graphic.
+     * @return true if the graphic can be changed.
+     */
+    @Override
+    public boolean isLinked(OMGraphic omg) {
+        CustomPointList points = getPoints();
+        return !(omg instanceof CustomPoint) || points.isCopy((CustomPoint) omg) || points.contains(omg);
+    }
+
+    /**
+     * Write a change of a copy of a record back to the record.
+     * @param omg the changed graphic.
+     * @return true if the change reached the layer.
+     */
+    @Override
+    public boolean writeBack(OMGraphic omg) {
+        CustomPointList points = getPoints();
+        return !(omg instanceof CustomPoint) || !points.isCopy((CustomPoint) omg)
+                || points.writeBack((CustomPoint) omg);
+    }
+
+    /**
+     * Tell whether the graphic is indexed by the layer. CustomPoints are not, since they are indexed as records by
+     * the list.
+     * @param omg the graphic.
+     * @return true if the graphic is indexed.
+     */
+    @Override
+    protected boolean isIndexed(OMGraphic omg) {
+        return !(omg instanceof CustomPoint);
+    }
+
+    /**
+     * Start editing the graphic. A point materialized from a record is kept until the drawing tool is done with it.
+     * @param omg graphic to be edited.
+     */
+    @Override
+    public void edit(OMGraphic omg) {
+        if (omg instanceof CustomPoint) {
+            getPoints().pin((CustomPoint) omg);
+        }
+        super.edit(omg);
+    }
+
+    /**
+     * Get a copy of the graphics managed by the layer, the records being turned into new CustomPoints.
+     * @return list of the graphics.
+     */
+    @Override
+    public List<OMGraphic> getGraphicsSnapshot() {
+        CustomPointList points = getPoints();
+        synchronized (points) {
+            List<OMGraphic> graphics = super.getGraphicsSnapshot();
+            for (int i = 0; i < points.getRecordCount(); i++) {
+                if (!points.isMaterialized(i)) {
+                    graphics.add(points.createPoint(i));
+                }
+            }
+            return graphics;
+        }
+    }
+
+    /**
+     * Feed the content of the layer into the digest, including the records of the points.
+     * @param digest digest to be updated.
+     */
+    @Override
+    public void digestContent(MessageDigest digest) {
+        super.digestContent(digest);
+        getPoints().digestRecords(digest);
+    }
+}
@@ -0,0 +1,156 @@
+package layer;
+
+import com.bbn.openmap.Layer;
+import com.bbn.openmap.LayerHandler;
+import com.bbn.openmap.event.ProjectionEvent;
+import com.bbn.openmap.util.ComponentFactory;
+import com.bbn.openmap.util.Debug;
+import com.bbn.openmap.util.PropUtils;
+
+import javax.swing.*;
+import java.awt.*;
+import java.util.List;
+import java.util.Properties;
+
+/**
+ * Placeholder of a layer which is not turned on at startup, creating the actual layer the first time it is turned
+ * on. Until then, only the name of the layer is known, so it is listed in the layers panel without its class being
+ * loaded or its data being read.
+ * <p>The placeholder is set up by the {@link startup.StartupPropertyHandler}, which moves the class property of the
+ * layer to its delegateClass property. Once turned on, the placeholder creates the layer with the properties of its
+ * prefix and takes its place in the LayerHandler.</p>
+ */
+public class LazyLayer extends Layer {
+
+    /**
+     * Property for the class of the actual layer.
+     */
+    public static final String DelegateClassProperty = "delegateClass";
+
+    /**
+     * Class of the actual layer.
+     */
+    protected String delegateClass;
+
+    /**
+     * Properties the actual layer is created with.
+     */
+    protected Properties properties;
+
+    /**
+     * LayerHandler the placeholder is replaced in.
+     */
+    protected LayerHandler layerHandler;
+
+    /**
+     * Actual layer, once created.
+     */
+    protected Layer delegate;
+
+    /**
+     * Create the placeholder. It is added to the MapHandler, to find the LayerHandler.
+     */
+    public LazyLayer() {
+        setAddToBeanContext(true);
+    }
+
+    /**
+     * Keep the properties the actual layer is to be created with.
+     * @param prefix prefix of the properties of the layer.
+     * @param props properties of the application.
+     */
+    @Override
+    public void setProperties(String prefix, Properties props) {
+        super.setProperties(prefix, props);
+        properties = props;
+        delegateClass = props.getProperty(PropUtils.getScopedPropertyPrefix(prefix) + DelegateClassProperty);
+    }
+
+    /**
+     * Get the properties of the layer, which are the ones of the actual layer.
+     * @param props properties the properties of the layer are added to.
+     * @return the properties.
+     */
+    @Override
+    public Properties getProperties(Properties props) {
+        props = super.getProperties(props);
+        String prefix = PropUtils.getScopedPropertyPrefix(this);
+        if (delegateClass != null) {
+            props.put(prefix + ComponentFactory.ClassNameProperty, delegateClass);
+        }
+        return props;
+    }
+
+    /**
+     * Remember the LayerHandler.
+     * @param obj object added to the MapHandler.
+     */
+    @Override
+    public void findAndInit(Object obj) {
+        if (obj instanceof LayerHandler) {
+            layerHandler = (LayerHandler) obj;
+        }
+    }
+
+    /**
+     * Forget the LayerHandler.
+     * @param obj object removed from the MapHandler.
+     */
+    @Override
+    public void findAndUndo(Object obj) {
+        if (obj == layerHandler) {
+            layerHandler = null;
+        }
+    }
+
+    /**
+     * Replace the placeholder by the actual layer once it is turned on, after the current event.
+     * @param cont the map.
+     */
+    @Override
+    public void added(Container cont) {
+        super.added(cont);
+        SwingUtilities.invokeLater(this::replace);
+    }
+
+    /**
+     * Keep the projection, there is nothing to draw.
+     * @param e the projection event.
+     */
+    @Override
+    public void projectionChanged(ProjectionEvent e) {
+        setProjection(e);
+    }
+
+    /**
+     * Create the actual layer and put it in the place of the placeholder in the LayerHandler, turned on.
+     */
+    protected void replace() {
+        if (delegate != null || layerHandler == null || !isVisible()) {
+            return;
+        }
+        long start = System.nanoTime();
+        String prefix = getPropertyPrefix();
+        Object created = ComponentFactory.create(delegateClass, prefix, properties);
+        if (!(created instanceof Layer)) {
+            Debug.error("LazyLayer: can't create " + delegateClass + " for " + prefix);
+            return;
+        }
+        delegate = (Layer) created;
+        delegate.setVisible(true);
+        List<Layer> layers = layerHandler.getLayerList();
+        int index = layers.indexOf(this);
+        layerHandler.addLayer(delegate, Math.max(index, 0));
+        layerHandler.removeLayer(this);
+        Debug.output("LazyLayer: created " + prefix + " in " + String.format("%.1f", (System.nanoTime() - start) / 1e6)
+                + " ms");
+    }
+
+    /**
+     * Get the actual layer.
+     * @return the actual layer, or null if it hasn't been created yet.
+     */
+    public Layer getDelegate() {
+        return delegate;
+    }
+}
@@ -0,0 +1,211 @@
+package layer;
+
+import com.bbn.openmap.Layer;
+import com.bbn.openmap.event.ProjectionEvent;
+import com.bbn.openmap.util.PropUtils;
+import metrics.Metrics;
+import metrics.OperationStats;
+
+import javax.swing.*;
+import java.awt.*;
+import java.util.List;
+import java.util.Properties;
+
+/**
+ * Layer painting the {@link Metrics} of the application over the map, so the operations taking the most time, such
+ * as the rendering of a heavy custom layer, can be spotted while using the map.
+ * <p>The table lists the operations by decreasing total time, with their count, mean, 95th and 99th percentiles and
+ * maximal durations in milliseconds, and the kilobytes allocated by each of them. It is refreshed every
+ * refreshInterval milliseconds while the layer is on the map. The palette of the layer enables the recording and
+ * resets the statistics.</p>
+ */
+public class MetricsLayer extends Layer {
+
+    /**
+     * Property for the interval the table is refreshed at, in milliseconds.
+     */
+    public static final String RefreshIntervalProperty = "refreshInterval";
+
+    /**
+     * Property for the maximal number of operations listed.
+     */
+    public static final String RowsProperty = "rows";
+
+    /**
+     * Default interval the table is refreshed at.
+     */
+    public static final int DEFAULT_REFRESH_INTERVAL = 1000;
+
+    /**
+     * Default maximal number of operations listed.
+     */
+    public static final int DEFAULT_ROWS = 12;
+
+    /**
+     * Format of the rows of the table.
+     */
+    protected static final String ROW_FORMAT = "%-24.24s %-14.14s %9s %9s %9s %9s %9s %9s";
+
+    /**
+     * Margin around the table, in pixels.
+     */
+    protected static final int MARGIN = 8;
+
+    /**
+     * Maximal number of operations listed.
+     */
+    protected int rows = DEFAULT_ROWS;
+
+    /**
+     * Timer repainting the layer.
+     */
+    protected final Timer refreshTimer = new Timer(DEFAULT_REFRESH_INTERVAL, e -> repaint());
+
+    /**
+     * Font of the table.
+     */
+    protected Font font = new Font(Font.MONOSPACED, Font.PLAIN, 11);
+
+    /**
+     * Color of the background of the table.
+     */
+    protected Color background = new Color(0, 0, 0, 160);
+
+    /**
+     * Color of the text of the table.
+     */
+    protected Color foreground = Color.WHITE;
+
+    /**
+     * Create the layer.
+     */
+    public MetricsLayer() {
+        setName("Metrics");
+    }
+
+    /**
+     * Start refreshing the table when the layer is added to the map, and register the metrics as MBeans so they can
+     * also be watched through JMX.
+     * @param cont the map.
+     */
+    @Override
+    public void added(Container cont) {
+        super.added(cont);
+        Metrics.registerMBeans();
+        refreshTimer.start();
+    }
+
+    /**
+     * Stop refreshing the table when the layer is removed from the map.
+     * @param cont the map.
+     */
+    @Override
+    public void removed(Container cont) {
+        refreshTimer.stop();
+        super.removed(cont);
+    }
+
+    /**
+     * Keep the projection and repaint the table, which doesn't depend on it.
+     * @param e the projection event.
+     */
+    @Override
+    public void projectionChanged(ProjectionEvent e) {
+        setProjection(e);
+        repaint();
+    }
+
+    /**
+     * Paint the table of the metrics in the upper left corner of the map.
+     * @param g Graphics to paint into.
+     */
+    @Override
+    public void paint(Graphics g) {
+        List<OperationStats> all = Metrics.getAllStats();
+        int count = Math.min(all.size(), rows);
+        String[] lines = new String[count + 1];
+        lines[0] = String.format(ROW_FORMAT, "source", "operation", "count", "mean", "p95", "p99", "max",
+                "KB/op");
+        for (int i = 0; i < count; i++) {
+            OperationStats stats = all.get(i);
+            long bytes = stats.getAllocatedBytesPerOperation();
+            lines[i + 1] = String.format(ROW_FORMAT, stats.getSource(), stats.getOperation(),
+                    Long.toString(stats.getCount()), millis(stats.getMeanMillis()), millis(stats.getP95Millis()),
+                    millis(stats.getP99Millis()), millis(stats.getMaxMillis()),
+                    bytes < 0 ? "-" : String.format("%.1f", bytes / 1024.0));
+        }
+
+        g.setFont(font);
+        FontMetrics fm = g.getFontMetrics();
+        int width = 0;
+        for (String line : lines) {
+            width = Math.max(width, fm.stringWidth(line));
+        }
+        int height = fm.getHeight() * lines.length;
+        g.setColor(background);
+        g.fillRect(MARGIN, MARGIN, width + 2 * MARGIN, height + 2 * MARGIN);
+        g.setColor(foreground);
+        int y = 2 * MARGIN + fm.getAscent();
+        for (String line : lines) {
+            g.drawString(line, 2 * MARGIN, y);
+            y += fm.getHeight();
+        }
+    }
+
+    /**
+     * Format a duration for the table.
+     * @param millis the duration, in milliseconds.
+     * @return the formatted duration.
+     */
+    protected static String millis(double millis) {
+        return String.format(millis < 10 ? "%.3f" : "%.1f", millis);
+    }
+
+    /**
+     * Get the palette of the layer, enabling the recording and resetting the statistics.
+     * @return the palette.
+     */
+    @Override
+    public Component getGUI() {
+        JCheckBox enabled = new JCheckBox(i18n.get(MetricsLayer.class, "enabled", "Record metrics"),
+                Metrics.isEnabled());
+        enabled.addActionListener(e -> Metrics.setEnabled(enabled.isSelected()));
+        JButton reset = new JButton(i18n.get(MetricsLayer.class, "reset", "Reset"));
+        reset.addActionListener(e -> {
+            Metrics.reset();
+            repaint();
+        });
+        JPanel panel = new JPanel();
+        panel.add(enabled);
+        panel.add(reset);
+        return panel;
+    }
+
+    /**
+     * Set the properties of the layer.
+     * @param prefix prefix of the properties of the layer.
+     * @param props properties of the application.
+     */
+    @Override
+    public void setProperties(String prefix, Properties props) {
+        super.setProperties(prefix, props);
+        prefix = PropUtils.getScopedPropertyPrefix(prefix);
+        refreshTimer.setDelay(PropUtils.intFromProperties(props, prefix + RefreshIntervalProperty,
+                refreshTimer.getDelay()));
+        rows = PropUtils.intFromProperties(props, prefix + RowsProperty, rows);
+    }
+
+    /**
+     * Get the properties of the layer.
+     * @param props properties the properties of the layer are added to.
+     * @return the properties.
+     */
+    @Override
+    public Properties getProperties(Properties props) {
+        props = super.getProperties(props);
+        String prefix = PropUtils.getScopedPropertyPrefix(this);
+        props.put(prefix + RefreshIntervalProperty, Integer.toString(refreshTimer.getDelay()));
+        props.put(prefix + RowsProperty, Integer.toString(rows));
+        return props;
+    }
+}
@@ -0,0 +1,369 @@
+package layer;
+
+import com.bbn.openmap.io.FormatException;
+import com.bbn.openmap.layer.OMGraphicHandlerLayer;
+import com.bbn.openmap.layer.shape.ShapeLayer;
+import com.bbn.openmap.layer.shape.SpatialIndex;
+import com.bbn.openmap.omGraphics.OMGraphicList;
+import com.bbn.openmap.proj.Cylindrical;
+import com.bbn.openmap.proj.Projection;
+import com.bbn.openmap.util.Debug;
+import com.bbn.openmap.util.PropUtils;
+
+import java.awt.*;
+import java.awt.geom.Point2D;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Tiled render policy that renders the tiles around the map ahead of time, so the part of the map uncovered by a pan
+ * is painted from the cache as soon as the pan is released.
+ * <p>After the graphics are prepared for a new projection, the tiles within a border around the map are rendered on
+ * low priority threads, one less than the number of processors, the border being extended in the direction the map
+ * has been panned to lately. The tiles nearest to the expected next view are rendered first, and the rendering stops
+ * as soon as the projection changes again.</p>
+ * <p>Only cylindrical projections, which tile grid is anchored to the map, are rendered ahead. The graphics beyond the
+ * map are generated from the spatial index of CustomEditorLayers, taken from the list of the layer if it holds all of
+ * them, and read from the spatial index of the shape file for ShapeLayers. Other layers are not rendered ahead.</p>
+ * <p>To use it for a layer, add to the properties file, besides the properties of {@link TiledRenderPolicy}:</p>
+ * <pre>
+ * shapePolitical.renderPolicy=tiles
+ * shapePolitical.tiles.class=layer.RenderAheadPolicy
+ * # Width of the border rendered around the map, in pixels.
+ * shapePolitical.tiles.aheadBorder=256
+ * # Maximal distance the border is extended by in the direction of the pans, in pixels.
+ * shapePolitical.tiles.aheadDistance=768
+ * </pre>
+ */
+public class RenderAheadPolicy extends TiledRenderPolicy {
+
+    /**
+     * Property for the width of the border rendered around the map, in pixels.
+     */
+    public static final String AheadBorderProperty = "aheadBorder";
+
+    /**
+     * Default width of the border rendered around the map, in pixels.
+     */
+    public static final int DEFAULT_AHEAD_BORDER = TILE_SIZE;
+
+    /**
+     * Property for the maximal distance the border is extended by in the direction of the pans, in pixels.
+     */
+    public static final String AheadDistanceProperty = "aheadDistance";
+
+    /**
+     * Default maximal distance the border is extended by in the direction of the pans, in pixels.
+     */
+    public static final int DEFAULT_AHEAD_DISTANCE = 3 * TILE_SIZE;
+
+    /**
+     * Time in milliseconds after which the weight of a pan in the direction of the border is divided by e.
+     */
+    protected static final long PAN_MEMORY = 3000;
+
+    /**
+     * Number of tiles rendered at once, the rendering is only stopped between them.
+     */
+    protected static final int CHUNK_SIZE = 4;
+
+    /**
+     * Low priority threads rendering the tiles ahead, shared by the layers, leaving a processor to the layer workers
+     * and the event dispatch thread.
+     */
+    protected static final ExecutorService RENDER_AHEAD = Executors.newFixedThreadPool(
+            Math.max(1, Runtime.getRuntime().availableProcessors() - 1), runnable -> {
+                Thread thread = new Thread(runnable, "RenderAhead");
+                thread.setDaemon(true);
+                thread.setPriority(Thread.MIN_PRIORITY);
+                return thread;
+            });
+
+    /**
+     * Width of the border rendered around the map, in pixels.
+     */
+    protected int aheadBorder = DEFAULT_AHEAD_BORDER;
+
+    /**
+     * Maximal distance the border is extended by in the direction of the pans, in pixels.
+     */
+    protected int aheadDistance = DEFAULT_AHEAD_DISTANCE;
+
+    /**
+     * Zoom of the grid of the last prepared projection, null if none.
+     */
+    protected String panZoom;
+
+    /**
+     * Position of the last prepared projection in the pixel space of its grid.
+     */
+    protected final Point panView = new Point();
+
+    /**
+     * Time the last projection was prepared, in milliseconds.
+     */
+    protected long panTime;
+
+    /**
+     * Recent pans of the map in pixels, the older ones weighing less.
+     */
+    protected double panX, panY;
+
+    /**
+     * Rendering of the tiles ahead for the current projection, null if none.
+     */
+    protected Future<?> aheadTask;
+
+    public RenderAheadPolicy() {
+        super();
+    }
+
+    public RenderAheadPolicy(OMGraphicHandlerLayer layer) {
+        super(layer);
+    }
+
+    /**
+     * Set the width of the border rendered around the map.
+     * @param pixels width in pixels.
+     */
+    public void setAheadBorder(int pixels) {
+        aheadBorder = Math.max(0, pixels);
+    }
+
+    /**
+     * Get the width of the border rendered around the map.
+     * @return width in pixels.
+     */
+    public int getAheadBorder() {
+        return aheadBorder;
+    }
+
+    /**
+     * Set the maximal distance the border is extended by in the direction of the pans.
+     * @param pixels distance in pixels.
+     */
+    public void setAheadDistance(int pixels) {
+        aheadDistance = Math.max(0, pixels);
+    }
+
+    /**
+     * Get the maximal distance the border is extended by in the direction of the pans.
+     * @return distance in pixels.
+     */
+    public int getAheadDistance() {
+        return aheadDistance;
+    }
+
+    /**
+     * Prepare the graphics of the layer and the visible tiles for the new projection, then start rendering the tiles
+     * around the map. Called on the thread of the layer worker.
+     *
+     * @return the list of graphics of the layer.
+     */
+    @Override
+    public OMGraphicList prepare() {
+        cancelAhead();
+        OMGraphicList list = super.prepare();
+        Projection proj = layer != null ? layer.getProjection() : null;
+        if (proj instanceof Cylindrical) {
+            synchronized (this) {
+                if (grid != null && grid.isFor(proj)) {
+                    addPan(grid);
+                    TileGrid aheadGrid = grid;
+                    Rectangle area = getAheadArea(aheadGrid);
+                    List<TileKey> keys = getAheadTiles(aheadGrid, area);
+                    if (!keys.isEmpty()) {
+                        aheadTask = RENDER_AHEAD.submit(() -> renderAhead(aheadGrid, area, keys));
+                    }
+                }
+            }
+        }
+        return list;
+    }
+
+    /**
+     * Stop rendering the tiles ahead for the previous projection.
+     */
+    protected synchronized void cancelAhead() {
+        if (aheadTask != null) {
+            aheadTask.cancel(true);
+            aheadTask = null;
+        }
+    }
+
+    /**
+     * Record the pan from the last prepared projection to the one of the grid. A change of zoom forgets the pans.
+     * @param grid grid of the new projection.
+     */
+    protected synchronized void addPan(TileGrid grid) {
+        long now = System.currentTimeMillis();
+        if (grid.zoom.equals(panZoom)) {
+            double decay = Math.exp(-(now - panTime) / (double) PAN_MEMORY);
+            panX = panX * decay - grid.originX - panView.x;
+            panY = panY * decay - grid.originY - panView.y;
+        } else {
+            panX = 0;
+            panY = 0;
+        }
+        panZoom = grid.zoom;
+        panView.setLocation(-grid.originX, -grid.originY);
+        panTime = now;
+    }
+
+    /**
+     * Get the area rendered ahead: the map grown by the border, and the map moved in the direction of the recent pans
+     * grown by the border.
+     * @param grid grid of the projection.
+     * @return area in the pixel space of the projection.
+     */
+    protected Rectangle getAheadArea(TileGrid grid) {
+        Rectangle map = new Rectangle(0, 0, grid.proj.getWidth(), grid.proj.getHeight());
+        Rectangle area = new Rectangle(map);
+        area.grow(aheadBorder, aheadBorder);
+        double length = Math.hypot(panX, panY);
+        if (length >= 1) {
+            double scale = Math.min(length, aheadDistance) / length;
+            Rectangle ahead = new Rectangle(map);
+            ahead.translate((int) Math.round(panX * scale), (int) Math.round(panY * scale));
+            ahead.grow(aheadBorder, aheadBorder);
+            area.add(ahead);
+        }
+        return area;
+    }
+
+    /**
+     * Get the tiles lying within the area which are not entirely within the map, the ones nearest to the map moved in the direction
+     * of the recent pans first.
+     * @param grid grid of the projection.
+     * @param area area rendered ahead.
+     * @return keys of the tiles.
+     */
+    protected List<TileKey> getAheadTiles(TileGrid grid, Rectangle area) {
+        List<TileKey> keys = new ArrayList<>();
+        for (TileKey key : grid.getTilesFor(area)) {
+            if (!grid.isInView(key) && grid.isComplete(key, area)) {
+                keys.add(key);
+            }
+        }
+        double length = Math.hypot(panX, panY);
+        double scale = length >= 1 ? Math.min(length, aheadDistance) / length : 0;
+        double centerX = grid.proj.getWidth() / 2.0 + panX * scale - TILE_SIZE / 2.0;
+        double centerY = grid.proj.getHeight() / 2.0 + panY * scale - TILE_SIZE / 2.0;
+        keys.sort(Comparator.comparingDouble(key -> {
+            Point origin = grid.getTileOrigin(key);
+            return Math.hypot(origin.x - centerX, origin.y - centerY);
+        }));
+        return keys;
+    }
+
+    /**
+     * Render the tiles ahead, a few at a time under the lock of the layer, so the graphics are not generated for
+     * another projection meanwhile. Stops when the projection of the layer changes or the rendering is cancelled.
+     * @param grid grid of the projection.
+     * @param area area rendered ahead.
+     * @param keys tiles to be rendered, in order.
+     */
+    protected void renderAhead(TileGrid grid, Rectangle area, List<TileKey> keys) {
+        long start = System.nanoTime();
+        OMGraphicList list = null;
+        int rendered = 0;
+        while (rendered < keys.size()) {
+            synchronized (layer) {
+                if (Thread.currentThread().isInterrupted() || layer.getProjection() != grid.proj) {
+                    break;
+                }
+                if (list == null) {
+                    list = getGraphicsAhead(grid, area);
+                    if (list == null) {
+                        return;
+                    }
+                }
+                List<TileKey> chunk = keys.subList(rendered, Math.min(keys.size(), rendered + CHUNK_SIZE));
+                rasterize(list, grid, chunk, area);
+                rendered += chunk.size();
+            }
+        }
+        if (Debug.debugging("tiles")) {
+            Debug.output("RenderAheadPolicy: rendered " + rendered + " of " + keys.size() + " tiles ahead in "
+                    + (System.nanoTime() - start) / 1000000 + " ms");
+        }
+    }
+
+    /**
+     * Get all the graphics within the area rendered ahead, generated for the projection of the grid. Called under
+     * the lock of the layer.
+     * @param grid grid of the projection.
+     * @param area area rendered ahead.
+     * @return the graphics, or null if they can't be had for the layer.
+     */
+    protected OMGraphicList getGraphicsAhead(TileGrid grid, Rectangle area) {
+        if (layer instanceof CustomEditorLayer && grid.listArea != null) {
+            return ((CustomEditorLayer) layer).prepare(grid.proj, area);
+        }
+        if (isListComplete(grid)) {
+            return layer.getList();
+        }
+        if (!(layer instanceof ShapeLayer)) {
+            return null;
+        }
+        ShapeLayer shapeLayer = (ShapeLayer) layer;
+        SpatialIndex index = shapeLayer.getSpatialIndex();
+        if (index == null) {
+            return null;
+        }
+        Point2D upperLeft = grid.proj.inverse(area.x, area.y);
+        Point2D lowerRight = grid.proj.inverse(area.x + area.width, area.y + area.height);
+        double south = lowerRight.getY();
+        double north = upperLeft.getY();
+        double west = upperLeft.getX();
+        double east = lowerRight.getX();
+        OMGraphicList list = new OMGraphicList();
+        try {
+            if (west > east) {
+                index.getOMGraphics(west, south, 180, north, list, shapeLayer.getDrawingAttributes(), grid.proj, null);
+                index.getOMGraphics(-180, south, east, north, list, shapeLayer.getDrawingAttributes(), grid.proj,
+                        null);
+            } else {
+                index.getOMGraphics(west, south, east, north, list, shapeLayer.getDrawingAttributes(), grid.proj,
+                        null);
+            }
+        } catch (IOException | FormatException e) {
+            Debug.error("RenderAheadPolicy: can't read the shapes ahead: " + e.getMessage());
+            return null;
+        }
+        return list;
+    }
+
+    /**
+     * Set the properties of the policy.
+     * @param prefix property prefix of the policy.
+     * @param props properties.
+     */
+    @Override
+    public void setProperties(String prefix, Properties props) {
+        super.setProperties(prefix, props);
+        prefix = PropUtils.getScopedPropertyPrefix(prefix);
+        setAheadBorder(PropUtils.intFromProperties(props, prefix + AheadBorderProperty, getAheadBorder()));
+        setAheadDistance(PropUtils.intFromProperties(props, prefix + AheadDistanceProperty, getAheadDistance()));
+    }
+
+    /**
+     * Get the properties of the policy.
+     * @param props properties to be filled.
+     * @return properties of the policy.
+     */
+    @Override
+    public Properties getProperties(Properties props) {
+        props = super.getProperties(props);
+        String prefix = PropUtils.getScopedPropertyPrefix(this);
+        props.put(prefix + AheadBorderProperty, Integer.toString(getAheadBorder()));
+        props.put(prefix + AheadDistanceProperty, Integer.toString(getAheadDistance()));
+        return props;
+    }
+}
@@ -0,0 +1,213 @@
+package layer;
+
+import com.bbn.openmap.util.Debug;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Cache of rendered tile images stored as PNG files in a local directory, so tiles rendered in one session can be
+ * reused by the next one.
+ * <p>The files are evicted in least recently used order when the total size of the cache gets over its cap.
+ * The order is kept across sessions through the modification time of the files, which is updated on each read.</p>
+ */
+public class TileDiskCache {
+
+    /**
+     * Extension of the tile files.
+     */
+    protected static final String EXTENSION = ".png";
+
+    /**
+     * Thread writing the tiles, so rendering doesn't wait for the disk.
+     */
+    protected static final ExecutorService writer = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "TileDiskCache writer");
+        thread.setDaemon(true);
+        thread.setPriority(Thread.MIN_PRIORITY);
+        return thread;
+    });
+
+    /**
+     * Directory containing the tiles.
+     */
+    protected final File directory;
+
+    /**
+     * Cap of the total size of the tiles, in bytes.
+     */
+    protected final long maxBytes;
+
+    /**
+     * Tile files with their sizes, in least recently used order.
+     */
+    protected final LinkedHashMap<File, Long> files = new LinkedHashMap<>(16, 0.75f, true);
+
+    /**
+     * Total size of the tile files, in bytes.
+     */
+    protected long totalBytes = 0;
+
+    /**
+     * Create the cache, indexing the tiles stored in the directory by previous sessions.
+     * @param directory directory containing the tiles, created if missing.
+     * @param maxBytes cap of the total size of the tiles, in bytes.
+     */
+    public TileDiskCache(File directory, long maxBytes) {
+        this.directory = directory;
+        this.maxBytes = maxBytes;
+        List<File> found = new ArrayList<>();
+        collect(directory, found);
+        found.sort((a, b) -> Long.compare(a.lastModified(), b.lastModified()));
+        for (File file : found) {
+            files.put(file, file.length());
+            totalBytes += file.length();
+        }
+        evict();
+        Debug.message("tiles", "TileDiskCache: " + files.size() + " tiles found in " + directory);
+    }
+
+    /**
+     * Get the directory containing the tiles.
+     * @return the directory of the cache.
+     */
+    public File getDirectory() {
+        return directory;
+    }
+
+    /**
+     * Get the cap of the total size of the tiles.
+     * @return the cap in bytes.
+     */
+    public long getMaxBytes() {
+        return maxBytes;
+    }
+
+    /**
+     * Read a tile from the cache.
+     * @param path path of the tile relative to the directory of the cache, without extension.
+     * @return image of the tile, or null if the tile is not in the cache or can't be read.
+     */
+    public BufferedImage read(String path) {
+        File file = new File(directory, path + EXTENSION);
+        synchronized (this) {
+            if (files.get(file) == null) {
+                return null;
+            }
+        }
+        try {
+            BufferedImage image = ImageIO.read(file);
+            if (image != null) {
+                file.setLastModified(System.currentTimeMillis());
+            }
+            return image;
+        } catch (IOException e) {
+            Debug.error("TileDiskCache: can't read " + file + ": " + e.getMessage());
+            remove(file);
+            return null;
+        }
+    }
+
+    /**
+     * Write a tile to the cache. The file is written in the background.
+     * @param path path of the tile relative to the directory of the cache, without extension.
+     * @param image image of the tile.
+     */
+    public void write(String path, BufferedImage image) {
+        File file = new File(directory, path + EXTENSION);
+        writer.execute(() -> {
+            try {
+                File parent = file.getParentFile();
+                if (!parent.isDirectory() && !parent.mkdirs()) {
+                    throw new IOException("can't create " + parent);
+                }
+                File temp = new File(parent, file.getName() + ".tmp");
+                ImageIO.write(image, "png", temp);
+                if (file.exists() && !file.delete() || !temp.renameTo(file)) {
+                    throw new IOException("can't replace " + file);
+                }
+                synchronized (this) {
+                    Long previous = files.put(file, file.length());
+                    totalBytes += file.length() - (previous != null ? previous : 0);
+                    evict();
+                }
+            } catch (IOException e) {
+                Debug.error("TileDiskCache: can't write " + file + ": " + e.getMessage());
+            }
+        });
+    }
+
+    /**
+     * Delete all the tiles not stored under the path, e.g. the tiles of obsolete versions of the layer data.
+     * @param path path relative to the directory of the cache.
+     */
+    public synchronized void retainOnly(String path) {
+        String prefix = new File(directory, path).getPath() + File.separator;
+        List<File> obsolete = new ArrayList<>();
+        for (File file : files.keySet()) {
+            if (!file.getPath().startsWith(prefix)) {
+                obsolete.add(file);
+            }
+        }
+        for (File file : obsolete) {
+            remove(file);
+        }
+    }
+
+    /**
+     * Delete a tile from the cache.
+     * @param file file of the tile.
+     */
+    protected synchronized void remove(File file) {
+        Long size = files.remove(file);
+        if (size != null) {
+            totalBytes -= size;
+        }
+        if (file.exists() && !file.delete()) {
+            Debug.error("TileDiskCache: can't delete " + file);
+        }
+    }
+
+    /**
+     * Delete the least recently used tiles until the cache fits into its cap.
+     */
+    protected synchronized void evict() {
+        Iterator<Map.Entry<File, Long>> iterator = files.entrySet().iterator();
+        while (totalBytes > maxBytes && iterator.hasNext()) {
+            Map.Entry<File, Long> eldest = iterator.next();
+            iterator.remove();
+            totalBytes -= eldest.getValue();
+            if (!eldest.getKey().delete()) {
+                Debug.error("TileDiskCache: can't delete " + eldest.getKey());
+            }
+        }
+    }
+
+    /**
+     * Find the tile files in the directory and its subdirectories.
+     * @param dir directory to search.
+     * @param found list the files are added to.
+     */
+    protected static void collect(File dir, List<File> found) {
+        File[] children = dir.listFiles();
+        if (children == null) {
+            return;
+        }
+        for (File child : children) {
+            if (child.isDirectory()) {
+                collect(child, found);
+            } else if (child.getName().endsWith(EXTENSION)) {
+                found.add(child);
+            }
+        }
+    }
+}
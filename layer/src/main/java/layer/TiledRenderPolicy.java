@@ -0,0 +1,787 @@
+package layer;
+
+import com.bbn.openmap.layer.DrawingToolLayer;
+import com.bbn.openmap.layer.OMGraphicHandlerLayer;
+import com.bbn.openmap.layer.policy.StandardRenderPolicy;
+import com.bbn.openmap.omGraphics.OMGraphic;
+import com.bbn.openmap.omGraphics.OMGraphicList;
+import com.bbn.openmap.proj.Cylindrical;
+import com.bbn.openmap.proj.Projection;
+import com.bbn.openmap.util.Debug;
+import com.bbn.openmap.util.PropUtils;
+
+import javax.swing.SwingUtilities;
+import java.awt.*;
+import java.awt.geom.Point2D;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+import java.util.List;
+
+/**
+ * Render policy that rasterizes the graphics of the layer into cached image tiles and paints the tiles instead of
+ * the vector graphics.
+ * <p>Tiles are TILE_SIZE x TILE_SIZE pixels, keyed by the zoom of the projection and the tile coordinates,
+ * and evicted in least recently used order when the cache gets over its memory budget. For cylindrical projections
+ * the tile grid is anchored to the map, so panning by whole pixels, as dragging the map does, reuses the tiles already
+ * rendered. Tiles are only reused for the same sub-pixel phase of the grid, which is part of the zoom.</p>
+ * <p>Graphics that are being edited are invisible in the layer, they are drawn as vectors by the drawing tool
+ * on top of the tiles.</p>
+ * <p>To use it for a layer, add to the properties file:</p>
+ * <pre>
+ * customPoint.renderPolicy=tiles
+ * customPoint.tiles.class=layer.TiledRenderPolicy
+ * # Memory budget of the tile cache, in megabytes.
+ * customPoint.tiles.tileCacheSize=32
+ * # Optional directory the tiles are stored in between sessions, and its size cap in megabytes.
+ * customPoint.tiles.diskCache=cache/tiles
+ * customPoint.tiles.diskCacheSize=256
+ * # Files the layer reads its data from, their contents invalidate the tiles stored on disk.
+ * customPoint.tiles.dataFiles=
+ * </pre>
+ * <p>Tiles stored on disk are kept under a hash of the layer configuration and of the data files, so a change of any
+ * of them invalidates them. For CustomEditorLayers each tile is also kept under a hash of the graphics which may be
+ * drawn into it, so a change of the graphics only invalidates the tiles it is drawn into. The hashes are computed
+ * off the event dispatch thread, tiles rendered while painting are not stored on disk.</p>
+ * <p>Layers that only hold the graphics in view (e.g. ShapeLayer) produce incomplete tiles at the edges of the map,
+ * such tiles are only used for the projection they were rendered for.</p>
+ */
+public class TiledRenderPolicy extends StandardRenderPolicy {
+
+    /**
+     * Size of the edge of a tile, in pixels.
+     */
+    public static final int TILE_SIZE = 256;
+
+    /**
+     * Property for the memory budget of the tile cache, in megabytes.
+     */
+    public static final String TileCacheSizeProperty = "tileCacheSize";
+
+    /**
+     * Default memory budget of the tile cache, in megabytes.
+     */
+    public static final int DEFAULT_TILE_CACHE_SIZE = 32;
+
+    /**
+     * Property for the directory the tiles are stored in between sessions.
+     */
+    public static final String DiskCacheProperty = "diskCache";
+
+    /**
+     * Property for the size cap of the tiles stored on disk, in megabytes.
+     */
+    public static final String DiskCacheSizeProperty = "diskCacheSize";
+
+    /**
+     * Default size cap of the tiles stored on disk, in megabytes.
+     */
+    public static final int DEFAULT_DISK_CACHE_SIZE = 256;
+
+    /**
+     * Property for the space separated list of files the layer reads its data from.
+     */
+    public static final String DataFilesProperty = "dataFiles";
+
+    /**
+     * Number of bytes taken by one tile image.
+     */
+    protected static final long TILE_BYTES = (long) TILE_SIZE * TILE_SIZE * 4;
+
+    /**
+     * Number of steps the pixels are divided into for the sub-pixel phase of the grids of cylindrical projections.
+     */
+    protected static final int PHASE_STEPS = 64;
+
+    /**
+     * Number of pixels a rendered graphic may exceed its shape by, due to the edge width and the selection marks.
+     */
+    protected static final int RENDER_MARGIN = 8;
+
+    /**
+     * Memory budget of the tile cache, in bytes.
+     */
+    protected long tileCacheBytes = DEFAULT_TILE_CACHE_SIZE * 1024L * 1024L;
+
+    /**
+     * Rendered tiles in least recently used order.
+     */
+    protected final LinkedHashMap<TileKey, BufferedImage> tiles = new LinkedHashMap<>(16, 0.75f, true);
+
+    /**
+     * Incomplete tiles at the edges of the map, valid only for the projection of the current grid.
+     */
+    protected final Map<TileKey, BufferedImage> edgeTiles = new HashMap<>();
+
+    /**
+     * Tiles stored on disk, null if tiles are only kept in memory.
+     */
+    protected TileDiskCache diskCache;
+
+    /**
+     * Files the layer reads its data from.
+     */
+    protected String[] dataFiles = new String[0];
+
+    /**
+     * Properties the policy was configured with, containing the configuration of the layer as well.
+     */
+    protected Properties configuration;
+
+    /**
+     * Hash of the configuration and the data files of the layer, null if it has to be computed again.
+     */
+    protected String configurationHash;
+
+    /**
+     * Hash of all the graphics of a CustomEditorLayer, for the tiles which graphics can't be found from its spatial
+     * index. Null if it has to be computed again.
+     */
+    protected String contentHash;
+
+    /**
+     * Grid of the projection the graphics of the layer are currently generated for.
+     */
+    protected TileGrid grid;
+
+    /**
+     * Number of invalidations of the tiles, tiles rendered before an invalidation are not cached.
+     */
+    protected int generation;
+
+    public TiledRenderPolicy() {
+        super();
+    }
+
+    public TiledRenderPolicy(OMGraphicHandlerLayer layer) {
+        super(layer);
+    }
+
+    /**
+     * Set the memory budget of the tile cache.
+     * @param megabytes budget in megabytes.
+     */
+    public synchronized void setTileCacheSize(int megabytes) {
+        tileCacheBytes = Math.max(0, megabytes) * 1024L * 1024L;
+        evict();
+    }
+
+    /**
+     * Get the memory budget of the tile cache.
+     * @return budget in megabytes.
+     */
+    public int getTileCacheSize() {
+        return (int) (tileCacheBytes / (1024L * 1024L));
+    }
+
+    /**
+     * Prepare the graphics of the layer for the new projection and rasterize the tiles visible in it,
+     * so painting afterwards only has to draw the images. Called on the thread of the layer worker.
+     * <p>CustomEditorLayers only generate the graphics within the visible tiles, found from their spatial index.</p>
+     *
+     * @return the list of graphics of the layer.
+     */
+    @Override
+    public OMGraphicList prepare() {
+        Projection proj = layer != null ? layer.getProjection() : null;
+        if (proj == null) {
+            return super.prepare();
+        }
+        TileGrid newGrid = new TileGrid(proj);
+        OMGraphicList list = null;
+        if (layer instanceof CustomEditorLayer) {
+            Rectangle area = newGrid.getArea(newGrid.getVisibleTiles());
+            list = ((CustomEditorLayer) layer).prepare(proj, area);
+            if (list != null) {
+                newGrid.listArea = area;
+            }
+        }
+        if (list == null) {
+            list = super.prepare();
+        }
+        setGrid(newGrid);
+        rasterize(list, newGrid, newGrid.getVisibleTiles());
+        return list;
+    }
+
+    /**
+     * Paint the tiles visible in the current projection, rasterizing the ones that are missing.
+     *
+     * @param g Graphics to paint into.
+     */
+    @Override
+    public void paint(Graphics g) {
+        if (layer == null) {
+            return;
+        }
+        OMGraphicList list = layer.getList();
+        Projection proj = layer.getProjection();
+        if (list == null || !layer.isProjectionOK(proj)) {
+            return;
+        }
+
+        TileGrid paintGrid;
+        synchronized (this) {
+            if (grid == null || !grid.isFor(proj)) {
+                TileGrid newGrid = new TileGrid(proj);
+                if (grid != null && grid.listArea != null) {
+                    // the list only holds the graphics of an area of the previous projection
+                    newGrid.listArea = new Rectangle();
+                }
+                setGrid(newGrid);
+            }
+            paintGrid = grid;
+        }
+
+        List<TileKey> visible = paintGrid.getVisibleTiles();
+        Map<TileKey, BufferedImage> images = getTiles(visible);
+        if (images.size() < visible.size()) {
+            List<TileKey> missing = new ArrayList<>();
+            for (TileKey key : visible) {
+                if (!images.containsKey(key)) {
+                    missing.add(key);
+                }
+            }
+            images.putAll(rasterize(list, paintGrid, missing));
+        }
+
+        Graphics2D g2 = (Graphics2D) g.create();
+        setCompositeOnGraphics(g2);
+        for (Map.Entry<TileKey, BufferedImage> entry : images.entrySet()) {
+            Point origin = paintGrid.getTileOrigin(entry.getKey());
+            g2.drawImage(entry.getValue(), origin.x, origin.y, null);
+        }
+        g2.dispose();
+    }
+
+    /**
+     * Set the grid of the projection the graphics are generated for, forgetting the edge tiles of the previous one.
+     * @param newGrid grid of the current projection.
+     */
+    protected synchronized void setGrid(TileGrid newGrid) {
+        grid = newGrid;
+        edgeTiles.clear();
+    }
+
+    /**
+     * Check whether the list of the layer holds all its graphics, so a tile is complete even if it extends beyond
+     * the map.
+     * @param grid grid the list has been prepared for.
+     * @return true if tiles at the edges of the map are complete.
+     */
+    protected boolean isListComplete(TileGrid grid) {
+        return layer instanceof DrawingToolLayer && grid.listArea == null;
+    }
+
+    /**
+     * Get the cached images of the tiles.
+     * @param keys keys of the tiles.
+     * @return map of the tiles that are in the cache.
+     */
+    protected synchronized Map<TileKey, BufferedImage> getTiles(List<TileKey> keys) {
+        Map<TileKey, BufferedImage> images = new LinkedHashMap<>();
+        for (TileKey key : keys) {
+            BufferedImage image = tiles.get(key);
+            if (image == null) {
+                image = edgeTiles.get(key);
+            }
+            if (image != null) {
+                images.put(key, image);
+            }
+        }
+        return images;
+    }
+
+    /**
+     * Render the graphics into the tiles that are not in the cache yet. Tiles stored on disk are read, the others
+     * are rendered by traversing the graphics of their area once, each graphic being rendered into every tile its
+     * bounds intersect.
+     *
+     * @param list graphics generated for the projection of the grid.
+     * @param grid grid of the tiles.
+     * @param keys tiles to be rendered.
+     * @return rendered tiles.
+     */
+    protected Map<TileKey, BufferedImage> rasterize(OMGraphicList list, TileGrid grid, List<TileKey> keys) {
+        return rasterize(list, grid, keys, null);
+    }
+
+    /**
+     * Render the graphics into the tiles that are not in the cache yet, as {@link #rasterize(OMGraphicList, TileGrid,
+     * List)} does, with a list holding all the graphics of an area beyond the map.
+     *
+     * @param list graphics generated for the projection of the grid.
+     * @param grid grid of the tiles.
+     * @param keys tiles to be rendered.
+     * @param completeArea area in the pixel space of the grid which graphics are all in the list, tiles within it are
+     *                     complete even if they are outside the map. Null if the list holds the graphics of the map.
+     * @return rendered tiles.
+     */
+    protected Map<TileKey, BufferedImage> rasterize(OMGraphicList list, TileGrid grid, List<TileKey> keys,
+                                                    Rectangle completeArea) {
+        boolean complete = isListComplete(grid);
+        Rectangle listArea = completeArea != null ? completeArea : grid.listArea;
+        boolean stored = diskCache != null && !SwingUtilities.isEventDispatchThread();
+        int renderedGeneration;
+        List<TileKey> missing = new ArrayList<>();
+        synchronized (this) {
+            renderedGeneration = generation;
+            for (TileKey key : keys) {
+                // an incomplete edge tile is rendered again when the list holds all the graphics of the tile
+                if (!tiles.containsKey(key) && (complete || grid.isComplete(key, listArea)
+                        || !edgeTiles.containsKey(key))) {
+                    missing.add(key);
+                }
+            }
+        }
+
+        // the tiles are read from disk outside the lock, so painting the cached tiles doesn't wait for them
+        Map<TileKey, BufferedImage> images = new HashMap<>();
+        Map<TileKey, Graphics2D> graphics = new HashMap<>();
+        Map<TileKey, String> paths = new HashMap<>();
+        for (TileKey key : missing) {
+            if (stored && (complete || grid.isComplete(key, listArea))) {
+                String path = getTilePath(grid, key);
+                BufferedImage image = diskCache.read(path);
+                if (image != null) {
+                    images.put(key, image);
+                    continue;
+                }
+                paths.put(key, path);
+            }
+            BufferedImage image = new BufferedImage(TILE_SIZE, TILE_SIZE, BufferedImage.TYPE_INT_ARGB);
+            Graphics2D g2 = image.createGraphics();
+            Point origin = grid.getTileOrigin(key);
+            g2.translate(-origin.x, -origin.y);
+            images.put(key, image);
+            graphics.put(key, g2);
+        }
+
+        if (!graphics.isEmpty()) {
+            Rectangle area = grid.getArea(graphics.keySet());
+            for (OMGraphic omg : getGraphicsFor(list, grid, area)) {
+                if (!omg.isVisible()) {
+                    continue;
+                }
+                Rectangle bounds = getRenderBounds(omg);
+                if (bounds == null || !bounds.intersects(area)) {
+                    continue;
+                }
+                for (TileKey key : grid.getTilesFor(bounds.intersection(area))) {
+                    Graphics2D g2 = graphics.get(key);
+                    if (g2 != null) {
+                        omg.render(g2);
+                    }
+                }
+            }
+            for (Graphics2D g2 : graphics.values()) {
+                g2.dispose();
+            }
+        }
+
+        synchronized (this) {
+            if (generation != renderedGeneration) {
+                // the graphics have changed while rendering, the tiles may not show the change
+                return images;
+            }
+            for (Map.Entry<TileKey, BufferedImage> entry : images.entrySet()) {
+                TileKey key = entry.getKey();
+                if (!graphics.containsKey(key)) {
+                    tiles.put(key, entry.getValue());
+                } else if (complete || grid.isComplete(key, listArea)) {
+                    edgeTiles.remove(key);
+                    tiles.put(key, entry.getValue());
+                    if (paths.containsKey(key)) {
+                        diskCache.write(paths.get(key), entry.getValue());
+                    }
+                } else if (grid == this.grid) {
+                    edgeTiles.put(key, entry.getValue());
+                }
+            }
+            evict();
+        }
+        if (Debug.debugging("tiles")) {
+            Debug.output("TiledRenderPolicy: rasterized " + graphics.size() + " tiles, read " +
+                    (images.size() - graphics.size()) + ", " + tiles.size() + " cached");
+        }
+        return images;
+    }
+
+    /**
+     * Get the graphics to be rendered into an area. For a list prepared for an area containing it, the graphics are
+     * found from the spatial index of the CustomEditorLayer rather than by traversing the list.
+     * @param list graphics generated for the projection of the grid.
+     * @param grid grid of the tiles.
+     * @param area area in the pixel space of the grid.
+     * @return the graphics, in the order of the list.
+     */
+    protected Iterable<OMGraphic> getGraphicsFor(OMGraphicList list, TileGrid grid, Rectangle area) {
+        if (list == null) {
+            return Collections.emptyList();
+        }
+        if (layer instanceof CustomEditorLayer && grid.listArea != null && grid.listArea.contains(area)) {
+            List<OMGraphic> found = ((CustomEditorLayer) layer).getGraphicsIn(grid.proj, area);
+            if (found != null) {
+                return found;
+            }
+        }
+        return list;
+    }
+
+    /**
+     * Get the area the graphic covers when rendered, including the width of its edge.
+     * @param omg generated graphic.
+     * @return area in the pixel space of the projection, or null if the graphic has no shape.
+     */
+    public static Rectangle getRenderBounds(OMGraphic omg) {
+        Shape shape = omg.getShape();
+        if (shape == null) {
+            return null;
+        }
+        Rectangle bounds = shape.getBounds();
+        bounds.grow(RENDER_MARGIN, RENDER_MARGIN);
+        return bounds;
+    }
+
+    /**
+     * Remove the least recently used tiles until the cache fits into the memory budget.
+     */
+    protected synchronized void evict() {
+        Iterator<BufferedImage> iterator = tiles.values().iterator();
+        while (tiles.size() * TILE_BYTES > tileCacheBytes && iterator.hasNext()) {
+            iterator.next();
+            iterator.remove();
+        }
+    }
+
+    /**
+     * Get the path of the tile file in the disk cache, under the hash of the configuration of the layer and, for
+     * CustomEditorLayers, under the hash of the graphics drawn into the tile.
+     * @param grid grid of the tile.
+     * @param key key of the tile.
+     * @return path relative to the directory of the disk cache.
+     */
+    protected String getTilePath(TileGrid grid, TileKey key) {
+        String path = getConfigurationHash() + '/' + key.zoom.replaceAll("[^A-Za-z0-9.\\-]", "_") + '/' + key.x + '_'
+                + key.y;
+        if (!(layer instanceof CustomEditorLayer)) {
+            return path;
+        }
+        MessageDigest digest = newDigest();
+        Rectangle tile = new Rectangle(grid.getTileOrigin(key), new Dimension(TILE_SIZE, TILE_SIZE));
+        if (!((CustomEditorLayer) layer).digestContent(digest, grid.proj, tile)) {
+            return path + '_' + getContentHash();
+        }
+        return path + '_' + toHex(digest.digest());
+    }
+
+    /**
+     * Get the hash of the configuration and the data files of the layer, computing it if the configuration has
+     * changed. Tiles stored on disk for other hashes are deleted, since they are obsolete.
+     * @return hexadecimal hash.
+     */
+    protected synchronized String getConfigurationHash() {
+        if (configurationHash != null) {
+            return configurationHash;
+        }
+        MessageDigest digest = newDigest();
+        if (configuration != null && layer != null) {
+            String layerPrefix = PropUtils.getScopedPropertyPrefix(layer);
+            SortedMap<String, String> layerProperties = new TreeMap<>();
+            for (String name : configuration.stringPropertyNames()) {
+                if (name.startsWith(layerPrefix)) {
+                    layerProperties.put(name, configuration.getProperty(name));
+                }
+            }
+            digest.update(layerProperties.toString().getBytes(StandardCharsets.UTF_8));
+        }
+        for (String dataFile : dataFiles) {
+            try (InputStream in = new FileInputStream(dataFile)) {
+                byte[] buffer = new byte[8192];
+                int read;
+                while ((read = in.read(buffer)) > 0) {
+                    digest.update(buffer, 0, read);
+                }
+            } catch (IOException e) {
+                Debug.error("TiledRenderPolicy: can't read data file " + dataFile + ": " + e.getMessage());
+            }
+        }
+        configurationHash = toHex(digest.digest());
+        diskCache.retainOnly(configurationHash);
+        return configurationHash;
+    }
+
+    /**
+     * Get the hash of all the graphics of the CustomEditorLayer, computing it if the graphics have changed.
+     * @return hexadecimal hash.
+     */
+    protected synchronized String getContentHash() {
+        if (contentHash == null) {
+            MessageDigest digest = newDigest();
+            ((CustomEditorLayer) layer).digestContent(digest);
+            contentHash = toHex(digest.digest());
+        }
+        return contentHash;
+    }
+
+    /**
+     * Create the digest the hashes are computed with.
+     * @return SHA-1 digest.
+     */
+    protected static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-1");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Format a hash.
+     * @param hash the hash.
+     * @return hexadecimal hash.
+     */
+    protected static String toHex(byte[] hash) {
+        StringBuilder hex = new StringBuilder();
+        for (byte b : hash) {
+            hex.append(String.format("%02x", b));
+        }
+        return hex.toString();
+    }
+
+    /**
+     * Forget all the rendered tiles.
+     */
+    public synchronized void invalidate() {
+        generation++;
+        tiles.clear();
+        edgeTiles.clear();
+        contentHash = null;
+    }
+
+    /**
+     * Forget the tiles that are affected by a change of the graphics in the area. Tiles of the current zoom that
+     * do not intersect the area are kept, tiles of all the other zooms are forgotten.
+     *
+     * @param bounds area in the pixel space of the current projection, or null if unknown.
+     */
+    public synchronized void invalidate(Rectangle bounds) {
+        if (bounds == null || grid == null) {
+            invalidate();
+            return;
+        }
+        generation++;
+        Set<TileKey> affected = new HashSet<>(grid.getTilesFor(bounds));
+        tiles.keySet().removeIf(key -> !key.zoom.equals(grid.zoom) || affected.contains(key));
+        edgeTiles.keySet().removeIf(affected::contains);
+        contentHash = null;
+    }
+
+    /**
+     * Set the properties of the policy.
+     * @param prefix property prefix of the policy.
+     * @param props properties.
+     */
+    @Override
+    public void setProperties(String prefix, Properties props) {
+        super.setProperties(prefix, props);
+        prefix = PropUtils.getScopedPropertyPrefix(prefix);
+        setTileCacheSize(PropUtils.intFromProperties(props, prefix + TileCacheSizeProperty, getTileCacheSize()));
+
+        configuration = props;
+        String files = props.getProperty(prefix + DataFilesProperty);
+        dataFiles = files != null ? PropUtils.parseSpacedMarkers(files).toArray(new String[0]) : new String[0];
+
+        String directory = props.getProperty(prefix + DiskCacheProperty);
+        if (directory != null && !directory.trim().isEmpty()) {
+            int size = PropUtils.intFromProperties(props, prefix + DiskCacheSizeProperty, DEFAULT_DISK_CACHE_SIZE);
+            synchronized (this) {
+                String subdirectory = getPropertyPrefix() != null ? getPropertyPrefix() : "tiles";
+                diskCache = new TileDiskCache(new File(directory.trim(), subdirectory), size * 1024L * 1024L);
+                configurationHash = null;
+            }
+        }
+    }
+
+    /**
+     * Get the properties of the policy.
+     * @param props properties to be filled.
+     * @return properties of the policy.
+     */
+    @Override
+    public Properties getProperties(Properties props) {
+        props = super.getProperties(props);
+        String prefix = PropUtils.getScopedPropertyPrefix(this);
+        props.put(prefix + "class", getClass().getName());
+        props.put(prefix + TileCacheSizeProperty, Integer.toString(getTileCacheSize()));
+        if (diskCache != null) {
+            props.put(prefix + DiskCacheProperty, diskCache.getDirectory().getParent());
+            props.put(prefix + DiskCacheSizeProperty, Long.toString(diskCache.getMaxBytes() / (1024L * 1024L)));
+        }
+        props.put(prefix + DataFilesProperty, String.join(" ", dataFiles));
+        return props;
+    }
+
+    /**
+     * Key of a tile: the zoom it was rendered for and its position in the grid.
+     */
+    protected static class TileKey {
+        final String zoom;
+        final int x;
+        final int y;
+
+        TileKey(String zoom, int x, int y) {
+            this.zoom = zoom;
+            this.x = x;
+            this.y = y;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof TileKey)) {
+                return false;
+            }
+            TileKey key = (TileKey) o;
+            return x == key.x && y == key.y && zoom.equals(key.zoom);
+        }
+
+        @Override
+        public int hashCode() {
+            return (zoom.hashCode() * 31 + x) * 31 + y;
+        }
+    }
+
+    /**
+     * Grid of tiles laid over the pixel space of a projection.
+     * <p>For cylindrical projections panning only translates the pixel space, so the grid is anchored
+     * to the equator at longitude 0 and the zoom does not depend on the center. The anchor falls between pixels
+     * though, and the graphics of a tile are only at the same place relative to the whole pixel the tile is drawn at
+     * if the fraction of pixel is the same, so this sub-pixel phase, in 1/PHASE_STEPS pixels, is a part of the zoom.
+     * For other projections the center is a part of the zoom, and the grid is anchored to the upper left corner of
+     * the map.</p>
+     */
+    protected static class TileGrid {
+        final Projection proj;
+        final String zoom;
+        final int originX;
+        final int originY;
+
+        /**
+         * Area in the pixel space of the projection which graphics only the list of the layer holds, null if it
+         * holds all the graphics of the layer.
+         */
+        Rectangle listArea;
+
+        TileGrid(Projection proj) {
+            this.proj = proj;
+            Point2D center = proj.getCenter();
+            if (proj instanceof Cylindrical) {
+                double ctrLon = center.getX();
+                Point2D p0 = proj.forward(0.0, ctrLon);
+                Point2D p1 = proj.forward(0.0, ctrLon + 1.0);
+                double pixelsPerDegree = p1.getX() - p0.getX();
+                long phasedX = Math.round((p0.getX() - ctrLon * pixelsPerDegree) * PHASE_STEPS);
+                long phasedY = Math.round(p0.getY() * PHASE_STEPS);
+                originX = (int) Math.floorDiv(phasedX, PHASE_STEPS);
+                originY = (int) Math.floorDiv(phasedY, PHASE_STEPS);
+                zoom = proj.getClass().getName() + ':' + proj.getScale() + ':' + proj.getRotationAngle() + ':'
+                        + Math.floorMod(phasedX, PHASE_STEPS) + ':' + Math.floorMod(phasedY, PHASE_STEPS);
+            } else {
+                originX = 0;
+                originY = 0;
+                zoom = proj.getClass().getName() + ':' + proj.getScale() + ':' + proj.getRotationAngle() + ':'
+                        + center.getY() + ':' + center.getX() + ':' + proj.getWidth() + 'x' + proj.getHeight();
+            }
+        }
+
+        /**
+         * Check whether the grid has been created for the projection.
+         * @param proj projection to check.
+         * @return true if the grid belongs to the projection.
+         */
+        boolean isFor(Projection proj) {
+            return this.proj == proj;
+        }
+
+        /**
+         * Check whether the tile lies entirely within the map.
+         * @param key key of the tile.
+         * @return true if no part of the tile is outside the projection.
+         */
+        boolean isInView(TileKey key) {
+            Point origin = getTileOrigin(key);
+            return origin.x >= 0 && origin.y >= 0
+                    && origin.x + TILE_SIZE <= proj.getWidth() && origin.y + TILE_SIZE <= proj.getHeight();
+        }
+
+        /**
+         * Check whether the tile lies entirely within the map or within an area which graphics are all rendered.
+         * @param key key of the tile.
+         * @param area area in the pixel space of the projection, null if only the map is rendered completely.
+         * @return true if the rendered tile is complete.
+         */
+        boolean isComplete(TileKey key, Rectangle area) {
+            return isInView(key) || area != null && area.contains(new Rectangle(getTileOrigin(key),
+                    new Dimension(TILE_SIZE, TILE_SIZE)));
+        }
+
+        /**
+         * Get the keys of the tiles covering the projection.
+         * @return list of tile keys.
+         */
+        List<TileKey> getVisibleTiles() {
+            return getTilesFor(new Rectangle(0, 0, proj.getWidth(), proj.getHeight()));
+        }
+
+        /**
+         * Get the keys of the tiles intersecting the area.
+         * @param bounds area in the pixel space of the projection.
+         * @return list of tile keys.
+         */
+        List<TileKey> getTilesFor(Rectangle bounds) {
+            int minX = Math.floorDiv(bounds.x - originX, TILE_SIZE);
+            int minY = Math.floorDiv(bounds.y - originY, TILE_SIZE);
+            int maxX = Math.floorDiv(bounds.x + bounds.width - originX, TILE_SIZE);
+            int maxY = Math.floorDiv(bounds.y + bounds.height - originY, TILE_SIZE);
+            List<TileKey> keys = new ArrayList<>((maxX - minX + 1) * (maxY - minY + 1));
+            for (int y = minY; y <= maxY; y++) {
+                for (int x = minX; x <= maxX; x++) {
+                    keys.add(new TileKey(zoom, x, y));
+                }
+            }
+            return keys;
+        }
+
+        /**
+         * Get the area covered by tiles.
+         * @param keys keys of the tiles, at least one.
+         * @return area in the pixel space of the projection.
+         */
+        Rectangle getArea(Collection<TileKey> keys) {
+            Rectangle area = null;
+            for (TileKey key : keys) {
+                Rectangle tile = new Rectangle(getTileOrigin(key), new Dimension(TILE_SIZE, TILE_SIZE));
+                area = area == null ? tile : area.union(tile);
+            }
+            return area;
+        }
+
+        /**
+         * Get the position of the upper left corner of the tile in the pixel space of the projection.
+         * @param key key of the tile.
+         * @return position of the tile.
+         */
+        Point getTileOrigin(TileKey key) {
+            return new Point(originX + key.x * TILE_SIZE, originY + key.y * TILE_SIZE);
+        }
+    }
+}
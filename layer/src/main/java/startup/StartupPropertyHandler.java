@@ -0,0 +1,242 @@
+package startup;
+
+import com.bbn.openmap.Environment;
+import com.bbn.openmap.LayerHandler;
+import com.bbn.openmap.MapHandler;
+import com.bbn.openmap.MultipleSoloMapComponentException;
+import com.bbn.openmap.PropertyHandler;
+import com.bbn.openmap.util.ComponentFactory;
+import com.bbn.openmap.util.Debug;
+import com.bbn.openmap.util.PropUtils;
+import layer.LazyLayer;
+
+import javax.swing.*;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+
+/**
+ * PropertyHandler creating the components of the application one by one, timing each of them, and able to defer the
+ * components and layers which are not visible when the map first shows up.
+ * <p>When the lazyStartup property is true, the components listed in the deferredComponents property are only
+ * created once the map is shown, one per event of the event dispatch thread, and the layers which are not startup
+ * layers are replaced by {@link LazyLayer}s, which create the actual layer when it is first turned on. Otherwise the
+ * components are created as by the PropertyHandler, and only timed.</p>
+ * <p>The time taken by each component, and by the phases of the startup, is written out by {@link #report()}.</p>
+ */
+public class StartupPropertyHandler extends PropertyHandler {
+
+    /**
+     * Property enabling the deferred creation of the components and layers which are not visible at startup.
+     */
+    public static final String LazyStartupProperty = "lazyStartup";
+
+    /**
+     * Property for the space separated list of components created once the map is shown.
+     */
+    public static final String DeferredComponentsProperty = "deferredComponents";
+
+    /**
+     * Whether the components and layers which are not visible at startup are deferred.
+     */
+    protected boolean lazyStartup;
+
+    /**
+     * Markers of the components created once the map is shown.
+     */
+    protected final List<String> deferredComponents = new ArrayList<>();
+
+    /**
+     * Time taken by each component and phase of the startup, in nanoseconds, in the order they were timed.
+     */
+    protected final Map<String, Long> startupTimes = new LinkedHashMap<>();
+
+    /**
+     * Create the handler from a builder, the properties being read by the builder.
+     * @param builder builder holding the properties.
+     */
+    public StartupPropertyHandler(Builder builder) {
+        super(builder);
+        Properties props = getProperties();
+        String prefix = PropUtils.getScopedPropertyPrefix(getPropertyPrefix());
+        lazyStartup = PropUtils.booleanFromProperties(props, prefix + LazyStartupProperty, false);
+        if (lazyStartup) {
+            deferredComponents.addAll(markers(props.getProperty(prefix + DeferredComponentsProperty)));
+            deferLayers(props);
+        }
+    }
+
+    /**
+     * Replace the layers which are not turned on at startup by lazy layers, which create them when first needed.
+     * @param props properties of the application.
+     */
+    protected void deferLayers(Properties props) {
+        String prefix = PropUtils.getScopedPropertyPrefix(Environment.OpenMapPrefix);
+        List<String> layers = markers(props.getProperty(prefix + LayerHandler.layersProperty));
+        List<String> startUpLayers = markers(props.getProperty(prefix + LayerHandler.startUpLayersProperty));
+        for (String marker : layers) {
+            String classProperty = marker + ComponentFactory.DotClassNameProperty;
+            String className = props.getProperty(classProperty);
+            if (startUpLayers.contains(marker) || className == null
+                    || className.equals(LazyLayer.class.getName())) {
+                continue;
+            }
+            props.put(marker + "." + LazyLayer.DelegateClassProperty, className);
+            props.put(classProperty, LazyLayer.class.getName());
+        }
+    }
+
+    /**
+     * Create the components listed in the properties and hand them over to the MapHandler one by one, timing each
+     * of them. The deferred components are left out.
+     * @param mapHandler the MapHandler.
+     */
+    @Override
+    public void createComponents(MapHandler mapHandler) {
+        if (mapHandler == null) {
+            return;
+        }
+        Properties props = getProperties();
+        String prefix = PropUtils.getScopedPropertyPrefix(getPropertyPrefix());
+        List<String> markers = markers(props.getProperty(prefix + componentProperty));
+        for (String marker : markers) {
+            if (!deferredComponents.contains(marker)) {
+                createComponent(marker, props, mapHandler);
+            }
+        }
+    }
+
+    /**
+     * Create a component, register its marker and hand it over to the MapHandler, timing both.
+     * @param marker marker of the component in the properties.
+     * @param props properties of the application.
+     * @param mapHandler the MapHandler.
+     * @return the component, or null if it couldn't be created.
+     */
+    protected Object createComponent(String marker, Properties props, MapHandler mapHandler) {
+        long start = System.nanoTime();
+        Object component = ComponentFactory.create(props.getProperty(marker + ComponentFactory.DotClassNameProperty),
+                marker, props);
+        if (component == null) {
+            Debug.error("StartupPropertyHandler: " + marker + " wasn't created");
+            return null;
+        }
+        // the librarian of OpenMap is a raw table of the components by marker
+        @SuppressWarnings("unchecked")
+        Map<String, Object> librarian = getPrefixLibrarian();
+        librarian.put(marker.intern(), component);
+        addUsedPrefix(marker);
+        try {
+            mapHandler.add(component);
+        } catch (MultipleSoloMapComponentException e) {
+            Debug.error("StartupPropertyHandler: only one " + marker + " is allowed");
+        }
+        startupTimes.put(marker, System.nanoTime() - start);
+        return component;
+    }
+
+    /**
+     * Create the projection and the layers, timing them.
+     * @param mapHandler the MapHandler.
+     * @param props properties of the application.
+     */
+    @Override
+    public void loadProjectionAndLayers(MapHandler mapHandler, Properties props) {
+        long start = System.nanoTime();
+        super.loadProjectionAndLayers(mapHandler, props);
+        startupTimes.put("(projection and layers)", System.nanoTime() - start);
+    }
+
+    /**
+     * Create the deferred components and hand them over to the MapHandler, one per event of the event dispatch
+     * thread so the map stays responsive. Called once the map is shown.
+     * @param mapHandler the MapHandler.
+     */
+    public void createDeferredComponents(MapHandler mapHandler) {
+        List<String> markers = new ArrayList<>(deferredComponents);
+        deferredComponents.clear();
+        createDeferredComponents(mapHandler, markers);
+    }
+
+    /**
+     * Create the first of the deferred components and schedule the others.
+     * @param mapHandler the MapHandler.
+     * @param markers markers of the components left to create.
+     */
+    protected void createDeferredComponents(MapHandler mapHandler, List<String> markers) {
+        if (markers.isEmpty()) {
+            return;
+        }
+        String marker = markers.remove(0);
+        if (createComponent(marker, getProperties(), mapHandler) != null) {
+            Debug.output("StartupPropertyHandler: created deferred " + marker + " in "
+                    + millis(startupTimes.get(marker)) + " ms");
+        }
+        SwingUtilities.invokeLater(() -> createDeferredComponents(mapHandler, markers));
+    }
+
+    /**
+     * Tell whether the components and layers which are not visible at startup are deferred.
+     * @return true if they are deferred.
+     */
+    public boolean isLazyStartup() {
+        return lazyStartup;
+    }
+
+    /**
+     * Record the time taken by a phase of the startup.
+     * @param phase name of the phase.
+     * @param nanos time taken, in nanoseconds.
+     */
+    public void addStartupTime(String phase, long nanos) {
+        startupTimes.put(phase, nanos);
+    }
+
+    /**
+     * Get the time taken by each component and phase of the startup.
+     * @return the times in nanoseconds, in the order they were timed.
+     */
+    public Map<String, Long> getStartupTimes() {
+        return startupTimes;
+    }
+
+    /**
+     * Write out the time taken by each component and phase of the startup, the slowest first.
+     */
+    public void report() {
+        List<Map.Entry<String, Long>> entries = new ArrayList<>(startupTimes.entrySet());
+        entries.sort(Map.Entry.<String, Long>comparingByValue().reversed());
+        StringBuilder sb = new StringBuilder("StartupPropertyHandler: startup times");
+        if (lazyStartup) {
+            sb.append(" (lazy startup)");
+        }
+        for (Map.Entry<String, Long> entry : entries) {
+            sb.append(String.format("%n  %-32s %10s ms", entry.getKey(), millis(entry.getValue())));
+        }
+        Debug.output(sb.toString());
+    }
+
+    /**
+     * Format a time in milliseconds.
+     * @param nanos the time, in nanoseconds.
+     * @return the formatted time.
+     */
+    protected static String millis(long nanos) {
+        return String.format("%.1f", nanos / 1e6);
+    }
+
+    /**
+     * Parse a space separated list of markers into a list of strings, the list parsed by OpenMap being raw.
+     * @param value the list, may be null.
+     * @return the markers.
+     */
+    protected static List<String> markers(String value) {
+        List<String> markers = new ArrayList<>();
+        for (Object marker : PropUtils.parseSpacedMarkers(value)) {
+            markers.add((String) marker);
+        }
+        return markers;
+    }
+}
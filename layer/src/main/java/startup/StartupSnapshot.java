@@ -0,0 +1,440 @@
+package startup;
+
+import com.bbn.openmap.util.Debug;
+import io.BinaryGraphicsFormat;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+
+/**
+ * Binary file keeping what the application has read and resolved at startup, such as its properties and the graphics
+ * of its custom layers, so the next launch can take them as they are instead of reading and parsing their files again.
+ * <p>The snapshot is made of sections, each holding its data and the source files the data was made from. A source
+ * file is recorded with its length, its modification time and the SHA-1 hash of its content. A section is only used
+ * while all its sources are unchanged: a file with another length is changed, a file with the same length and time
+ * is unchanged, and otherwise the hash of the file tells. Stale sections are ignored, and replaced once their data
+ * is read from the sources again, so one changed file doesn't invalidate the others.</p>
+ * <p>The file is written by {@link #save()}, if a section has been put since it was loaded, through a temporary file
+ * so a snapshot is never left half written. A snapshot that can't be read is ignored as a whole.</p>
+ */
+public class StartupSnapshot {
+
+    /**
+     * System property for the path of the snapshot file, an empty path turning the snapshot off.
+     */
+    public static final String FileProperty = "startup.snapshot";
+
+    /**
+     * Default path of the snapshot file.
+     */
+    public static final String DEFAULT_FILE = "./cache/startup.snapshot";
+
+    /**
+     * Section of the properties of the application.
+     */
+    public static final String CONFIG_SECTION = "config";
+
+    /**
+     * Prefix of the sections of the graphics of a file, followed by the absolute path of the file.
+     */
+    public static final String GRAPHICS_SECTION_PREFIX = "graphics:";
+
+    /**
+     * First bytes of a snapshot file.
+     */
+    protected static final int MAGIC = 0x4F4D5353;
+
+    /**
+     * Version of the format of the file, a snapshot of another version being ignored.
+     */
+    protected static final int VERSION = 1;
+
+    /**
+     * Algorithm of the hashes of the source files.
+     */
+    protected static final String HASH_ALGORITHM = "SHA-1";
+
+    /**
+     * Snapshot of the running application.
+     */
+    private static volatile StartupSnapshot current;
+
+    /**
+     * File of the snapshot.
+     */
+    protected final File file;
+
+    /**
+     * Sections of the snapshot, by name.
+     */
+    protected final Map<String, Section> sections = new LinkedHashMap<>();
+
+    /**
+     * Whether the sections have changed since the snapshot was loaded or saved.
+     */
+    protected boolean dirty;
+
+    /**
+     * Create an empty snapshot of a file.
+     * @param file file of the snapshot.
+     */
+    public StartupSnapshot(File file) {
+        this.file = file;
+    }
+
+    /**
+     * Get the snapshot of the running application.
+     * @return the snapshot, or null if the application doesn't use one.
+     */
+    public static StartupSnapshot getCurrent() {
+        return current;
+    }
+
+    /**
+     * Set the snapshot of the running application.
+     * @param snapshot the snapshot, or null to stop using one.
+     */
+    public static void setCurrent(StartupSnapshot snapshot) {
+        current = snapshot;
+    }
+
+    /**
+     * Get the file of the snapshot.
+     * @return the file.
+     */
+    public File getFile() {
+        return file;
+    }
+
+    /**
+     * Load the sections from the file. Nothing is loaded if the file doesn't exist or can't be read.
+     */
+    public synchronized void load() {
+        sections.clear();
+        dirty = false;
+        if (!file.isFile()) {
+            return;
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file.toPath())))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                Debug.message("startup", "StartupSnapshot: ignoring " + file + " of another version");
+                return;
+            }
+            int count = in.readInt();
+            for (int i = 0; i < count; i++) {
+                String name = BinaryGraphicsFormat.readString(in);
+                sections.put(name, Section.read(in));
+            }
+            Debug.message("startup", "StartupSnapshot: loaded " + count + " sections from " + file);
+        } catch (IOException e) {
+            Debug.error("StartupSnapshot: can't read " + file + ": " + e.getMessage());
+            sections.clear();
+        }
+    }
+
+    /**
+     * Write the sections to the file, if they have changed.
+     */
+    public synchronized void save() {
+        if (!dirty) {
+            return;
+        }
+        Path target = file.toPath().toAbsolutePath();
+        Path temp = target.resolveSibling(target.getFileName() + ".tmp");
+        try {
+            Files.createDirectories(target.getParent());
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                out.writeInt(sections.size());
+                for (Map.Entry<String, Section> entry : sections.entrySet()) {
+                    BinaryGraphicsFormat.writeString(out, entry.getKey());
+                    entry.getValue().write(out);
+                }
+            }
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
+            dirty = false;
+            Debug.message("startup", "StartupSnapshot: saved " + sections.size() + " sections to " + file);
+        } catch (IOException e) {
+            Debug.error("StartupSnapshot: can't write " + file + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * Get the data of a section, if its sources are unchanged.
+     * @param name name of the section.
+     * @return data of the section, or null if there is no such section or it is stale.
+     */
+    public synchronized byte[] get(String name) {
+        Section section = sections.get(name);
+        if (section == null) {
+            return null;
+        }
+        for (Source source : section.sources) {
+            if (!isFresh(source)) {
+                Debug.message("startup", "StartupSnapshot: " + name + " is stale, " + source.path + " has changed");
+                return null;
+            }
+        }
+        return section.data;
+    }
+
+    /**
+     * Put the data of a section, replacing the one there was.
+     * @param name name of the section.
+     * @param sources source files the data was made from, recorded before they were read.
+     * @param data data of the section.
+     */
+    public synchronized void put(String name, List<Source> sources, byte[] data) {
+        sections.put(name, new Section(new ArrayList<>(sources), data));
+        dirty = true;
+    }
+
+    /**
+     * Get the properties kept in a section, if its sources are unchanged.
+     * @param name name of the section.
+     * @return the properties, or null if there is no such section or it is stale.
+     */
+    public Properties getProperties(String name) {
+        byte[] data = get(name);
+        if (data == null) {
+            return null;
+        }
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(data))) {
+            Properties props = new Properties();
+            int count = in.readInt();
+            for (int i = 0; i < count; i++) {
+                props.put(BinaryGraphicsFormat.readString(in), BinaryGraphicsFormat.readString(in));
+            }
+            return props;
+        } catch (IOException e) {
+            Debug.error("StartupSnapshot: can't read the properties of " + name + ": " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Keep properties in a section. Only the string properties are kept.
+     * @param name name of the section.
+     * @param sources source files the properties were read from, recorded before they were read.
+     * @param props the properties.
+     */
+    public void putProperties(String name, List<Source> sources, Properties props) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            List<String> keys = new ArrayList<>(props.stringPropertyNames());
+            out.writeInt(keys.size());
+            for (String key : keys) {
+                BinaryGraphicsFormat.writeString(out, key);
+                BinaryGraphicsFormat.writeString(out, props.getProperty(key));
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+        put(name, sources, bytes.toByteArray());
+    }
+
+    /**
+     * Get the name of the section of the graphics of a file.
+     * @param file file of the graphics.
+     * @return name of the section.
+     */
+    public static String getGraphicsSection(File file) {
+        return GRAPHICS_SECTION_PREFIX + file.getAbsolutePath();
+    }
+
+    /**
+     * Check whether a source file is unchanged, comparing its hash if its time has changed but not its length. A
+     * file found unchanged by its hash gets its new time recorded, so the next check doesn't have to hash it.
+     * @param source the recorded source file.
+     * @return true if the file is unchanged.
+     */
+    protected boolean isFresh(Source source) {
+        File sourceFile = new File(source.path);
+        if (!sourceFile.isFile() || sourceFile.length() != source.length) {
+            return false;
+        }
+        long lastModified = sourceFile.lastModified();
+        if (lastModified == source.lastModified) {
+            return true;
+        }
+        try {
+            if (!Arrays.equals(hash(sourceFile), source.hash)) {
+                return false;
+            }
+        } catch (IOException e) {
+            return false;
+        }
+        source.lastModified = lastModified;
+        dirty = true;
+        return true;
+    }
+
+    /**
+     * Record a source file as it is now. It is to be recorded before it is read, so a change made while it is read
+     * leaves the section stale.
+     * @param file the source file.
+     * @return the record of the file.
+     * @throws IOException if the file can't be read.
+     */
+    public static Source fingerprint(File file) throws IOException {
+        long length = file.length();
+        long lastModified = file.lastModified();
+        return new Source(file.getAbsolutePath(), length, lastModified, hash(file));
+    }
+
+    /**
+     * Compute the hash of the content of a file.
+     * @param file the file.
+     * @return the hash.
+     * @throws IOException if the file can't be read.
+     */
+    protected static byte[] hash(File file) throws IOException {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance(HASH_ALGORITHM);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+        byte[] buffer = new byte[8192];
+        try (InputStream in = Files.newInputStream(file.toPath())) {
+            int read;
+            while ((read = in.read(buffer)) > 0) {
+                digest.update(buffer, 0, read);
+            }
+        }
+        return digest.digest();
+    }
+
+    /**
+     * Source file of a section, as it was when it was read.
+     */
+    public static class Source {
+
+        /**
+         * Absolute path of the file.
+         */
+        protected final String path;
+
+        /**
+         * Length of the file.
+         */
+        protected final long length;
+
+        /**
+         * Modification time of the file.
+         */
+        protected long lastModified;
+
+        /**
+         * Hash of the content of the file.
+         */
+        protected final byte[] hash;
+
+        /**
+         * Create the record of a source file.
+         * @param path absolute path of the file.
+         * @param length length of the file.
+         * @param lastModified modification time of the file.
+         * @param hash hash of the content of the file.
+         */
+        public Source(String path, long length, long lastModified, byte[] hash) {
+            this.path = path;
+            this.length = length;
+            this.lastModified = lastModified;
+            this.hash = hash;
+        }
+
+        /**
+         * Get the path of the file.
+         * @return absolute path of the file.
+         */
+        public String getPath() {
+            return path;
+        }
+    }
+
+    /**
+     * Section of the snapshot.
+     */
+    protected static class Section {
+
+        /**
+         * Source files the data was made from.
+         */
+        protected final List<Source> sources;
+
+        /**
+         * Data of the section.
+         */
+        protected final byte[] data;
+
+        /**
+         * Create a section.
+         * @param sources source files the data was made from.
+         * @param data data of the section.
+         */
+        protected Section(List<Source> sources, byte[] data) {
+            this.sources = sources;
+            this.data = data;
+        }
+
+        /**
+         * Read a section.
+         * @param in input the section is read from.
+         * @return the section.
+         * @throws IOException if the input doesn't hold a section.
+         */
+        protected static Section read(DataInputStream in) throws IOException {
+            int count = in.readInt();
+            List<Source> sources = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                String path = BinaryGraphicsFormat.readString(in);
+                long length = in.readLong();
+                long lastModified = in.readLong();
+                byte[] hash = new byte[in.readUnsignedByte()];
+                in.readFully(hash);
+                sources.add(new Source(path, length, lastModified, hash));
+            }
+            byte[] data = new byte[in.readInt()];
+            in.readFully(data);
+            return new Section(sources, data);
+        }
+
+        /**
+         * Write the section.
+         * @param out output the section is written to.
+         * @throws IOException if the section can't be written.
+         */
+        protected void write(DataOutputStream out) throws IOException {
+            out.writeInt(sources.size());
+            for (Source source : sources) {
+                BinaryGraphicsFormat.writeString(out, source.path);
+                out.writeLong(source.length);
+                out.writeLong(source.lastModified);
+                out.writeByte(source.hash.length);
+                out.write(source.hash);
+            }
+            out.writeInt(data.length);
+            out.write(data);
+        }
+    }
+}
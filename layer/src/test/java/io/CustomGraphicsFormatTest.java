@@ -0,0 +1,124 @@
+package io;
+
+import com.bbn.openmap.omGraphics.OMGraphic;
+import com.bbn.openmap.omGraphics.OMGraphicConstants;
+import com.bbn.openmap.proj.ProjMath;
+import graphics.CustomPoint;
+import graphics.CustomPoly;
+import graphics.CustomSector;
+import org.junit.Test;
+
+import java.awt.*;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Tests of {@link CustomGraphicsFormat}.
+ */
+public class CustomGraphicsFormatTest {
+
+    /**
+     * Tolerance on the coordinates, in decimal degrees.
+     */
+    protected static final double EPSILON = 1e-9;
+
+    /**
+     * Format a graphic as a line and construct it back from the line.
+     * @param graphic the graphic.
+     * @return the graphic read back.
+     */
+    protected static OMGraphic roundTrip(OMGraphic graphic) {
+        String line = CustomGraphicsFormat.format(graphic);
+        return CustomGraphicsFormat.construct(CustomGraphicsFormat.parse(line));
+    }
+
+    /**
+     * Points keep their location, radius, rotation, shape, name and colors.
+     */
+    @Test
+    public void readsBackPoints() {
+        CustomPoint point = new CustomPoint(48.8566, 2.3522, 7);
+        point.setRotationAngle(Math.toRadians(30));
+        point.setOval(true);
+        point.setName("Gare; du \\Nord");
+        point.setLinePaint(new Color(0x80112233, true));
+        point.setFillPaint(Color.orange);
+        CustomPoint read = (CustomPoint) roundTrip(point);
+        assertEquals(48.8566, read.getLat(), EPSILON);
+        assertEquals(2.3522, read.getLon(), EPSILON);
+        assertEquals(7, read.getRadius());
+        assertEquals(Math.toRadians(30), read.getRotationAngle(), EPSILON);
+        assertTrue(read.isOval());
+        assertEquals("Gare; du \\Nord", read.getName());
+        assertEquals(new Color(0x80112233, true), read.getLinePaint());
+        assertEquals(Color.orange, read.getFillPaint());
+    }
+
+    /**
+     * Sectors keep their corners and line type.
+     */
+    @Test
+    public void readsBackSectors() {
+        CustomSector sector = new CustomSector(10, 20, 12.5, 23.25, OMGraphicConstants.LINETYPE_GREATCIRCLE);
+        sector.setName("Sector");
+        CustomSector read = (CustomSector) roundTrip(sector);
+        assertEquals(10, read.getLat1(), EPSILON);
+        assertEquals(20, read.getLon1(), EPSILON);
+        assertEquals(12.5, read.getLat2(), EPSILON);
+        assertEquals(23.25, read.getLon2(), EPSILON);
+        assertEquals(OMGraphicConstants.LINETYPE_GREATCIRCLE, read.getLineType());
+        assertEquals("Sector", read.getName());
+    }
+
+    /**
+     * Polys keep their vertices, line type and whether they are polygons.
+     */
+    @Test
+    public void readsBackPolys() {
+        double[] llPoints = {10, 20, 11, -179.5, 12.25, 179};
+        CustomPoly poly = new CustomPoly(llPoints.clone(), OMGraphicConstants.DECIMAL_DEGREES,
+                OMGraphicConstants.LINETYPE_RHUMB);
+        poly.setFillPaint(Color.green);
+        poly.setName("Area");
+        CustomPoly read = (CustomPoly) roundTrip(poly);
+        double[] readPoints = read.getLatLonArray();
+        for (int i = 0; i < readPoints.length; i++) {
+            readPoints[i] = ProjMath.radToDeg(readPoints[i]);
+        }
+        assertArrayEquals(llPoints, readPoints, EPSILON);
+        assertEquals(OMGraphicConstants.LINETYPE_RHUMB, read.getLineType());
+        assertTrue(read.isPolygon());
+        assertEquals(Color.green, read.getFillPaint());
+
+        // an open line, which has no fill
+        poly.setIsPolygon(false);
+        assertFalse(((CustomPoly) roundTrip(poly)).isPolygon());
+    }
+
+    /**
+     * Comments and empty lines are skipped, graphics not placed in lat/lon coordinates are not stored, and malformed
+     * lines are rejected.
+     */
+    @Test
+    public void rejectsWhatCantBeStored() {
+        assertNull(CustomGraphicsFormat.parse("# comment"));
+        assertNull(CustomGraphicsFormat.parse("   "));
+        assertNull(CustomGraphicsFormat.format(new CustomPoint(10, 20)));
+        String[][] malformed = {{"point", "a", "ff000000"}, {"point", "a", "ff000000", "ff000000", "1", "2"},
+                {"circle", "a", "ff000000", "ff000000"},
+                {"poly", "a", "ff000000", "ff000000", "1", "true", "1 2 3"}};
+        for (String[] fields : malformed) {
+            try {
+                CustomGraphicsFormat.construct(fields);
+                fail("accepted " + String.join(";", fields));
+            } catch (IllegalArgumentException e) {
+                // expected
+            }
+        }
+    }
+}
@@ -0,0 +1,125 @@
+package io;
+
+import com.bbn.openmap.omGraphics.OMGraphic;
+import com.bbn.openmap.omGraphics.OMGraphicList;
+import graphics.CustomPoint;
+import graphics.CustomSector;
+import layer.CustomEditorLayer;
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests of {@link ImportExportService}.
+ */
+public class ImportExportServiceTest {
+
+    /**
+     * Number of graphics exported, spanning several chunks.
+     */
+    protected static final int COUNT = ImportExportService.CHUNK_SIZE * 2 + 100;
+
+    /**
+     * Folder of the files written by the tests.
+     */
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    /**
+     * Executor of the service.
+     */
+    protected final ExecutorService executor = Executors.newFixedThreadPool(3);
+
+    /**
+     * The service.
+     */
+    protected final ImportExportService service = new ImportExportService(executor);
+
+    /**
+     * Stop the threads of the service.
+     */
+    @After
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Create a layer holding points and a sector.
+     * @return the layer.
+     */
+    protected static CustomEditorLayer layer() {
+        OMGraphicList list = new OMGraphicList();
+        for (int i = 0; i < COUNT; i++) {
+            CustomPoint point = new CustomPoint(-60 + i * 0.01, -170 + i * 0.05);
+            point.setName("Point " + i);
+            list.add(point);
+        }
+        CustomSector sector = new CustomSector(10, 20, 12, 24, 1);
+        sector.setName("Sector");
+        list.add(sector);
+        CustomEditorLayer layer = new CustomEditorLayer();
+        layer.setOMGraphics(list);
+        return layer;
+    }
+
+    /**
+     * The graphics of a layer exported and imported into another layer come back in order, with the same lines, and
+     * are indexed by the other layer.
+     */
+    @Test
+    public void importsWhatIsExported() throws Exception {
+        CustomEditorLayer layer = layer();
+        File file = folder.newFile("graphics.txt");
+        service.exportLayer(layer, file).get();
+        List<String> lines = Files.readAllLines(file.toPath(), StandardCharsets.UTF_8);
+        assertEquals(COUNT + 1, lines.size());
+
+        CustomEditorLayer imported = new CustomEditorLayer();
+        OMGraphicList list = service.importLayer(imported, file).get();
+        assertEquals(COUNT + 1, list.size());
+        assertEquals(COUNT + 1, imported.getOMGraphics().size());
+        List<String> readLines = new ArrayList<>();
+        for (OMGraphic omg : imported.getOMGraphics()) {
+            readLines.add(CustomGraphicsFormat.format(omg));
+        }
+        assertEquals(lines, readLines);
+        assertEquals("Point 1234", ((CustomPoint) imported.search("point 1234", 1).get(0)).getName());
+        assertTrue(imported.query(10.5, 21, 11.5, 23).anyMatch(omg -> omg instanceof CustomSector));
+    }
+
+    /**
+     * Graphics indexed ahead of being published are indexed again if the layer rebuilt its indexes meanwhile.
+     */
+    @Test
+    public void indexesAgainAfterRebuild() throws Exception {
+        CustomEditorLayer layer = new CustomEditorLayer();
+        CustomPoint point = new CustomPoint(10.0, 20.0);
+        point.setName("Harbor");
+        int generation = layer.getIndexGeneration();
+        OMGraphicList list = service.index(layer, Collections.singletonList(point));
+        assertEquals(Collections.singletonList(point), layer.search("harbor", 1));
+
+        Properties props = new Properties();
+        props.setProperty("custom." + CustomEditorLayer.IndexCellSizeProperty, "2.5");
+        layer.setProperties("custom", props);
+        assertEquals(Collections.emptyList(), layer.search("harbor", 1));
+
+        service.publish(layer, list, generation).get();
+        assertEquals(Collections.singletonList(point), layer.search("harbor", 1));
+        assertTrue(layer.query(9, 19, 11, 21).anyMatch(omg -> omg == point));
+    }
+}
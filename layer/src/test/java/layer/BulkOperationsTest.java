@@ -0,0 +1,144 @@
+package layer;
+
+import com.bbn.openmap.event.UndoStack;
+import com.bbn.openmap.omGraphics.OMGraphic;
+import com.bbn.openmap.omGraphics.OMGraphicList;
+import graphics.CustomPoint;
+import graphics.CustomPointList;
+import org.junit.Test;
+
+import java.awt.*;
+import java.awt.event.ActionEvent;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests of {@link BulkOperations}.
+ */
+public class BulkOperationsTest {
+
+    /**
+     * Tolerance on the coordinates, in decimal degrees.
+     */
+    protected static final double EPSILON = 1e-9;
+
+    /**
+     * Create the operations of a layer, running on the calling thread.
+     * @param layer the layer.
+     * @return the operations.
+     */
+    protected static BulkOperations operations(CustomEditorLayer layer) {
+        return new BulkOperations(layer, Runnable::run);
+    }
+
+    /**
+     * Wait for the operations, undos and redos queued so far to be done.
+     * @param operations the operations.
+     * @throws Exception if an operation failed.
+     */
+    protected static void await(BulkOperations operations) throws Exception {
+        operations.pending.get();
+    }
+
+    /**
+     * Send a command to an undo stack, as its undo and redo buttons do.
+     * @param undoStack the undo stack.
+     * @param command UndoStack.UndoCmd or UndoStack.RedoCmd.
+     */
+    protected static void command(UndoStack undoStack, String command) {
+        undoStack.actionPerformed(new ActionEvent(undoStack, ActionEvent.ACTION_PERFORMED, command));
+    }
+
+    /**
+     * Records of a point layer found by a query are moved and renamed through the list, and only the points linked to
+     * a record are counted.
+     */
+    @Test
+    public void changesRecordsOfPointLayer() throws Exception {
+        CustomPointLayer layer = new CustomPointLayer();
+        CustomPointList points = layer.getPoints();
+        points.addRecord(10, 20, 3, 0, false, "Alpha", Color.black.getRGB(), Color.white.getRGB());
+        points.addRecord(-5, 179.5, 3, 0, false, "Bravo", Color.black.getRGB(), Color.white.getRGB());
+        List<OMGraphic> selection = layer.query(-90, -180, 90, 180).collect(Collectors.toList());
+        assertEquals(2, selection.size());
+        // a point of another list isn't linked to the layer
+        CustomPoint other = new CustomPoint(0.0, 0.0);
+        BulkOperations operations = operations(layer);
+
+        List<OMGraphic> moved = new ArrayList<>(selection);
+        moved.add(other);
+        assertEquals(2, (int) operations.move(moved, 1, 1).get());
+        List<CustomPoint> found = Arrays.asList(points.createPoint(0), points.createPoint(1));
+        found.sort((a, b) -> a.getName().compareTo(b.getName()));
+        assertEquals(11, found.get(0).getLat(), EPSILON);
+        assertEquals(21, found.get(0).getLon(), EPSILON);
+        assertEquals(-4, found.get(1).getLat(), EPSILON);
+        assertEquals(-179.5, found.get(1).getLon(), EPSILON);
+        assertEquals(0, other.getLat(), EPSILON);
+        assertEquals(Collections.singletonList("Alpha"),
+                layer.query(10.5, 20.5, 11.5, 21.5).map(omg -> ((CustomPoint) omg).getName())
+                        .collect(Collectors.toList()));
+
+        assertEquals(2, (int) operations.rename(selection, "%s 1").get());
+        assertEquals(Arrays.asList("Alpha 1", "Bravo 1"),
+                Arrays.asList(points.getRecordName(0), points.getRecordName(1)).stream().sorted()
+                        .collect(Collectors.toList()));
+
+        // removing a record unlinks the copies
+        points.removeRecord(1);
+        assertEquals(0, (int) operations.move(selection, 1, 1).get());
+    }
+
+    /**
+     * Undoing and redoing the operations bring the graphics back to their states before and after each of them.
+     */
+    @Test
+    public void undoesAndRedoesOperations() throws Exception {
+        CustomEditorLayer layer = new CustomEditorLayer();
+        CustomPoint first = new CustomPoint(10.0, 20.0);
+        first.setName("First");
+        CustomPoint second = new CustomPoint(-10.0, -20.0);
+        second.setName("Second");
+        OMGraphicList list = new OMGraphicList();
+        list.add(first);
+        list.add(second);
+        layer.setOMGraphics(list);
+        BulkOperations operations = operations(layer);
+        UndoStack undoStack = operations.getUndoStack();
+
+        assertEquals(2, (int) operations.move(Arrays.asList(first, second), 5, 5).get());
+        assertEquals(1, (int) operations.rotate(Arrays.asList(first, list), 1).get());
+        assertEquals(1, (int) operations.rename(Collections.singletonList(second), "%s copy").get());
+
+        command(undoStack, UndoStack.UndoCmd);
+        await(operations);
+        assertEquals("Second", second.getName());
+        assertEquals(Collections.singletonList(second), layer.search("second", 10));
+
+        command(undoStack, UndoStack.UndoCmd);
+        command(undoStack, UndoStack.UndoCmd);
+        await(operations);
+        assertEquals(10, first.getLat(), EPSILON);
+        assertEquals(20, first.getLon(), EPSILON);
+        assertEquals(0, first.getRotationAngle(), EPSILON);
+        assertEquals(-10, second.getLat(), EPSILON);
+        assertTrue(layer.query(9, 19, 11, 21).anyMatch(omg -> omg == first));
+
+        command(undoStack, UndoStack.RedoCmd);
+        command(undoStack, UndoStack.RedoCmd);
+        command(undoStack, UndoStack.RedoCmd);
+        await(operations);
+        assertEquals(15, first.getLat(), EPSILON);
+        assertEquals(25, first.getLon(), EPSILON);
+        assertEquals(1, first.getRotationAngle(), EPSILON);
+        assertEquals("Second copy", second.getName());
+        assertEquals(Collections.singletonList(second), layer.search("second copy", 1));
+        assertTrue(layer.query(14, 24, 16, 26).anyMatch(omg -> omg == first));
+    }
+}
@@ -0,0 +1,205 @@
+package layer;
+
+import com.bbn.openmap.omGraphics.OMGraphic;
+import com.bbn.openmap.omGraphics.OMGraphicConstants;
+import com.bbn.openmap.omGraphics.OMGraphicList;
+import com.bbn.openmap.proj.Mercator;
+import com.bbn.openmap.proj.Projection;
+import com.bbn.openmap.proj.coords.LatLonPoint;
+import graphics.CustomPoint;
+import graphics.CustomPoly;
+import org.junit.Test;
+
+import java.awt.*;
+import java.awt.geom.Point2D;
+import java.awt.image.BufferedImage;
+import java.util.Collections;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests of {@link TiledRenderPolicy}.
+ */
+public class TiledRenderPolicyTest {
+
+    /**
+     * Size of the map, in pixels.
+     */
+    protected static final int WIDTH = 800;
+    protected static final int HEIGHT = 600;
+
+    /**
+     * Scale of the projections.
+     */
+    protected static final float SCALE = 60000000f;
+
+    /**
+     * Create a layer rendering points and polys into tiles.
+     * @return the layer.
+     */
+    protected static CustomEditorLayer layer() {
+        Random random = new Random(1);
+        OMGraphicList list = new OMGraphicList();
+        for (int i = 0; i < 300; i++) {
+            double lat = random.nextDouble() * 120 - 60;
+            double lon = random.nextDouble() * 360 - 180;
+            if (i % 3 == 0) {
+                double[] llPoints = {lat, lon, lat + random.nextDouble() * 5, lon + random.nextDouble() * 8,
+                        lat - random.nextDouble() * 4, lon + random.nextDouble() * 6};
+                CustomPoly poly = new CustomPoly(llPoints, OMGraphicConstants.DECIMAL_DEGREES,
+                        OMGraphic.LINETYPE_STRAIGHT);
+                poly.setLinePaint(Color.blue);
+                list.add(poly);
+            } else {
+                CustomPoint point = new CustomPoint(lat, lon, 4);
+                point.setLinePaint(Color.red);
+                list.add(point);
+            }
+        }
+        CustomEditorLayer layer = new CustomEditorLayer();
+        layer.setOMGraphics(list);
+        layer.setRenderPolicy(new TiledRenderPolicy(layer));
+        return layer;
+    }
+
+    /**
+     * Create a Mercator projection of the map.
+     * @param lat latitude of the center, in decimal degrees.
+     * @param lon longitude of the center, in decimal degrees.
+     * @return the projection.
+     */
+    protected static Mercator projection(double lat, double lon) {
+        return new Mercator(new LatLonPoint.Double(lat, lon), SCALE, WIDTH, HEIGHT);
+    }
+
+    /**
+     * Prepare the layer for a projection and paint its tiles, as the layer does.
+     * @param layer the layer.
+     * @param proj the projection.
+     * @return image of the map.
+     */
+    protected static BufferedImage paintTiles(CustomEditorLayer layer, Projection proj) {
+        TiledRenderPolicy policy = (TiledRenderPolicy) layer.getRenderPolicy();
+        layer.setProjection(proj);
+        layer.setList(policy.prepare());
+        BufferedImage image = new BufferedImage(WIDTH, HEIGHT, BufferedImage.TYPE_INT_ARGB);
+        Graphics2D g = image.createGraphics();
+        policy.paint(g);
+        g.dispose();
+        return image;
+    }
+
+    /**
+     * Paint the layer for a projection with a new policy, which renders all the tiles for the projection. Rendering
+     * the graphics into tiles rather than straight into the map may move the edges falling on half pixels, so the
+     * tiles reused by a policy are compared to new tiles rather than to the graphics.
+     * @param layer the layer.
+     * @param proj the projection.
+     * @return image of the map.
+     */
+    protected static BufferedImage paintNewTiles(CustomEditorLayer layer, Projection proj) {
+        TiledRenderPolicy policy = (TiledRenderPolicy) layer.getRenderPolicy();
+        layer.setRenderPolicy(new TiledRenderPolicy(layer));
+        try {
+            return paintTiles(layer, proj);
+        } finally {
+            layer.setRenderPolicy(policy);
+        }
+    }
+
+    /**
+     * Count the pixels which differ between two images.
+     * @param a first image.
+     * @param b second image.
+     * @return number of differing pixels.
+     */
+    protected static int countDifferences(BufferedImage a, BufferedImage b) {
+        int count = 0;
+        for (int y = 0; y < HEIGHT; y++) {
+            for (int x = 0; x < WIDTH; x++) {
+                if (a.getRGB(x, y) != b.getRGB(x, y)) {
+                    count++;
+                }
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Tiles are not reused after a pan by a fraction of a pixel, where they would be off by up to a pixel, since
+     * the sub-pixel phase of the grid changes.
+     */
+    @Test
+    public void rendersTilesAgainAfterPanByFractionOfPixel() {
+        Mercator before = projection(10, 0);
+        Mercator after = projection(10, 30);
+        assertNotEquals(new TiledRenderPolicy.TileGrid(before).zoom, new TiledRenderPolicy.TileGrid(after).zoom);
+
+        CustomEditorLayer layer = layer();
+        paintTiles(layer, before);
+        assertEquals(0, countDifferences(paintNewTiles(layer, after), paintTiles(layer, after)));
+    }
+
+    /**
+     * Panning by whole pixels keeps the zoom and the tile coordinates, so the tiles are reused.
+     */
+    @Test
+    public void reusesTilesAfterPanByWholePixels() {
+        Mercator before = projection(10, 0);
+        Point2D center = before.inverse(WIDTH / 2.0 + 300, HEIGHT / 2.0 + 100);
+        Mercator after = projection(center.getY(), center.getX());
+        TiledRenderPolicy.TileGrid beforeGrid = new TiledRenderPolicy.TileGrid(before);
+        TiledRenderPolicy.TileGrid afterGrid = new TiledRenderPolicy.TileGrid(after);
+        assertEquals(beforeGrid.zoom, afterGrid.zoom);
+        assertEquals(beforeGrid.originX - 300, afterGrid.originX);
+        assertEquals(beforeGrid.originY - 100, afterGrid.originY);
+
+        CustomEditorLayer layer = layer();
+        TiledRenderPolicy policy = (TiledRenderPolicy) layer.getRenderPolicy();
+        paintTiles(layer, before);
+        int rendered = policy.tiles.size();
+        assertEquals(0, countDifferences(paintNewTiles(layer, after), paintTiles(layer, after)));
+        // only the tiles uncovered by the pan are rendered
+        assertTrue(policy.tiles.size() < rendered * 2);
+    }
+
+    /**
+     * Moving a graphic only forgets the tiles it was and is rendered into, and the tiles rendered again show it at
+     * its new location.
+     */
+    @Test
+    public void invalidatesTilesOfChangedGraphics() {
+        CustomEditorLayer layer = layer();
+        TiledRenderPolicy policy = (TiledRenderPolicy) layer.getRenderPolicy();
+        Mercator proj = projection(10, 0);
+        paintTiles(layer, proj);
+        int rendered = policy.tiles.size();
+
+        CustomPoint point = new CustomPoint(5.0, 3.0, 4);
+        point.setLinePaint(Color.green);
+        layer.getOMGraphics().add(point);
+        layer.indexGraphics(Collections.singletonList(point));
+        point.generate(proj);
+        int affected = policy.grid.getTilesFor(TiledRenderPolicy.getRenderBounds(point)).size();
+        layer.invalidateTiles(point);
+        assertEquals(rendered - affected, policy.tiles.size());
+        assertEquals(0, countDifferences(paintNewTiles(layer, proj), paintTiles(layer, proj)));
+        assertEquals(rendered, policy.tiles.size());
+
+        layer.invalidateTiles(point);
+        point.set(-5.0, -3.0);
+        point.generate(proj);
+        layer.invalidateTiles(point);
+        assertTrue(policy.tiles.size() < rendered);
+        assertTrue(policy.tiles.size() >= rendered - 4);
+        BufferedImage expected = paintNewTiles(layer, proj);
+        assertEquals(0, countDifferences(expected, paintTiles(layer, proj)));
+
+        policy.invalidate();
+        assertTrue(policy.tiles.isEmpty());
+        assertEquals(0, countDifferences(expected, paintTiles(layer, proj)));
+    }
+}